@@ -14,7 +14,6 @@ import com.conference.frontend.conference.ConferenceSubView;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.util.Date;
 
 /**
  *  Controller for adding speakers to a {@link ConferenceEvent}.
@@ -98,8 +97,8 @@ public class ConferenceEventAddSpeakerSystem implements Startable {
                 if (!eventExists) {
                     conferenceSubView.displayEventDoesNotExist();
                 } else {
-                    if (conferenceEventManager.getDateByEventName(candidateEvent).getStart()
-                            .before(new Date(System.currentTimeMillis()))) {
+                    if (conferenceEventManager.getDateByEventName(candidateEvent).getStartMillis()
+                            < System.currentTimeMillis()) {
                         conferenceSubView.displayEventPassed();
                     } else {
                         try {
@@ -14,7 +14,6 @@ import com.conference.frontend.conference.ConferenceSubView;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.util.Date;
 import java.util.Observer;
 
 /**
@@ -86,8 +85,8 @@ public class ConferenceEventCapacitySystem extends InputProcessor implements Sta
                     }
                 }
                 else {
-                    if (conferenceEventManager.getDateByEventName(candidateEvent).getStart()
-                            .before(new Date(System.currentTimeMillis()))) {
+                    if (conferenceEventManager.getDateByEventName(candidateEvent).getStartMillis()
+                            < System.currentTimeMillis()) {
                         conferenceSubView.displayEventPassed();
                         eventExists = false;
                     }
@@ -83,20 +83,18 @@ public class ConferenceEventDeletionSystem implements Startable {
                 }
             } else {
                 if (conferenceEventManager.getDateByEventName(candidateEvent)
-                        .getStart().before(new Date(System.currentTimeMillis()))) {
+                        .getStartMillis() < System.currentTimeMillis()) {
                     conferenceSubView.displayEventPassed();
                     canCancel = false;
                     eventExists = false;
                 } else {
-                    // Manually add attendees into candidateAttendeeList (Shallow copy)
-                    List<String> tempList = conferenceEventManager.getAttendeeListByConferenceEventName(candidateEvent);
-                    for (String attendee : tempList) {
-                        candidateAttendeeList.add(attendee);
-                    }
-
-                    canCancel = conferenceEventManager.removeEvent(userManager
+                    // The attendees the event had when it was removed, so that none who signed up meanwhile is missed
+                    List<String> removedAttendees = conferenceEventManager.removeEventAndGetAttendees(userManager
                             .getRolesByUserId(userLoginManager.getCurrentUserId()), candidateEvent);
-                    if (!canCancel) {
+                    canCancel = removedAttendees != null;
+                    if (canCancel) {
+                        candidateAttendeeList.addAll(removedAttendees);
+                    } else {
                         conferenceSubView.displayCannotCancelEvent();
                     }
                 }
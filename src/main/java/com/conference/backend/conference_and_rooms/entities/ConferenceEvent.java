@@ -3,21 +3,45 @@ package com.conference.backend.conference_and_rooms.entities;
 
 import com.conference.backend.data.utils.base.AbstractEntity;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Objects;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Abstract ConferenceEvent class with event name, attendee list, and capacity plus {@link AbstractEntity} properties.
  * Serves as a parent class for different conference event types.
  *
+ * <p>
+ *     The capacity and the number of seats taken are kept together in one atomic counter, so that seats are reserved,
+ *     released and the capacity changed without locking, and a reservation never takes the seats taken past the
+ *     capacity, even while the capacity is being lowered.
+ * </p>
+ *
+ * <p>
+ *     Attendees are kept in an insertion-ordered set, but are serialized as the {@code attendeeList} list that
+ *     earlier versions stored, so files written by either version can be read by the other. The set is only used
+ *     while holding this event's monitor, and is handed out as copies, so attendees can be read while other threads
+ *     sign up.
+ * </p>
  */
 public abstract class ConferenceEvent extends AbstractEntity {
     private static final long serialVersionUID = 94638457630434L;
 
+    // The serialized form, which keeps the fields of earlier versions
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("eventName", String.class),
+            new ObjectStreamField("attendeeList", List.class),
+            new ObjectStreamField("capacity", int.class)
+    };
+
     private String eventName;
-    private List<String> attendeeList;
-    private int capacity;
+    private Set<String> attendees;
+
+    // The capacity in the high 32 bits and the number of seats taken in the low 32 bits
+    private AtomicLong seats;
 
     /**
      * Constructs a new instance with the given data.
@@ -27,8 +51,8 @@ public abstract class ConferenceEvent extends AbstractEntity {
      */
     public ConferenceEvent(String eventName, int capacity) {
         this.eventName = eventName;
-        this.capacity = capacity;
-        this.attendeeList = new ArrayList<>();
+        this.attendees = new LinkedHashSet<>();
+        this.seats = new AtomicLong(pack(capacity, 0));
         this.setId(this.hashCode() + "");
     }
 
@@ -40,14 +64,15 @@ public abstract class ConferenceEvent extends AbstractEntity {
     public ConferenceEvent(ConferenceEvent other) {
         this(other.getEventName(), other.getCapacity());
         this.setId(other.getId());
-        this.attendeeList = other.getAttendeeList();
+        this.setAttendeeList(other.getAttendeeList());
     }
 
     /**
      * Construct a ConferenceEvent with no Attendees
      */
     public ConferenceEvent() {
-        this.attendeeList = new ArrayList<>();
+        this.attendees = new LinkedHashSet<>();
+        this.seats = new AtomicLong(pack(0, 0));
     }
 
     /**
@@ -70,21 +95,71 @@ public abstract class ConferenceEvent extends AbstractEntity {
     }
 
     /**
-     * Add an attendee to the list of this event's attendees
+     * Add an attendee to the list of this event's attendees, taking a seat even if there are none left.
+     * Use {@link #reserveSeat()} and {@link #addAttendeeToReservedSeat(String)} to respect the capacity.
      *
      * @param attendeeId id of the attendee
      */
-    public void addAttendee(String attendeeId) {
-        this.attendeeList.add(attendeeId);
+    public synchronized void addAttendee(String attendeeId) {
+        if (this.attendees.add(attendeeId)) {
+            this.seats.incrementAndGet();
+        }
     }
 
     /**
-     * Remove an attendee from this event's list of attendees
+     * Add an attendee to the list of this event's attendees in a seat already taken by {@link #reserveSeat()}.
+     * The seat is released if the attendee is already attending.
      *
      * @param attendeeId id of the attendee
      */
-    public void removeAttendee(String attendeeId){
-        this.attendeeList.remove(attendeeId);
+    public synchronized void addAttendeeToReservedSeat(String attendeeId) {
+        if (!this.attendees.add(attendeeId)) {
+            releaseSeat();
+        }
+    }
+
+    /**
+     * Remove an attendee from this event's list of attendees, releasing their seat
+     *
+     * @param attendeeId id of the attendee
+     */
+    public synchronized void removeAttendee(String attendeeId){
+        if (this.attendees.remove(attendeeId)) {
+            releaseSeat();
+        }
+    }
+
+    /**
+     * Takes one seat if any are left. The seat must later be given to an attendee with
+     * {@link #addAttendeeToReservedSeat(String)} or returned with {@link #releaseSeat()}.
+     *
+     * @return true if a seat was taken, false if the event is full
+     */
+    public boolean reserveSeat() {
+        while (true) {
+            long current = this.seats.get();
+            if (takenOf(current) >= capacityOf(current)) {
+                return false;
+            }
+            if (this.seats.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns a seat taken by {@link #reserveSeat()} that was not given to an attendee
+     */
+    public void releaseSeat() {
+        while (true) {
+            long current = this.seats.get();
+            if (takenOf(current) <= 0) {
+                return;
+            }
+            if (this.seats.compareAndSet(current, current - 1)) {
+                return;
+            }
+        }
     }
 
     /**
@@ -93,18 +168,53 @@ public abstract class ConferenceEvent extends AbstractEntity {
      * @return the maximum number of attendees that can attend this event
      */
     public int getCapacity(){
-        return this.capacity;
+        return capacityOf(this.seats.get());
+    }
+
+    /**
+     * Get the number of seats taken, including seats reserved but not yet given to an attendee
+     *
+     * @return the number of seats taken
+     */
+    public int getSeatsTaken() {
+        return takenOf(this.seats.get());
     }
 
     /**
-     * Set the maximum number of attendees that can attend this event
+     * Set the maximum number of attendees that can attend this event, even if more seats are already taken
      * Precondition: this event's capacity must be less than or equal to the capacity of the {@link Room}
      * where the event is being held
      *
      * @param capacity the maximum number of attendees that can attend this event
      */
     public void setCapacity(int capacity){
-        this.capacity = capacity;
+        while (true) {
+            long current = this.seats.get();
+            if (this.seats.compareAndSet(current, pack(capacity, takenOf(current)))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Set the maximum number of attendees that can attend this event unless more seats than that are taken, checking
+     * and setting it atomically with respect to seats being reserved
+     * Precondition: this event's capacity must be less than or equal to the capacity of the {@link Room}
+     * where the event is being held
+     *
+     * @param capacity the maximum number of attendees that can attend this event
+     * @return true if the capacity was changed, false if more than capacity seats are taken
+     */
+    public boolean trySetCapacity(int capacity) {
+        while (true) {
+            long current = this.seats.get();
+            if (takenOf(current) > capacity) {
+                return false;
+            }
+            if (this.seats.compareAndSet(current, pack(capacity, takenOf(current)))) {
+                return true;
+            }
+        }
     }
 
     /**
@@ -113,25 +223,51 @@ public abstract class ConferenceEvent extends AbstractEntity {
      * @return true if the event has space for one more attendee, false otherwise
      */
     public boolean hasCapacityForAttendees() {
-        return capacity - attendeeList.size() > 0;
+        long current = this.seats.get();
+        return capacityOf(current) - takenOf(current) > 0;
     }
 
     /**
-     * Return this event's list of attendee ids
+     * Return a copy of this event's list of attendee ids, in the order they signed up
      *
      * @return a list of ids of event attendees
      */
-    public List<String> getAttendeeList(){
-        return this.attendeeList;
+    public synchronized List<String> getAttendeeList(){
+        return new ArrayList<>(this.attendees);
+    }
+
+    /**
+     * Return the number of attendees of this event
+     *
+     * @return the number of attendees
+     */
+    public synchronized int getAttendeeCount() {
+        return this.attendees.size();
     }
 
     /**
-     * Set the list of attendee ids
+     * Check if a user is attending this event
      *
-     * @param attendeeList list of attendee ids
+     * @param attendeeId id of the attendee
+     * @return true if the user is attending this event
      */
-    public void setAttendeeList(List<String> attendeeList) {
-        this.attendeeList = attendeeList;
+    public synchronized boolean hasAttendee(String attendeeId) {
+        return this.attendees.contains(attendeeId);
+    }
+
+    /**
+     * Set the attendee ids, dropping any duplicates
+     *
+     * @param attendeeList the attendee ids
+     */
+    public synchronized void setAttendeeList(Collection<String> attendeeList) {
+        this.attendees = new LinkedHashSet<>(attendeeList);
+        while (true) {
+            long current = this.seats.get();
+            if (this.seats.compareAndSet(current, pack(capacityOf(current), this.attendees.size()))) {
+                return;
+            }
+        }
     }
 
     /**
@@ -165,8 +301,8 @@ public abstract class ConferenceEvent extends AbstractEntity {
      * @return a string representation of the event
      */
     @Override
-    public String toString() {
-        return this.eventName + " has" + this.attendeeList.size() +" attendees out of " + this.capacity + " spots.";
+    public synchronized String toString() {
+        return this.eventName + " has" + this.attendees.size() +" attendees out of " + getCapacity() + " spots.";
     }
 
     /**
@@ -175,4 +311,46 @@ public abstract class ConferenceEvent extends AbstractEntity {
      * @return the EventType of this event
      */
     public abstract EventType getEventType();
+
+    private static long pack(int capacity, int taken) {
+        return ((long) capacity << 32) | (taken & 0xFFFFFFFFL);
+    }
+
+    private static int capacityOf(long seats) {
+        return (int) (seats >> 32);
+    }
+
+    private static int takenOf(long seats) {
+        return (int) seats;
+    }
+
+    /**
+     * Writes this event to a stream in the serialized form of earlier versions, with the attendees as a list
+     *
+     * @param out the stream to write this event to
+     * @throws IOException if the stream cannot be written
+     */
+    private synchronized void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("eventName", this.eventName);
+        fields.put("attendeeList", new ArrayList<>(this.attendees));
+        fields.put("capacity", getCapacity());
+        out.writeFields();
+    }
+
+    /**
+     * Restores this event from a stream, rebuilding the attendee set and the seat counter
+     *
+     * @param in the stream to read this event from
+     * @throws IOException if the stream cannot be read
+     * @throws ClassNotFoundException if a serialized class cannot be found
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        this.eventName = (String) fields.get("eventName", null);
+        List<String> attendeeList = (List<String>) fields.get("attendeeList", null);
+        this.attendees = attendeeList == null ? new LinkedHashSet<>() : new LinkedHashSet<>(attendeeList);
+        this.seats = new AtomicLong(pack(fields.get("capacity", 0), this.attendees.size()));
+    }
 }
@@ -2,28 +2,58 @@ package com.conference.backend.conference_and_rooms.entities;
 
 import com.conference.backend.data.utils.base.AbstractEntity;
 
+import java.io.*;
 import java.util.*;
 
 /**
  * {@link AbstractEntity} plus start and end date used for {@link ConferenceEvent} times
  *
+ * <p>
+ *     Immutable apart from its id. The times are held as epoch millis, so comparing intervals allocates nothing; the
+ *     {@code Date}s returned by {@link #getStart()} and {@link #getEnd()} are new copies. An interval covers
+ *     [start, end): two intervals that only touch at an endpoint do not overlap.
+ * </p>
+ *
+ * <p>
+ *     Serialized with the same {@code Date} fields as before the times were held as millis, so existing data still
+ *     loads.
+ * </p>
  */
 public class DateInterval extends AbstractEntity implements Comparable<DateInterval> {
     private static final long serialVersionUID = 3936436254753483L;
 
-    private Date start;
-    private Date end;
+    // The serialized form is the two Date fields the class used to have
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("start", Date.class),
+            new ObjectStreamField("end", Date.class)
+    };
+
+    // Marks the times of an interval constructed without data
+    private static final long UNDEFINED = Long.MIN_VALUE;
+
+    private long start;
+    private long end;
 
     /**
      * Constructs a new instance with the given data.
      *
      * @param start The start time of the associated event (inclusive)
-     * @param end The end time of the associated event (inclusive)
+     * @param end The end time of the associated event (exclusive)
      *
      */
     public DateInterval(Date start, Date end) {
-        this.start = start;
-        this.end = end;
+        this(start.getTime(), end.getTime());
+    }
+
+    /**
+     * Constructs a new instance with the given data.
+     *
+     * @param startMillis The start time of the associated event in epoch millis (inclusive)
+     * @param endMillis The end time of the associated event in epoch millis (exclusive)
+     */
+    public DateInterval(long startMillis, long endMillis) {
+        this.start = startMillis;
+        this.end = endMillis;
         this.setId(this.hashCode() + "");
     }
 
@@ -34,14 +64,59 @@ public class DateInterval extends AbstractEntity implements Comparable<DateInter
      *            The instance to copy
      */
     public DateInterval(DateInterval other) {
-        this(other.getStart(), other.getEnd());
+        this.start = other.start;
+        this.end = other.end;
         this.setId(other.getId());
     }
 
     /**
-     * Constructs a new instance without given data. Ensure that the object's id is eventually set
+     * Constructs a new instance without given data, such as for an event that is not scheduled. Ensure that the
+     * object's id is eventually set
+     */
+    public DateInterval() {
+        this.start = UNDEFINED;
+        this.end = UNDEFINED;
+    }
+
+    /**
+     * Checks if this interval was given a start and end time
+     *
+     * @return {@code false} iff this interval was constructed without data
      */
-    public DateInterval() {}
+    public boolean isDefined() {
+        return start != UNDEFINED;
+    }
+
+    /**
+     * Checks if this interval overlaps another
+     *
+     * @param other the other {@link DateInterval}
+     * @return {@code true} iff both intervals are defined and share some time
+     */
+    public boolean overlaps(DateInterval other) {
+        return other.isDefined() && overlaps(other.start, other.end);
+    }
+
+    /**
+     * Checks if this interval overlaps [startMillis, endMillis)
+     *
+     * @param startMillis the start of the other interval in epoch millis
+     * @param endMillis the end of the other interval in epoch millis
+     * @return {@code true} iff this interval is defined and shares some time with the other interval
+     */
+    public boolean overlaps(long startMillis, long endMillis) {
+        return isDefined() && start < endMillis && startMillis < end;
+    }
+
+    /**
+     * Checks if an instant falls within this interval
+     *
+     * @param millis the instant in epoch millis
+     * @return {@code true} iff this interval is defined and start &lt;= millis &lt; end
+     */
+    public boolean contains(long millis) {
+        return isDefined() && start <= millis && millis < end;
+    }
 
     /**
      * Checks if this object is equal to another object
@@ -60,8 +135,8 @@ public class DateInterval extends AbstractEntity implements Comparable<DateInter
             return false;
         }
         DateInterval other = (DateInterval) o;
-        return start.equals(other.start)
-                && end.equals(other.end);
+        return start == other.start
+                && end == other.end;
     }
 
     /**
@@ -71,7 +146,10 @@ public class DateInterval extends AbstractEntity implements Comparable<DateInter
      */
     @Override
     public int hashCode() {
-        return Objects.hash(super.hashCode(), start.getTime(), end.getTime());
+        // Same value as Objects.hash(super.hashCode(), start, end), without boxing
+        int result = 31 + super.hashCode();
+        result = 31 * result + Long.hashCode(start);
+        return 31 * result + Long.hashCode(end);
     }
 
     /**
@@ -81,6 +159,8 @@ public class DateInterval extends AbstractEntity implements Comparable<DateInter
      */
     @Override
     public String toString() {
+        Date start = getStart();
+        Date end = getEnd();
         return  start.toLocaleString().replace("-" + (start.getYear() + 1900),"")
                 + " to "
                 + end.toLocaleString().replace("-" + (end.getYear() + 1900), "");
@@ -89,23 +169,37 @@ public class DateInterval extends AbstractEntity implements Comparable<DateInter
     /**
      * Returns the the start Date
      *
-     * @return the the start Date
+     * @return the the start Date, or {@code null} if this interval is not defined
      */
     public Date getStart() {
-        Date d = new Date();
-        d.setTime(start.getTime());
-        return d;
+        return isDefined() ? new Date(start) : null;
     }
 
     /**
      * Returns the the end Date
      *
-     * @return the the end Date
+     * @return the the end Date, or {@code null} if this interval is not defined
      */
     public Date getEnd() {
-        Date d = new Date();
-        d.setTime(end.getTime());
-        return d;
+        return isDefined() ? new Date(end) : null;
+    }
+
+    /**
+     * Returns the start time in epoch millis without copying the start Date
+     *
+     * @return the start time in epoch millis
+     */
+    public long getStartMillis() {
+        return start;
+    }
+
+    /**
+     * Returns the end time in epoch millis without copying the end Date
+     *
+     * @return the end time in epoch millis
+     */
+    public long getEndMillis() {
+        return end;
     }
 
     /**
@@ -117,11 +211,35 @@ public class DateInterval extends AbstractEntity implements Comparable<DateInter
      */
     @Override
     public int compareTo(DateInterval o) {
-        int val = this.getStart().before(o.getStart()) ? -1 : 1;
-        if (this.getStart() == o.getStart()) {
-            return 0;
-        }
-        return val;
+        return Long.compare(this.start, o.start);
+    }
+
+    /**
+     * Writes this interval in its serialized form, with its times as {@code Date}s
+     *
+     * @param out the stream to write this interval to
+     * @throws IOException if the stream cannot be written
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("start", getStart());
+        fields.put("end", getEnd());
+        out.writeFields();
+    }
+
+    /**
+     * Reads an interval from its serialized form
+     *
+     * @param in the stream to read this interval from
+     * @throws IOException if the stream cannot be read
+     * @throws ClassNotFoundException if a serialized class cannot be found
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        Date start = (Date) fields.get("start", null);
+        Date end = (Date) fields.get("end", null);
+        this.start = start == null ? UNDEFINED : start.getTime();
+        this.end = end == null ? UNDEFINED : end.getTime();
     }
 
-}
\ No newline at end of file
+}
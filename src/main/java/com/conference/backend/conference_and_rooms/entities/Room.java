@@ -1,14 +1,22 @@
 package com.conference.backend.conference_and_rooms.entities;
 
 
+import com.conference.backend.data.utils.IntervalTree;
 import com.conference.backend.data.utils.base.AbstractEntity;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * {@link AbstractEntity} plus details of a room. Includes the room name, a map of event names to their time, and the
  * room's capacity
  *
+ * <p>
+ *     The map of event names to their time is a concurrent map, so that an event's room and time can be looked up
+ *     while another event is scheduled in or removed from this Room under its lock in the RoomManager.
+ * </p>
  */
 public class Room extends AbstractEntity {
     private static final long serialVersionUID = 352402394879345L;
@@ -18,6 +26,9 @@ public class Room extends AbstractEntity {
     private int capacity;
     private List<Amenity> amenityList;
 
+    // Index over eventToDate for logarithmic conflict checks; rebuilt from eventToDate on deserialization
+    private transient IntervalTree<String> schedule;
+
     /**
      * Constructs a new instance with the given data.
      *
@@ -28,10 +39,11 @@ public class Room extends AbstractEntity {
      */
     public Room(String roomName, Map<String, DateInterval> eventToDate, int capacity) {
         this.roomName = roomName;
-        this.eventToDate = eventToDate;
+        this.eventToDate = new ConcurrentHashMap<>(eventToDate);
         this.capacity = capacity;
         setId(this.hashCode() + "");
         this.amenityList = new ArrayList<Amenity>();
+        rebuildSchedule();
     }
 
     /**
@@ -42,10 +54,11 @@ public class Room extends AbstractEntity {
      */
     public Room(String roomName, int capacity) {
         this.roomName = roomName;
-        this.eventToDate = new HashMap<String, DateInterval>();
+        this.eventToDate = new ConcurrentHashMap<>();
         this.capacity = capacity;
         setId(this.hashCode() + "");
         this.amenityList = new ArrayList<Amenity>();
+        this.schedule = new IntervalTree<>();
     }
 
     /**
@@ -62,7 +75,9 @@ public class Room extends AbstractEntity {
     /**
      * Constructs a new instance with the no given data.
      */
-    public Room() {}
+    public Room() {
+        this.schedule = new IntervalTree<>();
+    }
 
     /**
      * Returns the unique name of this Room
@@ -83,6 +98,26 @@ public class Room extends AbstractEntity {
         return new HashMap<String, DateInterval>(eventToDate);
     }
 
+    /**
+     * Returns the {@link DateInterval} of the {@link ConferenceEvent} with the given event name held in this Room
+     *
+     * @param eventName event name of the {@link ConferenceEvent}
+     * @return the {@link DateInterval} of when the event occurs, or {@code null} if it is not held in this Room
+     */
+    public DateInterval getDateInterval(String eventName) {
+        return this.eventToDate.get(eventName);
+    }
+
+    /**
+     * Checks if the {@link ConferenceEvent} with the given event name is held in this Room
+     *
+     * @param eventName event name of the {@link ConferenceEvent}
+     * @return true if the event is held in this Room, false otherwise
+     */
+    public boolean hasEvent(String eventName) {
+        return this.eventToDate.containsKey(eventName);
+    }
+
     /**
      * Returns the list of event names of {@link ConferenceEvent}s held in this Room in alphabetical order
      *
@@ -105,18 +140,12 @@ public class Room extends AbstractEntity {
      * event name is added to the eventToDate scheduling map, false otherwise
      */
     public boolean addEvent(DateInterval dateInterval, String eventName) {
-        Collection<DateInterval> allDates = this.eventToDate.values();
-        for (DateInterval d : allDates) {
-            Date start1 = d.getStart();
-            Date end1 = d.getEnd();
-            Date start2 = dateInterval.getStart();
-            Date end2 = dateInterval.getEnd();
-            if (start1.before(end2) && start2.before(end1)) {
-                return false;
-            }
+        if (this.schedule.overlapsAny(dateInterval.getStartMillis(), dateInterval.getEndMillis())) {
+            return false;
         }
 
         this.eventToDate.put(eventName, dateInterval);
+        this.schedule.put(eventName, dateInterval.getStartMillis(), dateInterval.getEndMillis());
         return true;
     }
 
@@ -127,6 +156,7 @@ public class Room extends AbstractEntity {
      * @return true if eventName is removed from the eventToDate scheduling map, false otherwise
      */
     public boolean removeEvent(String eventName) {
+        this.schedule.remove(eventName);
         return this.eventToDate.remove(eventName, this.eventToDate.get(eventName));
     }
 
@@ -176,6 +206,35 @@ public class Room extends AbstractEntity {
      */
     public List<Amenity> getAmenityList() { return this.amenityList; }
 
+    /**
+     * Rebuilds the schedule index from the eventToDate scheduling map
+     */
+    private void rebuildSchedule() {
+        this.schedule = new IntervalTree<>();
+        if (this.eventToDate == null) {
+            return;
+        }
+        for (Map.Entry<String, DateInterval> entry : this.eventToDate.entrySet()) {
+            this.schedule.put(entry.getKey(), entry.getValue().getStartMillis(), entry.getValue().getEndMillis());
+        }
+    }
+
+    /**
+     * Restores this Room from a stream, rebuilding the schedule index that is not serialized. Files written before
+     * the scheduling map was concurrent hold a HashMap, which is copied into one.
+     *
+     * @param in the stream to read this Room from
+     * @throws IOException if the stream cannot be read
+     * @throws ClassNotFoundException if a serialized class cannot be found
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        if (this.eventToDate != null) {
+            this.eventToDate = new ConcurrentHashMap<>(this.eventToDate);
+        }
+        rebuildSchedule();
+    }
+
     /**
      * Returns the hash code for this Room
      *
@@ -0,0 +1,90 @@
+package com.conference.backend.conference_and_rooms.managers;
+
+import com.conference.backend.conference_and_rooms.entities.ConferenceEvent;
+
+import java.io.Serializable;
+
+/**
+ * One change to a {@link ConferenceEvent}, as recorded to the journal in place of the whole event. Attendees are
+ * signed up by the {@link com.conference.backend.users.UserManager}, which records those changes itself.
+ */
+public final class ConferenceEventChange implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private enum Kind {
+        ATTENDEE_ADDED, ATTENDEE_REMOVED, SPEAKER_ADDED, CAPACITY_SET
+    }
+
+    private final Kind kind;
+    private final String id;
+    private final int capacity;
+
+    private ConferenceEventChange(Kind kind, String id, int capacity) {
+        this.kind = kind;
+        this.id = id;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Constructs the change of an attendee being added to the event.
+     *
+     * @param attendeeId the id of the attendee
+     * @return the change
+     */
+    public static ConferenceEventChange attendeeAdded(String attendeeId) {
+        return new ConferenceEventChange(Kind.ATTENDEE_ADDED, attendeeId, 0);
+    }
+
+    /**
+     * Constructs the change of an attendee being removed from the event.
+     *
+     * @param attendeeId the id of the attendee
+     * @return the change
+     */
+    public static ConferenceEventChange attendeeRemoved(String attendeeId) {
+        return new ConferenceEventChange(Kind.ATTENDEE_REMOVED, attendeeId, 0);
+    }
+
+    /**
+     * Constructs the change of a speaker being added to the event.
+     *
+     * @param speakerId the id of the speaker
+     * @return the change
+     */
+    static ConferenceEventChange speakerAdded(String speakerId) {
+        return new ConferenceEventChange(Kind.SPEAKER_ADDED, speakerId, 0);
+    }
+
+    /**
+     * Constructs the change of the capacity of the event being set.
+     *
+     * @param capacity the new capacity
+     * @return the change
+     */
+    static ConferenceEventChange capacitySet(int capacity) {
+        return new ConferenceEventChange(Kind.CAPACITY_SET, null, capacity);
+    }
+
+    /**
+     * Makes this change to a {@link ConferenceEvent}. Attendees added take a seat even if none are left, since
+     * the seat was taken when the change was recorded.
+     *
+     * @param event the {@link ConferenceEvent} to change
+     */
+    void applyTo(ConferenceEvent event) {
+        switch (kind) {
+            case ATTENDEE_ADDED:
+                event.addAttendee(id);
+                break;
+            case ATTENDEE_REMOVED:
+                event.removeAttendee(id);
+                break;
+            case SPEAKER_ADDED:
+                event.addSpeakerId(id);
+                break;
+            case CAPACITY_SET:
+                event.setCapacity(capacity);
+                break;
+        }
+    }
+}
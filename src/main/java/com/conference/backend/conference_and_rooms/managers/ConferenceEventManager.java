@@ -5,26 +5,79 @@ import com.conference.backend.conference_and_rooms.managers.ConferenceEventFacto
 import com.conference.backend.conference_and_rooms.managers.RoomManager;
 import com.conference.backend.data.utils.*;
 import com.conference.backend.data.utils.base.CrudManager;
+import com.conference.backend.data.utils.base.Journal;
+import com.conference.backend.data.utils.base.Journaled;
 import com.conference.backend.users.User;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * Backend service to store and manipulate {@link ConferenceEvent} and {@link Room}instances
+ *
+ * <p>
+ *     Safe for use by many threads at once. Changes to a {@link ConferenceEvent} hold its lock from
+ *     {@link #getEventLock}; adding a speaker first holds the speaker's lock, so that the speaker's other events
+ *     cannot change while they are checked for overlaps.
+ * </p>
+ *
+ * <p>
+ *     The scheduled events of each speaker are indexed by time, so checking a speaker for overlaps and listing the
+ *     events of a speaker only look at that speaker's events. Each speaker's index is guarded by its own monitor.
+ * </p>
  */
-public class ConferenceEventManager extends Observable implements Serializable, CrudManager<ConferenceEvent> {
+public class ConferenceEventManager extends Observable implements Serializable, CrudManager<ConferenceEvent>,
+        Journaled {
     private static final long serialVersionUID = 48352876358762L;
 
+    /**
+     * The type of the {@link Journal} records of {@link ConferenceEvent}s, keyed by event name
+     */
+    public static final String EVENT_RECORD = "event";
+
     private RoomManager roomRepository;
     private Map<String, ConferenceEvent> conferenceEvents;
 
+    // Conference-wide index of scheduled events by time; rebuilt from the rooms on deserialization
+    private transient IntervalTree<String> eventSchedule;
+
+    // Index of the scheduled events of each speaker by time, keyed by speaker id; rebuilt on deserialization
+    private transient Map<String, IntervalTree<String>> speakerSchedules;
+
+    // The journal changes are recorded to, if any
+    private transient Journal journal;
+
+    // Guard changes to each ConferenceEvent by event name, and to the events of each speaker by speaker id
+    private transient StripedLock eventLocks;
+    private transient StripedLock speakerLocks;
+
+    // Guards eventSchedule, which is not safe to read while it is being changed
+    private transient ReadWriteLock scheduleLock;
+
     /**
      * Constructs an instance with no given data
      */
     public ConferenceEventManager() {
         this.roomRepository = new RoomManager();
-        this.conferenceEvents = new HashMap<>();
+        this.conferenceEvents = new ConcurrentHashMap<>();
+        this.eventSchedule = new IntervalTree<>();
+        this.speakerSchedules = new ConcurrentHashMap<>();
+        initLocks();
+    }
+
+    /**
+     * Returns the lock guarding changes to the {@link ConferenceEvent} with the given name, such as its attendees.
+     * A caller that also needs a {@link User}'s lock must take that one first.
+     *
+     * @param eventName the name of the {@link ConferenceEvent}
+     * @return the lock of the {@link ConferenceEvent}
+     */
+    public Lock getEventLock(String eventName) {
+        return this.eventLocks.get(eventName);
     }
 
     /**
@@ -35,7 +88,18 @@ public class ConferenceEventManager extends Observable implements Serializable,
      */
     @Override
     public void save(ConferenceEvent event) {
-        this.conferenceEvents.put(event.getEventName(), event);
+        Lock lock = getEventLock(event.getEventName());
+        lock.lock();
+        try {
+            ConferenceEvent previous = this.conferenceEvents.put(event.getEventName(), event);
+            if (previous != null) {
+                unindexSpeakers(previous);
+            }
+            indexSpeakers(event);
+            journalEvent(event);
+        } finally {
+            lock.unlock();
+        }
         setChanged();
         notifyObservers(event.getEventName());
     }
@@ -47,7 +111,16 @@ public class ConferenceEventManager extends Observable implements Serializable,
      * @param event a {@link ConferenceEvent} instance to delete
      */
     @Override
-    public void delete(ConferenceEvent event) { conferenceEvents.remove(event.getEventName()); }
+    public void delete(ConferenceEvent event) {
+        ConferenceEvent removed = conferenceEvents.remove(event.getEventName());
+        if (removed == null) {
+            return;
+        }
+        unindexSpeakers(removed);
+        if (journal != null) {
+            journal.recordDelete(EVENT_RECORD, event.getEventName());
+        }
+    }
 
     /**
      * Returns the repository of {@link Room} objects (the schedule)
@@ -66,7 +139,7 @@ public class ConferenceEventManager extends Observable implements Serializable,
      * @return true if the event is in the schedule, false otherwise
      */
     public boolean hasEvent(String eventName) {
-        return this.conferenceEvents.get(eventName) != null;
+        return eventName != null && this.conferenceEvents.get(eventName) != null;
     }
 
     /**
@@ -136,16 +209,29 @@ public class ConferenceEventManager extends Observable implements Serializable,
             return false;
         }
 
-        if (this.conferenceEvents.containsKey(event.getEventName())) {
-            return false;
-        }
+        Lock lock = getEventLock(event.getEventName());
+        lock.lock();
+        try {
+            if (this.conferenceEvents.containsKey(event.getEventName())) {
+                return false;
+            }
 
-        if (!roomRepository.getRoomsMap().get(roomName).addEvent(dateInterval, event.getEventName())) {
-            return false;
-        }
+            if (!roomRepository.scheduleEvent(roomName, dateInterval, event.getEventName())) {
+                return false;
+            }
 
-        this.save(event);
-        return true;
+            this.scheduleLock.writeLock().lock();
+            try {
+                this.eventSchedule.put(event.getEventName(), dateInterval.getStartMillis(),
+                        dateInterval.getEndMillis());
+            } finally {
+                this.scheduleLock.writeLock().unlock();
+            }
+            this.save(event);
+            return true;
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -187,30 +273,47 @@ public class ConferenceEventManager extends Observable implements Serializable,
      * @return true iff the {@link ConferenceEvent} is removed from the schedule and {@code conferenceEvents}
      */
     public boolean removeEvent(List<Role> roles, String eventName) {
-        if (!roles.contains(Role.ORGANIZER)) {
-            return false;
-        }
+        return this.removeEventAndGetAttendees(roles, eventName) != null;
+    }
 
-        if (!this.hasEvent(eventName)) {
-            return false;
+    /**
+     * Removes a {@link ConferenceEvent} from the schedule, as {@link #removeEvent} does, and returns the attendees
+     * it had when it was removed. The attendees are read under the event's lock, so no sign-up lands after them;
+     * these are the users whose list of events still names the removed event.
+     *
+     * @param roles the roles of the user attempting to remove the {@link ConferenceEvent}
+     * @param eventName the name of the {@link ConferenceEvent} to be removed
+     * @return the ids of the attendees of the removed {@link ConferenceEvent}, or {@code null} if it was not removed
+     */
+    public List<String> removeEventAndGetAttendees(List<Role> roles, String eventName) {
+        if (!roles.contains(Role.ORGANIZER)) {
+            return null;
         }
 
-        boolean eventRemovedFromRoom = false;
+        Lock lock = getEventLock(eventName);
+        lock.lock();
+        try {
+            if (!this.hasEvent(eventName)) {
+                return null;
+            }
 
-        List<Room> allRooms = this.roomRepository.getRoomsList();
-        for (Room r : allRooms) {
-            List allEvents = r.getAllEventNames();
-            if (allEvents.contains(eventName)) {
-                eventRemovedFromRoom = r.removeEvent(eventName);
+            if (!this.roomRepository.unscheduleEvent(eventName)) {
+                return null;
             }
-        }
 
-        if (!eventRemovedFromRoom) {
-            return false;
+            this.scheduleLock.writeLock().lock();
+            try {
+                this.eventSchedule.remove(eventName);
+            } finally {
+                this.scheduleLock.writeLock().unlock();
+            }
+            ConferenceEvent removed = this.conferenceEvents.get(eventName);
+            List<String> attendees = removed.getAttendeeList();
+            this.delete(removed);
+            return attendees;
+        } finally {
+            lock.unlock();
         }
-
-        this.delete(this.conferenceEvents.get(eventName));
-        return true;
     }
 
     /**
@@ -220,21 +323,12 @@ public class ConferenceEventManager extends Observable implements Serializable,
      * @return a list of eventNames of all {@link ConferenceEvent}s that overlap with the time interval
      */
     public List<String> getEventsAtInterval(DateInterval interval2) {
-        List<Room> allRooms = this.roomRepository.getRoomsList();
-        List<String> results = new ArrayList<>();
-        for (Room room : allRooms) {
-            Set<String> allEventNames = room.getEventToDate().keySet();
-            for (String eventName : allEventNames) {
-                Date start1 = room.getEventToDate().get(eventName).getStart();
-                Date end1 = room.getEventToDate().get(eventName).getEnd();
-                Date start2 = interval2.getStart();
-                Date end2 = interval2.getEnd();
-                if (start1.before(end2) && start2.before(end1)) {
-                    results.add(eventName);
-                }
-            }
+        this.scheduleLock.readLock().lock();
+        try {
+            return this.eventSchedule.getOverlapping(interval2.getStartMillis(), interval2.getEndMillis());
+        } finally {
+            this.scheduleLock.readLock().unlock();
         }
-        return results;
     }
 
     /**
@@ -262,6 +356,29 @@ public class ConferenceEventManager extends Observable implements Serializable,
             return false;
         }
 
+        Lock speakerLock = this.speakerLocks.get(speakerId);
+        speakerLock.lock();
+        try {
+            Lock eventLock = getEventLock(eventName);
+            eventLock.lock();
+            try {
+                return addSpeakerToEventLocked(speakerId, eventName);
+            } finally {
+                eventLock.unlock();
+            }
+        } finally {
+            speakerLock.unlock();
+        }
+    }
+
+    /**
+     * Adds a speaker to speak at a {@link ConferenceEvent} while holding the locks of both.
+     *
+     * @param speakerId the id of the speaker
+     * @param eventName the name of the {@link ConferenceEvent} in which the speaker is being added
+     * @return true iff the speaker is added to the {@link ConferenceEvent}
+     */
+    private boolean addSpeakerToEventLocked(String speakerId, String eventName) {
         // Event is in the schedule
         if (!this.hasEvent(eventName)) {
             return false;
@@ -282,46 +399,49 @@ public class ConferenceEventManager extends Observable implements Serializable,
         }
 
         // Check if Speaker is not speaking in another event that overlaps this event's time interval
-        List<Room> allRooms = this.roomRepository.getRoomsList();
-
-        // Find interval of eventName
-        for (Room room: allRooms){
-            if (room.getEventToDate().containsKey(eventName)) {
-                // This if is only true once; Get eventNames that overlap with given event's interval
-                List<String> overlappingEvents = this.getEventsAtInterval(room.getEventToDate().get(eventName));
-                for (String overlappingEventName : overlappingEvents) {
-                    if (this.conferenceEvents.get(overlappingEventName).getSpeakerIds().contains(speakerId)) {
-                        return false;
-                    }
+        long[] interval = getScheduledInterval(eventName);
+        IntervalTree<String> speakerSchedule = this.speakerSchedules.computeIfAbsent(speakerId,
+                id -> new IntervalTree<>());
+        if (interval != null) {
+            synchronized (speakerSchedule) {
+                if (speakerSchedule.overlapsAny(interval[0], interval[1])) {
+                    return false;
                 }
             }
         }
 
         // Finally, add speaker to this event as a speaker
-        return this.conferenceEvents.get(eventName).addSpeakerId(speakerId);
+        if (!this.conferenceEvents.get(eventName).addSpeakerId(speakerId)) {
+            return false;
+        }
+        if (interval != null) {
+            synchronized (speakerSchedule) {
+                speakerSchedule.put(eventName, interval[0], interval[1]);
+            }
+        }
+        journalEventChange(eventName, ConferenceEventChange.speakerAdded(speakerId));
+        return true;
     }
 
     /**
-     * Fetches the list of the {@link ConferenceEvent}s that {@code user} is speaking at
+     * Fetches the list of the {@link ConferenceEvent}s that {@code user} is speaking at, ordered by start time
      * Precondition(s): {@code user} must have a speaker role
      *
      * @param speakerId the id of the speaker whose {@link ConferenceEvent}s are desired
      * @return a list of the {@link ConferenceEvent}s that {@code user} is speaking at
      */
     public List<String> getSpeakerEventNames(String speakerId) {
-        List<String> speakerEvents = new ArrayList<>();
-        List<ConferenceEvent> allEvents = this.getConferenceEventsList();
-
-        for (ConferenceEvent event : allEvents){
-            if (event.getSpeakerIds().contains(speakerId)) {
-                speakerEvents.add(event.getEventName());
-            }
+        IntervalTree<String> speakerSchedule = speakerId == null ? null : this.speakerSchedules.get(speakerId);
+        if (speakerSchedule == null) {
+            return new ArrayList<>();
+        }
+        synchronized (speakerSchedule) {
+            return speakerSchedule.getKeysInOrder();
         }
-        return speakerEvents;
     }
 
     /**
-     * Fetches the list of the {@link ConferenceEvent}s that {@code user} is speaking at
+     * Fetches the list of the {@link ConferenceEvent}s that {@code user} is speaking at, ordered by start time
      * Precondition(s): {@code user} must have a speaker role
      *
      * @param speakerId the id of the speaker whose {@link ConferenceEvent}s are desired
@@ -329,10 +449,9 @@ public class ConferenceEventManager extends Observable implements Serializable,
      */
     public List<ConferenceEvent> getSpeakerEvents(String speakerId) {
         List<ConferenceEvent> speakerEvents = new ArrayList<>();
-        List<ConferenceEvent> allEvents = this.getConferenceEventsList();
-
-        for (ConferenceEvent event : allEvents){
-            if (event.getSpeakerIds().contains(speakerId)) {
+        for (String eventName : getSpeakerEventNames(speakerId)) {
+            ConferenceEvent event = this.conferenceEvents.get(eventName);
+            if (event != null) {
                 speakerEvents.add(event);
             }
         }
@@ -347,14 +466,8 @@ public class ConferenceEventManager extends Observable implements Serializable,
      * @return the {@link Room} where {@code eventName} {@link ConferenceEvent} is being held
      */
     public Room getRoomByEventName(String eventName) {
-        List<Room> allRooms = this.roomRepository.getRoomsList();
-
-        for (Room room : allRooms) {
-            if (room.getEventToDate().containsKey(eventName)) {
-                return room;
-            }
-        }
-        return new Room();
+        Room room = this.roomRepository.getRoomByEventName(eventName);
+        return room == null ? new Room() : room;
     }
 
     /**
@@ -365,14 +478,8 @@ public class ConferenceEventManager extends Observable implements Serializable,
      * @return the {@link DateInterval} in which {@code eventName} {@link ConferenceEvent} occurs
      */
     public DateInterval getDateByEventName(String eventName) {
-        List<Room> allRooms = this.roomRepository.getRoomsList();
-
-        for (Room room : allRooms) {
-            if (room.getEventToDate().containsKey(eventName)) {
-                return room.getEventToDate().get(eventName);
-            }
-        }
-        return new DateInterval();
+        Room room = this.roomRepository.getRoomByEventName(eventName);
+        return room == null ? new DateInterval() : room.getDateInterval(eventName);
     }
 
     /**
@@ -400,11 +507,19 @@ public class ConferenceEventManager extends Observable implements Serializable,
             return false;
         }
 
-        if (conferenceEvents.get(eventName).getAttendeeList().size() > capacity) {
-            return false;
+        // Set under the event's lock so that changes to the capacity are recorded in the order they are made
+        Lock lock = getEventLock(eventName);
+        lock.lock();
+        try {
+            // Checked and set atomically with the seats taken, so no one signs up between the check and the change
+            ConferenceEvent event = conferenceEvents.get(eventName);
+            if (event == null || !event.trySetCapacity(capacity)) {
+                return false;
+            }
+            journalEventChange(eventName, ConferenceEventChange.capacitySet(capacity));
+        } finally {
+            lock.unlock();
         }
-
-        conferenceEvents.get(eventName).setCapacity(capacity);
         return true;
     }
 
@@ -450,7 +565,7 @@ public class ConferenceEventManager extends Observable implements Serializable,
      *      with name eventName
      */
     public int getAttendeeListSizeByEventName(String eventName) {
-        return conferenceEvents.get(eventName).getAttendeeList().size();
+        return conferenceEvents.get(eventName).getAttendeeCount();
     }
 
     /**
@@ -478,4 +593,201 @@ public class ConferenceEventManager extends Observable implements Serializable,
         return eventNames;
     }
 
+    /**
+     * Sets the {@link Journal} this manager, and its {@link RoomManager}, record changes to.
+     *
+     * @param journal the {@link Journal} to record changes to, or {@code null} to stop recording
+     */
+    @Override
+    public void setJournal(Journal journal) {
+        this.journal = journal;
+        this.roomRepository.setJournal(journal);
+    }
+
+    /**
+     * Applies the latest recorded state of {@link ConferenceEvent}s and {@link Room}s. The event schedule and
+     * speaker schedule indexes are rebuilt by {@link #finishReplay()}.
+     *
+     * @param type the type of record; {@link #EVENT_RECORD} and {@link RoomManager#ROOM_RECORD} are applied
+     * @param entities a map from keys to the latest state of each entity, or {@code null} if the entity was
+     *                 deleted
+     */
+    @Override
+    public void replay(String type, Map<String, Object> entities) {
+        if (EVENT_RECORD.equals(type)) {
+            for (Map.Entry<String, Object> entry : entities.entrySet()) {
+                if (entry.getValue() == null) {
+                    this.conferenceEvents.remove(entry.getKey());
+                } else {
+                    this.conferenceEvents.put(entry.getKey(), (ConferenceEvent) entry.getValue());
+                }
+            }
+        } else if (RoomManager.ROOM_RECORD.equals(type)) {
+            this.roomRepository.replay(type, entities);
+        }
+    }
+
+    /**
+     * Rebuilds the event to room index of the {@link RoomManager}, then the event schedule and speaker schedule
+     * indexes, from the replayed {@link ConferenceEvent}s and {@link Room}s.
+     */
+    @Override
+    public void finishReplay() {
+        this.roomRepository.finishReplay();
+        rebuildEventSchedule();
+    }
+
+    /**
+     * Applies a recorded change to a {@link ConferenceEvent} or a {@link Room}. Changes to entities no longer
+     * stored are ignored.
+     *
+     * @param type the type of record; {@link #EVENT_RECORD} and {@link RoomManager#ROOM_RECORD} are applied
+     * @param key the name of the entity
+     * @param change the {@link ConferenceEventChange} or room change recorded
+     */
+    @Override
+    public void replayChange(String type, String key, Object change) {
+        if (EVENT_RECORD.equals(type)) {
+            ConferenceEvent event = this.conferenceEvents.get(key);
+            if (event != null) {
+                ((ConferenceEventChange) change).applyTo(event);
+            }
+        } else if (RoomManager.ROOM_RECORD.equals(type)) {
+            this.roomRepository.replayChange(type, key, change);
+        }
+    }
+
+    /**
+     * Records a new {@link ConferenceEvent} to the journal, if any.
+     *
+     * @param event the {@link ConferenceEvent} that was added
+     */
+    private void journalEvent(ConferenceEvent event) {
+        if (journal != null) {
+            journal.recordSave(EVENT_RECORD, event.getEventName(), event);
+        }
+    }
+
+    /**
+     * Records a change to a {@link ConferenceEvent} to the journal, if any.
+     *
+     * @param eventName the name of the {@link ConferenceEvent} that changed
+     * @param change the change
+     */
+    private void journalEventChange(String eventName, ConferenceEventChange change) {
+        if (journal != null) {
+            journal.recordChange(EVENT_RECORD, eventName, change);
+        }
+    }
+
+    /**
+     * Fetches the start and end of a scheduled {@link ConferenceEvent} from the event schedule index.
+     *
+     * @param eventName the name of the {@link ConferenceEvent}
+     * @return the start and end in epoch millis, or {@code null} if the event is not scheduled
+     */
+    private long[] getScheduledInterval(String eventName) {
+        this.scheduleLock.readLock().lock();
+        try {
+            if (!this.eventSchedule.containsKey(eventName)) {
+                return null;
+            }
+            return new long[] {this.eventSchedule.getStart(eventName), this.eventSchedule.getEnd(eventName)};
+        } finally {
+            this.scheduleLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a scheduled {@link ConferenceEvent} to the schedule of each of its speakers.
+     *
+     * @param event the {@link ConferenceEvent} to index
+     */
+    private void indexSpeakers(ConferenceEvent event) {
+        long[] interval = getScheduledInterval(event.getEventName());
+        if (interval == null) {
+            return;
+        }
+        for (String speakerId : event.getSpeakerIds()) {
+            // A Talk without a speaker has the empty id
+            if (speakerId.isEmpty()) {
+                continue;
+            }
+            IntervalTree<String> speakerSchedule = this.speakerSchedules.computeIfAbsent(speakerId,
+                    id -> new IntervalTree<>());
+            synchronized (speakerSchedule) {
+                speakerSchedule.put(event.getEventName(), interval[0], interval[1]);
+            }
+        }
+    }
+
+    /**
+     * Removes a {@link ConferenceEvent} from the schedule of each of its speakers.
+     *
+     * @param event the {@link ConferenceEvent} to remove from the index
+     */
+    private void unindexSpeakers(ConferenceEvent event) {
+        for (String speakerId : event.getSpeakerIds()) {
+            IntervalTree<String> speakerSchedule = this.speakerSchedules.get(speakerId);
+            if (speakerSchedule != null) {
+                synchronized (speakerSchedule) {
+                    speakerSchedule.remove(event.getEventName());
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates the locks, which are not serialized
+     */
+    private void initLocks() {
+        this.eventLocks = new StripedLock();
+        this.speakerLocks = new StripedLock();
+        this.scheduleLock = new ReentrantReadWriteLock();
+    }
+
+    /**
+     * Rebuilds the conference-wide event schedule index from the events held in every {@link Room}
+     */
+    private void rebuildEventSchedule() {
+        IntervalTree<String> schedule = new IntervalTree<>();
+        for (Room room : this.roomRepository.getRoomsList()) {
+            for (Map.Entry<String, DateInterval> entry : room.getEventToDate().entrySet()) {
+                schedule.put(entry.getKey(), entry.getValue().getStartMillis(), entry.getValue().getEndMillis());
+            }
+        }
+        this.scheduleLock.writeLock().lock();
+        try {
+            this.eventSchedule = schedule;
+        } finally {
+            this.scheduleLock.writeLock().unlock();
+        }
+        rebuildSpeakerSchedules();
+    }
+
+    /**
+     * Rebuilds the index of each speaker's events from the speakers of every scheduled {@link ConferenceEvent}
+     */
+    private void rebuildSpeakerSchedules() {
+        this.speakerSchedules = new ConcurrentHashMap<>();
+        for (ConferenceEvent event : this.conferenceEvents.values()) {
+            indexSpeakers(event);
+        }
+    }
+
+    /**
+     * Restores this manager from a stream, rebuilding the indexes and locks that are not serialized
+     *
+     * @param in the stream to read this manager from
+     * @throws IOException if the stream cannot be read
+     * @throws ClassNotFoundException if a serialized class cannot be found
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        // Files written before the events were stored in a concurrent map hold a HashMap
+        this.conferenceEvents = new ConcurrentHashMap<>(this.conferenceEvents);
+        initLocks();
+        rebuildEventSchedule();
+    }
+
 }
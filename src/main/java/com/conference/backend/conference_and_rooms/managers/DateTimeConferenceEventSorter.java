@@ -14,7 +14,8 @@ public class DateTimeConferenceEventSorter {
     public DateTimeConferenceEventSorter() { }
 
     /**
-     * Return a list of event names in order by their start times (earlier to latest)
+     * Return a list of event names in order by their start times (earlier to latest), and by name for events that
+     * start at the same time
      *
      * @param conferenceEvents a list of ConferenceEvent objects to sort
      * @param eventRepository the ConferenceEventManager containing all ConferenceEvent objects
@@ -25,7 +26,8 @@ public class DateTimeConferenceEventSorter {
             DateInterval d1 = eventRepository.getDateByEventName(c1.getEventName());
             DateInterval d2 = eventRepository.getDateByEventName(c2.getEventName());
 
-            return d1.compareTo(d2);
+            int byStart = d1.compareTo(d2);
+            return byStart != 0 ? byStart : c1.getEventName().compareTo(c2.getEventName());
         });
 
         List<String> eventNames = new ArrayList<>();
@@ -0,0 +1,80 @@
+package com.conference.backend.conference_and_rooms.managers;
+
+import com.conference.backend.conference_and_rooms.entities.Amenity;
+import com.conference.backend.conference_and_rooms.entities.DateInterval;
+import com.conference.backend.conference_and_rooms.entities.Room;
+
+import java.io.Serializable;
+
+/**
+ * One change to a {@link Room}, as recorded to the journal in place of the whole room.
+ */
+final class RoomChange implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private enum Kind {
+        EVENT_SCHEDULED, EVENT_UNSCHEDULED, AMENITY_ADDED
+    }
+
+    private final Kind kind;
+    private final String eventName;
+    private final DateInterval dateInterval;
+    private final Amenity amenity;
+
+    private RoomChange(Kind kind, String eventName, DateInterval dateInterval, Amenity amenity) {
+        this.kind = kind;
+        this.eventName = eventName;
+        this.dateInterval = dateInterval;
+        this.amenity = amenity;
+    }
+
+    /**
+     * Constructs the change of an event being scheduled in the room.
+     *
+     * @param dateInterval the {@link DateInterval} the event takes place
+     * @param eventName the name of the event
+     * @return the change
+     */
+    static RoomChange eventScheduled(DateInterval dateInterval, String eventName) {
+        return new RoomChange(Kind.EVENT_SCHEDULED, eventName, dateInterval, null);
+    }
+
+    /**
+     * Constructs the change of an event being removed from the room.
+     *
+     * @param eventName the name of the event
+     * @return the change
+     */
+    static RoomChange eventUnscheduled(String eventName) {
+        return new RoomChange(Kind.EVENT_UNSCHEDULED, eventName, null, null);
+    }
+
+    /**
+     * Constructs the change of an {@link Amenity} being added to the room.
+     *
+     * @param amenity the {@link Amenity} added
+     * @return the change
+     */
+    static RoomChange amenityAdded(Amenity amenity) {
+        return new RoomChange(Kind.AMENITY_ADDED, null, null, amenity);
+    }
+
+    /**
+     * Makes this change to a {@link Room}.
+     *
+     * @param room the {@link Room} to change
+     */
+    void applyTo(Room room) {
+        switch (kind) {
+            case EVENT_SCHEDULED:
+                room.addEvent(dateInterval, eventName);
+                break;
+            case EVENT_UNSCHEDULED:
+                room.removeEvent(eventName);
+                break;
+            case AMENITY_ADDED:
+                room.addAmenity(amenity);
+                break;
+        }
+    }
+}
@@ -3,27 +3,57 @@ package com.conference.backend.conference_and_rooms.managers;
 
 import com.conference.backend.conference_and_rooms.entities.Amenity;
 import com.conference.backend.data.utils.Role;
+import com.conference.backend.data.utils.StripedLock;
 import com.conference.backend.conference_and_rooms.entities.Room;
 import com.conference.backend.data.utils.base.CrudManager;
+import com.conference.backend.data.utils.base.Journal;
+import com.conference.backend.data.utils.base.Journaled;
 import com.conference.backend.users.User;
 import com.conference.backend.conference_and_rooms.entities.ConferenceEvent;
 import org.apache.commons.io.input.ObservableInputStream;
 
+import com.conference.backend.conference_and_rooms.entities.DateInterval;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
 
 /**
  * Backend service to store and retrieve {@link Room} instances.
  * Checks if Room exists
+ *
+ * <p>
+ *     Safe for use by many threads at once; changes to a {@link Room}, such as scheduling an event in it, hold that
+ *     room's lock.
+ * </p>
  */
 
-public class RoomManager extends Observable implements Serializable, CrudManager<Room> {
+public class RoomManager extends Observable implements Serializable, CrudManager<Room>, Journaled {
     private static final long serialVersionUID = 2673458726345L;
 
+    /**
+     * The type of the {@link Journal} records of {@link Room}s, keyed by room name
+     */
+    public static final String ROOM_RECORD = "room";
+
     private Map<String, Room> rooms;
 
+    // Maps event names to the name of the Room they are held in; rebuilt from the rooms on deserialization
+    private transient Map<String, String> eventToRoomName;
+
+    // The journal changes are recorded to, if any
+    private transient Journal journal;
+
+    // Guards changes to each Room, by room name
+    private transient StripedLock roomLocks;
+
     public RoomManager() {
-        this.rooms = new HashMap<String, Room>();
+        this.rooms = new ConcurrentHashMap<String, Room>();
+        this.eventToRoomName = new ConcurrentHashMap<>();
+        this.roomLocks = new StripedLock();
     }
 
     /**
@@ -38,12 +68,18 @@ public class RoomManager extends Observable implements Serializable, CrudManager
             return false;
         }
 
-        if (this.getRoomsList().stream().anyMatch(r -> r.getRoomName().equals(room.getRoomName()))) {
-            return false;
-        }
+        Lock lock = roomLocks.get(room.getRoomName());
+        lock.lock();
+        try {
+            if (this.getRoomsList().stream().anyMatch(r -> r.getRoomName().equals(room.getRoomName()))) {
+                return false;
+            }
 
-        save(room);
-        return true;
+            save(room);
+            return true;
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -123,7 +159,7 @@ public class RoomManager extends Observable implements Serializable, CrudManager
      * @return a {@code true} if there already exists a Room stored with the name roomName
      */
     public boolean hasRoom(String roomName) {
-        return this.rooms.containsKey(roomName);
+        return roomName != null && this.rooms.containsKey(roomName);
     }
 
     /**
@@ -156,13 +192,69 @@ public class RoomManager extends Observable implements Serializable, CrudManager
      * @return the {@code String} of {@link Room} that has the {@link ConferenceEvent} with the name eventName
      */
     public String getRoomNameByEventName(String eventName) {
-        List<String> roomNames = getRoomsNameList();
-        for (String roomName : roomNames) {
-            if (rooms.get(roomName).getAllEventNames().contains(eventName)) {
-                return roomName;
+        return eventName == null ? "" : eventToRoomName.getOrDefault(eventName, "");
+    }
+
+    /**
+     * Fetches the {@link Room} in which the {@link ConferenceEvent} with the given event name takes place
+     *
+     * @param eventName the name of the {@link ConferenceEvent}
+     * @return the {@link Room} holding the {@link ConferenceEvent}, or {@code null} if it is not scheduled
+     */
+    public Room getRoomByEventName(String eventName) {
+        String roomName = eventName == null ? null : eventToRoomName.get(eventName);
+        return roomName == null ? null : rooms.get(roomName);
+    }
+
+    /**
+     * Schedules the {@link ConferenceEvent} with the given event name in the {@link Room} with the given room name
+     * Precondition(s): that a {@link Room} that has the name roomName exists in the map {@code rooms}
+     *
+     * @param roomName the name of the {@link Room} to hold the event
+     * @param dateInterval the {@link DateInterval} the event takes place
+     * @param eventName the name of the {@link ConferenceEvent}
+     * @return {@code true} if the event does not overlap another event in the {@link Room} and was scheduled
+     */
+    public boolean scheduleEvent(String roomName, DateInterval dateInterval, String eventName) {
+        Lock lock = roomLocks.get(roomName);
+        lock.lock();
+        try {
+            Room room = rooms.get(roomName);
+            if (!room.addEvent(dateInterval, eventName)) {
+                return false;
             }
+            eventToRoomName.put(eventName, roomName);
+            journalRoomChange(roomName, RoomChange.eventScheduled(dateInterval, eventName));
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the {@link ConferenceEvent} with the given event name from the {@link Room} it is held in
+     *
+     * @param eventName the name of the {@link ConferenceEvent}
+     * @return {@code true} if the event was scheduled in a {@link Room} and was removed from it
+     */
+    public boolean unscheduleEvent(String eventName) {
+        String roomName = eventToRoomName.get(eventName);
+        if (roomName == null) {
+            return false;
+        }
+        Lock lock = roomLocks.get(roomName);
+        lock.lock();
+        try {
+            Room room = getRoomByEventName(eventName);
+            if (room == null || !room.removeEvent(eventName)) {
+                return false;
+            }
+            eventToRoomName.remove(eventName);
+            journalRoomChange(roomName, RoomChange.eventUnscheduled(eventName));
+            return true;
+        } finally {
+            lock.unlock();
         }
-        return "";
     }
 
     /**
@@ -183,7 +275,18 @@ public class RoomManager extends Observable implements Serializable, CrudManager
      * @return {@code true} if and only if the amenity is not already in the {@link Room} with the given room name
      */
     public boolean addAmenityByRoomName(String roomName, Amenity amenity) {
-        return this.rooms.get(roomName).addAmenity(amenity);
+        Lock lock = roomLocks.get(roomName);
+        lock.lock();
+        try {
+            Room room = this.rooms.get(roomName);
+            if (!room.addAmenity(amenity)) {
+                return false;
+            }
+            journalRoomChange(roomName, RoomChange.amenityAdded(amenity));
+            return true;
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -228,8 +331,13 @@ public class RoomManager extends Observable implements Serializable, CrudManager
      */
     @Override
     public void delete(Room room) {
-        if (rooms.get(room.getId()) != null) {
-            rooms.remove(room);
+        if (rooms.remove(room.getRoomName()) != null) {
+            for (String eventName : room.getAllEventNames()) {
+                eventToRoomName.remove(eventName);
+            }
+            if (journal != null) {
+                journal.recordDelete(ROOM_RECORD, room.getRoomName());
+            }
         }
     }
 
@@ -240,8 +348,128 @@ public class RoomManager extends Observable implements Serializable, CrudManager
      */
     @Override
     public void save(Room room) {
-        this.rooms.put(room.getRoomName(), room);
+        Lock lock = roomLocks.get(room.getRoomName());
+        lock.lock();
+        try {
+            this.rooms.put(room.getRoomName(), room);
+            for (String eventName : room.getAllEventNames()) {
+                this.eventToRoomName.put(eventName, room.getRoomName());
+            }
+            journalRoom(room);
+        } finally {
+            lock.unlock();
+        }
         setChanged();
         notifyObservers(room.getRoomName());
     }
+
+    /**
+     * Restores this manager from a stream, rebuilding the event to room index and the locks that are not serialized
+     *
+     * @param in the stream to read this manager from
+     * @throws IOException if the stream cannot be read
+     * @throws ClassNotFoundException if a serialized class cannot be found
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        // Files written before the rooms were stored in a concurrent map hold a HashMap
+        this.rooms = new ConcurrentHashMap<>(this.rooms);
+        this.roomLocks = new StripedLock();
+        rebuildEventIndex();
+    }
+
+    /**
+     * Sets the {@link Journal} this manager records changes to {@link Room}s to.
+     *
+     * @param journal the {@link Journal} to record changes to, or {@code null} to stop recording
+     */
+    @Override
+    public void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Applies the latest recorded state of {@link Room}s. The event to room index is rebuilt by
+     * {@link #finishReplay()}.
+     *
+     * @param type the type of record; only {@link #ROOM_RECORD} is applied
+     * @param entities a map from room names to the latest state of each {@link Room}, or {@code null} if the
+     *                 {@link Room} was deleted
+     */
+    @Override
+    public void replay(String type, Map<String, Object> entities) {
+        if (!ROOM_RECORD.equals(type)) {
+            return;
+        }
+        for (Map.Entry<String, Object> entry : entities.entrySet()) {
+            if (entry.getValue() == null) {
+                this.rooms.remove(entry.getKey());
+            } else {
+                this.rooms.put(entry.getKey(), (Room) entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Applies a recorded change to a {@link Room}. Changes to rooms no longer stored are ignored. The event to room
+     * index is rebuilt by {@link #finishReplay()}.
+     *
+     * @param type the type of record; only {@link #ROOM_RECORD} is applied
+     * @param key the name of the {@link Room}
+     * @param change the room change recorded
+     */
+    @Override
+    public void replayChange(String type, String key, Object change) {
+        if (!ROOM_RECORD.equals(type)) {
+            return;
+        }
+        Room room = this.rooms.get(key);
+        if (room != null) {
+            ((RoomChange) change).applyTo(room);
+        }
+    }
+
+    /**
+     * Rebuilds the event to room index from the replayed {@link Room}s.
+     */
+    @Override
+    public void finishReplay() {
+        rebuildEventIndex();
+    }
+
+    /**
+     * Records the whole state of the {@link Room} to the journal, if any.
+     *
+     * @param room the {@link Room} that was saved
+     */
+    private void journalRoom(Room room) {
+        if (journal != null) {
+            journal.recordSave(ROOM_RECORD, room.getRoomName(), room);
+        }
+    }
+
+    /**
+     * Records a change to a {@link Room} to the journal, if any.
+     *
+     * @param roomName the name of the {@link Room} that changed
+     * @param change the change
+     */
+    private void journalRoomChange(String roomName, RoomChange change) {
+        if (journal != null) {
+            journal.recordChange(ROOM_RECORD, roomName, change);
+        }
+    }
+
+    /**
+     * Rebuilds the event to room index from the rooms.
+     */
+    private void rebuildEventIndex() {
+        Map<String, String> index = new ConcurrentHashMap<>();
+        for (Room room : this.rooms.values()) {
+            for (String eventName : room.getAllEventNames()) {
+                index.put(eventName, room.getRoomName());
+            }
+        }
+        this.eventToRoomName = index;
+    }
 }
@@ -0,0 +1,303 @@
+package com.conference.backend.data.utils;
+
+import java.util.*;
+
+/**
+ * A balanced (AVL) interval tree over primitive epoch millis, augmented with the maximum end time of every subtree.
+ * Each interval is stored under a unique key of type {@code K}.
+ *
+ * <p>
+ *     Two intervals overlap iff {@code start1 < end2 && start2 < end1}, so intervals that only touch at an endpoint
+ *     do not conflict. Insertion, removal and "does anything overlap" checks are {@code O(log n)}; listing every
+ *     overlapping key is {@code O(log n + k)} for {@code k} results.
+ * </p>
+ *
+ * @param <K> the type of key stored with each interval
+ */
+public class IntervalTree<K> {
+
+    private Node<K> root;
+    private final Map<K, Node<K>> nodesByKey;
+
+    // Tie-breaker so that intervals with equal start and end still have a total order
+    private long sequence;
+
+    /**
+     * Constructs an empty IntervalTree.
+     */
+    public IntervalTree() {
+        this.nodesByKey = new HashMap<>();
+    }
+
+    /**
+     * Stores the interval [start, end) under key, replacing any interval previously stored under key.
+     *
+     * @param key the key of the interval
+     * @param start the start of the interval in epoch millis
+     * @param end the end of the interval in epoch millis
+     */
+    public void put(K key, long start, long end) {
+        remove(key);
+        Node<K> node = new Node<>(key, start, end, sequence++);
+        nodesByKey.put(key, node);
+        root = insert(root, node);
+    }
+
+    /**
+     * Removes the interval stored under key.
+     *
+     * @param key the key of the interval
+     * @return {@code true} if an interval was stored under key
+     */
+    public boolean remove(K key) {
+        Node<K> node = nodesByKey.remove(key);
+        if (node == null) {
+            return false;
+        }
+        root = delete(root, node);
+        return true;
+    }
+
+    /**
+     * Checks if an interval is stored under key.
+     *
+     * @param key the key of the interval
+     * @return {@code true} if an interval is stored under key
+     */
+    public boolean containsKey(K key) {
+        return nodesByKey.containsKey(key);
+    }
+
+    /**
+     * Returns the start of the interval stored under key.
+     * Precondition: an interval is stored under key
+     *
+     * @param key the key of the interval
+     * @return the start of the interval in epoch millis
+     */
+    public long getStart(K key) {
+        return nodesByKey.get(key).start;
+    }
+
+    /**
+     * Returns the end of the interval stored under key.
+     * Precondition: an interval is stored under key
+     *
+     * @param key the key of the interval
+     * @return the end of the interval in epoch millis
+     */
+    public long getEnd(K key) {
+        return nodesByKey.get(key).end;
+    }
+
+    /**
+     * Returns the number of intervals stored.
+     *
+     * @return the number of intervals stored
+     */
+    public int size() {
+        return nodesByKey.size();
+    }
+
+    /**
+     * Checks if no intervals are stored.
+     *
+     * @return {@code true} if no intervals are stored
+     */
+    public boolean isEmpty() {
+        return nodesByKey.isEmpty();
+    }
+
+    /**
+     * Removes every interval.
+     */
+    public void clear() {
+        root = null;
+        nodesByKey.clear();
+    }
+
+    /**
+     * Checks if any stored interval overlaps [start, end).
+     *
+     * @param start the start of the interval in epoch millis
+     * @param end the end of the interval in epoch millis
+     * @return {@code true} if some stored interval overlaps [start, end)
+     */
+    public boolean overlapsAny(long start, long end) {
+        Node<K> node = root;
+        while (node != null) {
+            if (node.start < end && start < node.end) {
+                return true;
+            }
+            // If the left subtree reaches past start but holds no overlap, nothing on the right can overlap either
+            if (node.left != null && node.left.maxEnd > start) {
+                node = node.left;
+            } else {
+                node = node.right;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the keys of every stored interval overlapping [start, end), ordered by start time.
+     *
+     * @param start the start of the interval in epoch millis
+     * @param end the end of the interval in epoch millis
+     * @return the keys of the overlapping intervals
+     */
+    public List<K> getOverlapping(long start, long end) {
+        List<K> result = new ArrayList<>();
+        collectOverlapping(root, start, end, result);
+        return result;
+    }
+
+    /**
+     * Returns the keys of every stored interval ordered by start time.
+     *
+     * @return the keys of every stored interval ordered by start time
+     */
+    public List<K> getKeysInOrder() {
+        List<K> result = new ArrayList<>(nodesByKey.size());
+        collectOverlapping(root, Long.MIN_VALUE, Long.MAX_VALUE, result);
+        return result;
+    }
+
+    private void collectOverlapping(Node<K> node, long start, long end, List<K> result) {
+        if (node == null || node.maxEnd <= start) {
+            return;
+        }
+        collectOverlapping(node.left, start, end, result);
+        if (node.start >= end) {
+            // Everything to the right starts even later
+            return;
+        }
+        if (start < node.end) {
+            result.add(node.key);
+        }
+        collectOverlapping(node.right, start, end, result);
+    }
+
+    private Node<K> insert(Node<K> node, Node<K> newNode) {
+        if (node == null) {
+            return newNode;
+        }
+        if (newNode.compareTo(node) < 0) {
+            node.left = insert(node.left, newNode);
+        } else {
+            node.right = insert(node.right, newNode);
+        }
+        return rebalance(node);
+    }
+
+    private Node<K> delete(Node<K> node, Node<K> target) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = target.compareTo(node);
+        if (cmp < 0) {
+            node.left = delete(node.left, target);
+        } else if (cmp > 0) {
+            node.right = delete(node.right, target);
+        } else {
+            if (node.left == null) {
+                return node.right;
+            }
+            if (node.right == null) {
+                return node.left;
+            }
+            Node<K> successor = node.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            node.right = delete(node.right, successor);
+            successor.left = node.left;
+            successor.right = node.right;
+            node = successor;
+        }
+        return rebalance(node);
+    }
+
+    private Node<K> rebalance(Node<K> node) {
+        update(node);
+        int balance = height(node.left) - height(node.right);
+        if (balance > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (balance < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private Node<K> rotateLeft(Node<K> node) {
+        Node<K> pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private Node<K> rotateRight(Node<K> node) {
+        Node<K> pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private void update(Node<K> node) {
+        node.height = 1 + Math.max(height(node.left), height(node.right));
+        long maxEnd = node.end;
+        if (node.left != null) {
+            maxEnd = Math.max(maxEnd, node.left.maxEnd);
+        }
+        if (node.right != null) {
+            maxEnd = Math.max(maxEnd, node.right.maxEnd);
+        }
+        node.maxEnd = maxEnd;
+    }
+
+    private int height(Node<K> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static final class Node<K> implements Comparable<Node<K>> {
+        private final K key;
+        private final long start;
+        private final long end;
+        private final long sequence;
+        private long maxEnd;
+        private int height;
+        private Node<K> left;
+        private Node<K> right;
+
+        private Node(K key, long start, long end, long sequence) {
+            this.key = key;
+            this.start = start;
+            this.end = end;
+            this.sequence = sequence;
+            this.maxEnd = end;
+            this.height = 1;
+        }
+
+        @Override
+        public int compareTo(Node<K> other) {
+            if (start != other.start) {
+                return Long.compare(start, other.start);
+            }
+            if (end != other.end) {
+                return Long.compare(end, other.end);
+            }
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.conference.backend.data.utils;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed set of locks shared between keys by hash, so that changes to entities with different keys rarely wait
+ * for each other without keeping one lock per entity.
+ *
+ * <p>
+ *     Two keys may share a lock, so a caller that needs the locks of two keys of the same StripedLock must take
+ *     them in a consistent order, or take them one at a time. The locks are reentrant.
+ * </p>
+ */
+public class StripedLock {
+    /**
+     * The number of locks used if none is given
+     */
+    public static final int DEFAULT_STRIPES = 64;
+
+    private final Lock[] stripes;
+
+    /**
+     * Constructs a StripedLock with {@link #DEFAULT_STRIPES} locks.
+     */
+    public StripedLock() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * Constructs a StripedLock with at least the given number of locks, rounded up to a power of two.
+     *
+     * @param stripes the minimum number of locks
+     */
+    public StripedLock(int stripes) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("stripes must be positive: " + stripes);
+        }
+        int size = Integer.highestOneBit(stripes);
+        if (size < stripes) {
+            size <<= 1;
+        }
+        this.stripes = new Lock[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Returns the lock guarding key.
+     *
+     * @param key the key of the entity to lock, or {@code null}
+     * @return the lock of key
+     */
+    public Lock get(Object key) {
+        int hash = key == null ? 0 : key.hashCode();
+        // Spread the high bits, as HashMap does, since only the low bits pick the lock
+        hash ^= hash >>> 16;
+        return stripes[hash & (stripes.length - 1)];
+    }
+}
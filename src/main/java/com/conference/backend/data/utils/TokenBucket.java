@@ -0,0 +1,95 @@
+package com.conference.backend.data.utils;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A token bucket that refills one token per refill interval up to its capacity, so that bursts of up to capacity
+ * actions are allowed but the long-run rate is one per interval.
+ *
+ * <p>
+ *     Lock-free: the bucket is held as the single time at which it will be full again, which taking a token moves
+ *     one interval later with a compare-and-set. A full bucket needs no refilling, so idle buckets cost nothing.
+ * </p>
+ */
+public class TokenBucket {
+    private final long capacity;
+    private final long refillMillis;
+    private final Clock clock;
+
+    // The time in epoch millis at which the bucket will hold capacity tokens again
+    private final AtomicLong fullAtMillis;
+
+    /**
+     * Constructs a full TokenBucket.
+     *
+     * @param capacity the most tokens the bucket holds
+     * @param refillInterval the time it takes to add one token
+     * @param clock the clock refills are measured with
+     */
+    public TokenBucket(int capacity, Duration refillInterval, Clock clock) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.refillMillis = Math.max(1, refillInterval.toMillis());
+        this.clock = clock;
+        this.fullAtMillis = new AtomicLong(clock.millis());
+    }
+
+    /**
+     * Takes a token if the bucket has one.
+     *
+     * @return {@code true} if a token was taken
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            long now = clock.millis();
+            long fullAt = fullAtMillis.get();
+            long next = Math.max(fullAt, now) + refillMillis;
+            if (next - now > capacity * refillMillis) {
+                return false;
+            }
+            if (fullAtMillis.compareAndSet(fullAt, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Gives back a token taken by {@link #tryAcquire()} for an action that did not happen. Never fills the bucket
+     * past its capacity.
+     */
+    public void release() {
+        while (true) {
+            long now = clock.millis();
+            long fullAt = fullAtMillis.get();
+            if (fullAt <= now) {
+                return;
+            }
+            if (fullAtMillis.compareAndSet(fullAt, Math.max(now, fullAt - refillMillis))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of tokens the bucket holds now.
+     *
+     * @return the number of tokens available
+     */
+    public int getAvailableTokens() {
+        long missing = Math.max(0, fullAtMillis.get() - clock.millis());
+        return (int) (capacity - (missing + refillMillis - 1) / refillMillis);
+    }
+
+    /**
+     * Checks if the bucket holds all its tokens, so it is the same as a new bucket.
+     *
+     * @return {@code true} if the bucket is full
+     */
+    public boolean isFull() {
+        return fullAtMillis.get() <= clock.millis();
+    }
+}
@@ -0,0 +1,41 @@
+package com.conference.backend.data.utils.base;
+
+import java.io.Serializable;
+
+/**
+ * The {@code Journal} interface should be implemented
+ * for logs that repositories record each of their changes to.
+ *
+ * <p>
+ *      A save record holds the whole state of one entity, and is written when the entity is added. Every later
+ *      change to the entity is a change record holding only what changed, so applying the records of an entity
+ *      in order leaves it in its latest state. Whole entities are otherwise only written to snapshots.
+ * </p>
+ */
+public interface Journal {
+    /**
+     * Records that the entity of the given type stored under key was added.
+     *
+     * @param type the type of record, unique to the repository storing the entity
+     * @param key the key the entity is stored under in its repository
+     * @param entity the current state of the entity
+     */
+    void recordSave(String type, String key, Serializable entity);
+
+    /**
+     * Records one change to the entity of the given type stored under key.
+     *
+     * @param type the type of record, unique to the repository storing the entity
+     * @param key the key the entity is stored under in its repository
+     * @param change the change, which the repository knows how to apply to the entity
+     */
+    void recordChange(String type, String key, Serializable change);
+
+    /**
+     * Records that the entity of the given type stored under key was removed.
+     *
+     * @param type the type of record, unique to the repository storing the entity
+     * @param key the key the entity was stored under in its repository
+     */
+    void recordDelete(String type, String key);
+}
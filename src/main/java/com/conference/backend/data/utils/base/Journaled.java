@@ -0,0 +1,46 @@
+package com.conference.backend.data.utils.base;
+
+import java.util.Map;
+
+/**
+ * The {@code Journaled} interface should be implemented
+ * for repositories that record their changes to a {@link Journal}.
+ */
+public interface Journaled {
+    /**
+     * Sets the {@link Journal} this repository records its changes to.
+     *
+     * @param journal the {@link Journal} to record changes to, or {@code null} to stop recording
+     */
+    void setJournal(Journal journal);
+
+    /**
+     * Applies the latest recorded state of the entities of the given type to this repository.
+     * Types of records this repository does not store are ignored. Called once for each run of save and
+     * delete records of one type, so records are applied in the order they were written. Indexes built
+     * from the entities may be left stale until {@link #finishReplay()}.
+     *
+     * @param type the type of record
+     * @param entities a map from keys to the latest state of each entity, or {@code null} if the
+     *                 entity was removed, in the order the entities were last changed
+     */
+    void replay(String type, Map<String, Object> entities);
+
+    /**
+     * Applies one recorded change to the entity of the given type stored under key. Types of records this
+     * repository does not store, and entities it no longer stores, are ignored. Indexes built from the entities
+     * may be left stale until {@link #finishReplay()}.
+     *
+     * @param type the type of record
+     * @param key the key the entity is stored under
+     * @param change the change recorded with {@link Journal#recordChange(String, String, java.io.Serializable)}
+     */
+    void replayChange(String type, String key, Object change);
+
+    /**
+     * Rebuilds the indexes left stale by {@link #replay(String, Map)} and
+     * {@link #replayChange(String, String, Object)}. Called once after every record has been
+     * replayed, so that a log with many runs does not rebuild them once per run.
+     */
+    void finishReplay();
+}
@@ -0,0 +1,19 @@
+package com.conference.backend.exception;
+
+import com.conference.backend.users.LoginRateLimiter;
+
+/**
+ * Thrown when a login attempt is refused because too many were made recently.
+ * {@link LoginRateLimiter} for usage
+ */
+public class LoginThrottledException extends Exception {
+
+    private static final long serialVersionUID = 5983475098234753L;
+
+    /**
+     * {@inheritDoc}
+     */
+    public LoginThrottledException(final String message) {
+        super(message);
+    }
+}
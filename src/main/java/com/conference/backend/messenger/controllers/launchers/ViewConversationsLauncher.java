@@ -6,6 +6,7 @@ import com.conference.backend.data.utils.Value;
 import com.conference.backend.data.utils.base.Launcher;
 import com.conference.backend.data.utils.base.Startable;
 import com.conference.backend.messenger.controllers.systems.OpenConversationSystem;
+import com.conference.backend.messenger.managers.MessageManager;
 import com.conference.backend.messenger.managers.MessengerManager;
 import com.conference.backend.security.CustomRequestCache;
 import com.conference.backend.users.UserLoginManager;
@@ -23,6 +24,10 @@ public class ViewConversationsLauncher extends Launcher implements Startable {
     private final String START_NEW_CONVERSATION = "1";
     private final String VIEW_ARCHIVED_CONVERSATIONS = "2";
     private final String OPEN_CONVERSATION = "3";
+    private final String SHOW_OLDER_CONVERSATIONS = "4";
+
+    // The number of conversations shown at a time, newest first
+    private static final int INBOX_PAGE_SIZE = 10;
 
     private final Map<String, Value> MENU_CHOICE_TO_NAME_AND_ROLES_1 = new HashMap<String, Value>() {{
         put(HOME, new Value("Go home", Role.values()));
@@ -43,6 +48,14 @@ public class ViewConversationsLauncher extends Launcher implements Startable {
         put(OPEN_CONVERSATION, new Value("Open a Conversation", Role.values()));
     }};
 
+    private final Map<String, Value> MENU_CHOICE_TO_NAME_AND_ROLES_4 = new HashMap<String, Value>() {{
+        put(HOME, new Value("Go home", Role.values()));
+        put(START_NEW_CONVERSATION, new Value("Start a new conversation", Role.values()));
+        put(VIEW_ARCHIVED_CONVERSATIONS, new Value("View archived conversations", Role.values()));
+        put(OPEN_CONVERSATION, new Value("Open a Conversation", Role.values()));
+        put(SHOW_OLDER_CONVERSATIONS, new Value("Show older conversations", Role.values()));
+    }};
+
 
     private final UserLoginManager userLoginManager;
     private final MessengerManager messengerManager;
@@ -53,6 +66,10 @@ public class ViewConversationsLauncher extends Launcher implements Startable {
     private final OpenConversationSystem openConversationSystem;
     private final CustomRequestCache<List<String>> customRequestCache;
 
+    // The conversations on the page of the inbox shown, and the number of newer conversations before it
+    private List<String> inboxPage;
+    private int inboxOffset;
+
     /**
      * Constructs a new instance of ViewConversationsLauncher with the given data.
      *
@@ -84,16 +101,32 @@ public class ViewConversationsLauncher extends Launcher implements Startable {
      */
     @Override
     public void start() {
-        List<String> conversationList = messengerManager
-                .getMessageManager(userLoginManager.getCurrentUserId()).getUnarchivedConversationsIds();
+        this.inboxOffset = 0;
+        this.showInboxPage();
+    }
+
+    /**
+     * Displays the page of the newest conversations starting at inboxOffset, without looking at older ones, then
+     * reads the user's choice.
+     */
+    private void showInboxPage() {
+        MessageManager messageManager = messengerManager.getMessageManager(userLoginManager.getCurrentUserId());
+        this.inboxPage = messageManager.getInboxPage(this.inboxOffset, INBOX_PAGE_SIZE);
 
-        if (conversationList.isEmpty()) {
+        if (this.inboxPage.isEmpty()) {
             messengerView.displayNoExistingConversationsMessageNoChoice();
             requestInputHelper(MENU_CHOICE_TO_NAME_AND_ROLES_1);
         } else {
             messengerView.displaySeeBelowForConversationsMessage();
-            viewConversations(conversationList);
-            requestInputHelper(MENU_CHOICE_TO_NAME_AND_ROLES_2);
+            viewConversations(this.inboxPage);
+            int inboxSize = messageManager.getInboxSize();
+            if (this.inboxOffset + this.inboxPage.size() < inboxSize) {
+                messengerView.displayInboxPage(this.inboxOffset + 1, this.inboxOffset + this.inboxPage.size(),
+                        inboxSize);
+                requestInputHelper(MENU_CHOICE_TO_NAME_AND_ROLES_4);
+            } else {
+                requestInputHelper(MENU_CHOICE_TO_NAME_AND_ROLES_2);
+            }
         }
     }
 
@@ -129,9 +162,13 @@ public class ViewConversationsLauncher extends Launcher implements Startable {
                     thisConvo.append(this.messengerManager.getUserManager().getNameById(id)).append(", ");
                 }
             }
-            String status = this.messengerManager.getMessageManager(userLoginManager
-                    .getCurrentUserId()).getConversationsMap()
-                    .get(conversationId);
+            MessageManager messageManager = this.messengerManager.getMessageManager(userLoginManager
+                    .getCurrentUserId());
+            String status = messageManager.getConversationsMap().get(conversationId);
+            int unread = messageManager.getUnreadMessageCount(conversationId);
+            if (unread > 0) {
+                status += " (" + unread + ")";
+            }
             String members = thisConvo.substring(0, thisConvo.length() - 2);
             messengerView.displayConversation(i, members, status);
         }
@@ -162,11 +199,14 @@ public class ViewConversationsLauncher extends Launcher implements Startable {
                 break;
             case OPEN_CONVERSATION:
                 if (customRequestCache.isEmpty()) {
-                    customRequestCache.saveRequest(messengerManager
-                            .getMessageManager(userLoginManager.getCurrentUserId()).getUnarchivedConversationsIds());
+                    customRequestCache.saveRequest(this.inboxPage);
                 }
                 this.openConversationSystem.start();
                 break;
+            case SHOW_OLDER_CONVERSATIONS:
+                this.inboxOffset += INBOX_PAGE_SIZE;
+                this.showInboxPage();
+                break;
         }
     }
 }
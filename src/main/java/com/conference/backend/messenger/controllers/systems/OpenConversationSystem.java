@@ -61,8 +61,7 @@ public class OpenConversationSystem extends InputProcessor implements Startable
         String convoToView = conversationList.get(Integer.parseInt(choice));
 
         for(String message : this.messengerManager.getConvoMessageIdsByConvoId(convoToView)){
-            if (!messageManager.getDeletedMessagesInConversations().containsKey(convoToView) ||
-                    !messageManager.getDeletedMessagesInConversations().get(convoToView).contains(message)){
+            if (!messageManager.isMessageDeleted(convoToView, message)){
                 String messageText;
                 try {
                     messageText = this.messengerManager.getMessageTextByMessageIdAndConvoId(message, convoToView);
@@ -75,7 +74,7 @@ public class OpenConversationSystem extends InputProcessor implements Startable
                 }
             }
         }
-        messageManager.markConversationAsRead(convoToView);
+        this.messengerManager.markConversationAsRead(userLoginManager.getCurrentUserId(), convoToView);
         messengerView.displayEndOfMessages(choice);
 
         ArrayList<String> validChoice = new ArrayList<>(Arrays.asList("0", "1", "2", "3", "4", "5", "6"));
@@ -92,17 +91,16 @@ public class OpenConversationSystem extends InputProcessor implements Startable
                 }
                 break;
             case "2":
-                messageManager.markConversationAsUnread(convoToView);
+                this.messengerManager.markConversationAsUnread(userLoginManager.getCurrentUserId(), convoToView);
                 break;
             case "3":
-                messageManager.archiveConversation(convoToView);
+                this.messengerManager.archiveConversation(userLoginManager.getCurrentUserId(), convoToView);
                 break;
             case "4":
-                messageManager.removeConversationFromArchived(convoToView);
+                this.messengerManager.unarchiveConversation(userLoginManager.getCurrentUserId(), convoToView);
                 break;
             case "5":
-                messageManager.deleteConversation(convoToView,
-                        this.messengerManager.getConvoMessageIdsByConvoId(convoToView));
+                this.messengerManager.deleteConversationForUser(userLoginManager.getCurrentUserId(), convoToView);
                 break;
             case "6":
                 messengerView.promptSelectDeleteMessage();
@@ -138,8 +136,8 @@ public class OpenConversationSystem extends InputProcessor implements Startable
                         case "0":
                             break;
                         case "1":
-                            this.messengerManager.getMessageManager(userLoginManager.getCurrentUserId()).
-                                    deleteMessageInConversation(convoToView, msgChoice);
+                            this.messengerManager.deleteMessageForUser(userLoginManager.getCurrentUserId(),
+                                    convoToView, msgChoice);
                             break;
                         case "2":
                             try {
@@ -158,8 +156,8 @@ public class OpenConversationSystem extends InputProcessor implements Startable
                         case "0":
                             break;
                         case "1":
-                            this.messengerManager.getMessageManager(userLoginManager.getCurrentUserId()).
-                                    deleteMessageInConversation(convoToView, msgChoice);
+                            this.messengerManager.deleteMessageForUser(userLoginManager.getCurrentUserId(),
+                                    convoToView, msgChoice);
                             break;
                     }
                 }
@@ -6,6 +6,7 @@ import com.conference.backend.data.utils.base.InputProcessor;
 import com.conference.backend.data.utils.base.Startable;
 import com.conference.backend.exception.EmptyReceiversException;
 import com.conference.backend.exception.UserNotFoundException;
+import com.conference.backend.messenger.managers.BroadcastProgress;
 import com.conference.backend.messenger.managers.MessengerManager;
 import com.conference.backend.users.UserLoginManager;
 import com.conference.frontend.messenger.MessengerView;
@@ -58,9 +59,10 @@ public class SendMessageSystem extends InputProcessor implements Startable {
         }
 
         try {
-            messengerManager.organizerSendToAllUserRole(userLoginManager.getCurrentUserId(),
-                    messageText, role);
+            BroadcastProgress progress = messengerManager.organizerSendToAllUserRole(
+                    userLoginManager.getCurrentUserId(), messageText, role);
             messengerView.displayMessageSuccess();
+            this.displayDeliveryProgress(progress);
         } catch (EmptyReceiversException e){
             messengerView.displayEmptyListError();
         }
@@ -83,9 +85,10 @@ public class SendMessageSystem extends InputProcessor implements Startable {
         List<String> conferenceEvents = conferenceEventManager
                 .getSpeakerEventNames(userLoginManager.getCurrentUserId());
         try {
-            messengerManager.speakerSendToAllAttendeesOfTalks(userLoginManager
+            BroadcastProgress progress = messengerManager.speakerSendToAllAttendeesOfTalks(userLoginManager
                     .getCurrentUserId(), conferenceEvents, messageText, this.conferenceEventManager);
             messengerView.displayMessageSuccess();
+            this.displayDeliveryProgress(progress);
         } catch (EmptyReceiversException e){
             messengerView.displayEmptyListError();
         }
@@ -115,9 +118,10 @@ public class SendMessageSystem extends InputProcessor implements Startable {
         ArrayList<String> talk = new ArrayList<>();
         talk.add(eventNames.get(Integer.parseInt(talkChoice)));
         try {
-            this.messengerManager.speakerSendToAllAttendeesOfTalks(userLoginManager
+            BroadcastProgress progress = this.messengerManager.speakerSendToAllAttendeesOfTalks(userLoginManager
                     .getCurrentUserId(), talk, messageText, this.conferenceEventManager);
             messengerView.displayMessageSuccess();
+            this.displayDeliveryProgress(progress);
         } catch (EmptyReceiversException e) {
             messengerView.displayEmptyListError();
         }
@@ -182,6 +186,17 @@ public class SendMessageSystem extends InputProcessor implements Startable {
         }
     }
 
+    /**
+     * Tells the user how far a broadcast has been delivered, if it is still being delivered.
+     *
+     * @param progress the progress of delivering the broadcast
+     */
+    private void displayDeliveryProgress(BroadcastProgress progress) {
+        if (!progress.isDone()) {
+            messengerView.displayDeliveryProgress(progress.getDeliveredCount(), progress.getRecipientCount());
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -3,15 +3,33 @@ package com.conference.backend.messenger.entities;
 import com.conference.backend.data.utils.base.AbstractEntity;
 import com.conference.backend.exception.MessageNotFoundException;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Objects;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
+import java.util.*;
 
 public class Conversation extends AbstractEntity {
     private static final long serialVersionUID = 2630428346283L;
 
+    // Number of message slots in each page of the message log
+    private static final int PAGE_SIZE = 64;
+
+    // Keeps the serialized form (a list of participants and a list of messages) compatible with older messenger.ser
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("participants", List.class),
+            new ObjectStreamField("messages", List.class)
+    };
+
     private List<String> participants;
-    private List<Message> messages;
+
+    // Append-only log of messages split into fixed size pages; deleted messages leave an empty slot
+    private transient List<Page> pages;
+
+    // Maps message IDs to their slot in the message log
+    private transient Map<String, Integer> slotsByMessageId;
+
+    private transient int slotCount;
 
     /**
      * Constructs a new instance of conversation with the given data.
@@ -20,7 +38,8 @@ public class Conversation extends AbstractEntity {
      */
     public Conversation(List<String> participants){
         this.participants = participants;
-        this.messages = new ArrayList<>();
+        this.pages = new ArrayList<>();
+        this.slotsByMessageId = new HashMap<>();
         this.setId(this.hashCode() + "");
     }
 
@@ -32,7 +51,7 @@ public class Conversation extends AbstractEntity {
      */
     public Conversation(List<String> participants, Message firstMessage) {
         this(participants);
-        this.messages.add(firstMessage);
+        this.sendMessage(firstMessage);
         this.setId(this.hashCode() + "");
     }
 
@@ -48,10 +67,21 @@ public class Conversation extends AbstractEntity {
     /**
      * Returns the messages sent in this conversation
      *
-     * @return a List of Messages sent in this conversation
+     * @return a read-only List of Messages sent in this conversation, in the order they were sent
      */
     public List<Message> getMessages() {
-        return this.messages;
+        List<Message> messages = new ArrayList<>(this.slotsByMessageId.size());
+        for (Page page : this.pages) {
+            if (page.live == 0) {
+                continue;
+            }
+            for (Message message : page.slots) {
+                if (message != null) {
+                    messages.add(message);
+                }
+            }
+        }
+        return Collections.unmodifiableList(messages);
     }
 
     /**
@@ -61,7 +91,7 @@ public class Conversation extends AbstractEntity {
      */
     public List<String> getMessageIds(){
         List<String> messageIds = new ArrayList<>();
-        for (Message message : this.messages){
+        for (Message message : this.getMessages()){
             messageIds.add(message.getId());
         }
         return messageIds;
@@ -73,7 +103,7 @@ public class Conversation extends AbstractEntity {
      */
     @Override
     public int hashCode() {
-        return Objects.hash(super.hashCode(), participants, messages);
+        return Objects.hash(super.hashCode(), participants, getMessages());
     }
 
 
@@ -83,7 +113,15 @@ public class Conversation extends AbstractEntity {
      * @param newMessage the message being sent in this conversation
      */
     public void sendMessage(Message newMessage){
-        this.messages.add(newMessage);
+        int pageIndex = this.slotCount / PAGE_SIZE;
+        if (pageIndex == this.pages.size()) {
+            this.pages.add(new Page());
+        }
+        Page page = this.pages.get(pageIndex);
+        page.slots[this.slotCount % PAGE_SIZE] = newMessage;
+        page.live++;
+        this.slotsByMessageId.put(newMessage.getId(), this.slotCount);
+        this.slotCount++;
     }
 
     /**
@@ -91,7 +129,26 @@ public class Conversation extends AbstractEntity {
      *
      * @param message the message being deleted in this conversation
      */
-    public void deleteMessage(Message message) { this.messages.remove(message); }
+    public void deleteMessage(Message message) {
+        Integer slot = this.slotsByMessageId.get(message.getId());
+        if (slot == null || !message.equals(this.pages.get(slot / PAGE_SIZE).slots[slot % PAGE_SIZE])) {
+            return;
+        }
+        this.slotsByMessageId.remove(message.getId());
+        Page page = this.pages.get(slot / PAGE_SIZE);
+        page.slots[slot % PAGE_SIZE] = null;
+        page.live--;
+    }
+
+    /**
+     * Returns whether the conversation has a message, which is not the case once it is deleted
+     *
+     * @param ID the String ID of the message
+     * @return {@code true} if the message is in the conversation
+     */
+    public boolean hasMessage(String ID) {
+        return this.slotsByMessageId.containsKey(ID);
+    }
 
     /**
      * Returns the message in the conversation based on the message ID
@@ -101,12 +158,52 @@ public class Conversation extends AbstractEntity {
      * @throws MessageNotFoundException if the message is not found
      */
     public Message getMessageByID(String ID) throws MessageNotFoundException {
-        for (Message message: this.messages){
-            if (message.getId().equals(ID)){
-                return message;
-            }
-        } throw new MessageNotFoundException("There is no such message.");
+        Integer slot = this.slotsByMessageId.get(ID);
+        if (slot == null) {
+            throw new MessageNotFoundException("There is no such message.");
+        }
+        return this.pages.get(slot / PAGE_SIZE).slots[slot % PAGE_SIZE];
+    }
+
+    /**
+     * Writes this conversation to a stream as its participants and the list of messages not deleted
+     *
+     * @param out the stream to write this conversation to
+     * @throws IOException if the stream cannot be written
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("participants", this.participants);
+        fields.put("messages", new ArrayList<>(this.getMessages()));
+        out.writeFields();
     }
 
+    /**
+     * Restores this conversation from a stream, rebuilding the message log and message ID index
+     *
+     * @param in the stream to read this conversation from
+     * @throws IOException if the stream cannot be read
+     * @throws ClassNotFoundException if a serialized class cannot be found
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        this.participants = (List<String>) fields.get("participants", null);
+        this.pages = new ArrayList<>();
+        this.slotsByMessageId = new HashMap<>();
+        List<Message> messages = (List<Message>) fields.get("messages", null);
+        if (messages != null) {
+            for (Message message : messages) {
+                this.sendMessage(message);
+            }
+        }
+    }
 
+    /**
+     * A fixed size page of message slots and the number of slots still holding a message
+     */
+    private static final class Page {
+        private final Message[] slots = new Message[PAGE_SIZE];
+        private int live;
+    }
 }
@@ -0,0 +1,58 @@
+package com.conference.backend.messenger.managers;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One batch of a broadcast delivered to the inboxes of its recipients, as recorded to the journal in place of a
+ * change to the MessageManager of every recipient.
+ */
+class BroadcastDelivery implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final String conversationId;
+    private final List<String> recipientIds;
+    private final long sentAt;
+
+    /**
+     * Constructs the delivery of a broadcast to one batch of recipients.
+     *
+     * @param conversationId the ID of the conversation the broadcast started
+     * @param recipientIds the IDs of the recipients of the batch
+     * @param sentAt the time the broadcast was sent, in epoch millis
+     */
+    BroadcastDelivery(String conversationId, List<String> recipientIds, long sentAt) {
+        this.conversationId = conversationId;
+        this.recipientIds = new ArrayList<>(recipientIds);
+        this.sentAt = sentAt;
+    }
+
+    /**
+     * Returns the ID of the conversation the broadcast started.
+     *
+     * @return the {@code String} ID of the conversation
+     */
+    String getConversationId() {
+        return conversationId;
+    }
+
+    /**
+     * Returns the IDs of the recipients of the batch.
+     *
+     * @return an unmodifiable {@code List<String>} of user IDs
+     */
+    List<String> getRecipientIds() {
+        return Collections.unmodifiableList(recipientIds);
+    }
+
+    /**
+     * Returns the time the broadcast was sent.
+     *
+     * @return the time in epoch millis
+     */
+    long getSentAt() {
+        return sentAt;
+    }
+}
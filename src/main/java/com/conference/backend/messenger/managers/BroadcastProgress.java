@@ -0,0 +1,82 @@
+package com.conference.backend.messenger.managers;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The progress of delivering a broadcast message to the inboxes of its recipients.
+ */
+public class BroadcastProgress {
+    private final String conversationId;
+    private final int recipientCount;
+    private final AtomicInteger deliveredCount;
+    private final CompletableFuture<Void> completion;
+
+    /**
+     * Constructs the progress of a broadcast that no recipient has received yet.
+     *
+     * @param conversationId the ID of the conversation the broadcast started
+     * @param recipientCount the number of inboxes the broadcast is delivered to
+     */
+    BroadcastProgress(String conversationId, int recipientCount) {
+        this.conversationId = conversationId;
+        this.recipientCount = recipientCount;
+        this.deliveredCount = new AtomicInteger();
+        this.completion = new CompletableFuture<>();
+    }
+
+    /**
+     * Returns the ID of the conversation the broadcast started.
+     *
+     * @return the {@code String} ID of the conversation
+     */
+    public String getConversationId() {
+        return conversationId;
+    }
+
+    /**
+     * Returns the number of inboxes the broadcast is delivered to, not counting the sender's.
+     *
+     * @return the number of recipients
+     */
+    public int getRecipientCount() {
+        return recipientCount;
+    }
+
+    /**
+     * Returns the number of recipients whose inbox has the broadcast so far.
+     *
+     * @return the number of recipients delivered to
+     */
+    public int getDeliveredCount() {
+        return deliveredCount.get();
+    }
+
+    /**
+     * Returns whether the broadcast is done being delivered, whether or not it reached every recipient.
+     *
+     * @return {@code true} if delivery is done
+     */
+    public boolean isDone() {
+        return completion.isDone();
+    }
+
+    /**
+     * Returns a future completed once every recipient has the broadcast, or completed exceptionally if delivery
+     * failed.
+     *
+     * @return the future of the delivery
+     */
+    public CompletableFuture<Void> getCompletion() {
+        return completion;
+    }
+
+    /**
+     * Counts recipients whose inbox now has the broadcast.
+     *
+     * @param count the number of recipients delivered to
+     */
+    void addDelivered(int count) {
+        deliveredCount.addAndGet(count);
+    }
+}
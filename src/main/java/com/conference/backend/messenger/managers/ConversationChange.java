@@ -0,0 +1,59 @@
+package com.conference.backend.messenger.managers;
+
+import com.conference.backend.exception.MessageNotFoundException;
+import com.conference.backend.messenger.entities.Conversation;
+import com.conference.backend.messenger.entities.Message;
+
+import java.io.Serializable;
+
+/**
+ * One change to a Conversation, as recorded to the journal in place of the whole conversation.
+ */
+final class ConversationChange implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final Message sent;
+    private final String deletedMessageId;
+
+    private ConversationChange(Message sent, String deletedMessageId) {
+        this.sent = sent;
+        this.deletedMessageId = deletedMessageId;
+    }
+
+    /**
+     * Constructs the change of a message being sent in the conversation.
+     *
+     * @param message the message sent
+     * @return the change
+     */
+    static ConversationChange messageSent(Message message) {
+        return new ConversationChange(message, null);
+    }
+
+    /**
+     * Constructs the change of a message being deleted from the conversation for everyone.
+     *
+     * @param messageId the ID of the message deleted
+     * @return the change
+     */
+    static ConversationChange messageDeleted(String messageId) {
+        return new ConversationChange(null, messageId);
+    }
+
+    /**
+     * Makes this change to a Conversation. Deleting a message the conversation does not have does nothing.
+     *
+     * @param conversation the Conversation to change
+     */
+    void applyTo(Conversation conversation) {
+        if (this.sent != null) {
+            conversation.sendMessage(this.sent);
+        } else if (conversation.hasMessage(this.deletedMessageId)) {
+            try {
+                conversation.deleteMessage(conversation.getMessageByID(this.deletedMessageId));
+            } catch (MessageNotFoundException e) {
+                // Checked just above
+            }
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.conference.backend.messenger.managers;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One change to the MessageManager of a user, as recorded to the journal in place of the whole MessageManager.
+ * Each change is one thing that happened to one conversation of the inbox, such as a message arriving or the user
+ * reading, archiving or deleting it.
+ */
+final class InboxChange implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private enum Kind {
+        CONVERSATION_STARTED, MESSAGE_RECEIVED, MESSAGE_SENT, MARKED_READ, MARKED_UNREAD, ARCHIVED, UNARCHIVED,
+        CONVERSATION_DELETED, MESSAGE_DELETED, DELETED_MESSAGES_PURGED
+    }
+
+    private final Kind kind;
+    private final String conversationId;
+    private final long sentAt;
+    private final List<String> messageIds;
+
+    private InboxChange(Kind kind, String conversationId, long sentAt, List<String> messageIds) {
+        this.kind = kind;
+        this.conversationId = conversationId;
+        this.sentAt = sentAt;
+        this.messageIds = new ArrayList<>(messageIds);
+    }
+
+    /**
+     * Constructs the change of the user starting a conversation, which they have read.
+     *
+     * @param conversationId the ID of the conversation
+     * @param sentAt the time the first message was sent, in epoch millis
+     * @return the change
+     */
+    static InboxChange conversationStarted(String conversationId, long sentAt) {
+        return new InboxChange(Kind.CONVERSATION_STARTED, conversationId, sentAt, Collections.emptyList());
+    }
+
+    /**
+     * Constructs the change of a reply in a conversation arriving in the inbox, unread.
+     *
+     * @param conversationId the ID of the conversation
+     * @param sentAt the time the reply was sent, in epoch millis
+     * @return the change
+     */
+    static InboxChange messageReceived(String conversationId, long sentAt) {
+        return new InboxChange(Kind.MESSAGE_RECEIVED, conversationId, sentAt, Collections.emptyList());
+    }
+
+    /**
+     * Constructs the change of the user replying in a conversation, which leaves it read.
+     *
+     * @param conversationId the ID of the conversation
+     * @param sentAt the time the reply was sent, in epoch millis
+     * @return the change
+     */
+    static InboxChange messageSent(String conversationId, long sentAt) {
+        return new InboxChange(Kind.MESSAGE_SENT, conversationId, sentAt, Collections.emptyList());
+    }
+
+    /**
+     * Constructs the change of the user marking a conversation as read.
+     *
+     * @param conversationId the ID of the conversation
+     * @return the change
+     */
+    static InboxChange markedRead(String conversationId) {
+        return new InboxChange(Kind.MARKED_READ, conversationId, 0, Collections.emptyList());
+    }
+
+    /**
+     * Constructs the change of the user marking a conversation as unread.
+     *
+     * @param conversationId the ID of the conversation
+     * @return the change
+     */
+    static InboxChange markedUnread(String conversationId) {
+        return new InboxChange(Kind.MARKED_UNREAD, conversationId, 0, Collections.emptyList());
+    }
+
+    /**
+     * Constructs the change of the user archiving a conversation.
+     *
+     * @param conversationId the ID of the conversation
+     * @return the change
+     */
+    static InboxChange archived(String conversationId) {
+        return new InboxChange(Kind.ARCHIVED, conversationId, 0, Collections.emptyList());
+    }
+
+    /**
+     * Constructs the change of the user unarchiving a conversation.
+     *
+     * @param conversationId the ID of the conversation
+     * @return the change
+     */
+    static InboxChange unarchived(String conversationId) {
+        return new InboxChange(Kind.UNARCHIVED, conversationId, 0, Collections.emptyList());
+    }
+
+    /**
+     * Constructs the change of the user deleting a conversation along with its messages.
+     *
+     * @param conversationId the ID of the conversation
+     * @param messageIds the IDs of the messages of the conversation
+     * @return the change
+     */
+    static InboxChange conversationDeleted(String conversationId, List<String> messageIds) {
+        return new InboxChange(Kind.CONVERSATION_DELETED, conversationId, 0, messageIds);
+    }
+
+    /**
+     * Constructs the change of the user deleting a message of a conversation for themselves.
+     *
+     * @param conversationId the ID of the conversation
+     * @param messageId the ID of the message
+     * @return the change
+     */
+    static InboxChange messageDeleted(String conversationId, String messageId) {
+        return new InboxChange(Kind.MESSAGE_DELETED, conversationId, 0, Collections.singletonList(messageId));
+    }
+
+    /**
+     * Constructs the change of the inbox forgetting messages it deleted that no longer exist.
+     *
+     * @param conversationId the ID of the conversation
+     * @param messageIds the IDs of the messages forgotten
+     * @return the change
+     */
+    static InboxChange deletedMessagesPurged(String conversationId, List<String> messageIds) {
+        return new InboxChange(Kind.DELETED_MESSAGES_PURGED, conversationId, 0, messageIds);
+    }
+
+    /**
+     * Makes this change to a MessageManager.
+     *
+     * @param messageManager the MessageManager to change
+     */
+    void applyTo(MessageManager messageManager) {
+        switch (this.kind) {
+            case CONVERSATION_STARTED:
+                messageManager.addConversation(this.conversationId);
+                messageManager.markConversationAsRead(this.conversationId);
+                messageManager.recordActivity(this.conversationId, this.sentAt);
+                break;
+            case MESSAGE_RECEIVED:
+            case MESSAGE_SENT:
+                messageManager.receiveMessage(this.conversationId);
+                messageManager.recordActivity(this.conversationId, this.sentAt);
+                messageManager.removeConversationFromArchived(this.conversationId);
+                if (this.kind == Kind.MESSAGE_SENT) {
+                    messageManager.markConversationAsRead(this.conversationId);
+                }
+                break;
+            case MARKED_READ:
+                messageManager.markConversationAsRead(this.conversationId);
+                break;
+            case MARKED_UNREAD:
+                messageManager.markConversationAsUnread(this.conversationId);
+                break;
+            case ARCHIVED:
+                messageManager.archiveConversation(this.conversationId);
+                break;
+            case UNARCHIVED:
+                messageManager.removeConversationFromArchived(this.conversationId);
+                break;
+            case CONVERSATION_DELETED:
+                messageManager.deleteConversation(this.conversationId, this.messageIds);
+                break;
+            case MESSAGE_DELETED:
+                messageManager.deleteMessageInConversation(this.conversationId, this.messageIds.get(0));
+                break;
+            case DELETED_MESSAGES_PURGED:
+                for (String messageId : this.messageIds) {
+                    messageManager.purgeDeletedMessage(this.conversationId, messageId);
+                }
+                break;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.conference.backend.messenger.managers;
+
+import java.io.Closeable;
+import java.util.concurrent.*;
+
+/**
+ * Delivers broadcast messages to the inboxes of their recipients on a background thread, so that sending to every
+ * user of a role or every attendee of a talk returns as soon as the conversation is started.
+ *
+ * <p>
+ *     Deliveries run one batch at a time, in the order they were asked for, so a long broadcast does not hold up
+ *     the inboxes of broadcasts started after it for longer than one batch.
+ * </p>
+ */
+public class MessageFanOutService implements Executor, Closeable {
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Creates a MessageFanOutService with one background thread.
+     */
+    public MessageFanOutService() {
+        this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "message-fan-out");
+                    // Never keep the program running once it quits
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Returns the MessageFanOutService shared by every {@link MessengerManager} that is not given one, created the
+     * first time it is asked for.
+     *
+     * @return the shared MessageFanOutService
+     */
+    public static MessageFanOutService shared() {
+        return SharedHolder.INSTANCE;
+    }
+
+    private static final class SharedHolder {
+        private static final MessageFanOutService INSTANCE = new MessageFanOutService();
+    }
+
+    /**
+     * Runs one batch of deliveries on the background thread.
+     *
+     * @param command the batch to run
+     * @throws RejectedExecutionException if this service is closed
+     */
+    @Override
+    public void execute(Runnable command) {
+        executor.execute(command);
+    }
+
+    /**
+     * Returns the number of batches waiting for the background thread.
+     *
+     * @return the number of batches waiting
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Stops the background thread once the batches already asked for are delivered.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
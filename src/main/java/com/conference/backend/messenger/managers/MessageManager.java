@@ -1,30 +1,133 @@
 package com.conference.backend.messenger.managers;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.BiPredicate;
 
+/**
+ * The inbox of one user: the conversations they are in, how far they have read each of them, and the messages and
+ * conversations they deleted or archived.
+ *
+ * <p>
+ *     Each conversation has a read cursor: the number of its messages delivered to this inbox, and the number of
+ *     those the user has read. The number of unread messages and conversations is kept up to date as messages are
+ *     delivered and read, so that it never needs counting.
+ * </p>
+ *
+ * <p>
+ *     Archived conversations and deleted messages are kept in hash sets. A deleted message is kept only as long as
+ *     the message itself exists; {@link #compactDeletedMessages(BiPredicate)} drops the rest.
+ * </p>
+ *
+ * <p>
+ *     The unarchived conversations are also kept in a skip list ordered by the time of their latest message, newest
+ *     first, so that a page of the newest conversations is read without going through the rest. The skip list may
+ *     be read while the inbox changes.
+ * </p>
+ */
 public class MessageManager implements Serializable {
-
-    private final String userID;
-    private final Map<String, String> conversationsMap;
-    private final Map<String, List<String>> deletedMessagesInConversations;
-    private final List<String> archivedConversations;
     private static final long serialVersionUID = 6308543284L;
 
+    /**
+     * The status of a conversation with no unread messages in {@link #getConversationsMap()}
+     */
+    public static final String READ = "Read";
+
+    /**
+     * The status of a conversation with unread messages in {@link #getConversationsMap()}
+     */
+    public static final String UNREAD = "Unread";
+
+    /**
+     * The time of the latest message of a conversation whose messages were never timed, such as one read from a
+     * file written before they were. Such conversations come after every other, ordered by ID.
+     */
+    public static final long UNKNOWN_ACTIVITY = 0L;
+
+    // Keeps the serialized form compatible with older files, which hold only the status of each conversation and
+    // keep the archive and deleted messages in lists. The read cursors and the time of the latest message of each
+    // conversation are written as maps that older versions ignore.
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("userID", String.class),
+            new ObjectStreamField("conversationsMap", Map.class),
+            new ObjectStreamField("deletedMessagesInConversations", Map.class),
+            new ObjectStreamField("archivedConversations", List.class),
+            new ObjectStreamField("messageCounts", Map.class),
+            new ObjectStreamField("readCounts", Map.class),
+            new ObjectStreamField("lastActivity", Map.class)
+    };
+
+    private String userID;
+    private transient Map<String, ReadCursor> readCursors;
+    private transient Map<String, String> conversationsMap;
+    private transient Map<String, Set<String>> deletedMessagesInConversations;
+    private transient Set<String> archivedConversations;
+
+    // The IDs of the conversations with unread messages, in the order they became unread
+    private transient Set<String> unreadConversations;
+
+    // The total number of unread messages in every conversation
+    private transient int unreadMessageCount;
+
+    // The time of the latest message of each conversation, in epoch millis
+    private transient Map<String, Long> lastActivity;
+
+    // The unarchived conversations, newest first, and how many there are
+    private transient NavigableSet<InboxEntry> inbox;
+    private transient volatile int inboxSize;
+
+    /**
+     * How far the user has read a conversation.
+     */
+    private static final class ReadCursor {
+        // The number of messages delivered to this inbox, and the number of those read
+        private int messageCount;
+        private int readCount;
+
+        private ReadCursor(int messageCount, int readCount) {
+            this.messageCount = messageCount;
+            this.readCount = readCount;
+        }
+
+        private int unread() {
+            return messageCount - readCount;
+        }
+    }
+
+    /**
+     * A conversation in the inbox, ordered by the time of its latest message, newest first, then by ID.
+     */
+    private static final class InboxEntry implements Comparable<InboxEntry> {
+        private final long lastActivity;
+        private final String conversation;
+
+        private InboxEntry(long lastActivity, String conversation) {
+            this.lastActivity = lastActivity;
+            this.conversation = conversation;
+        }
+
+        @Override
+        public int compareTo(InboxEntry other) {
+            int byTime = Long.compare(other.lastActivity, this.lastActivity);
+            return byTime != 0 ? byTime : this.conversation.compareTo(other.conversation);
+        }
+    }
+
     /**
      * Constructs a new instance of MessageManager for a specific user.
      *
      * @param userID the ID of the user associated with this MessageManager
      */
     public MessageManager(String userID) {
-        this.conversationsMap = new HashMap<>();
         this.userID = userID;
-        this.archivedConversations = new ArrayList<>();
+        this.archivedConversations = new LinkedHashSet<>();
         this.deletedMessagesInConversations = new HashMap<>();
-
+        this.initReadState();
     }
 
     /**
@@ -37,35 +140,192 @@ public class MessageManager implements Serializable {
     }
 
     /**
-     * Returns a List of all the conversations in this MessageManager.
+     * Returns a List of all the unarchived conversations in this MessageManager, newest first.
      *
      * @return the List of IDs of the conversations in this MessageManager
      */
     public List<String> getUnarchivedConversationsIds() {
-        List<String> conversationsList = new ArrayList<>();
-        for (String conversation : this.conversationsMap.keySet()){
-            if (!this.archivedConversations.contains(conversation)){
-                conversationsList.add(conversation);
-            }
+        return this.getInboxPage(0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns one page of the unarchived conversations in this MessageManager, ordered by the time of their latest
+     * message, newest first. Only the conversations up to the end of the page are looked at.
+     *
+     * @param offset the number of newer conversations to skip
+     * @param limit the most conversations to return
+     * @return the List of IDs of the conversations on the page
+     */
+    public List<String> getInboxPage(int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("offset and limit must not be negative: " + offset + ", " + limit);
+        }
+        List<String> page = new ArrayList<>(Math.min(limit, 64));
+        Iterator<InboxEntry> entries = this.inbox.iterator();
+        for (int skipped = 0; skipped < offset && entries.hasNext(); skipped++) {
+            entries.next();
+        }
+        while (page.size() < limit && entries.hasNext()) {
+            page.add(entries.next().conversation);
+        }
+        return page;
+    }
+
+    /**
+     * Returns the number of unarchived conversations in this MessageManager.
+     *
+     * @return the number of unarchived conversations
+     */
+    public int getInboxSize() {
+        return this.inboxSize;
+    }
+
+    /**
+     * Records that a message of the conversation was sent at a time, moving the conversation up the inbox if it is
+     * the latest message so far. Conversations not in this MessageManager are ignored.
+     *
+     * @param conversation the String ID of the conversation
+     * @param sentAt the time the message was sent, in epoch millis
+     */
+    public void recordActivity(String conversation, long sentAt) {
+        Long previous = this.lastActivity.get(conversation);
+        if (previous == null || sentAt <= previous) {
+            return;
         }
-        return conversationsList;
+        this.unindex(conversation);
+        this.lastActivity.put(conversation, sentAt);
+        this.index(conversation);
+    }
+
+    /**
+     * Returns the time of the latest message of a conversation.
+     *
+     * @param conversation the String ID of the conversation
+     * @return the time in epoch millis, or {@link #UNKNOWN_ACTIVITY} if it is not known
+     */
+    public long getLastActivity(String conversation) {
+        return this.lastActivity.getOrDefault(conversation, UNKNOWN_ACTIVITY);
     }
 
     /**
      * Returns the conversation map with key: conversation ID and value: "Read or "Unread"
      *
-     * @return the Map of conversations with (Key: conversationID) and (value: "Read or "Unread")
+     * @return a read-only Map of conversations with (Key: conversationID) and (value: "Read or "Unread")
      */
     public Map<String, String> getConversationsMap() {
         return this.conversationsMap;
     }
 
     /**
-     * Adds the conversation to this MessageManager with status "Unread"
+     * Adds the conversation to this MessageManager with status "Unread", with its first message unread. A
+     * conversation already added is marked as unread instead.
      *
      * @param conversation the String ID of the conversation being added to this MessageManager
      */
-    public void addConversation(String conversation){ this.conversationsMap.put(conversation, "Unread"); }
+    public void addConversation(String conversation){
+        if (this.readCursors.containsKey(conversation)) {
+            this.markConversationAsUnread(conversation);
+        } else {
+            this.setReadCursor(conversation, 1, 0);
+        }
+    }
+
+    /**
+     * Delivers a new message of the conversation to this MessageManager, unread. The conversation is added if it is
+     * not already.
+     *
+     * @param conversation the String ID of the conversation the message was sent in
+     */
+    public void receiveMessage(String conversation) {
+        ReadCursor cursor = this.readCursors.get(conversation);
+        if (cursor == null) {
+            this.setReadCursor(conversation, 1, 0);
+        } else {
+            this.moveReadCursor(conversation, cursor, cursor.messageCount + 1, cursor.readCount);
+        }
+    }
+
+    /**
+     * Sets how far the user has read a conversation, adding the conversation if it is not already, such as when
+     * the MessageManager is read from a file.
+     *
+     * @param conversation the String ID of the conversation
+     * @param messageCount the number of messages of the conversation delivered to this MessageManager
+     * @param readCount the number of those messages the user has read
+     */
+    public void setReadCursor(String conversation, int messageCount, int readCount) {
+        if (readCount < 0 || readCount > messageCount) {
+            throw new IllegalArgumentException("readCount must be between 0 and " + messageCount + ": " + readCount);
+        }
+        ReadCursor cursor = this.readCursors.get(conversation);
+        if (cursor == null) {
+            cursor = new ReadCursor(0, 0);
+            this.readCursors.put(conversation, cursor);
+            this.lastActivity.put(conversation, UNKNOWN_ACTIVITY);
+            this.index(conversation);
+        }
+        this.moveReadCursor(conversation, cursor, messageCount, readCount);
+    }
+
+    /**
+     * Returns the number of messages of a conversation delivered to this MessageManager.
+     *
+     * @param conversation the String ID of the conversation
+     * @return the number of messages delivered, or 0 if the conversation is not in this MessageManager
+     */
+    public int getMessageCount(String conversation) {
+        ReadCursor cursor = this.readCursors.get(conversation);
+        return cursor == null ? 0 : cursor.messageCount;
+    }
+
+    /**
+     * Returns the number of messages of a conversation the user has read.
+     *
+     * @param conversation the String ID of the conversation
+     * @return the number of messages read, or 0 if the conversation is not in this MessageManager
+     */
+    public int getReadCount(String conversation) {
+        ReadCursor cursor = this.readCursors.get(conversation);
+        return cursor == null ? 0 : cursor.readCount;
+    }
+
+    /**
+     * Returns the number of unread messages in a conversation.
+     *
+     * @param conversation the String ID of the conversation
+     * @return the number of unread messages, or 0 if the conversation is not in this MessageManager
+     */
+    public int getUnreadMessageCount(String conversation) {
+        ReadCursor cursor = this.readCursors.get(conversation);
+        return cursor == null ? 0 : cursor.unread();
+    }
+
+    /**
+     * Returns the number of unread messages in every conversation, archived or not.
+     *
+     * @return the total number of unread messages
+     */
+    public int getUnreadMessageCount() {
+        return this.unreadMessageCount;
+    }
+
+    /**
+     * Returns the number of conversations with unread messages, archived or not.
+     *
+     * @return the number of unread conversations
+     */
+    public int getUnreadConversationCount() {
+        return this.unreadConversations.size();
+    }
+
+    /**
+     * Returns the conversations with unread messages, archived or not, in the order they became unread.
+     *
+     * @return the List of IDs of the unread conversations
+     */
+    public List<String> getUnreadConversationsIds() {
+        return new ArrayList<>(this.unreadConversations);
+    }
 
     /**
      * Archives the conversation by adding the conversation ID to the archivedConversation list
@@ -73,18 +333,30 @@ public class MessageManager implements Serializable {
      * @param conversation the String ID of the conversation being archived.
      */
     public void archiveConversation(String conversation) {
-        if (!this.archivedConversations.contains(conversation)) {
-            this.archivedConversations.add(conversation);
+        if (this.archivedConversations.add(conversation)) {
+            this.unindex(conversation);
         }
     }
 
+    /**
+     * Returns whether the conversation is archived.
+     *
+     * @param conversation the String ID of the conversation
+     * @return {@code true} if the conversation is archived
+     */
+    public boolean isArchived(String conversation) {
+        return this.archivedConversations.contains(conversation);
+    }
+
     /**
      * Unarchives the conversation by removeing the conversation ID from the archivedConversation list.
      *
      * @param conversation the String ID of the conversation being unarchived.
      */
     public void removeConversationFromArchived (String conversation) {
-        this.archivedConversations.remove(conversation);
+        if (this.archivedConversations.remove(conversation)) {
+            this.index(conversation);
+        }
     }
 
     /**
@@ -95,34 +367,97 @@ public class MessageManager implements Serializable {
      * @param message the Strinhg ID of the message being deleted.
      */
     public void deleteMessageInConversation (String conversation, String message){
-        if (this.deletedMessagesInConversations.containsKey(conversation)){
-            if (!this.deletedMessagesInConversations.get(conversation).contains(message)){
-                this.deletedMessagesInConversations.get(conversation).add(message);
-            }
+        this.deletedMessagesInConversations.computeIfAbsent(conversation, key -> new LinkedHashSet<>()).add(message);
+    }
+
+    /**
+     * Returns whether the message is deleted for only this MessageManager.
+     *
+     * @param conversation the String ID of the conversation of the message
+     * @param message the String ID of the message
+     * @return {@code true} if the message is deleted
+     */
+    public boolean isMessageDeleted(String conversation, String message) {
+        Set<String> deleted = this.deletedMessagesInConversations.get(conversation);
+        return deleted != null && deleted.contains(message);
+    }
+
+    /**
+     * Forgets that a message was deleted for this MessageManager, once the message itself is gone from the
+     * conversation.
+     *
+     * @param conversation the String ID of the conversation of the message
+     * @param message the String ID of the message
+     * @return {@code true} if the message was recorded as deleted
+     */
+    public boolean purgeDeletedMessage(String conversation, String message) {
+        Set<String> deleted = this.deletedMessagesInConversations.get(conversation);
+        if (deleted == null || !deleted.remove(message)) {
+            return false;
+        }
+        if (deleted.isEmpty()) {
+            this.deletedMessagesInConversations.remove(conversation);
+        }
+        return true;
+    }
+
+    /**
+     * Forgets the deleted messages of a conversation that no longer exist.
+     *
+     * @param conversation the String ID of the conversation
+     * @param messageExists tells whether a message, by conversation ID and message ID, still exists
+     * @return the number of deleted messages forgotten
+     */
+    public int compactDeletedMessages(String conversation, BiPredicate<String, String> messageExists) {
+        Set<String> deleted = this.deletedMessagesInConversations.get(conversation);
+        if (deleted == null) {
+            return 0;
         }
-        else {
-            List<String> array = new ArrayList<>();
-            array.add(message);
-            this.deletedMessagesInConversations.put(conversation, array);
+        int before = deleted.size();
+        deleted.removeIf(message -> !messageExists.test(conversation, message));
+        if (deleted.isEmpty()) {
+            this.deletedMessagesInConversations.remove(conversation);
         }
+        return before - deleted.size();
     }
 
     /**
-     * Marks the conversation as unread.
+     * Forgets the deleted messages of every conversation that no longer exist.
+     *
+     * @param messageExists tells whether a message, by conversation ID and message ID, still exists
+     * @return the number of deleted messages forgotten
+     */
+    public int compactDeletedMessages(BiPredicate<String, String> messageExists) {
+        int dropped = 0;
+        for (String conversation : new ArrayList<>(this.deletedMessagesInConversations.keySet())) {
+            dropped += this.compactDeletedMessages(conversation, messageExists);
+        }
+        return dropped;
+    }
+
+    /**
+     * Marks the conversation as unread, by marking its latest message as unread if every message is read.
      *
      * @param conversation String ID of the conversation being marked.
      */
     public void markConversationAsUnread(String conversation){
-        this.conversationsMap.replace(conversation, "Unread");
+        ReadCursor cursor = this.readCursors.get(conversation);
+        if (cursor != null && cursor.unread() == 0) {
+            this.moveReadCursor(conversation, cursor, Math.max(cursor.messageCount, 1),
+                    Math.max(cursor.messageCount, 1) - 1);
+        }
     }
 
     /**
-     * Marks the conversation as read.
+     * Marks the conversation as read, up to its latest message.
      *
      * @param conversation the String ID of the conversation being marked.
      */
     public void markConversationAsRead(String conversation){
-        this.conversationsMap.replace(conversation, "Read");
+        ReadCursor cursor = this.readCursors.get(conversation);
+        if (cursor != null) {
+            this.moveReadCursor(conversation, cursor, cursor.messageCount, cursor.messageCount);
+        }
     }
 
     /**
@@ -132,7 +467,13 @@ public class MessageManager implements Serializable {
      * @param messageListIDs the List of String IDs of the messages in the conversation being deleted also
      */
     public void deleteConversation(String conversation, List<String> messageListIDs){
-        this.conversationsMap.remove(conversation);
+        ReadCursor cursor = this.readCursors.get(conversation);
+        if (cursor != null) {
+            this.moveReadCursor(conversation, cursor, cursor.messageCount, cursor.messageCount);
+            this.unindex(conversation);
+            this.readCursors.remove(conversation);
+            this.lastActivity.remove(conversation);
+        }
         this.archivedConversations.remove(conversation);
         for (String message: messageListIDs){
             this.deleteMessageInConversation(conversation, message);
@@ -142,21 +483,199 @@ public class MessageManager implements Serializable {
     /**
      * Returns the deleted messages associated with this MessageManager.
      *
-     * @return the {@code Map<String, List<String>>} of deleted messages with key: ConversationID,
-     * value: List of Message IDs
+     * @return a read-only {@code Map<String, Set<String>>} of deleted messages with key: ConversationID,
+     * value: Set of Message IDs
      */
-    public Map<String, List<String>> getDeletedMessagesInConversations() {
-        return deletedMessagesInConversations;
+    public Map<String, Set<String>> getDeletedMessagesInConversations() {
+        return Collections.unmodifiableMap(deletedMessagesInConversations);
     }
 
 
     /**
-     * Returns the IDs of the archived conversations associated with this MessageManager
+     * Returns the IDs of the archived conversations associated with this MessageManager, in the order they were
+     * archived
      *
      * @return the {@code List<String>} of archived conversation IDs
      */
     public List<String> getArchivedConversationsIds() {
-        return archivedConversations;
+        return new ArrayList<>(archivedConversations);
+    }
+
+    /**
+     * Moves the read cursor of a conversation, keeping the unread counts up to date.
+     *
+     * @param conversation the String ID of the conversation
+     * @param cursor the read cursor of the conversation
+     * @param messageCount the new number of messages delivered
+     * @param readCount the new number of messages read
+     */
+    private void moveReadCursor(String conversation, ReadCursor cursor, int messageCount, int readCount) {
+        this.unreadMessageCount += (messageCount - readCount) - cursor.unread();
+        cursor.messageCount = messageCount;
+        cursor.readCount = readCount;
+        if (cursor.unread() > 0) {
+            this.unreadConversations.add(conversation);
+        } else {
+            this.unreadConversations.remove(conversation);
+        }
+    }
+
+    /**
+     * Adds a conversation to the inbox, if it is in this MessageManager and not archived.
+     *
+     * @param conversation the String ID of the conversation
+     */
+    private void index(String conversation) {
+        Long time = this.lastActivity.get(conversation);
+        if (time != null && !this.archivedConversations.contains(conversation)
+                && this.inbox.add(new InboxEntry(time, conversation))) {
+            this.inboxSize++;
+        }
+    }
+
+    /**
+     * Removes a conversation from the inbox, if it is there.
+     *
+     * @param conversation the String ID of the conversation
+     */
+    private void unindex(String conversation) {
+        Long time = this.lastActivity.get(conversation);
+        if (time != null && this.inbox.remove(new InboxEntry(time, conversation))) {
+            this.inboxSize--;
+        }
+    }
+
+    /**
+     * Creates the read cursors, the unread counts, the inbox and the view of the status of each conversation, which
+     * are not serialized as they are.
+     */
+    private void initReadState() {
+        this.readCursors = new HashMap<>();
+        this.unreadConversations = new LinkedHashSet<>();
+        this.unreadMessageCount = 0;
+        this.lastActivity = new HashMap<>();
+        this.inbox = new ConcurrentSkipListSet<>();
+        this.inboxSize = 0;
+        this.conversationsMap = new AbstractMap<String, String>() {
+            @Override
+            public String get(Object conversation) {
+                ReadCursor cursor = readCursors.get(conversation);
+                return cursor == null ? null : cursor.unread() > 0 ? UNREAD : READ;
+            }
+
+            @Override
+            public boolean containsKey(Object conversation) {
+                return readCursors.containsKey(conversation);
+            }
+
+            @Override
+            public int size() {
+                return readCursors.size();
+            }
+
+            @Override
+            public Set<Entry<String, String>> entrySet() {
+                return new AbstractSet<Entry<String, String>>() {
+                    @Override
+                    public Iterator<Entry<String, String>> iterator() {
+                        Iterator<Entry<String, ReadCursor>> cursors = readCursors.entrySet().iterator();
+                        return new Iterator<Entry<String, String>>() {
+                            @Override
+                            public boolean hasNext() {
+                                return cursors.hasNext();
+                            }
+
+                            @Override
+                            public Entry<String, String> next() {
+                                Entry<String, ReadCursor> entry = cursors.next();
+                                return new SimpleImmutableEntry<>(entry.getKey(),
+                                        entry.getValue().unread() > 0 ? UNREAD : READ);
+                            }
+                        };
+                    }
+
+                    @Override
+                    public int size() {
+                        return readCursors.size();
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Writes this MessageManager with the status of each conversation and lists of archived conversations and
+     * deleted messages, as older versions expect, its read cursors and the time of the latest message of each
+     * conversation.
+     *
+     * @param out the stream to write this MessageManager to
+     * @throws IOException if the stream cannot be written
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        Map<String, String> statuses = new HashMap<>();
+        Map<String, Integer> messageCounts = new HashMap<>();
+        Map<String, Integer> readCounts = new HashMap<>();
+        for (Map.Entry<String, ReadCursor> entry : this.readCursors.entrySet()) {
+            ReadCursor cursor = entry.getValue();
+            statuses.put(entry.getKey(), cursor.unread() > 0 ? UNREAD : READ);
+            messageCounts.put(entry.getKey(), cursor.messageCount);
+            readCounts.put(entry.getKey(), cursor.readCount);
+        }
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("userID", this.userID);
+        fields.put("conversationsMap", statuses);
+        Map<String, List<String>> deletedMessages = new HashMap<>();
+        for (Map.Entry<String, Set<String>> entry : this.deletedMessagesInConversations.entrySet()) {
+            deletedMessages.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+        }
+        fields.put("deletedMessagesInConversations", deletedMessages);
+        fields.put("archivedConversations", new ArrayList<>(this.archivedConversations));
+        fields.put("messageCounts", messageCounts);
+        fields.put("readCounts", readCounts);
+        fields.put("lastActivity", new HashMap<>(this.lastActivity));
+        out.writeFields();
+    }
+
+    /**
+     * Restores this MessageManager from a stream. Files written before read cursors were kept hold only the status
+     * of each conversation, which is restored as one message, read or unread, with {@link #UNKNOWN_ACTIVITY}. The
+     * archive and deleted messages are read from lists into sets.
+     *
+     * @param in the stream to read this MessageManager from
+     * @throws IOException if the stream cannot be read
+     * @throws ClassNotFoundException if a serialized class cannot be found
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        Map<String, String> statuses = (Map<String, String>) fields.get("conversationsMap", null);
+        Map<String, Integer> messageCounts = (Map<String, Integer>) fields.get("messageCounts", null);
+        Map<String, Integer> readCounts = (Map<String, Integer>) fields.get("readCounts", null);
+        Map<String, Long> activity = (Map<String, Long>) fields.get("lastActivity", null);
+        Map<String, List<String>> deletedMessages =
+                (Map<String, List<String>>) fields.get("deletedMessagesInConversations", null);
+        List<String> archived = (List<String>) fields.get("archivedConversations", null);
+        this.userID = (String) fields.get("userID", null);
+        this.deletedMessagesInConversations = new HashMap<>();
+        for (Map.Entry<String, List<String>> entry : deletedMessages.entrySet()) {
+            this.deletedMessagesInConversations.put(entry.getKey(), new LinkedHashSet<>(entry.getValue()));
+        }
+        this.archivedConversations = new LinkedHashSet<>(archived);
+
+        this.initReadState();
+        if (statuses != null) {
+            for (Map.Entry<String, String> entry : statuses.entrySet()) {
+                String conversation = entry.getKey();
+                if (messageCounts != null && messageCounts.containsKey(conversation)) {
+                    this.setReadCursor(conversation, messageCounts.get(conversation), readCounts.get(conversation));
+                } else {
+                    this.setReadCursor(conversation, 1, READ.equals(entry.getValue()) ? 1 : 0);
+                }
+                if (activity != null && activity.containsKey(conversation)) {
+                    this.recordActivity(conversation, activity.get(conversation));
+                }
+            }
+        }
     }
 }
 
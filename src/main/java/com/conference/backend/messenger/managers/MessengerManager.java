@@ -3,22 +3,79 @@ package com.conference.backend.messenger.managers;
 import com.conference.backend.conference_and_rooms.managers.ConferenceEventManager;
 import com.conference.backend.conference_and_rooms.entities.ConferenceEvent;
 import com.conference.backend.data.utils.*;
+import com.conference.backend.data.utils.base.Journal;
+import com.conference.backend.data.utils.base.Journaled;
 import com.conference.backend.exception.*;
 import com.conference.backend.messenger.entities.Conversation;
 import com.conference.backend.messenger.entities.Message;
-import com.conference.backend.users.User;
 import com.conference.backend.users.UserManager;
 
 import java.io.*;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Function;
 
-public class MessengerManager implements Serializable {
+/**
+ * Stores every Conversation and the MessageManager of every user, and sends messages between users.
+ *
+ * <p>
+ *     Safe for use by many threads at once. Changes to a Conversation hold its lock, and changes to a
+ *     MessageManager hold its user's lock, taken after any Conversation lock and one user at a time.
+ * </p>
+ *
+ * <p>
+ *     Messages to every user of a role or every attendee of a speaker's talks are broadcasts: the sender's inbox
+ *     gets the new conversation straight away, and the recipients' inboxes get it in batches on a background
+ *     {@link Executor}, so that sending does not wait for every recipient.
+ * </p>
+ */
+public class MessengerManager implements Serializable, Journaled {
     private Map<String, MessageManager> messageManagerMap;
     private List<Conversation> allConversations;
     private UserManager userManager;
     private static final long serialVersionUID = 74532853098L;
 
+    /**
+     * The type of the {@link Journal} records of Conversations, keyed by conversation ID
+     */
+    public static final String CONVERSATION_RECORD = "conversation";
+
+    /**
+     * The type of the {@link Journal} records of MessageManagers, keyed by user ID
+     */
+    public static final String MESSAGE_MANAGER_RECORD = "messageManager";
+
+    /**
+     * The type of the {@link Journal} change records of a broadcast delivered to one batch of recipients, keyed by
+     * conversation ID and the index of the first recipient of the batch
+     */
+    public static final String BROADCAST_DELIVERY_RECORD = "broadcastDelivery";
+
+    /**
+     * The number of recipients a broadcast is delivered to at a time if none is given
+     */
+    public static final int DEFAULT_FAN_OUT_BATCH_SIZE = 256;
+
+    // Maps conversation IDs to the conversations in allConversations; rebuilt on deserialization
+    private transient Map<String, Conversation> conversationsById;
+
+    // The journal changes are recorded to, if any
+    private transient Journal journal;
+
+    // Guard changes to each Conversation by conversation ID, and to each MessageManager by user ID
+    private transient StripedLock conversationLocks;
+    private transient StripedLock userLocks;
+
+    // Delivers broadcasts to their recipients fanOutBatchSize at a time
+    private transient Executor fanOutExecutor;
+    private transient int fanOutBatchSize;
+
+    // Broadcasts not yet delivered to every recipient
+    private transient Set<BroadcastProgress> pendingBroadcasts;
 
     /**
      * Constructs a new instance of MessengerManager.
@@ -26,10 +83,31 @@ public class MessengerManager implements Serializable {
      * @param userManager the UserManager associated with this MessengerManager
      */
     public MessengerManager(UserManager userManager) {
-        this.allConversations = new ArrayList<>();
-        this.messageManagerMap = new HashMap<>();
+        this.allConversations = Collections.synchronizedList(new ArrayList<>());
+        this.conversationsById = new ConcurrentHashMap<>();
+        this.messageManagerMap = new ConcurrentHashMap<>();
         this.userManager = userManager;
+        this.initTransientState();
+    }
 
+    /**
+     * Constructs a MessengerManager around stored conversations and MessageManagers, such as those of a snapshot.
+     * The collections may decode their elements only when they are first accessed, so they are used through
+     * synchronized views.
+     *
+     * @param userManager the UserManager associated with this MessengerManager
+     * @param messageManagerMap a map from user IDs to their MessageManagers
+     * @param allConversations every conversation, in the order they were started
+     * @param conversationsById a map from conversation IDs to the first conversation in allConversations with
+     *                          that ID
+     */
+    public MessengerManager(UserManager userManager, Map<String, MessageManager> messageManagerMap,
+                            List<Conversation> allConversations, Map<String, Conversation> conversationsById) {
+        this.allConversations = Collections.synchronizedList(allConversations);
+        this.conversationsById = Collections.synchronizedMap(conversationsById);
+        this.messageManagerMap = Collections.synchronizedMap(messageManagerMap);
+        this.userManager = userManager;
+        this.initTransientState();
     }
 
     /**
@@ -38,12 +116,119 @@ public class MessengerManager implements Serializable {
      * @param userID the user ID to whom this MessageManager belongs
      */
     public void addMessageManager(String userID) {
-        if (!this.messageManagerMap.containsKey(userID)) {
-            MessageManager newMessageManager = new MessageManager(userID);
-            this.messageManagerMap.put(userID, newMessageManager);
+        Lock lock = this.userLocks.get(userID);
+        lock.lock();
+        try {
+            if (!this.messageManagerMap.containsKey(userID)) {
+                MessageManager newMessageManager = new MessageManager(userID);
+                this.messageManagerMap.put(userID, newMessageManager);
+                if (this.journal != null) {
+                    this.journal.recordSave(MESSAGE_MANAGER_RECORD, userID, newMessageManager);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Marks a conversation in a user's inbox as read, up to its latest message.
+     *
+     * @param userID the ID of the user
+     * @param conversationId the ID of the conversation
+     */
+    public void markConversationAsRead(String userID, String conversationId) {
+        this.updateMessageManager(userID, InboxChange.markedRead(conversationId));
+    }
+
+    /**
+     * Marks a conversation in a user's inbox as unread.
+     *
+     * @param userID the ID of the user
+     * @param conversationId the ID of the conversation
+     */
+    public void markConversationAsUnread(String userID, String conversationId) {
+        this.updateMessageManager(userID, InboxChange.markedUnread(conversationId));
+    }
+
+    /**
+     * Archives a conversation in a user's inbox.
+     *
+     * @param userID the ID of the user
+     * @param conversationId the ID of the conversation
+     */
+    public void archiveConversation(String userID, String conversationId) {
+        this.updateMessageManager(userID, InboxChange.archived(conversationId));
+    }
+
+    /**
+     * Unarchives a conversation in a user's inbox.
+     *
+     * @param userID the ID of the user
+     * @param conversationId the ID of the conversation
+     */
+    public void unarchiveConversation(String userID, String conversationId) {
+        this.updateMessageManager(userID, InboxChange.unarchived(conversationId));
+    }
+
+    /**
+     * Deletes a conversation, along with all its messages, from a user's inbox only.
+     *
+     * @param userID the ID of the user
+     * @param conversationId the ID of the conversation
+     */
+    public void deleteConversationForUser(String userID, String conversationId) {
+        // Hold the conversation's lock so that no message is sent between reading the messages and deleting them
+        Lock lock = this.conversationLocks.get(conversationId);
+        lock.lock();
+        try {
+            List<String> messageIds = this.getConvoMessageIdsByConvoId(conversationId);
+            this.updateMessageManager(userID, InboxChange.conversationDeleted(conversationId,
+                    messageIds == null ? Collections.emptyList() : messageIds));
+        } finally {
+            lock.unlock();
         }
     }
 
+    /**
+     * Deletes a message of a conversation from a user's inbox only.
+     *
+     * @param userID the ID of the user
+     * @param conversationId the ID of the conversation
+     * @param messageId the ID of the message
+     */
+    public void deleteMessageForUser(String userID, String conversationId, String messageId) {
+        this.updateMessageManager(userID, InboxChange.messageDeleted(conversationId, messageId));
+    }
+
+    /**
+     * Returns every conversation, in the order they were started.
+     *
+     * @return a read-only List of every Conversation
+     */
+    public List<Conversation> getConversations() {
+        return Collections.unmodifiableList(this.allConversations);
+    }
+
+    /**
+     * Adds an existing conversation, such as one read from a file, after every other conversation.
+     *
+     * @param conversation the Conversation to add
+     */
+    public void addConversation(Conversation conversation) {
+        this.allConversations.add(conversation);
+        this.conversationsById.putIfAbsent(conversation.getId(), conversation);
+    }
+
+    /**
+     * Returns the MessageManager of every user.
+     *
+     * @return a read-only Collection of every MessageManager
+     */
+    public Collection<MessageManager> getMessageManagers() {
+        return Collections.unmodifiableCollection(this.messageManagerMap.values());
+    }
+
     /**
      * Returns the UserManager associated with this MessengerManager.
      *
@@ -69,11 +254,35 @@ public class MessengerManager implements Serializable {
      * @return the {@code MessageManger} MessageManager associated with this userID.
      */
     public MessageManager getMessageManager(String userID) {
-        return this.messageManagerMap.get(userID);
+        return userID == null ? null : this.messageManagerMap.get(userID);
     }
 
     /**
-     * Instantiates a new Conversation with one message
+     * Sets how broadcasts are delivered to their recipients.
+     *
+     * @param executor the {@link Executor} delivering each batch of recipients
+     * @param batchSize the number of recipients delivered to in each batch
+     */
+    public void setFanOut(Executor executor, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        this.fanOutExecutor = executor;
+        this.fanOutBatchSize = batchSize;
+    }
+
+    /**
+     * Waits until every broadcast started so far is delivered to all of its recipients, such as before saving.
+     */
+    public void awaitBroadcasts() {
+        for (BroadcastProgress broadcast : this.pendingBroadcasts) {
+            // A failed delivery is already done; what it delivered is saved as it is
+            broadcast.getCompletion().exceptionally(e -> null).join();
+        }
+    }
+
+    /**
+     * Instantiates a new Conversation with one message and delivers it to every receiver before returning.
      *
      * @param userID the user ID sending the message
      * @param receivers a list of user IDs who of the users receiving the message in this conversation
@@ -81,18 +290,117 @@ public class MessengerManager implements Serializable {
      * @throws EmptyReceiversException if the receiver list is empty
      */
     private void sendMessageInNewConversation(String userID, List<String> receivers, String messageText) throws EmptyReceiversException {
+        this.startConversation(userID, receivers, messageText, Runnable::run);
+    }
+
+    /**
+     * Instantiates a new Conversation with one message and starts delivering it to the receivers in the background.
+     *
+     * @param userID the user ID sending the message
+     * @param receivers a list of user IDs who of the users receiving the message in this conversation
+     * @param messageText the String text body of the message being sent
+     * @return the {@code BroadcastProgress} of delivering the message to the receivers
+     * @throws EmptyReceiversException if the receiver list is empty
+     */
+    private BroadcastProgress broadcastInNewConversation(String userID, List<String> receivers,
+                                                         String messageText) throws EmptyReceiversException {
+        return this.startConversation(userID, receivers, messageText, this.fanOutExecutor);
+    }
+
+    /**
+     * Instantiates a new Conversation with one message, adds it to the sender's inbox as read, then delivers it to
+     * the receivers' inboxes in batches on executor.
+     *
+     * @param userID the user ID sending the message
+     * @param receivers a list of user IDs who of the users receiving the message in this conversation
+     * @param messageText the String text body of the message being sent
+     * @param executor the {@link Executor} delivering each batch of receivers
+     * @return the {@code BroadcastProgress} of delivering the message to the receivers
+     * @throws EmptyReceiversException if the receiver list is empty
+     */
+    private BroadcastProgress startConversation(String userID, List<String> receivers, String messageText,
+                                                Executor executor) throws EmptyReceiversException {
         if (receivers.isEmpty()) {
             throw new EmptyReceiversException("There are no receivers.");
         }
         Message message = new Message(messageText, LocalDateTime.now(), userID);
+        int receiverCount = receivers.size();
         receivers.add(userID);
         Conversation newConversation = new Conversation(receivers, message);
-        this.allConversations.add(newConversation);
-        for (String participant : receivers) {
-            MessageManager messageManager = this.getMessageManager(participant);
-            messageManager.addConversation(newConversation.getId());
-            this.getMessageManager(userID).markConversationAsRead(newConversation.getId());
+        String conversationId = newConversation.getId();
+        Lock lock = this.conversationLocks.get(conversationId);
+        lock.lock();
+        try {
+            this.allConversations.add(newConversation);
+            this.conversationsById.put(conversationId, newConversation);
+            this.updateMessageManager(userID, InboxChange.conversationStarted(conversationId, sentAt(message)));
+            if (this.journal != null) {
+                this.journal.recordSave(CONVERSATION_RECORD, conversationId, newConversation);
+            }
+        } finally {
+            lock.unlock();
         }
+
+        BroadcastProgress progress = new BroadcastProgress(conversationId, receiverCount);
+        this.pendingBroadcasts.add(progress);
+        progress.getCompletion().whenComplete((done, e) -> this.pendingBroadcasts.remove(progress));
+        // The conversation never changes its participants, so the receivers can be read as delivery goes on
+        this.deliverBatch(progress, receivers.subList(0, receiverCount), userID, sentAt(message), 0, executor);
+        return progress;
+    }
+
+    /**
+     * Delivers a new conversation to the inboxes of one batch of receivers on executor, then asks for the next
+     * batch once it is done.
+     *
+     * @param progress the progress of the delivery, completed after the last batch
+     * @param receivers the IDs of every receiver of the conversation, not including the sender
+     * @param userID the ID of the sender, whose inbox already has the conversation
+     * @param sentAt the time the message was sent, in epoch millis
+     * @param from the index in receivers of the first receiver of the batch
+     * @param executor the {@link Executor} delivering each batch
+     */
+    private void deliverBatch(BroadcastProgress progress, List<String> receivers, String userID, long sentAt,
+                              int from, Executor executor) {
+        String conversationId = progress.getConversationId();
+        executor.execute(() -> {
+            try {
+                int to = Math.min(from + this.fanOutBatchSize, receivers.size());
+                List<String> batch = new ArrayList<>(to - from);
+                for (String receiver : receivers.subList(from, to)) {
+                    if (!receiver.equals(userID)) {
+                        batch.add(receiver);
+                    }
+                }
+                BroadcastDelivery delivery = new BroadcastDelivery(conversationId, batch, sentAt);
+                // One record for the batch rather than one per inbox, so that a broadcast to thousands of users
+                // does not fill the log. It is written before any inbox gets the broadcast, so that it comes before
+                // every change a recipient makes to the conversation once it has arrived
+                if (this.journal != null) {
+                    this.journal.recordChange(BROADCAST_DELIVERY_RECORD, conversationId + ":" + from, delivery);
+                }
+                for (String receiver : batch) {
+                    Lock lock = this.userLocks.get(receiver);
+                    lock.lock();
+                    try {
+                        MessageManager messageManager = this.getMessageManager(receiver);
+                        if (messageManager != null) {
+                            deliver(delivery, messageManager);
+                        }
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+                progress.addDelivered(to - from);
+                if (to < receivers.size()) {
+                    this.deliverBatch(progress, receivers, userID, sentAt, to, executor);
+                } else {
+                    progress.getCompletion().complete(null);
+                }
+            } catch (RuntimeException e) {
+                progress.getCompletion().completeExceptionally(e);
+            }
+        });
     }
 
     /**
@@ -104,21 +412,23 @@ public class MessengerManager implements Serializable {
      */
     public void replyToMessageInConversation(String userID, String conversationId, String messageText) {
         Message message = new Message(messageText, LocalDateTime.now(), userID);
-        Conversation conversation = this.getConvoByConvoId(conversationId);
-        if (conversation != null) {
-            conversation.sendMessage(message);
-        }
-        if (conversation != null) {
-            for (String participantID: conversation.getMembers()){
-                MessageManager messageManager = this.getMessageManager(participantID);
-                if (!messageManager.getConversationsMap().containsKey(conversationId)){
-                    messageManager.addConversation(conversationId);
+        Lock lock = this.conversationLocks.get(conversationId);
+        lock.lock();
+        try {
+            Conversation conversation = this.getConvoByConvoId(conversationId);
+            if (conversation != null) {
+                this.updateConversation(conversation, ConversationChange.messageSent(message));
+                for (String participantID: conversation.getMembers()){
+                    this.updateMessageManager(participantID, participantID.equals(userID)
+                            ? InboxChange.messageSent(conversationId, sentAt(message))
+                            : InboxChange.messageReceived(conversationId, sentAt(message)));
                 }
-                messageManager.markConversationAsUnread(conversationId);
-                messageManager.removeConversationFromArchived(conversationId);
+            } else {
+                this.updateMessageManager(userID, InboxChange.markedRead(conversationId));
             }
+        } finally {
+            lock.unlock();
         }
-        this.getMessageManager(userID).markConversationAsRead(conversationId);
     }
 
     /**
@@ -128,23 +438,21 @@ public class MessengerManager implements Serializable {
      * @param eventNames the list of event IDs of the events this speaker is speaking at
      * @param messageText the text body of the message being sent
      * @param conferenceEventManager the ConferenceEventManager associated with this session
+     * @return the {@code BroadcastProgress} of delivering the message to the attendees
      * @throws EmptyReceiversException if the list of receivers is empty
      */
-    public void speakerSendToAllAttendeesOfTalks(String speakerID,
+    public BroadcastProgress speakerSendToAllAttendeesOfTalks(String speakerID,
                                                  List<String> eventNames,
                                                  String messageText,
                                                  ConferenceEventManager conferenceEventManager)
             throws EmptyReceiversException {
 
-        List<String> attendeeIDs = new ArrayList<>();
+        RecipientSetBuilder attendeeIDs = new RecipientSetBuilder().excluding(speakerID);
         for (String eventName : eventNames) {
             ConferenceEvent conferenceEvent = conferenceEventManager.getConferenceEvent(eventName);
-            for (String attendeeID : conferenceEvent.getAttendeeList()) {
-                if (!attendeeIDs.contains(attendeeID)){
-                    attendeeIDs.add(attendeeID);}
-            }
+            attendeeIDs.addAll(conferenceEvent.getAttendeeList());
         }
-        this.sendMessageInNewConversation(speakerID, attendeeIDs, messageText);
+        return this.broadcastInNewConversation(speakerID, attendeeIDs.build(), messageText);
     }
 
     /**
@@ -153,18 +461,15 @@ public class MessengerManager implements Serializable {
      * @param organizerID the ID of the organizer who is sending this message
      * @param sendToRole the role of users who will receive this message
      * @param messageText the text body of the message being sent
+     * @return the {@code BroadcastProgress} of delivering the message to the users of the role
      * @throws EmptyReceiversException if the receiver list is empty
      */
-    public void organizerSendToAllUserRole(String organizerID,
+    public BroadcastProgress organizerSendToAllUserRole(String organizerID,
                                            String messageText,
                                            Role sendToRole) throws EmptyReceiversException {
-        List<String> allSendToRole = new ArrayList<>();
-        for (User user : this.userManager.getUsers()) {
-            if (user.getRoles().contains(sendToRole)) {
-                allSendToRole.add(user.getId());
-            }
-        }
-        this.sendMessageInNewConversation(organizerID, allSendToRole, messageText);
+        List<String> allSendToRole = new RecipientSetBuilder().excluding(organizerID)
+                .addAll(this.userManager.getUserIdsWithRole(sendToRole)).build();
+        return this.broadcastInNewConversation(organizerID, allSendToRole, messageText);
     }
 
     /**
@@ -178,8 +483,8 @@ public class MessengerManager implements Serializable {
     public void organizerOrAttendeeSendToAttendeeOrSpeaker(String organizerOrAttendee,
                                                            String attendeeOrSpeaker,
                                                            String messageText) throws EmptyReceiversException {
-        List<String> attendeeOrSpeakerIDs = new ArrayList<>();
-        attendeeOrSpeakerIDs.add(attendeeOrSpeaker);
+        List<String> attendeeOrSpeakerIDs = new RecipientSetBuilder().excluding(organizerOrAttendee)
+                .add(attendeeOrSpeaker).build();
         this.sendMessageInNewConversation(organizerOrAttendee, attendeeOrSpeakerIDs, messageText);
     }
 
@@ -192,10 +497,24 @@ public class MessengerManager implements Serializable {
      */
     public void deleteMessageInAllConvosByMsgIdAndConvoId(String conversationId,
                                                           String messageId) throws MessageNotFoundException {
-        Conversation conversation = this.getConvoByConvoId(conversationId);
-        Message message = this.getMessageByMessageIdAndConvoId(messageId, conversationId);
-        if (conversation != null) {
-            conversation.deleteMessage(message);
+        Lock lock = this.conversationLocks.get(conversationId);
+        lock.lock();
+        try {
+            Conversation conversation = this.getConvoByConvoId(conversationId);
+            Message message = this.getMessageByMessageIdAndConvoId(messageId, conversationId);
+            if (conversation != null) {
+                this.updateConversation(conversation, ConversationChange.messageDeleted(message.getId()));
+                // Nobody needs to remember they deleted a message that no longer exists
+                for (String participantID : new HashSet<>(conversation.getMembers())) {
+                    this.updateMessageManagerIf(participantID,
+                            messageManager -> messageManager.isMessageDeleted(conversationId, messageId)
+                                    ? InboxChange.deletedMessagesPurged(conversationId,
+                                            Collections.singletonList(messageId))
+                                    : null);
+                }
+            }
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -206,12 +525,7 @@ public class MessengerManager implements Serializable {
      * @return the {@code List<String>} List of IDs of the participants in the conversation.
      */
     public List<String> getConversationMemberIdsByConvoId(String convoId) {
-        Conversation convo = null;
-        for (Conversation conversation : allConversations) {
-            if (conversation.getId().equals(convoId)) {
-                convo = conversation;
-            }
-        }
+        Conversation convo = this.getConvoByConvoId(convoId);
         if (convo != null) {
             return convo.getMembers();
         } return null;
@@ -224,10 +538,9 @@ public class MessengerManager implements Serializable {
      * @return the {@code List<String>} List of IDs of the messages in the conversation.
      */
     public List<String> getConvoMessageIdsByConvoId(String convoId) {
-        for (Conversation conversation : allConversations){
-            if (conversation.getId().equals(convoId)){
-                return conversation.getMessageIds();
-            }
+        Conversation conversation = this.getConvoByConvoId(convoId);
+        if (conversation != null) {
+            return conversation.getMessageIds();
         } return null;
     }
 
@@ -238,12 +551,7 @@ public class MessengerManager implements Serializable {
      * @return the {@code Conversation} associated with the convoId.
      */
     private Conversation getConvoByConvoId (String convoId) {
-        for (Conversation conversation : allConversations){
-            if (conversation.getId().equals(convoId)){
-                return conversation;
-            }
-        }
-        return null;
+        return convoId == null ? null : this.conversationsById.get(convoId);
     }
 
     /**
@@ -288,18 +596,270 @@ public class MessengerManager implements Serializable {
         return Objects.requireNonNull(this.getConvoByConvoId(convoId)).getMessageByID(messageId).getText();
     }
 
+    /**
+     * Drops every record of a message deleted for one user once the message itself is deleted for everyone or its
+     * conversation no longer exists, such as before saving.
+     *
+     * @return the number of records dropped
+     */
+    public int compactDeletedMessages() {
+        int dropped = 0;
+        for (MessageManager messageManager : new ArrayList<>(this.messageManagerMap.values())) {
+            String userID = messageManager.getUserID();
+            List<String> conversationIds;
+            Lock userLock = this.userLocks.get(userID);
+            userLock.lock();
+            try {
+                conversationIds = new ArrayList<>(messageManager.getDeletedMessagesInConversations().keySet());
+            } finally {
+                userLock.unlock();
+            }
+
+            for (String conversationId : conversationIds) {
+                // Take the conversation's lock before the user's, so that its messages stay put while compacting
+                Lock lock = this.conversationLocks.get(conversationId);
+                lock.lock();
+                try {
+                    Conversation conversation = this.getConvoByConvoId(conversationId);
+                    List<String> gone = new ArrayList<>();
+                    this.updateMessageManagerIf(userID, current -> {
+                        Set<String> deleted = current.getDeletedMessagesInConversations().get(conversationId);
+                        if (deleted != null) {
+                            for (String messageId : deleted) {
+                                if (conversation == null || !conversation.hasMessage(messageId)) {
+                                    gone.add(messageId);
+                                }
+                            }
+                        }
+                        return gone.isEmpty() ? null : InboxChange.deletedMessagesPurged(conversationId, gone);
+                    });
+                    dropped += gone.size();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+        return dropped;
+    }
+
     /**
      * Updates the MessageManager stored in this messengerManager based on the UserManager stored in this
      * messengerManager
      *
      */
     public void update(){
-        for (User user: this.userManager.getUsers()){
-            String id = user.getId();
+        for (String id: this.userManager.getUserIds()){
             if (!this.messageManagerMap.containsKey(id)){
                 addMessageManager(id);
             }
         }
     }
 
-}
\ No newline at end of file
+    /**
+     * Sets the {@link Journal} this MessengerManager records changes to conversations and MessageManagers to.
+     *
+     * @param journal the {@link Journal} to record changes to, or {@code null} to stop recording
+     */
+    @Override
+    public void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Applies the latest recorded state of Conversations and MessageManagers.
+     *
+     * @param type the type of record; {@link #CONVERSATION_RECORD} and {@link #MESSAGE_MANAGER_RECORD} are applied
+     * @param entities a map from keys to the latest state of each entity, or {@code null} if the entity was removed
+     */
+    @Override
+    public void replay(String type, Map<String, Object> entities) {
+        if (CONVERSATION_RECORD.equals(type)) {
+            for (Map.Entry<String, Object> entry : entities.entrySet()) {
+                Conversation existing = this.conversationsById.get(entry.getKey());
+                Conversation replacement = (Conversation) entry.getValue();
+                if (existing == null) {
+                    if (replacement != null) {
+                        this.addConversation(replacement);
+                    }
+                    continue;
+                }
+
+                // Look the conversation up rather than scanning, so that a snapshot list is not decoded in full
+                int index = this.allConversations.indexOf(existing);
+                if (replacement == null) {
+                    this.allConversations.remove(index);
+                    this.conversationsById.remove(entry.getKey());
+                } else {
+                    this.allConversations.set(index, replacement);
+                    this.conversationsById.put(entry.getKey(), replacement);
+                }
+            }
+        } else if (MESSAGE_MANAGER_RECORD.equals(type)) {
+            for (Map.Entry<String, Object> entry : entities.entrySet()) {
+                if (entry.getValue() == null) {
+                    this.messageManagerMap.remove(entry.getKey());
+                } else {
+                    this.messageManagerMap.put(entry.getKey(), (MessageManager) entry.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies a recorded change to a Conversation or a MessageManager, or a broadcast delivered to a batch of
+     * recipients. Changes to entities no longer stored are ignored.
+     *
+     * @param type the type of record; {@link #CONVERSATION_RECORD}, {@link #MESSAGE_MANAGER_RECORD} and
+     *             {@link #BROADCAST_DELIVERY_RECORD} are applied
+     * @param key the ID of the conversation or user, or the key of the batch of a broadcast
+     * @param change the change recorded
+     */
+    @Override
+    public void replayChange(String type, String key, Object change) {
+        if (CONVERSATION_RECORD.equals(type)) {
+            Conversation conversation = this.conversationsById.get(key);
+            if (conversation != null) {
+                ((ConversationChange) change).applyTo(conversation);
+            }
+        } else if (MESSAGE_MANAGER_RECORD.equals(type)) {
+            MessageManager messageManager = this.messageManagerMap.get(key);
+            if (messageManager != null) {
+                ((InboxChange) change).applyTo(messageManager);
+            }
+        } else if (BROADCAST_DELIVERY_RECORD.equals(type)) {
+            BroadcastDelivery delivery = (BroadcastDelivery) change;
+            for (String recipientId : delivery.getRecipientIds()) {
+                MessageManager messageManager = this.messageManagerMap.get(recipientId);
+                if (messageManager != null) {
+                    deliver(delivery, messageManager);
+                }
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the conversation ID index, so that a removed conversation that shared its ID with another leaves
+     * the other in the index.
+     */
+    @Override
+    public void finishReplay() {
+        this.rebuildConversationIndex();
+    }
+
+    /**
+     * Adds a broadcast to the inbox of one of its recipients.
+     *
+     * @param delivery the delivery of the broadcast
+     * @param messageManager the MessageManager of the recipient
+     */
+    private static void deliver(BroadcastDelivery delivery, MessageManager messageManager) {
+        String conversationId = delivery.getConversationId();
+        // A reply sent before this batch came may have delivered it already
+        if (!messageManager.getConversationsMap().containsKey(conversationId)) {
+            messageManager.addConversation(conversationId);
+        }
+        messageManager.recordActivity(conversationId, delivery.getSentAt());
+    }
+
+    /**
+     * Changes the MessageManager of a user while holding the user's lock, then records the change to the journal.
+     * Users without a MessageManager are skipped.
+     *
+     * @param userID the ID of the user whose MessageManager changes
+     * @param change the change to make
+     */
+    private void updateMessageManager(String userID, InboxChange change) {
+        this.updateMessageManagerIf(userID, messageManager -> change);
+    }
+
+    /**
+     * Changes the MessageManager of a user while holding the user's lock, then records the change to the journal,
+     * if there is one. Users without a MessageManager are skipped.
+     *
+     * @param userID the ID of the user whose MessageManager may change
+     * @param changeFor the change to make to the MessageManager, or {@code null} if there is nothing to change
+     */
+    private void updateMessageManagerIf(String userID, Function<MessageManager, InboxChange> changeFor) {
+        Lock lock = this.userLocks.get(userID);
+        lock.lock();
+        try {
+            MessageManager messageManager = this.getMessageManager(userID);
+            InboxChange change = messageManager == null ? null : changeFor.apply(messageManager);
+            if (change != null) {
+                change.applyTo(messageManager);
+                if (this.journal != null) {
+                    this.journal.recordChange(MESSAGE_MANAGER_RECORD, userID, change);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the time a message was sent, in epoch millis, taking its local time as UTC as the stored form does.
+     *
+     * @param message the message
+     * @return the time the message was sent
+     */
+    private static long sentAt(Message message) {
+        return message.getDate().toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    /**
+     * Changes a conversation, then records the change to the journal, if any. The caller must hold the
+     * conversation's lock.
+     *
+     * @param conversation the conversation to change
+     * @param change the change to make
+     */
+    private void updateConversation(Conversation conversation, ConversationChange change) {
+        change.applyTo(conversation);
+        if (this.journal != null) {
+            this.journal.recordChange(CONVERSATION_RECORD, conversation.getId(), change);
+        }
+    }
+
+    /**
+     * Rebuilds the conversation ID index from allConversations.
+     */
+    private void rebuildConversationIndex() {
+        Map<String, Conversation> index = new ConcurrentHashMap<>();
+        synchronized (this.allConversations) {
+            for (Conversation conversation : this.allConversations) {
+                // Keep the first conversation with an ID, as the linear search used to
+                index.putIfAbsent(conversation.getId(), conversation);
+            }
+        }
+        this.conversationsById = index;
+    }
+
+    /**
+     * Creates the locks and the broadcast delivery state, which are not serialized.
+     */
+    private void initTransientState() {
+        this.conversationLocks = new StripedLock();
+        this.userLocks = new StripedLock();
+        this.fanOutExecutor = MessageFanOutService.shared();
+        this.fanOutBatchSize = DEFAULT_FAN_OUT_BATCH_SIZE;
+        this.pendingBroadcasts = ConcurrentHashMap.newKeySet();
+    }
+
+    /**
+     * Restores this MessengerManager from a stream, rebuilding the conversation ID index, the locks and the broadcast
+     * delivery state that are not serialized.
+     *
+     * @param in the stream to read this MessengerManager from
+     * @throws IOException if the stream cannot be read
+     * @throws ClassNotFoundException if a serialized class cannot be found
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        // Files written before these were made safe for concurrent use hold a HashMap and an ArrayList
+        this.messageManagerMap = new ConcurrentHashMap<>(this.messageManagerMap);
+        this.allConversations = Collections.synchronizedList(new ArrayList<>(this.allConversations));
+        this.initTransientState();
+        this.rebuildConversationIndex();
+    }
+
+}
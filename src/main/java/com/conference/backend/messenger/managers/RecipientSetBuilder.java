@@ -0,0 +1,86 @@
+package com.conference.backend.messenger.managers;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Collects the IDs of the recipients of a message sent to many users at once, each at most once, in the order they
+ * were first added.
+ *
+ * <p>
+ *     Recipients are kept in a hash set, so adding the audiences of many talks that share attendees takes time in
+ *     proportion to the total size of the audiences rather than to its square.
+ * </p>
+ */
+public class RecipientSetBuilder {
+    private final Set<String> recipients;
+    private String sender;
+
+    /**
+     * Constructs a RecipientSetBuilder with no recipients.
+     */
+    public RecipientSetBuilder() {
+        this.recipients = new LinkedHashSet<>();
+    }
+
+    /**
+     * Adds a recipient, unless they are already added.
+     *
+     * @param recipientID the ID of the recipient
+     * @return this RecipientSetBuilder
+     */
+    public RecipientSetBuilder add(String recipientID) {
+        this.recipients.add(recipientID);
+        return this;
+    }
+
+    /**
+     * Adds every recipient not already added.
+     *
+     * @param recipientIDs the IDs of the recipients
+     * @return this RecipientSetBuilder
+     */
+    public RecipientSetBuilder addAll(Collection<String> recipientIDs) {
+        this.recipients.addAll(recipientIDs);
+        return this;
+    }
+
+    /**
+     * Leaves the sender of the message out of the recipients, even if they are added, since they are a participant
+     * of the conversation already.
+     *
+     * @param senderID the ID of the sender
+     * @return this RecipientSetBuilder
+     */
+    public RecipientSetBuilder excluding(String senderID) {
+        this.sender = senderID;
+        return this;
+    }
+
+    /**
+     * Returns the number of recipients added, not counting the sender.
+     *
+     * @return the number of recipients
+     */
+    public int size() {
+        return this.recipients.size() - (this.sender != null && this.recipients.contains(this.sender) ? 1 : 0);
+    }
+
+    /**
+     * Returns the recipients in the order they were first added, without the sender.
+     *
+     * @return a new {@code List<String>} of the IDs of the recipients
+     */
+    public List<String> build() {
+        List<String> result = new ArrayList<>(this.size() + 1);
+        for (String recipient : this.recipients) {
+            if (!recipient.equals(this.sender)) {
+                result.add(recipient);
+            }
+        }
+        return result;
+    }
+}
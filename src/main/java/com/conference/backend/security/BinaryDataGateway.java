@@ -0,0 +1,95 @@
+package com.conference.backend.security;
+
+import java.io.*;
+
+/**
+ * A {@link DataGateway} that stores a repository in a compact, versioned binary format instead of Java serialization.
+ *
+ * <p>
+ *     A file is the magic number {@code CMBN}, the format version, the kind of repository, then the string table
+ *     and body written by a {@link BinaryEncoder}. Files of a newer format version than {@link #FORMAT_VERSION}
+ *     or of another kind of repository are rejected rather than misread.
+ * </p>
+ *
+ * @param <T> the repository type
+ */
+public class BinaryDataGateway<T> extends DataGateway<T> {
+    private static final int MAGIC = 0x434D424E;
+
+    /**
+     * The format version written by this gateway. Version 2 adds the read cursors of each conversation to
+     * MessageManagers, and version 3 the time of the latest message of each conversation.
+     */
+    public static final int FORMAT_VERSION = 3;
+
+    private final RepositoryCodec<T> codec;
+
+    /**
+     * Creates a BinaryDataGateway for repositories encoded by codec.
+     *
+     * @param codec the codec of the repository
+     */
+    public BinaryDataGateway(RepositoryCodec<T> codec) {
+        this.codec = codec;
+    }
+
+    /**
+     * Reads a repository written by {@link #write}.
+     *
+     * @param input the stream to read from
+     * @return the repository read
+     * @throws IOException if the stream cannot be read, or holds another format, version or kind of repository
+     */
+    @Override
+    protected T read(InputStream input) throws IOException {
+        byte[] bytes = readAll(input);
+        if (bytes.length < 6) {
+            throw new IOException("File is too short");
+        }
+
+        DataInputStream header = new DataInputStream(new ByteArrayInputStream(bytes, 0, 6));
+        if (header.readInt() != MAGIC) {
+            throw new IOException("Not a binary repository file");
+        }
+        int version = header.readUnsignedByte();
+        if (version < 1 || version > FORMAT_VERSION) {
+            throw new IOException("Unsupported format version: " + version);
+        }
+        int kind = header.readUnsignedByte();
+        if (kind != codec.getKind()) {
+            throw new IOException("File holds repository kind " + kind + ", expected " + codec.getKind());
+        }
+
+        return codec.decode(new BinaryDecoder(bytes, 6, bytes.length - 6), version);
+    }
+
+    /**
+     * Writes the repository in the binary format.
+     *
+     * @param output the stream to write to
+     * @param t the repository to write
+     * @throws IOException if the stream cannot be written
+     */
+    @Override
+    protected void write(OutputStream output, T t) throws IOException {
+        BinaryEncoder encoder = new BinaryEncoder();
+        codec.encode(t, encoder);
+
+        DataOutputStream header = new DataOutputStream(output);
+        header.writeInt(MAGIC);
+        header.writeByte(FORMAT_VERSION);
+        header.writeByte(codec.getKind());
+        header.flush();
+        encoder.writeTo(output);
+    }
+
+    private static byte[] readAll(InputStream input) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+        byte[] chunk = new byte[64 * 1024];
+        int read;
+        while ((read = input.read(chunk)) != -1) {
+            bytes.write(chunk, 0, read);
+        }
+        return bytes.toByteArray();
+    }
+}
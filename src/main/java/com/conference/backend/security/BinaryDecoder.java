@@ -0,0 +1,215 @@
+package com.conference.backend.security;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads primitives written by a {@link BinaryEncoder}, resolving ids through its string table.
+ */
+public class BinaryDecoder {
+    private final ByteBuffer buffer;
+    private int position;
+    private final int limit;
+
+    private final StringTable strings;
+
+    /**
+     * Resolves the ids read by {@link #readId()} from their index in a string table.
+     */
+    interface StringTable {
+        /**
+         * Returns the string at index.
+         *
+         * @param index the index of the string, from 0
+         * @return the string at index
+         * @throws IOException if the index is outside the table or the string is malformed
+         */
+        String get(int index) throws IOException;
+    }
+
+    /**
+     * Creates a BinaryDecoder over {@code length} bytes of buffer from offset, reading the string table that
+     * starts there.
+     *
+     * @param buffer the bytes to read
+     * @param offset the index of the first byte of the string table
+     * @param length the number of bytes to read
+     * @throws IOException if the string table is malformed
+     */
+    public BinaryDecoder(byte[] buffer, int offset, int length) throws IOException {
+        this.buffer = ByteBuffer.wrap(buffer);
+        this.position = offset;
+        this.limit = offset + length;
+
+        int count = readCount();
+        String[] table = new String[count];
+        for (int i = 0; i < count; i++) {
+            table[i] = readString();
+        }
+        this.strings = index -> {
+            if (index >= table.length) {
+                throw new IOException("String table index out of range: " + index);
+            }
+            return table[index];
+        };
+    }
+
+    /**
+     * Creates a BinaryDecoder reading buffer from position up to its limit, resolving ids through strings rather
+     * than a string table at the start of the data.
+     *
+     * @param buffer the bytes to read, such as a mapped file
+     * @param position the index of the first byte to read
+     * @param strings the string table ids are resolved through
+     */
+    BinaryDecoder(ByteBuffer buffer, int position, StringTable strings) {
+        this.buffer = buffer;
+        this.position = position;
+        this.limit = buffer.limit();
+        this.strings = strings;
+    }
+
+    /**
+     * Reads a byte.
+     *
+     * @return the byte read
+     * @throws IOException if the end of the data has been reached
+     */
+    public int readByte() throws IOException {
+        if (position < 0 || position >= limit) {
+            throw new IOException("Unexpected end of data");
+        }
+        return buffer.get(position++);
+    }
+
+    /**
+     * Reads a boolean written as a single byte.
+     *
+     * @return the boolean read
+     * @throws IOException if the end of the data has been reached
+     */
+    public boolean readBoolean() throws IOException {
+        return readByte() != 0;
+    }
+
+    /**
+     * Reads a varint.
+     *
+     * @return the int read
+     * @throws IOException if the varint is malformed or cut short
+     */
+    public int readVarInt() throws IOException {
+        int result = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = readByte();
+            result |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    /**
+     * Reads the number of elements that follow, each of which takes at least one byte.
+     *
+     * @return the number of elements
+     * @throws IOException if there are fewer bytes left than elements
+     */
+    public int readCount() throws IOException {
+        int count = readVarInt();
+        if (count < 0 || count > limit - position) {
+            throw new IOException("Invalid element count: " + count);
+        }
+        return count;
+    }
+
+    /**
+     * Reads a zig-zag encoded varint.
+     *
+     * @return the int read
+     * @throws IOException if the varint is malformed or cut short
+     */
+    public int readSignedVarInt() throws IOException {
+        int zigZag = readVarInt();
+        return (zigZag >>> 1) ^ -(zigZag & 1);
+    }
+
+    /**
+     * Reads a zig-zag encoded varint long.
+     *
+     * @return the long read
+     * @throws IOException if the varint is malformed or cut short
+     */
+    public long readVarLong() throws IOException {
+        long zigZag = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            int b = readByte();
+            zigZag |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (zigZag >>> 1) ^ -(zigZag & 1);
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    /**
+     * Reads a string written inline.
+     *
+     * @return the string read, or {@code null}
+     * @throws IOException if the string is cut short
+     */
+    public String readString() throws IOException {
+        int length = readVarInt() - 1;
+        if (length < 0) {
+            return null;
+        }
+        if (length > limit - position) {
+            throw new IOException("Unexpected end of data");
+        }
+        String value;
+        if (buffer.hasArray()) {
+            value = new String(buffer.array(), buffer.arrayOffset() + position, length, StandardCharsets.UTF_8);
+        } else {
+            byte[] bytes = new byte[length];
+            ByteBuffer view = buffer.duplicate();
+            view.position(position);
+            view.get(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        position += length;
+        return value;
+    }
+
+    /**
+     * Reads a string written as an index into the string table.
+     *
+     * @return the string read, or {@code null}
+     * @throws IOException if the index is outside the string table
+     */
+    public String readId() throws IOException {
+        int index = readVarInt() - 1;
+        if (index < 0) {
+            return null;
+        }
+        return strings.get(index);
+    }
+
+    /**
+     * Reads a list of ids written by {@link BinaryEncoder#writeIds}.
+     *
+     * @return the ids read
+     * @throws IOException if the ids are malformed
+     */
+    public List<String> readIds() throws IOException {
+        int count = readCount();
+        List<String> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(readId());
+        }
+        return values;
+    }
+}
@@ -0,0 +1,188 @@
+package com.conference.backend.security;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Writes primitives for the binary entity format read by {@link BinaryDecoder}.
+ *
+ * <p>
+ *     Integers are written as varints (longs and signed values zig-zag encoded), strings as length-prefixed UTF-8
+ *     and ids as indexes into a string table, so an id repeated across entities is only stored once. The string
+ *     table is written ahead of the body by {@link #writeTo(OutputStream)}.
+ * </p>
+ */
+public class BinaryEncoder {
+    private byte[] buffer;
+    private int size;
+
+    private final Map<String, Integer> stringTable;
+    private final List<String> strings;
+
+    /**
+     * Creates an empty BinaryEncoder.
+     */
+    public BinaryEncoder() {
+        this.buffer = new byte[8192];
+        this.stringTable = new HashMap<>();
+        this.strings = new ArrayList<>();
+    }
+
+    /**
+     * Writes a byte.
+     *
+     * @param value the byte to write
+     */
+    public void writeByte(int value) {
+        ensureCapacity(1);
+        buffer[size++] = (byte) value;
+    }
+
+    /**
+     * Writes a boolean as a single byte.
+     *
+     * @param value the boolean to write
+     */
+    public void writeBoolean(boolean value) {
+        writeByte(value ? 1 : 0);
+    }
+
+    /**
+     * Writes a non-negative int as a varint of one to five bytes.
+     *
+     * @param value the int to write
+     */
+    public void writeVarInt(int value) {
+        ensureCapacity(5);
+        while ((value & ~0x7F) != 0) {
+            buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[size++] = (byte) value;
+    }
+
+    /**
+     * Writes a signed int as a zig-zag encoded varint, so small negative values stay small.
+     *
+     * @param value the int to write
+     */
+    public void writeSignedVarInt(int value) {
+        writeVarInt((value << 1) ^ (value >> 31));
+    }
+
+    /**
+     * Writes a long, such as epoch millis, as a zig-zag encoded varint.
+     *
+     * @param value the long to write
+     */
+    public void writeVarLong(long value) {
+        ensureCapacity(10);
+        long zigZag = (value << 1) ^ (value >> 63);
+        while ((zigZag & ~0x7FL) != 0) {
+            buffer[size++] = (byte) ((zigZag & 0x7F) | 0x80);
+            zigZag >>>= 7;
+        }
+        buffer[size++] = (byte) zigZag;
+    }
+
+    /**
+     * Writes a string inline as its UTF-8 length plus one followed by its bytes; {@code null} is written as 0.
+     *
+     * @param value the string to write, or {@code null}
+     */
+    public void writeString(String value) {
+        if (value == null) {
+            writeVarInt(0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(bytes.length + 1);
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+    }
+
+    /**
+     * Writes a string that is likely to repeat, such as an id, as its index in the string table plus one;
+     * {@code null} is written as 0.
+     *
+     * @param value the string to write, or {@code null}
+     */
+    public void writeId(String value) {
+        if (value == null) {
+            writeVarInt(0);
+            return;
+        }
+        Integer index = stringTable.get(value);
+        if (index == null) {
+            index = strings.size();
+            stringTable.put(value, index);
+            strings.add(value);
+        }
+        writeVarInt(index + 1);
+    }
+
+    /**
+     * Writes a collection of ids as its size followed by each id.
+     *
+     * @param values the ids to write
+     */
+    public void writeIds(Collection<String> values) {
+        writeVarInt(values.size());
+        for (String value : values) {
+            writeId(value);
+        }
+    }
+
+    /**
+     * Returns the number of bytes written to the body so far.
+     *
+     * @return the number of bytes in the body
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Writes the string table followed by the body to out.
+     *
+     * @param out the stream to write to
+     * @throws IOException if the stream cannot be written
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        BinaryEncoder table = new BinaryEncoder();
+        table.writeVarInt(strings.size());
+        for (String value : strings) {
+            table.writeString(value);
+        }
+        table.writeBodyTo(out);
+        writeBodyTo(out);
+    }
+
+    /**
+     * Writes the body alone to out, for formats that lay out the string table themselves.
+     *
+     * @param out the stream to write to
+     * @throws IOException if the stream cannot be written
+     */
+    void writeBodyTo(OutputStream out) throws IOException {
+        out.write(buffer, 0, size);
+    }
+
+    /**
+     * Returns the string table, in index order.
+     *
+     * @return the strings written by {@link #writeId}
+     */
+    List<String> getStrings() {
+        return Collections.unmodifiableList(strings);
+    }
+
+    private void ensureCapacity(int extra) {
+        if (size + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+        }
+    }
+}
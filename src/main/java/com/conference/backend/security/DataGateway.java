@@ -1,6 +1,7 @@
 package com.conference.backend.security;
 
 import java.io.*;
+import java.nio.file.*;
 
 /**
  * A gateway to read from files and write to .ser based on entities of type {@code T}.
@@ -18,25 +19,38 @@ public class DataGateway<T> {
      *      if a serializable error occurs between the {@code .ser} file and serial version in the repository
      * @return The {@code T} saved in {@code .ser}
      */
-    @SuppressWarnings("unchecked")
     public T readFromFile(String filePath) throws ClassNotFoundException {
-        try {
-            InputStream file = new FileInputStream(filePath);
-            InputStream buffer = new BufferedInputStream(file);
-            ObjectInput input = new ObjectInputStream(buffer);
-
-            // Deserialize the Manager
-            final T t = (T) input.readObject();
-            input.close();
-            return t;
+        try (InputStream buffer = new BufferedInputStream(new FileInputStream(filePath))) {
+            return read(buffer);
         } catch (IOException ex) {
             return null;
         }
     }
 
+    /**
+     * Reads the Manager from input. Subclasses override this, with {@link #write}, to use another file format.
+     *
+     * @param input the stream to read from
+     * @return the {@code T} read
+     * @throws IOException if the stream cannot be read
+     * @throws ClassNotFoundException if a serialized class cannot be found
+     */
+    @SuppressWarnings("unchecked")
+    protected T read(InputStream input) throws IOException, ClassNotFoundException {
+        ObjectInput objectInput = new ObjectInputStream(input);
+
+        // Deserialize the Manager
+        return (T) objectInput.readObject();
+    }
+
     /**
      * Writes the Manager to file at {@code filePath}
      *
+     * <p>
+     *     The Manager is written to a temporary file that then replaces {@code filePath}, so a crash while
+     *     saving leaves the previous file intact.
+     * </p>
+     *
      * @author Lindsey Shorser
      * @author Jonathan Calver
      *
@@ -45,12 +59,35 @@ public class DataGateway<T> {
      * @throws IOException if error reading from file
      */
     public void saveToFile(String filePath, T t) throws IOException {
-        OutputStream file = new FileOutputStream(filePath);
-        OutputStream buffer = new BufferedOutputStream(file);
-        ObjectOutput output = new ObjectOutputStream(buffer);
+        Path target = Paths.get(filePath);
+        Path temp = Paths.get(filePath + ".tmp");
+
+        try (FileOutputStream file = new FileOutputStream(temp.toFile())) {
+            OutputStream buffer = new BufferedOutputStream(file);
+            write(buffer, t);
+            buffer.flush();
+            file.getFD().sync();
+        }
+
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Writes the Manager to output. Subclasses override this, with {@link #read}, to use another file format.
+     *
+     * @param output the stream to write to
+     * @param t the {@code T} to write
+     * @throws IOException if the stream cannot be written
+     */
+    protected void write(OutputStream output, T t) throws IOException {
+        ObjectOutput objectOutput = new ObjectOutputStream(output);
 
         // Serialize the Manager
-        output.writeObject(t);
-        output.close();
+        objectOutput.writeObject(t);
+        objectOutput.flush();
     }
 }
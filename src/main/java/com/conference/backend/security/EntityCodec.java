@@ -0,0 +1,573 @@
+package com.conference.backend.security;
+
+import com.conference.backend.conference_and_rooms.entities.*;
+import com.conference.backend.conference_and_rooms.managers.ConferenceEventFactory;
+import com.conference.backend.conference_and_rooms.managers.ConferenceEventManager;
+import com.conference.backend.conference_and_rooms.managers.RoomManager;
+import com.conference.backend.data.utils.Role;
+import com.conference.backend.messenger.entities.Conversation;
+import com.conference.backend.messenger.entities.Message;
+import com.conference.backend.messenger.managers.MessageManager;
+import com.conference.backend.messenger.managers.MessengerManager;
+import com.conference.backend.users.User;
+import com.conference.backend.users.UserManager;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/**
+ * Binary encodings of the entities, and the {@link RepositoryCodec}s and {@link SnapshotCodec}s of the
+ * repositories holding them.
+ *
+ * <p>
+ *     Ids, names and enum constants go through the string table; free text such as names and messages is written
+ *     inline. Dates are written as epoch millis, and message times as epoch seconds plus nanoseconds (UTC).
+ *     Decoded repositories are filled through the methods that replay a {@link WriteAheadLog}, which keep
+ *     their indexes up to date.
+ * </p>
+ */
+public final class EntityCodec {
+
+    /**
+     * Codec for {@link UserManager}
+     */
+    public static final RepositoryCodec<UserManager> USER_MANAGER = new RepositoryCodec<UserManager>() {
+        @Override
+        public int getKind() {
+            return 1;
+        }
+
+        @Override
+        public void encode(UserManager repository, BinaryEncoder encoder) {
+            List<User> users = repository.getUsers();
+            encoder.writeVarInt(users.size());
+            for (User user : users) {
+                writeUser(user, encoder);
+            }
+        }
+
+        @Override
+        public UserManager decode(BinaryDecoder decoder, int version) throws IOException {
+            int count = decoder.readCount();
+            Map<String, Object> users = new LinkedHashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                User user = readUser(decoder);
+                users.put(user.getId(), user);
+            }
+            UserManager repository = new UserManager();
+            repository.replay(UserManager.USER_RECORD, users);
+            repository.finishReplay();
+            return repository;
+        }
+    };
+
+    /**
+     * Codec for {@link ConferenceEventManager} and its {@link RoomManager}
+     */
+    public static final RepositoryCodec<ConferenceEventManager> CONFERENCE_EVENT_MANAGER =
+            new RepositoryCodec<ConferenceEventManager>() {
+        @Override
+        public int getKind() {
+            return 2;
+        }
+
+        @Override
+        public void encode(ConferenceEventManager repository, BinaryEncoder encoder) {
+            List<ConferenceEvent> events = repository.getConferenceEventsList();
+            encoder.writeVarInt(events.size());
+            for (ConferenceEvent event : events) {
+                writeConferenceEvent(event, encoder);
+            }
+            List<Room> rooms = repository.getRoomRepository().getRoomsList();
+            encoder.writeVarInt(rooms.size());
+            for (Room room : rooms) {
+                writeRoom(room, encoder);
+            }
+        }
+
+        @Override
+        public ConferenceEventManager decode(BinaryDecoder decoder, int version) throws IOException {
+            int eventCount = decoder.readCount();
+            Map<String, Object> events = new LinkedHashMap<>(eventCount * 2);
+            for (int i = 0; i < eventCount; i++) {
+                ConferenceEvent event = readConferenceEvent(decoder);
+                events.put(event.getEventName(), event);
+            }
+            int roomCount = decoder.readCount();
+            Map<String, Object> rooms = new LinkedHashMap<>(roomCount * 2);
+            for (int i = 0; i < roomCount; i++) {
+                Room room = readRoom(decoder);
+                rooms.put(room.getRoomName(), room);
+            }
+            ConferenceEventManager repository = new ConferenceEventManager();
+            repository.replay(ConferenceEventManager.EVENT_RECORD, events);
+            repository.replay(RoomManager.ROOM_RECORD, rooms);
+            repository.finishReplay();
+            return repository;
+        }
+    };
+
+    /**
+     * Codec for {@link MessengerManager}. Its {@link UserManager} is not written; it is set when the system starts.
+     */
+    public static final RepositoryCodec<MessengerManager> MESSENGER_MANAGER = new RepositoryCodec<MessengerManager>() {
+        @Override
+        public int getKind() {
+            return 3;
+        }
+
+        @Override
+        public void encode(MessengerManager repository, BinaryEncoder encoder) {
+            List<Conversation> conversations = repository.getConversations();
+            encoder.writeVarInt(conversations.size());
+            for (Conversation conversation : conversations) {
+                writeConversation(conversation, encoder);
+            }
+            Collection<MessageManager> messageManagers = repository.getMessageManagers();
+            encoder.writeVarInt(messageManagers.size());
+            for (MessageManager messageManager : messageManagers) {
+                writeMessageManager(messageManager, encoder);
+            }
+        }
+
+        @Override
+        public MessengerManager decode(BinaryDecoder decoder, int version) throws IOException {
+            int conversationCount = decoder.readCount();
+            List<Conversation> conversations = new ArrayList<>(conversationCount);
+            for (int i = 0; i < conversationCount; i++) {
+                conversations.add(readConversation(decoder));
+            }
+            int messageManagerCount = decoder.readCount();
+            Map<String, Object> messageManagers = new LinkedHashMap<>(messageManagerCount * 2);
+            for (int i = 0; i < messageManagerCount; i++) {
+                MessageManager messageManager = readMessageManager(decoder, version);
+                messageManagers.put(messageManager.getUserID(), messageManager);
+            }
+
+            MessengerManager repository = new MessengerManager(null);
+            for (Conversation conversation : conversations) {
+                repository.addConversation(conversation);
+            }
+            repository.replay(MessengerManager.MESSAGE_MANAGER_RECORD, messageManagers);
+            repository.finishReplay();
+            return repository;
+        }
+    };
+
+    /**
+     * Snapshot codec for {@link UserManager}, opened with users decoded as they are looked up. The sections are
+     * the users by id, the email index and the role index.
+     */
+    public static final SnapshotCodec<UserManager> USER_MANAGER_SNAPSHOT = new SnapshotCodec<UserManager>() {
+        @Override
+        public int getKind() {
+            return 1;
+        }
+
+        @Override
+        public void encode(UserManager repository, MappedSnapshotWriter writer) {
+            writer.beginSection();
+            for (User user : repository.getUsers()) {
+                writeUser(user, writer.beginRecord(user.getId()));
+            }
+            writer.beginSection();
+            for (Map.Entry<String, String> entry : repository.getEmailIndex().entrySet()) {
+                writer.beginRecord(entry.getKey()).writeId(entry.getValue());
+            }
+            writer.beginSection();
+            for (Role role : Role.values()) {
+                writer.beginRecord(role.name()).writeIds(repository.getUserIdsWithRole(role));
+            }
+        }
+
+        @Override
+        public UserManager open(MappedSnapshot snapshot) throws IOException {
+            Map<String, User> users = new MappedEntityMap<>(snapshot.getSection(0), EntityCodec::readUser);
+            Map<String, String> emailToUserId = new MappedEntityMap<>(snapshot.getSection(1), BinaryDecoder::readId);
+            MappedSection roles = snapshot.getSection(2);
+            Map<Role, Set<String>> userIdsByRole = new EnumMap<>(Role.class);
+            for (Role role : Role.values()) {
+                int ordinal = roles.find(role.name());
+                userIdsByRole.put(role, ordinal < 0 ? new LinkedHashSet<>() : new MappedIdSet(roles, ordinal));
+            }
+            return new UserManager(users, emailToUserId, userIdsByRole);
+        }
+    };
+
+    /**
+     * Snapshot codec for {@link MessengerManager}, opened with conversations and MessageManagers decoded as they
+     * are looked up. The sections are the conversations in order, keyed by ID, and the MessageManagers by user ID.
+     * Its {@link UserManager} is not written; it is set when the system starts.
+     */
+    public static final SnapshotCodec<MessengerManager> MESSENGER_MANAGER_SNAPSHOT =
+            new SnapshotCodec<MessengerManager>() {
+        @Override
+        public int getKind() {
+            return 3;
+        }
+
+        @Override
+        public void encode(MessengerManager repository, MappedSnapshotWriter writer) {
+            writer.beginSection();
+            for (Conversation conversation : repository.getConversations()) {
+                writeConversation(conversation, writer.beginRecord(conversation.getId()));
+            }
+            writer.beginSection();
+            for (MessageManager messageManager : repository.getMessageManagers()) {
+                writeMessageManager(messageManager, writer.beginRecord(messageManager.getUserID()));
+            }
+        }
+
+        @Override
+        public MessengerManager open(MappedSnapshot snapshot) throws IOException {
+            MappedSection conversationSection = snapshot.getSection(0);
+            MappedEntityMap<Conversation> conversationsById =
+                    new MappedEntityMap<>(conversationSection, EntityCodec::readConversation);
+            List<Conversation> conversations = new MappedEntityList<>(conversationSection, conversationsById,
+                    o -> o instanceof Conversation ? ((Conversation) o).getId() : null);
+            Map<String, MessageManager> messageManagers =
+                    new MappedEntityMap<>(snapshot.getSection(1),
+                            decoder -> readMessageManager(decoder, snapshot.getVersion()));
+            return new MessengerManager(null, messageManagers, conversations, conversationsById);
+        }
+    };
+
+    private EntityCodec() {}
+
+    /**
+     * Writes a {@link User}.
+     *
+     * @param user the {@link User} to write
+     * @param encoder the encoder to write to
+     */
+    public static void writeUser(User user, BinaryEncoder encoder) {
+        encoder.writeId(user.getId());
+        encoder.writeVarInt(user.getVersion());
+        encoder.writeString(user.getEmail());
+        encoder.writeString(user.getPasswordHash());
+        encoder.writeString(user.getFirstName());
+        encoder.writeString(user.getLastName());
+        synchronized (user) {
+            encoder.writeIds(user.getConferenceEvents());
+            encoder.writeIds(user.getContactsList());
+        }
+        List<Role> roles = user.getRoles();
+        encoder.writeVarInt(roles.size());
+        for (Role role : roles) {
+            encoder.writeId(role.name());
+        }
+    }
+
+    /**
+     * Reads a {@link User} written by {@link #writeUser}.
+     *
+     * @param decoder the decoder to read from
+     * @return the {@link User} read
+     * @throws IOException if the data is malformed
+     */
+    public static User readUser(BinaryDecoder decoder) throws IOException {
+        User user = new User();
+        user.setId(decoder.readId());
+        user.setVersion(decoder.readVarInt());
+        user.setEmail(decoder.readString());
+        user.setPasswordHash(decoder.readString());
+        user.setFirstName(decoder.readString());
+        user.setLastName(decoder.readString());
+        for (String conferenceEvent : decoder.readIds()) {
+            user.addConferenceEventToConferenceEvents(conferenceEvent);
+        }
+        user.setContactsList(decoder.readIds());
+        int roleCount = decoder.readCount();
+        for (int i = 0; i < roleCount; i++) {
+            user.addRole(readEnum(Role.class, decoder));
+        }
+        return user;
+    }
+
+    /**
+     * Writes a {@link ConferenceEvent} of any {@link EventType}.
+     *
+     * @param event the {@link ConferenceEvent} to write
+     * @param encoder the encoder to write to
+     */
+    public static void writeConferenceEvent(ConferenceEvent event, BinaryEncoder encoder) {
+        encoder.writeId(event.getEventType().name());
+        encoder.writeId(event.getId());
+        encoder.writeVarInt(event.getVersion());
+        encoder.writeId(event.getEventName());
+        encoder.writeSignedVarInt(event.getCapacity());
+        encoder.writeIds(event.getAttendeeList());
+        encoder.writeIds(event.getSpeakerIds());
+    }
+
+    /**
+     * Reads a {@link ConferenceEvent} written by {@link #writeConferenceEvent}.
+     *
+     * @param decoder the decoder to read from
+     * @return the {@link ConferenceEvent} read
+     * @throws IOException if the data is malformed
+     */
+    public static ConferenceEvent readConferenceEvent(BinaryDecoder decoder) throws IOException {
+        ConferenceEvent event = new ConferenceEventFactory().createEvent(readEnum(EventType.class, decoder));
+        event.setId(decoder.readId());
+        event.setVersion(decoder.readVarInt());
+        event.setEventName(decoder.readId());
+        event.setCapacity(decoder.readSignedVarInt());
+        event.setAttendeeList(decoder.readIds());
+        for (String speakerId : decoder.readIds()) {
+            // A Talk without a speaker reports a single empty speaker id
+            if (!speakerId.isEmpty()) {
+                event.addSpeakerId(speakerId);
+            }
+        }
+        return event;
+    }
+
+    /**
+     * Writes a {@link Room} along with its schedule and amenities.
+     *
+     * @param room the {@link Room} to write
+     * @param encoder the encoder to write to
+     */
+    public static void writeRoom(Room room, BinaryEncoder encoder) {
+        encoder.writeId(room.getId());
+        encoder.writeVarInt(room.getVersion());
+        encoder.writeId(room.getRoomName());
+        encoder.writeSignedVarInt(room.getCapacity());
+        Map<String, DateInterval> eventToDate = room.getEventToDate();
+        encoder.writeVarInt(eventToDate.size());
+        for (Map.Entry<String, DateInterval> entry : eventToDate.entrySet()) {
+            encoder.writeId(entry.getKey());
+            writeDateInterval(entry.getValue(), encoder);
+        }
+        List<Amenity> amenities = room.getAmenityList();
+        encoder.writeVarInt(amenities.size());
+        for (Amenity amenity : amenities) {
+            encoder.writeId(amenity.name());
+        }
+    }
+
+    /**
+     * Reads a {@link Room} written by {@link #writeRoom}.
+     *
+     * @param decoder the decoder to read from
+     * @return the {@link Room} read
+     * @throws IOException if the data is malformed
+     */
+    public static Room readRoom(BinaryDecoder decoder) throws IOException {
+        String id = decoder.readId();
+        int version = decoder.readVarInt();
+        String roomName = decoder.readId();
+        int capacity = decoder.readSignedVarInt();
+        int eventCount = decoder.readCount();
+        Map<String, DateInterval> eventToDate = new HashMap<>(eventCount * 2);
+        for (int i = 0; i < eventCount; i++) {
+            String eventName = decoder.readId();
+            eventToDate.put(eventName, readDateInterval(decoder));
+        }
+
+        Room room = new Room(roomName, eventToDate, capacity);
+        room.setId(id);
+        room.setVersion(version);
+        int amenityCount = decoder.readCount();
+        for (int i = 0; i < amenityCount; i++) {
+            room.addAmenity(readEnum(Amenity.class, decoder));
+        }
+        return room;
+    }
+
+    /**
+     * Writes a {@link DateInterval} as its id and its start and end in epoch millis.
+     *
+     * @param dateInterval the {@link DateInterval} to write
+     * @param encoder the encoder to write to
+     */
+    public static void writeDateInterval(DateInterval dateInterval, BinaryEncoder encoder) {
+        encoder.writeId(dateInterval.getId());
+        encoder.writeVarInt(dateInterval.getVersion());
+        encoder.writeVarLong(dateInterval.getStartMillis());
+        encoder.writeVarLong(dateInterval.getEndMillis());
+    }
+
+    /**
+     * Reads a {@link DateInterval} written by {@link #writeDateInterval}.
+     *
+     * @param decoder the decoder to read from
+     * @return the {@link DateInterval} read
+     * @throws IOException if the data is malformed
+     */
+    public static DateInterval readDateInterval(BinaryDecoder decoder) throws IOException {
+        String id = decoder.readId();
+        int version = decoder.readVarInt();
+        long start = decoder.readVarLong();
+        long end = decoder.readVarLong();
+        DateInterval dateInterval = new DateInterval(new Date(start), new Date(end));
+        dateInterval.setId(id);
+        dateInterval.setVersion(version);
+        return dateInterval;
+    }
+
+    /**
+     * Writes a {@link Conversation} with the messages that have not been deleted from it.
+     *
+     * @param conversation the {@link Conversation} to write
+     * @param encoder the encoder to write to
+     */
+    public static void writeConversation(Conversation conversation, BinaryEncoder encoder) {
+        encoder.writeId(conversation.getId());
+        encoder.writeVarInt(conversation.getVersion());
+        encoder.writeIds(conversation.getMembers());
+        List<Message> messages = conversation.getMessages();
+        encoder.writeVarInt(messages.size());
+        for (Message message : messages) {
+            writeMessage(message, encoder);
+        }
+    }
+
+    /**
+     * Reads a {@link Conversation} written by {@link #writeConversation}.
+     *
+     * @param decoder the decoder to read from
+     * @return the {@link Conversation} read
+     * @throws IOException if the data is malformed
+     */
+    public static Conversation readConversation(BinaryDecoder decoder) throws IOException {
+        String id = decoder.readId();
+        int version = decoder.readVarInt();
+        Conversation conversation = new Conversation(decoder.readIds());
+        int messageCount = decoder.readCount();
+        for (int i = 0; i < messageCount; i++) {
+            conversation.sendMessage(readMessage(decoder));
+        }
+        conversation.setId(id);
+        conversation.setVersion(version);
+        return conversation;
+    }
+
+    /**
+     * Writes a {@link Message}, its time as epoch seconds and nanoseconds in UTC.
+     *
+     * @param message the {@link Message} to write
+     * @param encoder the encoder to write to
+     */
+    public static void writeMessage(Message message, BinaryEncoder encoder) {
+        encoder.writeId(message.getId());
+        encoder.writeVarInt(message.getVersion());
+        encoder.writeId(message.getSenderID());
+        encoder.writeString(message.getText());
+        LocalDateTime date = message.getDate();
+        encoder.writeBoolean(date != null);
+        if (date != null) {
+            encoder.writeVarLong(date.toEpochSecond(ZoneOffset.UTC));
+            encoder.writeVarInt(date.getNano());
+        }
+    }
+
+    /**
+     * Reads a {@link Message} written by {@link #writeMessage}.
+     *
+     * @param decoder the decoder to read from
+     * @return the {@link Message} read
+     * @throws IOException if the data is malformed
+     */
+    public static Message readMessage(BinaryDecoder decoder) throws IOException {
+        String id = decoder.readId();
+        int version = decoder.readVarInt();
+        String senderId = decoder.readId();
+        String text = decoder.readString();
+        LocalDateTime date = null;
+        if (decoder.readBoolean()) {
+            long epochSecond = decoder.readVarLong();
+            date = LocalDateTime.ofEpochSecond(epochSecond, decoder.readVarInt(), ZoneOffset.UTC);
+        }
+        Message message = new Message(text, date, senderId);
+        message.setId(id);
+        message.setVersion(version);
+        return message;
+    }
+
+    /**
+     * Writes a {@link MessageManager}: its conversations and their read status, deleted messages, archive, and the
+     * read cursor and time of the latest message of each conversation.
+     *
+     * @param messageManager the {@link MessageManager} to write
+     * @param encoder the encoder to write to
+     */
+    public static void writeMessageManager(MessageManager messageManager, BinaryEncoder encoder) {
+        encoder.writeId(messageManager.getUserID());
+        Map<String, String> conversations = messageManager.getConversationsMap();
+        encoder.writeVarInt(conversations.size());
+        for (Map.Entry<String, String> entry : conversations.entrySet()) {
+            encoder.writeId(entry.getKey());
+            encoder.writeId(entry.getValue());
+        }
+        Map<String, Set<String>> deletedMessages = messageManager.getDeletedMessagesInConversations();
+        encoder.writeVarInt(deletedMessages.size());
+        for (Map.Entry<String, Set<String>> entry : deletedMessages.entrySet()) {
+            encoder.writeId(entry.getKey());
+            encoder.writeIds(entry.getValue());
+        }
+        encoder.writeIds(messageManager.getArchivedConversationsIds());
+        for (String conversationId : conversations.keySet()) {
+            encoder.writeVarInt(messageManager.getMessageCount(conversationId));
+            encoder.writeVarInt(messageManager.getReadCount(conversationId));
+            encoder.writeVarLong(messageManager.getLastActivity(conversationId));
+        }
+    }
+
+    /**
+     * Reads a {@link MessageManager} written by {@link #writeMessageManager}. Format version 1 has no read
+     * cursors, so each conversation is read as one message, read or unread as its status says. Versions before 3
+     * have no message times, so every conversation is read with {@link MessageManager#UNKNOWN_ACTIVITY}.
+     *
+     * @param decoder the decoder to read from
+     * @param version the format version of the data
+     * @return the {@link MessageManager} read
+     * @throws IOException if the data is malformed
+     */
+    public static MessageManager readMessageManager(BinaryDecoder decoder, int version) throws IOException {
+        MessageManager messageManager = new MessageManager(decoder.readId());
+        int conversationCount = decoder.readCount();
+        List<String> conversationIds = new ArrayList<>(conversationCount);
+        for (int i = 0; i < conversationCount; i++) {
+            String conversationId = decoder.readId();
+            conversationIds.add(conversationId);
+            messageManager.setReadCursor(conversationId, 1, MessageManager.READ.equals(decoder.readId()) ? 1 : 0);
+        }
+        int deletedCount = decoder.readCount();
+        for (int i = 0; i < deletedCount; i++) {
+            String conversationId = decoder.readId();
+            for (String messageId : decoder.readIds()) {
+                messageManager.deleteMessageInConversation(conversationId, messageId);
+            }
+        }
+        for (String conversationId : decoder.readIds()) {
+            messageManager.archiveConversation(conversationId);
+        }
+        if (version >= 2) {
+            for (String conversationId : conversationIds) {
+                int messageCount = decoder.readVarInt();
+                int readCount = decoder.readVarInt();
+                if (readCount < 0 || readCount > messageCount) {
+                    throw new IOException("Read cursor past the end of conversation " + conversationId);
+                }
+                messageManager.setReadCursor(conversationId, messageCount, readCount);
+                if (version >= 3) {
+                    messageManager.recordActivity(conversationId, decoder.readVarLong());
+                }
+            }
+        }
+        return messageManager;
+    }
+
+    private static <E extends Enum<E>> E readEnum(Class<E> type, BinaryDecoder decoder) throws IOException {
+        String name = decoder.readId();
+        try {
+            return Enum.valueOf(type, name);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new IOException("Unknown " + type.getSimpleName() + ": " + name, e);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.conference.backend.security;
 
 import java.security.NoSuchAlgorithmException;
 import java.security.spec.InvalidKeySpecException;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * The <code>Hasher</code> interface should be implemented
@@ -23,4 +24,37 @@ public interface Hasher {
      * @return true if the passwords are equal after unhashing
      */
     boolean validatePassword(String originalPassword, String storedPassword);
+
+    /**
+     * Checks if a stored hash was made with weaker parameters than new hashes, so the password should be hashed
+     * again the next time it is known, such as at login.
+     * @param storedPassword The hashed password stored in memory
+     * @return true if the password should be hashed again
+     */
+    default boolean needsRehash(String storedPassword) {
+        return false;
+    }
+
+    /**
+     * Starts generating a password hash on a {@link HashingService}.
+     * @param password the password to hash
+     * @param hashingService the service whose threads compute the hash
+     * @return a future of the hashed password
+     */
+    default CompletableFuture<String> generateStrongPasswordHashAsync(String password,
+                                                                      HashingService hashingService) {
+        return hashingService.hash(this, password);
+    }
+
+    /**
+     * Starts checking a password against its hash on a {@link HashingService}.
+     * @param originalPassword The password passed in the login screen
+     * @param storedPassword The hashed password stored in memory
+     * @param hashingService the service whose threads check the password
+     * @return a future of true if the passwords are equal after unhashing
+     */
+    default CompletableFuture<Boolean> validatePasswordAsync(String originalPassword, String storedPassword,
+                                                             HashingService hashingService) {
+        return hashingService.verify(this, originalPassword, storedPassword);
+    }
 }
@@ -0,0 +1,157 @@
+package com.conference.backend.security;
+
+import java.io.Closeable;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Runs password hashing on a bounded pool of background threads, one per core, so that many logins and sign-ups
+ * at once are hashed in parallel instead of one after another on the threads asking for them.
+ *
+ * <p>
+ *     At most {@code queueCapacity} hashes wait for a thread. Once that many are waiting, the thread asking for
+ *     another hash runs it itself, which slows callers down instead of queueing without bound. The number of hashes
+ *     waiting and the time each hash took from being asked for to being done are kept for reporting.
+ * </p>
+ */
+public class HashingService implements Executor, Closeable {
+    /**
+     * The number of hashes that may wait for a thread if none is given
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 256;
+
+    private final ThreadPoolExecutor executor;
+
+    // Hashes done, and the nanoseconds they took from being submitted to being done
+    private final LongAdder completed;
+    private final LongAdder totalLatencyNanos;
+
+    /**
+     * Creates a HashingService with one thread per core and a queue of {@link #DEFAULT_QUEUE_CAPACITY}.
+     */
+    public HashingService() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Creates a HashingService.
+     *
+     * @param threads the number of hashes computed at the same time
+     * @param queueCapacity the number of hashes that may wait for a thread
+     */
+    public HashingService(int threads, int queueCapacity) {
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing");
+                    // Never keep the program running once it quits
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        this.completed = new LongAdder();
+        this.totalLatencyNanos = new LongAdder();
+    }
+
+    /**
+     * Returns the HashingService shared by every {@link com.conference.backend.users.UserLoginManager} that is not
+     * given one, created the first time it is asked for.
+     *
+     * @return the shared HashingService
+     */
+    public static HashingService shared() {
+        return SharedHolder.INSTANCE;
+    }
+
+    private static final class SharedHolder {
+        private static final HashingService INSTANCE = new HashingService();
+    }
+
+    /**
+     * Starts hashing a password.
+     *
+     * @param hasher the {@link Hasher} to hash with
+     * @param password the password to hash
+     * @return a future of the hashed password
+     */
+    public CompletableFuture<String> hash(Hasher hasher, String password) {
+        return submit(() -> hasher.generateStrongPasswordHash(password));
+    }
+
+    /**
+     * Starts checking a password against a stored hash.
+     *
+     * @param hasher the {@link Hasher} the stored hash was made with
+     * @param password the password to check
+     * @param storedPassword the stored hash
+     * @return a future of {@code true} if the password matches
+     */
+    public CompletableFuture<Boolean> verify(Hasher hasher, String password, String storedPassword) {
+        return submit(() -> hasher.validatePassword(password, storedPassword));
+    }
+
+    /**
+     * Starts computing a hash, recording its latency before its future completes.
+     *
+     * @param hash computes the hash
+     * @param <T> the type of result
+     * @return a future of the result
+     */
+    private <T> CompletableFuture<T> submit(Supplier<T> hash) {
+        long submitted = System.nanoTime();
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return hash.get();
+            } finally {
+                totalLatencyNanos.add(System.nanoTime() - submitted);
+                completed.increment();
+            }
+        }, this);
+    }
+
+    /**
+     * Runs command on a hashing thread, or on the calling thread if the queue is full.
+     *
+     * @param command the work to run
+     * @throws RejectedExecutionException if this service is closed
+     */
+    @Override
+    public void execute(Runnable command) {
+        executor.execute(command);
+    }
+
+    /**
+     * Returns the number of hashes waiting for a thread.
+     *
+     * @return the number of hashes waiting
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Returns the number of hashes done.
+     *
+     * @return the number of hashes done
+     */
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+
+    /**
+     * Returns the mean time hashes took from being asked for to being done, including the time spent waiting.
+     *
+     * @return the mean latency in milliseconds, or 0 if no hash is done
+     */
+    public double getAverageLatencyMillis() {
+        long count = completed.sum();
+        return count == 0 ? 0 : totalLatencyNanos.sum() / (count * 1_000_000.0);
+    }
+
+    /**
+     * Stops the background threads once the hashes already asked for are done.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,196 @@
+package com.conference.backend.security;
+
+import java.io.IOException;
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * A list over the records of a {@link MappedSection}, in the order they were written, followed by the elements
+ * appended since.
+ *
+ * <p>
+ *     Elements are decoded through a {@link MappedEntityMap} over the same section, so an element reached
+ *     through the list is the same object as the one found by key. A later record with the key of an earlier
+ *     one is decoded separately. Appending and replacing elements keeps the section in place; inserting or
+ *     removing an element before the end first decodes every element into an {@link ArrayList}. The list is
+ *     serialized as an {@link ArrayList} of its elements.
+ * </p>
+ *
+ * @param <V> the element type
+ */
+class MappedEntityList<V> extends AbstractList<V> implements RandomAccess, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final MappedSection section;
+    private final MappedEntityMap<V> byKey;
+    private final Function<Object, String> keyOf;
+
+    // Elements of the section that were replaced or decoded apart from byKey, by ordinal
+    private final Map<Integer, V> replaced;
+
+    // Elements appended after the section
+    private final List<V> appended;
+
+    // Every element once the section can no longer be used by ordinal, or null until then
+    private List<V> materialized;
+
+    /**
+     * Creates a MappedEntityList over the records of section.
+     *
+     * @param section the records, in list order
+     * @param byKey the map over section that elements are decoded through
+     * @param keyOf returns the key of an element, or {@code null} if it cannot be an element
+     */
+    MappedEntityList(MappedSection section, MappedEntityMap<V> byKey, Function<Object, String> keyOf) {
+        this.section = section;
+        this.byKey = byKey;
+        this.keyOf = keyOf;
+        this.replaced = new HashMap<>();
+        this.appended = new ArrayList<>();
+    }
+
+    @Override
+    public int size() {
+        return materialized != null ? materialized.size() : section.size() + appended.size();
+    }
+
+    @Override
+    public V get(int index) {
+        if (materialized != null) {
+            return materialized.get(index);
+        }
+        checkIndex(index, size());
+        if (index >= section.size()) {
+            return appended.get(index - section.size());
+        }
+        V value = replaced.get(index);
+        if (value == null) {
+            String key = keyAt(index);
+            if (find(key) == index) {
+                value = byKey.get(key);
+            } else {
+                value = byKey.decode(index);
+                replaced.put(index, value);
+            }
+        }
+        return value;
+    }
+
+    @Override
+    public V set(int index, V element) {
+        if (materialized != null) {
+            return materialized.set(index, element);
+        }
+        V previous = get(index);
+        if (index >= section.size()) {
+            appended.set(index - section.size(), element);
+        } else {
+            replaced.put(index, element);
+        }
+        return previous;
+    }
+
+    @Override
+    public void add(int index, V element) {
+        if (materialized == null && index == size()) {
+            appended.add(element);
+        } else {
+            materialize().add(index, element);
+        }
+        modCount++;
+    }
+
+    @Override
+    public V remove(int index) {
+        V previous = materialize().remove(index);
+        modCount++;
+        return previous;
+    }
+
+    /**
+     * Finds the first element equal to o, searching the records with the key of o rather than every element.
+     *
+     * @param o the element to search for
+     * @return the index of the first element equal to o, or -1 if there is none
+     */
+    @Override
+    public int indexOf(Object o) {
+        if (materialized != null) {
+            return materialized.indexOf(o);
+        }
+        String key = keyOf.apply(o);
+        if (key == null) {
+            return -1;
+        }
+
+        int first = -1;
+        for (Map.Entry<Integer, V> entry : replaced.entrySet()) {
+            if (Objects.equals(o, entry.getValue()) && (first < 0 || entry.getKey() < first)) {
+                first = entry.getKey();
+            }
+        }
+        for (int ordinal : findAll(key)) {
+            if (first >= 0 && ordinal > first) {
+                break;
+            }
+            if (!replaced.containsKey(ordinal) && Objects.equals(o, get(ordinal))) {
+                first = ordinal;
+                break;
+            }
+        }
+        if (first >= 0) {
+            return first;
+        }
+        int appendedIndex = appended.indexOf(o);
+        return appendedIndex < 0 ? -1 : section.size() + appendedIndex;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    private List<V> materialize() {
+        if (materialized == null) {
+            materialized = new ArrayList<>(this);
+        }
+        return materialized;
+    }
+
+    private String keyAt(int ordinal) {
+        try {
+            return section.getKey(ordinal);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not decode key " + ordinal, e);
+        }
+    }
+
+    private int find(String key) {
+        try {
+            return section.find(key);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not search for " + key, e);
+        }
+    }
+
+    private List<Integer> findAll(String key) {
+        try {
+            return section.findAll(key);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not search for " + key, e);
+        }
+    }
+
+    private static void checkIndex(int index, int size) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    private Object writeReplace() throws ObjectStreamException {
+        return new ArrayList<>(this);
+    }
+}
@@ -0,0 +1,272 @@
+package com.conference.backend.security;
+
+import java.io.IOException;
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.util.*;
+
+/**
+ * A map over a {@link MappedSection} that decodes each value the first time its key is looked up.
+ *
+ * <p>
+ *     Decoded values are kept, so changes made to them are seen by later lookups. Values put into or removed
+ *     from the map are tracked on top of the section, which is never written to. Iterating over the values
+ *     decodes all of them; iterating over the keys decodes only the keys. The map is serialized as a
+ *     {@link HashMap} of its entries.
+ * </p>
+ *
+ * @param <V> the value type
+ */
+class MappedEntityMap<V> extends AbstractMap<String, V> implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Decodes a value from its record.
+     *
+     * @param <V> the value type
+     */
+    interface Reader<V> {
+        /**
+         * Reads a value.
+         *
+         * @param decoder the decoder positioned at the start of the record
+         * @return the value read
+         * @throws IOException if the record is malformed
+         */
+        V read(BinaryDecoder decoder) throws IOException;
+    }
+
+    private final MappedSection section;
+    private final Reader<V> reader;
+
+    // Values decoded from the section or put since, by key
+    private final Map<String, V> loaded;
+
+    // Keys of the section removed from the map
+    private final Set<String> removed;
+
+    // Keys put into the map that are not in the section, in the order put
+    private final Set<String> added;
+
+    /**
+     * Creates a MappedEntityMap over the records of section.
+     *
+     * @param section the records, keyed by the keys of this map
+     * @param reader decodes a value from its record
+     */
+    MappedEntityMap(MappedSection section, Reader<V> reader) {
+        this.section = section;
+        this.reader = reader;
+        this.loaded = new HashMap<>();
+        this.removed = new HashSet<>();
+        this.added = new LinkedHashSet<>();
+    }
+
+    @Override
+    public int size() {
+        return section.size() - removed.size() + added.size();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        if (loaded.containsKey(key)) {
+            return true;
+        }
+        return key instanceof String && !removed.contains(key) && find((String) key) >= 0;
+    }
+
+    @Override
+    public V get(Object key) {
+        V value = loaded.get(key);
+        if (value != null || !(key instanceof String) || removed.contains(key)) {
+            return value;
+        }
+        int ordinal = find((String) key);
+        if (ordinal < 0) {
+            return null;
+        }
+        value = decode(ordinal);
+        loaded.put((String) key, value);
+        return value;
+    }
+
+    @Override
+    public V put(String key, V value) {
+        V previous = get(key);
+        if (previous == null) {
+            if (find(key) >= 0) {
+                removed.remove(key);
+            } else {
+                added.add(key);
+            }
+        }
+        loaded.put(key, value);
+        return previous;
+    }
+
+    @Override
+    public V remove(Object key) {
+        V previous = get(key);
+        if (previous != null) {
+            String stringKey = (String) key;
+            loaded.remove(stringKey);
+            if (!added.remove(stringKey)) {
+                removed.add(stringKey);
+            }
+        }
+        return previous;
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return new AbstractSet<String>() {
+            @Override
+            public Iterator<String> iterator() {
+                return new KeyIterator();
+            }
+
+            @Override
+            public int size() {
+                return MappedEntityMap.this.size();
+            }
+
+            @Override
+            public boolean contains(Object key) {
+                return containsKey(key);
+            }
+        };
+    }
+
+    @Override
+    public Set<Entry<String, V>> entrySet() {
+        return new AbstractSet<Entry<String, V>>() {
+            @Override
+            public Iterator<Entry<String, V>> iterator() {
+                KeyIterator keys = new KeyIterator();
+                return new Iterator<Entry<String, V>>() {
+                    @Override
+                    public boolean hasNext() {
+                        return keys.hasNext();
+                    }
+
+                    @Override
+                    public Entry<String, V> next() {
+                        String key = keys.next();
+                        return new SimpleEntry<String, V>(key, get(key)) {
+                            @Override
+                            public V setValue(V value) {
+                                super.setValue(value);
+                                return put(key, value);
+                            }
+                        };
+                    }
+
+                    @Override
+                    public void remove() {
+                        keys.remove();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return MappedEntityMap.this.size();
+            }
+        };
+    }
+
+    /**
+     * Decodes the value of a record of the section, without keeping it.
+     *
+     * @param ordinal the ordinal of the record
+     * @return the value decoded
+     * @throws UncheckedIOException if the record is malformed
+     */
+    V decode(int ordinal) {
+        try {
+            return reader.read(section.open(ordinal));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not decode record " + ordinal, e);
+        }
+    }
+
+    private int find(String key) {
+        try {
+            return section.find(key);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not search for " + key, e);
+        }
+    }
+
+    private Object writeReplace() throws ObjectStreamException {
+        return new HashMap<>(this);
+    }
+
+    /**
+     * Iterates over the keys of the section that have not been removed, then over the keys added.
+     */
+    private class KeyIterator implements Iterator<String> {
+        private int ordinal;
+        private Iterator<String> addedKeys;
+        private String next;
+        private String last;
+        private boolean nextFromSection;
+        private boolean lastFromSection;
+
+        @Override
+        public boolean hasNext() {
+            if (next != null) {
+                return true;
+            }
+            while (addedKeys == null && ordinal < section.size()) {
+                String key;
+                try {
+                    key = section.getKey(ordinal++);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not decode key " + (ordinal - 1), e);
+                }
+                if (!removed.contains(key)) {
+                    next = key;
+                    nextFromSection = true;
+                    return true;
+                }
+            }
+            if (addedKeys == null) {
+                // Iterate over a copy, so that removing through this iterator does not disturb it
+                addedKeys = new ArrayList<>(added).iterator();
+            }
+            if (addedKeys.hasNext()) {
+                next = addedKeys.next();
+                nextFromSection = false;
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            lastFromSection = nextFromSection;
+            next = null;
+            return last;
+        }
+
+        @Override
+        public void remove() {
+            if (last == null) {
+                throw new IllegalStateException();
+            }
+            loaded.remove(last);
+            if (lastFromSection) {
+                removed.add(last);
+            } else {
+                added.remove(last);
+            }
+            last = null;
+        }
+    }
+}
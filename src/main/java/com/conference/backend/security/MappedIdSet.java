@@ -0,0 +1,65 @@
+package com.conference.backend.security;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+
+/**
+ * A set of ids held in a record of a {@link MappedSection}, decoded in full the first time the set is used.
+ *
+ * @see BinaryEncoder#writeIds
+ */
+class MappedIdSet extends AbstractSet<String> {
+    private final MappedSection section;
+    private final int ordinal;
+
+    // The decoded ids, or null until the set is first used
+    private Set<String> ids;
+
+    /**
+     * Creates a MappedIdSet over a record of section.
+     *
+     * @param section the section holding the record
+     * @param ordinal the ordinal of the record
+     */
+    MappedIdSet(MappedSection section, int ordinal) {
+        this.section = section;
+        this.ordinal = ordinal;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return ids().iterator();
+    }
+
+    @Override
+    public int size() {
+        return ids().size();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return ids().contains(o);
+    }
+
+    @Override
+    public boolean add(String id) {
+        return ids().add(id);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return ids().remove(o);
+    }
+
+    private Set<String> ids() {
+        if (ids == null) {
+            try {
+                ids = new LinkedHashSet<>(section.open(ordinal).readIds());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not decode ids of record " + ordinal, e);
+            }
+        }
+        return ids;
+    }
+}
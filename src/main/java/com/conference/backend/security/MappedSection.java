@@ -0,0 +1,136 @@
+package com.conference.backend.security;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A section of keyed records in a {@link MappedSnapshot}. Records are numbered by ordinal in the order they were
+ * written and found by key through a binary search of the sorted ordinals.
+ */
+public final class MappedSection {
+    private final ByteBuffer buffer;
+    private final int count;
+    private final int positionsStart;
+    private final int sortedStart;
+    private final BinaryDecoder.StringTable strings;
+
+    /**
+     * Creates a MappedSection over the record table at start.
+     *
+     * @param buffer the snapshot
+     * @param start the position of the record count of the section
+     * @param count the number of records in the section
+     * @param strings the string table of the snapshot
+     */
+    MappedSection(ByteBuffer buffer, int start, int count, BinaryDecoder.StringTable strings) {
+        this.buffer = buffer;
+        this.count = count;
+        this.positionsStart = start + 4;
+        this.sortedStart = positionsStart + 4 * count;
+        this.strings = strings;
+    }
+
+    /**
+     * Returns the number of records in this section.
+     *
+     * @return the number of records
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns the key of a record.
+     *
+     * @param ordinal the ordinal of the record
+     * @return the key of the record
+     * @throws IOException if there is no such record or its key is malformed
+     */
+    public String getKey(int ordinal) throws IOException {
+        return decoderAt(ordinal).readString();
+    }
+
+    /**
+     * Returns a decoder positioned at the start of a record, after its key.
+     *
+     * @param ordinal the ordinal of the record
+     * @return the decoder to read the record from
+     * @throws IOException if there is no such record or its key is malformed
+     */
+    public BinaryDecoder open(int ordinal) throws IOException {
+        BinaryDecoder decoder = decoderAt(ordinal);
+        decoder.readString();
+        return decoder;
+    }
+
+    /**
+     * Finds the first record written with key.
+     *
+     * @param key the key of the record
+     * @return the ordinal of the record, or -1 if there is none
+     * @throws IOException if the keys are malformed
+     */
+    public int find(String key) throws IOException {
+        int index = lowerBound(key);
+        if (index < count) {
+            int ordinal = sortedOrdinal(index);
+            if (getKey(ordinal).equals(key)) {
+                return ordinal;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds every record written with key.
+     *
+     * @param key the key of the records
+     * @return the ordinals of the records in the order written, empty if there are none
+     * @throws IOException if the keys are malformed
+     */
+    public List<Integer> findAll(String key) throws IOException {
+        List<Integer> ordinals = new ArrayList<>(1);
+        for (int index = lowerBound(key); index < count; index++) {
+            int ordinal = sortedOrdinal(index);
+            if (!getKey(ordinal).equals(key)) {
+                break;
+            }
+            ordinals.add(ordinal);
+        }
+        return ordinals;
+    }
+
+    /**
+     * Returns the index in the sorted ordinals of the first record whose key is not less than key.
+     */
+    private int lowerBound(String key) throws IOException {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (getKey(sortedOrdinal(middle)).compareTo(key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int sortedOrdinal(int index) throws IOException {
+        int ordinal = buffer.getInt(sortedStart + 4 * index);
+        if (ordinal < 0 || ordinal >= count) {
+            throw new IOException("Record ordinal out of range: " + ordinal);
+        }
+        return ordinal;
+    }
+
+    private BinaryDecoder decoderAt(int ordinal) throws IOException {
+        if (ordinal < 0 || ordinal >= count) {
+            throw new IOException("Record ordinal out of range: " + ordinal);
+        }
+        return new BinaryDecoder(buffer, buffer.getInt(positionsStart + 4 * ordinal), strings);
+    }
+}
@@ -0,0 +1,138 @@
+package com.conference.backend.security;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A snapshot written by {@link MappedSnapshotWriter}, read in place from a buffer such as a memory-mapped file.
+ *
+ * <p>
+ *     Opening a snapshot only checks its header; strings and records are decoded when they are first asked for,
+ *     so the cost of opening does not grow with the size of the snapshot.
+ * </p>
+ */
+public final class MappedSnapshot {
+    /**
+     * The magic number {@code CMMS} starting every snapshot
+     */
+    public static final int MAGIC = 0x434D4D53;
+
+    /**
+     * The format version written by {@link MappedSnapshotWriter}. Version 2 adds the read cursors of each
+     * conversation to MessageManagers, and version 3 the time of the latest message of each conversation.
+     */
+    public static final int FORMAT_VERSION = 3;
+
+    private static final int HEADER_SIZE = 18;
+
+    private final ByteBuffer buffer;
+    private final int version;
+    private final int[] sectionStarts;
+    private final Strings strings;
+
+    /**
+     * Opens the snapshot held in buffer.
+     *
+     * @param buffer the snapshot, from position 0 to its limit
+     * @param kind the byte identifying the type of repository expected in the snapshot
+     * @throws IOException if buffer does not hold a snapshot, or holds another version or kind of repository
+     */
+    public MappedSnapshot(ByteBuffer buffer, int kind) throws IOException {
+        this.buffer = buffer;
+        int limit = buffer.limit();
+        if (limit < HEADER_SIZE) {
+            throw new IOException("File is too short");
+        }
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a snapshot file");
+        }
+        this.version = buffer.get(4) & 0xFF;
+        if (version < 1 || version > FORMAT_VERSION) {
+            throw new IOException("Unsupported format version: " + version);
+        }
+        int fileKind = buffer.get(5) & 0xFF;
+        if (fileKind != kind) {
+            throw new IOException("File holds repository kind " + fileKind + ", expected " + kind);
+        }
+
+        int stringCount = buffer.getInt(6);
+        int tableStart = buffer.getInt(10);
+        checkRange(tableStart, 4L * stringCount);
+        this.strings = new Strings(stringCount, tableStart);
+
+        int sectionCount = buffer.getInt(14);
+        checkRange(HEADER_SIZE, 4L * sectionCount);
+        this.sectionStarts = new int[sectionCount];
+        for (int i = 0; i < sectionCount; i++) {
+            this.sectionStarts[i] = buffer.getInt(HEADER_SIZE + 4 * i);
+        }
+    }
+
+    /**
+     * Returns the format version this snapshot was written in.
+     *
+     * @return the format version
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the number of sections in this snapshot.
+     *
+     * @return the number of sections
+     */
+    public int getSectionCount() {
+        return sectionStarts.length;
+    }
+
+    /**
+     * Returns a section of this snapshot.
+     *
+     * @param index the index of the section, in the order written
+     * @return the section
+     * @throws IOException if there is no such section or its record table is malformed
+     */
+    public MappedSection getSection(int index) throws IOException {
+        if (index < 0 || index >= sectionStarts.length) {
+            throw new IOException("No section " + index + " in snapshot of " + sectionStarts.length);
+        }
+        int start = sectionStarts[index];
+        checkRange(start, 4);
+        int count = buffer.getInt(start);
+        checkRange(start + 4, 8L * count);
+        return new MappedSection(buffer, start, count, strings);
+    }
+
+    private void checkRange(int start, long length) throws IOException {
+        if (start < 0 || length < 0 || start + length > buffer.limit()) {
+            throw new IOException("Snapshot table out of range at " + start);
+        }
+    }
+
+    /**
+     * The string table of the snapshot, decoding each string the first time it is resolved.
+     */
+    private final class Strings implements BinaryDecoder.StringTable {
+        private final int tableStart;
+        private final String[] decoded;
+
+        private Strings(int count, int tableStart) {
+            this.tableStart = tableStart;
+            this.decoded = new String[count];
+        }
+
+        @Override
+        public String get(int index) throws IOException {
+            if (index >= decoded.length) {
+                throw new IOException("String table index out of range: " + index);
+            }
+            String value = decoded[index];
+            if (value == null) {
+                value = new BinaryDecoder(buffer, buffer.getInt(tableStart + 4 * index), this).readString();
+                decoded[index] = value;
+            }
+            return value;
+        }
+    }
+}
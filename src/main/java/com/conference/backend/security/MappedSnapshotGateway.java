@@ -0,0 +1,62 @@
+package com.conference.backend.security;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A {@link DataGateway} that stores a repository as a snapshot that is memory-mapped when read, so a repository
+ * is usable as soon as the header is checked and its records are decoded as they are first used.
+ *
+ * <p>
+ *     The mapping stays valid after the file is replaced by {@link #saveToFile}, as the old file is only unlinked.
+ *     Saving decodes every record still in the snapshot.
+ * </p>
+ *
+ * @param <T> the repository type
+ */
+public class MappedSnapshotGateway<T> extends DataGateway<T> {
+    private final SnapshotCodec<T> codec;
+
+    /**
+     * Creates a MappedSnapshotGateway for repositories written by codec.
+     *
+     * @param codec the codec of the repository
+     */
+    public MappedSnapshotGateway(SnapshotCodec<T> codec) {
+        this.codec = codec;
+    }
+
+    /**
+     * Maps the snapshot at filePath and opens the repository in it.
+     *
+     * @param filePath the path of the snapshot
+     * @return the repository, or {@code null} if the file cannot be read or holds another format, version or
+     *          kind of repository
+     */
+    @Override
+    public T readFromFile(String filePath) {
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return codec.open(new MappedSnapshot(buffer, codec.getKind()));
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes the repository as a snapshot.
+     *
+     * @param output the stream to write to
+     * @param t the repository to write
+     * @throws IOException if the stream cannot be written
+     */
+    @Override
+    protected void write(OutputStream output, T t) throws IOException {
+        MappedSnapshotWriter writer = new MappedSnapshotWriter();
+        codec.encode(t, writer);
+        writer.writeTo(output, codec.getKind());
+    }
+}
@@ -0,0 +1,144 @@
+package com.conference.backend.security;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.*;
+
+/**
+ * Writes a snapshot that {@link MappedSnapshot} can open without reading it up front.
+ *
+ * <p>
+ *     A snapshot is made of sections of keyed records. Records are encoded by one {@link BinaryEncoder}, so ids
+ *     repeated across records share the string table. The file is laid out as:
+ * </p>
+ * <pre>
+ *     header   magic, version, kind, string count, string table position, section count, section positions
+ *     body     each record: its key written inline, then the record
+ *     strings  each string of the string table written inline
+ *     table    the position of each string
+ *     sections per section: the record count, the position of each record in the order written, then the
+ *              record ordinals sorted by key
+ * </pre>
+ * <p>
+ *     Positions are 4-byte big-endian ints from the start of the file, so any record or string can be found
+ *     without reading the ones before it.
+ * </p>
+ */
+public class MappedSnapshotWriter {
+    private final BinaryEncoder body;
+    private final List<Section> sections;
+
+    /**
+     * A section being written: the key and body position of each of its records.
+     */
+    private static class Section {
+        private final List<String> keys = new ArrayList<>();
+        private final List<Integer> positions = new ArrayList<>();
+    }
+
+    /**
+     * Creates an empty MappedSnapshotWriter.
+     */
+    public MappedSnapshotWriter() {
+        this.body = new BinaryEncoder();
+        this.sections = new ArrayList<>();
+    }
+
+    /**
+     * Starts the next section; records written after this belong to it.
+     */
+    public void beginSection() {
+        sections.add(new Section());
+    }
+
+    /**
+     * Starts a record with key in the current section.
+     *
+     * @param key the key the record is found by
+     * @return the encoder to write the record to
+     * @throws IllegalStateException if no section has been started
+     * @throws NullPointerException if key is {@code null}
+     */
+    public BinaryEncoder beginRecord(String key) {
+        Objects.requireNonNull(key, "key");
+        if (sections.isEmpty()) {
+            throw new IllegalStateException("No section has been started");
+        }
+        Section section = sections.get(sections.size() - 1);
+        section.keys.add(key);
+        section.positions.add(body.size());
+        body.writeString(key);
+        return body;
+    }
+
+    /**
+     * Writes the snapshot to out.
+     *
+     * @param out the stream to write to
+     * @param kind the byte identifying the type of repository in the snapshot
+     * @throws IOException if the stream cannot be written, or the snapshot does not fit int positions
+     */
+    public void writeTo(OutputStream out, int kind) throws IOException {
+        List<String> strings = body.getStrings();
+        BinaryEncoder stringBytes = new BinaryEncoder();
+        int[] stringOffsets = new int[strings.size()];
+        for (int i = 0; i < strings.size(); i++) {
+            stringOffsets[i] = stringBytes.size();
+            stringBytes.writeString(strings.get(i));
+        }
+
+        int headerSize = 18 + 4 * sections.size();
+        long stringsStart = (long) headerSize + body.size();
+        long tableStart = stringsStart + stringBytes.size();
+        long[] sectionStarts = new long[sections.size()];
+        long end = tableStart + 4L * strings.size();
+        for (int i = 0; i < sections.size(); i++) {
+            sectionStarts[i] = end;
+            end += 4 + 8L * sections.get(i).keys.size();
+        }
+        if (end > Integer.MAX_VALUE) {
+            throw new IOException("Snapshot is too large: " + end + " bytes");
+        }
+
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MappedSnapshot.MAGIC);
+        data.writeByte(MappedSnapshot.FORMAT_VERSION);
+        data.writeByte(kind);
+        data.writeInt(strings.size());
+        data.writeInt((int) tableStart);
+        data.writeInt(sections.size());
+        for (long sectionStart : sectionStarts) {
+            data.writeInt((int) sectionStart);
+        }
+        data.flush();
+
+        body.writeBodyTo(out);
+        stringBytes.writeBodyTo(out);
+        for (int offset : stringOffsets) {
+            data.writeInt((int) stringsStart + offset);
+        }
+        for (Section section : sections) {
+            writeSection(data, section, headerSize);
+        }
+        data.flush();
+    }
+
+    private static void writeSection(DataOutputStream data, Section section, int headerSize) throws IOException {
+        int count = section.keys.size();
+        data.writeInt(count);
+        for (int position : section.positions) {
+            data.writeInt(headerSize + position);
+        }
+
+        // A stable sort, so records with equal keys stay in the order written
+        Integer[] ordinals = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            ordinals[i] = i;
+        }
+        Arrays.sort(ordinals, Comparator.comparing(section.keys::get));
+        for (int ordinal : ordinals) {
+            data.writeInt(ordinal);
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package com.conference.backend.security;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.security.spec.InvalidKeySpecException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Hashes passwords with PBKDF2 using a configurable HMAC algorithm and iteration count.
+ *
+ * <p>
+ *     Hashes are stored as {@code algorithm:iterations:salt:hash}, so that hashes made with older parameters can
+ *     still be checked and can be found by {@link #needsRehash}. Hashes in the older {@code iterations:salt:hash}
+ *     form are PBKDF2WithHmacSHA1 hashes, as made by {@link PBKDF2WithHmacSHA1Hasher}.
+ * </p>
+ *
+ * <p>
+ *     {@link #calibrate} picks the iteration count that takes a target time on the current machine, so that the
+ *     cost of a hash can follow the hardware without invalidating stored hashes. The count it picks varies a little
+ *     with the load on the machine at startup, so only hashes well below the current count are made again.
+ * </p>
+ *
+ * <p>
+ *     Safe for use by many threads at once. Each thread keeps its own {@code SecretKeyFactory}s and
+ *     {@code SecureRandom}, which are slow to look up and not meant to be shared.
+ * </p>
+ */
+public class PBKDF2Hasher implements Hasher {
+    /**
+     * The algorithm used if none is given
+     */
+    public static final String DEFAULT_ALGORITHM = "PBKDF2WithHmacSHA256";
+
+    /**
+     * The iteration count used if none is given or calibrated
+     */
+    public static final int DEFAULT_ITERATIONS = 10_000;
+
+    /**
+     * The fewest iterations {@link #calibrate} picks, however fast the machine is
+     */
+    public static final int MIN_ITERATIONS = 1000;
+
+    /**
+     * The percentage of the iteration count of new hashes below which {@link #needsRehash} makes a hash again
+     */
+    public static final int REHASH_FLOOR_PERCENT = 80;
+
+    /**
+     * The algorithm of hashes stored in the older {@code iterations:salt:hash} form
+     */
+    public static final String LEGACY_ALGORITHM = "PBKDF2WithHmacSHA1";
+
+    private static final int SALT_BYTES = 16;
+    private static final int KEY_BITS = 64 * 8;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    // The iterations timed by calibrate, and the number of untimed and timed runs
+    private static final int CALIBRATION_ITERATIONS = 10_000;
+    private static final int CALIBRATION_WARMUPS = 2;
+    private static final int CALIBRATION_RUNS = 3;
+
+    private static final ThreadLocal<Map<String, SecretKeyFactory>> FACTORIES = ThreadLocal.withInitial(HashMap::new);
+
+    private static final ThreadLocal<SecureRandom> RANDOMS = ThreadLocal.withInitial(() -> {
+        try {
+            return SecureRandom.getInstance("SHA1PRNG");
+        } catch (NoSuchAlgorithmException e) {
+            return new SecureRandom();
+        }
+    });
+
+    private final String algorithm;
+    private final int iterations;
+
+    /**
+     * Constructs a hasher using {@link #DEFAULT_ALGORITHM} with {@link #DEFAULT_ITERATIONS}.
+     */
+    public PBKDF2Hasher() {
+        this(DEFAULT_ALGORITHM, DEFAULT_ITERATIONS);
+    }
+
+    /**
+     * Constructs a hasher.
+     *
+     * @param algorithm the name of the {@code SecretKeyFactory} algorithm, such as {@code PBKDF2WithHmacSHA256}
+     * @param iterations the number of iterations of new hashes
+     * @throws IllegalArgumentException if the algorithm is not supported or iterations is not positive
+     */
+    public PBKDF2Hasher(String algorithm, int iterations) {
+        if (iterations <= 0) {
+            throw new IllegalArgumentException("iterations must be positive: " + iterations);
+        }
+        // Fail now rather than on the first hash
+        factory(algorithm);
+        this.algorithm = algorithm;
+        this.iterations = iterations;
+    }
+
+    /**
+     * Constructs a hasher whose hashes take about targetLatency on this machine.
+     *
+     * <p>
+     *     Times a hash of {@code CALIBRATION_ITERATIONS} iterations, keeping the fastest of a few runs after
+     *     warming up, and scales the iteration count to the target, rounded down to a thousand. The count is never
+     *     below {@link #MIN_ITERATIONS}.
+     * </p>
+     *
+     * @param algorithm the name of the {@code SecretKeyFactory} algorithm
+     * @param targetLatency how long a hash should take
+     * @return the calibrated hasher
+     * @throws IllegalArgumentException if the algorithm is not supported
+     */
+    public static PBKDF2Hasher calibrate(String algorithm, Duration targetLatency) {
+        PBKDF2Hasher probe = new PBKDF2Hasher(algorithm, CALIBRATION_ITERATIONS);
+        byte[] salt = probe.getSalt();
+        for (int i = 0; i < CALIBRATION_WARMUPS; i++) {
+            probe.pbkdf2(algorithm, "calibration", salt, CALIBRATION_ITERATIONS, KEY_BITS);
+        }
+        long fastest = Long.MAX_VALUE;
+        for (int i = 0; i < CALIBRATION_RUNS; i++) {
+            long start = System.nanoTime();
+            probe.pbkdf2(algorithm, "calibration", salt, CALIBRATION_ITERATIONS, KEY_BITS);
+            fastest = Math.min(fastest, System.nanoTime() - start);
+        }
+
+        double scaled = (double) CALIBRATION_ITERATIONS * targetLatency.toNanos() / Math.max(1, fastest);
+        long iterations = (long) Math.min(scaled, Integer.MAX_VALUE) / 1000 * 1000;
+        return new PBKDF2Hasher(algorithm, (int) Math.max(MIN_ITERATIONS, iterations));
+    }
+
+    /**
+     * Returns the algorithm of new hashes.
+     *
+     * @return the name of the {@code SecretKeyFactory} algorithm
+     */
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * Returns the number of iterations of new hashes.
+     *
+     * @return the number of iterations
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Generates a strong password hash given a plaintext password.
+     *
+     * @param password plain text password
+     * @return generated hashed password, as {@code algorithm:iterations:salt:hash}
+     */
+    @Override
+    public String generateStrongPasswordHash(String password) {
+        byte[] salt = getSalt();
+        byte[] hash = pbkdf2(algorithm, password, salt, iterations, KEY_BITS);
+        return algorithm + ":" + iterations + ":" + toHex(salt) + ":" + toHex(hash);
+    }
+
+    /**
+     * Verify a hashed password made with any algorithm and iteration count.
+     *
+     * @param originalPassword the password the client code enters
+     * @param storedPassword the Hashed password to compare with, in either stored form
+     * @return true if the password is correct.
+     */
+    @Override
+    public boolean validatePassword(String originalPassword, String storedPassword) {
+        String[] parts = split(storedPassword);
+        int iterations = Integer.parseInt(parts[1]);
+        byte[] salt = fromHex(parts[2]);
+        byte[] hash = fromHex(parts[3]);
+
+        byte[] testHash = pbkdf2(parts[0], originalPassword, salt, iterations, hash.length * 8);
+
+        int diff = hash.length ^ testHash.length;
+        for(int i = 0; i < hash.length && i < testHash.length; i++)
+        {
+            diff |= hash[i] ^ testHash[i];
+        }
+        return diff == 0;
+    }
+
+    /**
+     * Checks if a stored hash was made with another algorithm, or with fewer than {@link #REHASH_FLOOR_PERCENT} of
+     * the iterations of new hashes.
+     *
+     * @param storedPassword the Hashed password, in either stored form
+     * @return true if the password should be hashed again
+     */
+    @Override
+    public boolean needsRehash(String storedPassword) {
+        String[] parts = split(storedPassword);
+        return !algorithm.equals(parts[0])
+                || Long.parseLong(parts[1]) * 100 < (long) iterations * REHASH_FLOOR_PERCENT;
+    }
+
+    /**
+     * Uses SHA1PRNG to salt hashed password.
+     * @return 16-byte salted array
+     */
+    public byte[] getSalt() {
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOMS.get().nextBytes(salt);
+        return salt;
+    }
+
+    /**
+     * Used to convert salt to Hex.
+     *
+     * @param array the given salt
+     * @return the hexified salt
+     */
+    public String toHex(byte[] array) {
+        char[] hex = new char[array.length * 2];
+        for (int i = 0; i < array.length; i++) {
+            hex[2 * i] = HEX_DIGITS[(array[i] >> 4) & 0xf];
+            hex[2 * i + 1] = HEX_DIGITS[array[i] & 0xf];
+        }
+        return new String(hex);
+    }
+
+    /**
+     * Used to convert Hex to salt.
+     *
+     * @param hex the {@code String} to be salted
+     * @return the salt representing this hex
+     */
+    public byte[] fromHex(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for(int i = 0; i<bytes.length ;i++)
+        {
+            int high = Character.digit(hex.charAt(2 * i), 16);
+            int low = Character.digit(hex.charAt(2 * i + 1), 16);
+            if (high < 0 || low < 0) {
+                throw new NumberFormatException("Not a hex digit in: " + hex);
+            }
+            bytes[i] = (byte) ((high << 4) | low);
+        }
+        return bytes;
+    }
+
+    /**
+     * Splits a stored hash into its algorithm, iterations, salt and hash, reading the older form as
+     * {@link #LEGACY_ALGORITHM}.
+     *
+     * @param storedPassword the Hashed password, in either stored form
+     * @return the four parts of the hash
+     * @throws IllegalArgumentException if storedPassword is in neither form
+     */
+    private static String[] split(String storedPassword) {
+        String[] parts = storedPassword.split(":");
+        if (parts.length == 3) {
+            return new String[] {LEGACY_ALGORITHM, parts[0], parts[1], parts[2]};
+        }
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("Not a PBKDF2 password hash");
+        }
+        return parts;
+    }
+
+    /**
+     * Derives a key from password with this thread's {@code SecretKeyFactory} for algorithm.
+     *
+     * @param algorithm the name of the {@code SecretKeyFactory} algorithm
+     * @param password the plain text password
+     * @param salt the salt
+     * @param iterations the number of iterations
+     * @param keyLength the length of the key in bits
+     * @return the derived key, or an empty array if it cannot be derived
+     */
+    byte[] pbkdf2(String algorithm, String password, byte[] salt, int iterations, int keyLength) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, keyLength);
+        try {
+            return factory(algorithm).generateSecret(spec).getEncoded();
+        } catch (InvalidKeySpecException e) {
+            e.printStackTrace();
+            return new byte[0];
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    /**
+     * Fetches this thread's {@code SecretKeyFactory} for algorithm, creating it the first time.
+     *
+     * @param algorithm the name of the {@code SecretKeyFactory} algorithm
+     * @return the factory
+     * @throws IllegalArgumentException if the algorithm is not supported
+     */
+    private static SecretKeyFactory factory(String algorithm) {
+        return FACTORIES.get().computeIfAbsent(algorithm, name -> {
+            try {
+                return SecretKeyFactory.getInstance(name);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalArgumentException("Unsupported password hash algorithm: " + name, e);
+            }
+        });
+    }
+}
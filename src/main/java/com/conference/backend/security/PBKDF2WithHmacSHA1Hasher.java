@@ -1,125 +1,34 @@
 package com.conference.backend.security;
 
-import javax.crypto.SecretKeyFactory;
-import javax.crypto.spec.PBEKeySpec;
-import java.math.BigInteger;
-import java.security.NoSuchAlgorithmException;
-import java.security.SecureRandom;
-import java.security.spec.InvalidKeySpecException;
-
 /**
  * Hashes password using PBKDF2WithHmacSHA1Hasher
  * Code from @see <a href="https://bit.ly/2VfAWIj">https://bit.ly/2VfAWIj</a>
+ *
+ * <p>
+ *     Makes hashes of 1000 iterations in the older {@code iterations:salt:hash} form, which every
+ *     {@link PBKDF2Hasher} can still check. New passwords should be hashed with a {@link PBKDF2Hasher}.
+ * </p>
  */
-public class PBKDF2WithHmacSHA1Hasher implements Hasher {
-    /**
-     * Generates a strong password hash given a plaintext password.
-     *
-     * @param password plain text password
-     * @return generated hashed password
-     */
-    public String generateStrongPasswordHash(String password) {
-        int iterations = 1000;
-        char[] chars = password.toCharArray();
-        byte[] salt = getSalt();
-
-        PBEKeySpec spec = new PBEKeySpec(chars, salt, iterations, 64 * 8);
-        SecretKeyFactory skf = null;
-        try {
-            skf = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA1");
-        } catch (NoSuchAlgorithmException e) {
-            e.printStackTrace();
-        }
-        byte[] hash = new byte[0];
-        try {
-            hash = skf.generateSecret(spec).getEncoded();
-        } catch (InvalidKeySpecException e) {
-            e.printStackTrace();
-        }
-        return iterations + ":" + toHex(salt) + ":" + toHex(hash);
-    }
-
-    /**
-     * Uses SHA1PRNG to salt hashed password.
-     * @return 16-byte salted array
-     */
-    public byte[] getSalt() {
-        SecureRandom sr = null;
-        try {
-            sr = SecureRandom.getInstance("SHA1PRNG");
-        } catch (NoSuchAlgorithmException e) {
-            e.printStackTrace();
-        }
-        byte[] salt = new byte[16];
-        sr.nextBytes(salt);
-        return salt;
-    }
+public class PBKDF2WithHmacSHA1Hasher extends PBKDF2Hasher {
+    private static final int ITERATIONS = 1000;
 
     /**
-     * Used to convert salt to Hex.
-     *
-     * @param array the given salt
-     * @return the hexified salt
+     * Constructs a hasher of PBKDF2WithHmacSHA1 hashes of 1000 iterations.
      */
-    public String toHex(byte[] array) {
-        BigInteger bi = new BigInteger(1, array);
-        String hex = bi.toString(16);
-        int paddingLength = (array.length * 2) - hex.length();
-        if(paddingLength > 0)
-        {
-            return String.format("%0"  +paddingLength + "d", 0) + hex;
-        }else{
-            return hex;
-        }
+    public PBKDF2WithHmacSHA1Hasher() {
+        super(LEGACY_ALGORITHM, ITERATIONS);
     }
 
     /**
-     * Verify PBKDF2WithHmacSHA1 hashed password.
-     *
-     * @param originalPassword the password the client code enters
-     * @param storedPassword the Hashed password to compare with
-     * @return true if the password is correct.
-     */
-    public boolean validatePassword(String originalPassword, String storedPassword) {
-        String[] parts = storedPassword.split(":");
-        int iterations = Integer.parseInt(parts[0]);
-        byte[] salt = fromHex(parts[1]);
-        byte[] hash = fromHex(parts[2]);
-
-        PBEKeySpec spec = new PBEKeySpec(originalPassword.toCharArray(), salt, iterations, hash.length * 8);
-        SecretKeyFactory skf = null;
-        try {
-            skf = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA1");
-        } catch (NoSuchAlgorithmException e) {
-            e.printStackTrace();
-        }
-        byte[] testHash = new byte[0];
-        try {
-            testHash = skf.generateSecret(spec).getEncoded();
-        } catch (InvalidKeySpecException e) {
-            e.printStackTrace();
-        }
-
-        int diff = hash.length ^ testHash.length;
-        for(int i = 0; i < hash.length && i < testHash.length; i++)
-        {
-            diff |= hash[i] ^ testHash[i];
-        }
-        return diff == 0;
-    }
-
-    /**
-     * Used to convert Hex to salt.
+     * Generates a strong password hash given a plaintext password.
      *
-     * @param hex the {@code String} to be salted
-     * @return the salt representing this hex
+     * @param password plain text password
+     * @return generated hashed password, as {@code iterations:salt:hash}
      */
-    public byte[] fromHex(String hex) {
-        byte[] bytes = new byte[hex.length() / 2];
-        for(int i = 0; i<bytes.length ;i++)
-        {
-            bytes[i] = (byte)Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
-        }
-        return bytes;
+    @Override
+    public String generateStrongPasswordHash(String password) {
+        byte[] salt = getSalt();
+        byte[] hash = pbkdf2(LEGACY_ALGORITHM, password, salt, ITERATIONS, 64 * 8);
+        return ITERATIONS + ":" + toHex(salt) + ":" + toHex(hash);
     }
 }
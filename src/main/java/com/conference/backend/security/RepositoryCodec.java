@@ -0,0 +1,36 @@
+package com.conference.backend.security;
+
+import java.io.IOException;
+
+/**
+ * Encodes a repository of type {@code T} to, and decodes it from, the binary format of {@link BinaryDataGateway}.
+ *
+ * @param <T> the repository type
+ */
+public interface RepositoryCodec<T> {
+    /**
+     * Returns the byte identifying the type of repository in the file header, so that a file of one repository
+     * is never decoded as another.
+     *
+     * @return the byte identifying the type of repository
+     */
+    int getKind();
+
+    /**
+     * Writes the repository to encoder.
+     *
+     * @param repository the repository to write
+     * @param encoder the encoder to write to
+     */
+    void encode(T repository, BinaryEncoder encoder);
+
+    /**
+     * Reads a repository written by {@link #encode}.
+     *
+     * @param decoder the decoder to read from
+     * @param version the format version of the file being read
+     * @return the repository read
+     * @throws IOException if the data is malformed
+     */
+    T decode(BinaryDecoder decoder, int version) throws IOException;
+}
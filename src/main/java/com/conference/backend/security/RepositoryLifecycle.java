@@ -0,0 +1,127 @@
+package com.conference.backend.security;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Loads and saves repositories through their {@link DataGateway}s on a pool of background threads, so that
+ * repositories stored in different files are read and written at the same time.
+ *
+ * <p>
+ *     Each file is written to a temporary file that then replaces it, as {@link DataGateway#saveToFile} does, so
+ *     a crash part way through saving leaves every file either old or new. The time taken for each file by the
+ *     last load and the last save is kept for reporting.
+ * </p>
+ */
+public class RepositoryLifecycle implements Closeable {
+    private final ExecutorService executor;
+
+    // Milliseconds taken by the last load and save of each file, by file name
+    private final Map<String, Long> loadTimings;
+    private final Map<String, Long> saveTimings;
+
+    /**
+     * Creates a RepositoryLifecycle that reads and writes up to {@code threads} files at the same time.
+     *
+     * @param threads the number of files to read or write at the same time
+     */
+    public RepositoryLifecycle(int threads) {
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "repository-io");
+            // Never keep the program running once it quits
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.loadTimings = new ConcurrentSkipListMap<>();
+        this.saveTimings = new ConcurrentSkipListMap<>();
+    }
+
+    /**
+     * Starts reading the repository at filePath.
+     *
+     * @param gateway the gateway reading the file
+     * @param filePath the path of the file
+     * @param <T> the repository type
+     * @return a future of the repository, or of {@code null} if the file cannot be read, that fails with a
+     *          {@link ClassNotFoundException} if a serialized class cannot be found
+     */
+    public <T> CompletableFuture<T> load(DataGateway<T> gateway, String filePath) {
+        return CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            try {
+                return gateway.readFromFile(filePath);
+            } catch (ClassNotFoundException e) {
+                throw new CompletionException(e);
+            } finally {
+                loadTimings.put(new File(filePath).getName(), elapsedMillis(start));
+            }
+        }, executor);
+    }
+
+    /**
+     * Starts writing repository to filePath.
+     *
+     * @param gateway the gateway writing the file
+     * @param filePath the path of the file
+     * @param repository the repository to write
+     * @param <T> the repository type
+     * @return a future that completes once the file is replaced, or fails with an {@link UncheckedIOException}
+     *          if it cannot be written
+     */
+    public <T> CompletableFuture<Void> save(DataGateway<T> gateway, String filePath, T repository) {
+        return CompletableFuture.runAsync(() -> {
+            long start = System.nanoTime();
+            try {
+                gateway.saveToFile(filePath, repository);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                saveTimings.put(new File(filePath).getName(), elapsedMillis(start));
+            }
+        }, executor);
+    }
+
+    /**
+     * Waits for every future to complete.
+     *
+     * @param futures the futures to wait for
+     * @throws CompletionException wrapping the first failure, once all of them are done
+     */
+    public static void awaitAll(CompletableFuture<?>... futures) {
+        CompletableFuture.allOf(futures).join();
+    }
+
+    /**
+     * Returns the milliseconds taken to read each file by its last load.
+     *
+     * @return a read-only map from file names to milliseconds, ordered by file name
+     */
+    public Map<String, Long> getLoadTimings() {
+        return Collections.unmodifiableMap(loadTimings);
+    }
+
+    /**
+     * Returns the milliseconds taken to write each file by its last save.
+     *
+     * @return a read-only map from file names to milliseconds, ordered by file name
+     */
+    public Map<String, Long> getSaveTimings() {
+        return Collections.unmodifiableMap(saveTimings);
+    }
+
+    /**
+     * Stops the background threads once the loads and saves already started are done.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    private static long elapsedMillis(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+}
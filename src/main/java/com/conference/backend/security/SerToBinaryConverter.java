@@ -0,0 +1,75 @@
+package com.conference.backend.security;
+
+import com.conference.backend.conference_and_rooms.managers.ConferenceEventManager;
+import com.conference.backend.messenger.managers.MessengerManager;
+import com.conference.backend.users.UserManager;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Converts the {@code .ser} files of the repositories into the binary format of {@link BinaryDataGateway}, and
+ * the users and messages also into the snapshots of {@link MappedSnapshotGateway}.
+ *
+ * <p>
+ *     Usage: {@code SerToBinaryConverter [dao directory]}. Each {@code name.ser} is read and written alongside it as
+ *     {@code name.bin}, and {@code name.snap} for users and messages; the {@code .ser} files are left untouched.
+ * </p>
+ */
+public class SerToBinaryConverter {
+
+    private static final String DEFAULT_DAO_FILE_PATH = "phase2/src/dao/";
+
+    /**
+     * Converts user.ser, event.ser and messenger.ser in the given directory.
+     *
+     * @param args the directory holding the .ser files, if not the default
+     * @throws IOException if a file cannot be written
+     * @throws ClassNotFoundException if a serialized class cannot be found
+     */
+    public static void main(String[] args) throws IOException, ClassNotFoundException {
+        String directory = args.length > 0 ? args[0] : DEFAULT_DAO_FILE_PATH;
+        if (!directory.endsWith(File.separator) && !directory.endsWith("/")) {
+            directory += File.separator;
+        }
+
+        convert(directory, "user", new DataGateway<UserManager>(),
+                new BinaryDataGateway<>(EntityCodec.USER_MANAGER), ".bin");
+        convert(directory, "event", new DataGateway<ConferenceEventManager>(),
+                new BinaryDataGateway<>(EntityCodec.CONFERENCE_EVENT_MANAGER), ".bin");
+        convert(directory, "messenger", new DataGateway<MessengerManager>(),
+                new BinaryDataGateway<>(EntityCodec.MESSENGER_MANAGER), ".bin");
+        convert(directory, "user", new DataGateway<UserManager>(),
+                new MappedSnapshotGateway<>(EntityCodec.USER_MANAGER_SNAPSHOT), ".snap");
+        convert(directory, "messenger", new DataGateway<MessengerManager>(),
+                new MappedSnapshotGateway<>(EntityCodec.MESSENGER_MANAGER_SNAPSHOT), ".snap");
+    }
+
+    /**
+     * Converts {@code name.ser} in directory to {@code name} with extension.
+     *
+     * @param directory the directory holding the file
+     * @param name the name of the file without its extension
+     * @param source the gateway reading the .ser file
+     * @param target the gateway writing the converted file
+     * @param extension the extension of the converted file, such as {@code .bin}
+     * @param <T> the repository type
+     * @throws IOException if the .ser file cannot be read or the converted file cannot be written
+     * @throws ClassNotFoundException if a serialized class cannot be found
+     */
+    public static <T> void convert(String directory, String name, DataGateway<T> source,
+                                   DataGateway<T> target, String extension)
+            throws IOException, ClassNotFoundException {
+        File serFile = new File(directory + name + ".ser");
+        File binFile = new File(directory + name + extension);
+
+        T repository = source.readFromFile(serFile.getPath());
+        if (repository == null) {
+            throw new IOException("Could not read " + serFile);
+        }
+        target.saveToFile(binFile.getPath(), repository);
+
+        System.out.println(serFile + " (" + serFile.length() + " bytes) -> " + binFile + " ("
+                + binFile.length() + " bytes)");
+    }
+}
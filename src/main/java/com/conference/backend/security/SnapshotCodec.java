@@ -0,0 +1,36 @@
+package com.conference.backend.security;
+
+import java.io.IOException;
+
+/**
+ * Writes a repository of type {@code T} as a snapshot, and opens it from one, for {@link MappedSnapshotGateway}.
+ *
+ * @param <T> the repository type
+ */
+public interface SnapshotCodec<T> {
+    /**
+     * Returns the byte identifying the type of repository in the snapshot header, so that a snapshot of one
+     * repository is never opened as another.
+     *
+     * @return the byte identifying the type of repository
+     */
+    int getKind();
+
+    /**
+     * Writes the repository to writer as sections of keyed records.
+     *
+     * @param repository the repository to write
+     * @param writer the writer to write to
+     */
+    void encode(T repository, MappedSnapshotWriter writer);
+
+    /**
+     * Opens a repository written by {@link #encode}. The repository should decode records as they are used
+     * rather than up front.
+     *
+     * @param snapshot the snapshot to open
+     * @return the repository
+     * @throws IOException if the snapshot is malformed
+     */
+    T open(MappedSnapshot snapshot) throws IOException;
+}
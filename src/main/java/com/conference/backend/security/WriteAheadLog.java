@@ -0,0 +1,345 @@
+package com.conference.backend.security;
+
+import com.conference.backend.data.utils.base.Journal;
+import com.conference.backend.data.utils.base.Journaled;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * A {@link Journal} that appends each change to a log file, so that changes made since the last snapshot
+ * of the repositories survive the program crashing.
+ *
+ * <p>
+ *      Every record is {@code [length][crc32][op][type][key][entity]}, where the entity is the serialized
+ *      state of a single entity for a save, one change to it for a change, and empty for a delete. Records are
+ *      flushed as soon as they are appended. On startup the snapshots are read with {@link DataGateway} and then
+ *      the log is replayed on top of them; a record cut short by a crash fails its checksum and is dropped with
+ *      everything after it. Once the snapshots have been rewritten the log is {@link #truncate() truncated},
+ *      which keeps the log (and the replay) small.
+ * </p>
+ */
+public class WriteAheadLog implements Journal, Closeable {
+    private static final byte SAVE = 1;
+    private static final byte DELETE = 2;
+    private static final byte CHANGE = 3;
+
+    // Upper bound on the size of one record, so that a corrupt length is not mistaken for a huge record
+    private static final int MAX_RECORD_SIZE = 64 * 1024 * 1024;
+
+    private final File file;
+    private final int compactionThreshold;
+
+    private DataOutputStream output;
+    private int recordCount;
+
+    /**
+     * Creates a WriteAheadLog stored at {@code filePath}.
+     *
+     * @param filePath the path of the log file
+     * @param compactionThreshold the number of records after which {@link #needsCompaction()} returns {@code true}
+     */
+    public WriteAheadLog(String filePath, int compactionThreshold) {
+        this.file = new File(filePath);
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    /**
+     * Applies every record in the log to the given repositories and opens the log for appending.
+     * A damaged record at the end of the log, left by a crash part way through an append, is dropped.
+     * Records are applied in the order they were written, skipping the records of an entity that come before
+     * its latest save or delete. Each run of save and delete records of one type is handed to the repositories
+     * together, and each change record on its own. The repositories rebuild their indexes once every record has
+     * been applied.
+     *
+     * @param repositories the repositories to apply the records to
+     * @throws IOException if the log cannot be read or opened
+     * @throws ClassNotFoundException if a serialized class in the log cannot be found
+     */
+    public synchronized void replay(Journaled... repositories) throws IOException, ClassNotFoundException {
+        List<Record> records = new ArrayList<>();
+        Map<Map.Entry<String, String>, Integer> latestWholeByTypeAndKey = new HashMap<>();
+        long validLength = 0;
+        recordCount = 0;
+
+        if (file.exists()) {
+            try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                byte[] body;
+                while ((body = readRecord(input)) != null) {
+                    Record record = new Record(body);
+                    if (record.op != CHANGE) {
+                        latestWholeByTypeAndKey.put(record.typeAndKey, records.size());
+                    }
+                    records.add(record);
+                    validLength += 8 + body.length;
+                    recordCount++;
+                }
+            }
+            if (validLength < file.length()) {
+                try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                    raf.setLength(validLength);
+                }
+            }
+        }
+
+        // Read every entity before applying any, so that a log that cannot be read changes nothing
+        List<Record> live = new ArrayList<>(records.size());
+        for (int i = 0; i < records.size(); i++) {
+            Record record = records.get(i);
+            if (i >= latestWholeByTypeAndKey.getOrDefault(record.typeAndKey, -1)) {
+                record.readEntity();
+                live.add(record);
+            }
+        }
+
+        // Records are not reordered, since a record may change what an earlier record of another type applied
+        // (a broadcast delivered to an inbox that the user then deletes it from, say)
+        String runType = null;
+        Map<String, Object> run = new LinkedHashMap<>();
+        for (Record record : live) {
+            String type = record.typeAndKey.getKey();
+            if ((record.op == CHANGE || !type.equals(runType)) && !run.isEmpty()) {
+                replayRun(runType, run, repositories);
+                run = new LinkedHashMap<>();
+            }
+            if (record.op == CHANGE) {
+                for (Journaled repository : repositories) {
+                    repository.replayChange(type, record.typeAndKey.getValue(), record.entity);
+                }
+            } else {
+                runType = type;
+                run.put(record.typeAndKey.getValue(), record.entity);
+            }
+        }
+        if (!run.isEmpty()) {
+            replayRun(runType, run, repositories);
+        }
+        for (Journaled repository : repositories) {
+            repository.finishReplay();
+        }
+
+        output = openOutput(true);
+    }
+
+    /**
+     * Appends a record that the entity of the given type stored under key was added.
+     *
+     * @param type the type of record, unique to the repository storing the entity
+     * @param key the key the entity is stored under in its repository
+     * @param entity the current state of the entity
+     * @throws UncheckedIOException if the record cannot be written
+     */
+    @Override
+    public void recordSave(String type, String key, Serializable entity) {
+        appendSerialized(SAVE, type, key, entity);
+    }
+
+    /**
+     * Appends a record of one change to the entity of the given type stored under key.
+     *
+     * @param type the type of record, unique to the repository storing the entity
+     * @param key the key the entity is stored under in its repository
+     * @param change the change to the entity
+     * @throws UncheckedIOException if the record cannot be written
+     */
+    @Override
+    public void recordChange(String type, String key, Serializable change) {
+        appendSerialized(CHANGE, type, key, change);
+    }
+
+    /**
+     * Appends a record that the entity of the given type stored under key was removed.
+     *
+     * @param type the type of record, unique to the repository storing the entity
+     * @param key the key the entity was stored under in its repository
+     * @throws UncheckedIOException if the record cannot be written
+     */
+    @Override
+    public void recordDelete(String type, String key) {
+        try {
+            append(DELETE, type, key, new byte[0]);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Checks if enough records have been appended since the last truncation that the repositories should be
+     * written to their snapshots and the log truncated.
+     *
+     * @return {@code true} if the log holds at least as many records as the compaction threshold
+     */
+    public synchronized boolean needsCompaction() {
+        return recordCount >= compactionThreshold;
+    }
+
+    /**
+     * Returns the number of records in the log.
+     *
+     * @return the number of records in the log
+     */
+    public synchronized int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Empties the log. Should only be called once every repository has been written to its snapshot.
+     *
+     * @throws IOException if the log cannot be truncated
+     */
+    public synchronized void truncate() throws IOException {
+        if (output != null) {
+            output.close();
+        }
+        output = openOutput(false);
+        recordCount = 0;
+    }
+
+    /**
+     * Moves the log file aside to a new file next to it, named after it with {@code .failed}, and opens an empty
+     * log in its place. Used when the log cannot be replayed, so that the records it holds are kept for recovery
+     * rather than truncated by the next save.
+     *
+     * @return the file the log was moved to
+     * @throws IOException if the log cannot be moved or the empty log cannot be opened
+     */
+    public synchronized File moveAside() throws IOException {
+        if (output != null) {
+            output.close();
+            output = null;
+        }
+
+        // Never overwrite the records of an earlier failure
+        File failed = new File(file.getPath() + ".failed");
+        for (int i = 2; failed.exists(); i++) {
+            failed = new File(file.getPath() + ".failed." + i);
+        }
+        if (file.exists()) {
+            Files.move(file.toPath(), failed.toPath());
+        }
+
+        output = openOutput(false);
+        recordCount = 0;
+        return failed;
+    }
+
+    /**
+     * Closes the log.
+     *
+     * @throws IOException if the log cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (output != null) {
+            output.close();
+            output = null;
+        }
+    }
+
+    private void appendSerialized(byte op, String type, String key, Serializable entity) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream objectOutput = new ObjectOutputStream(bytes)) {
+                objectOutput.writeObject(entity);
+            }
+            append(op, type, key, bytes.toByteArray());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private synchronized void append(byte op, String type, String key, byte[] entity) throws IOException {
+        if (output == null) {
+            output = openOutput(true);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(entity.length + 32);
+        DataOutputStream body = new DataOutputStream(bytes);
+        body.writeByte(op);
+        body.writeUTF(type);
+        body.writeUTF(key);
+        body.write(entity);
+        body.flush();
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+
+        output.writeInt(bytes.size());
+        output.writeInt((int) crc.getValue());
+        bytes.writeTo(output);
+        output.flush();
+        recordCount++;
+    }
+
+    private DataOutputStream openOutput(boolean append) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, append)));
+    }
+
+    /**
+     * Reads the body of the next record, or returns {@code null} at the end of the log or at a damaged record.
+     */
+    private byte[] readRecord(DataInputStream input) throws IOException {
+        int length;
+        int checksum;
+        try {
+            length = input.readInt();
+            checksum = input.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        if (length <= 0 || length > MAX_RECORD_SIZE) {
+            return null;
+        }
+
+        byte[] body = new byte[length];
+        try {
+            input.readFully(body);
+        } catch (EOFException e) {
+            return null;
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        return (int) crc.getValue() == checksum ? body : null;
+    }
+
+    private static void replayRun(String type, Map<String, Object> entities, Journaled... repositories) {
+        for (Journaled repository : repositories) {
+            repository.replay(type, entities);
+        }
+    }
+
+    /**
+     * One record read from the log, whose entity is read only if the record is applied.
+     */
+    private static final class Record {
+        private final byte op;
+        private final Map.Entry<String, String> typeAndKey;
+        private final byte[] body;
+        private final int entityOffset;
+        private Object entity;
+
+        private Record(byte[] body) throws IOException {
+            ByteArrayInputStream bytes = new ByteArrayInputStream(body);
+            DataInputStream input = new DataInputStream(bytes);
+            this.op = input.readByte();
+            String type = input.readUTF();
+            String key = input.readUTF();
+            this.typeAndKey = new AbstractMap.SimpleImmutableEntry<>(type, key);
+            this.body = body;
+            this.entityOffset = body.length - bytes.available();
+        }
+
+        private void readEntity() throws IOException, ClassNotFoundException {
+            if (op == DELETE) {
+                return;
+            }
+            try (ObjectInputStream objectInput = new ObjectInputStream(
+                    new ByteArrayInputStream(body, entityOffset, body.length - entityOffset))) {
+                entity = objectInput.readObject();
+            }
+        }
+    }
+}
@@ -9,6 +9,7 @@ public class AppTrafficManager implements Serializable {
     private static final long serialVersionUID = 237842345054675024L;
 
     AppTrafficStats appTrafficStats;
+    private transient LoginRateLimiter loginRateLimiter;
 
     /**
      * Initializes this AppTrafficManager.
@@ -161,4 +162,43 @@ public class AppTrafficManager implements Serializable {
     public void updateNumOfSpeakersAddedAllTime() {
         appTrafficStats.setNumOfSpeakersAddedAllTime(appTrafficStats.getNumOfSpeakersAddedAllTime() + 1);
     }
+
+    /**
+     * Sets the LoginRateLimiter whose login attempt counts are reported. It is not saved with this AppTrafficManager,
+     * so the counts are those since the application started.
+     *
+     * @param loginRateLimiter the {@code LoginRateLimiter} every login attempt takes a token from
+     */
+    public void setLoginRateLimiter(LoginRateLimiter loginRateLimiter) {
+        this.loginRateLimiter = loginRateLimiter;
+    }
+
+    /**
+     * Fetches the statistic for the number of login attempts allowed to check their password this session.
+     *
+     * @return the number of login attempts allowed, or 0 if there is no LoginRateLimiter
+     */
+    public long getLoginAttemptsAllowed() {
+        return loginRateLimiter == null ? 0 : loginRateLimiter.getAllowedCount();
+    }
+
+    /**
+     * Fetches the statistic for the number of login attempts refused this session because their email was tried too
+     * often.
+     *
+     * @return the number of login attempts refused for their email, or 0 if there is no LoginRateLimiter
+     */
+    public long getLoginAttemptsThrottledByEmail() {
+        return loginRateLimiter == null ? 0 : loginRateLimiter.getThrottledByEmailCount();
+    }
+
+    /**
+     * Fetches the statistic for the number of login attempts refused this session because too many emails were tried
+     * at once.
+     *
+     * @return the number of login attempts refused for all emails, or 0 if there is no LoginRateLimiter
+     */
+    public long getLoginAttemptsThrottledGlobally() {
+        return loginRateLimiter == null ? 0 : loginRateLimiter.getThrottledGloballyCount();
+    }
 }
@@ -0,0 +1,174 @@
+package com.conference.backend.users;
+
+import com.conference.backend.data.utils.TokenBucket;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits how often passwords are checked, so that a burst of bad login attempts cannot use up the time spent hashing
+ * passwords for everyone else.
+ *
+ * <p>
+ *     Every attempt takes a token from one {@link TokenBucket} shared by all emails, then from a bucket for its
+ *     email. An attempt is refused without checking the password if either bucket is empty. Attempts refused by the
+ *     shared bucket never touch an email's bucket, so a flood of emails cannot grow the buckets faster than the
+ *     shared bucket allows. Buckets of emails that have not been tried for long enough to be full again are evicted
+ *     once there are many of them, at most once per email refill interval.
+ * </p>
+ */
+public class LoginRateLimiter {
+    /**
+     * The attempts allowed in a burst for one email if none is given
+     */
+    public static final int DEFAULT_ATTEMPTS_PER_EMAIL = 5;
+
+    /**
+     * The time taken to allow one more attempt for an email if none is given
+     */
+    public static final Duration DEFAULT_EMAIL_REFILL_INTERVAL = Duration.ofSeconds(12);
+
+    /**
+     * The attempts allowed in a burst for all emails together if none is given
+     */
+    public static final int DEFAULT_GLOBAL_ATTEMPTS = 40;
+
+    /**
+     * The time taken to allow one more attempt for all emails together if none is given
+     */
+    public static final Duration DEFAULT_GLOBAL_REFILL_INTERVAL = Duration.ofMillis(50);
+
+    // The number of email buckets above which full ones are evicted
+    private static final int EVICTION_THRESHOLD = 10_000;
+
+    private final Map<String, TokenBucket> bucketsByEmail;
+    private final TokenBucket globalBucket;
+    private final int attemptsPerEmail;
+    private final Duration emailRefillInterval;
+    private final Clock clock;
+
+    // The time in epoch millis before which the email buckets are not swept again
+    private final AtomicLong nextEvictionMillis;
+
+    private final LongAdder allowed;
+    private final LongAdder throttledByEmail;
+    private final LongAdder throttledGlobally;
+
+    /**
+     * Initializes this LoginRateLimiter with the default limits.
+     */
+    public LoginRateLimiter() {
+        this(DEFAULT_ATTEMPTS_PER_EMAIL, DEFAULT_EMAIL_REFILL_INTERVAL, DEFAULT_GLOBAL_ATTEMPTS,
+                DEFAULT_GLOBAL_REFILL_INTERVAL, Clock.systemUTC());
+    }
+
+    /**
+     * Initializes this LoginRateLimiter.
+     *
+     * @param attemptsPerEmail the attempts allowed in a burst for one email
+     * @param emailRefillInterval the time taken to allow one more attempt for an email
+     * @param globalAttempts the attempts allowed in a burst for all emails together
+     * @param globalRefillInterval the time taken to allow one more attempt for all emails together
+     * @param clock the clock refills are measured with
+     */
+    public LoginRateLimiter(int attemptsPerEmail, Duration emailRefillInterval, int globalAttempts,
+                            Duration globalRefillInterval, Clock clock) {
+        this.bucketsByEmail = new ConcurrentHashMap<>();
+        this.globalBucket = new TokenBucket(globalAttempts, globalRefillInterval, clock);
+        this.attemptsPerEmail = attemptsPerEmail;
+        this.emailRefillInterval = emailRefillInterval;
+        this.clock = clock;
+        this.nextEvictionMillis = new AtomicLong(Long.MIN_VALUE);
+        this.allowed = new LongAdder();
+        this.throttledByEmail = new LongAdder();
+        this.throttledGlobally = new LongAdder();
+    }
+
+    /**
+     * Takes a login attempt for email, if one is allowed.
+     *
+     * @param email the email being logged in to
+     * @return {@code true} if the password may be checked
+     */
+    public boolean tryAcquire(String email) {
+        if (!globalBucket.tryAcquire()) {
+            throttledGlobally.increment();
+            return false;
+        }
+
+        String key = email == null ? "" : email.trim().toLowerCase(Locale.ROOT);
+        if (bucketsByEmail.size() > EVICTION_THRESHOLD) {
+            evictIdleIfDue();
+        }
+        TokenBucket emailBucket = bucketsByEmail.computeIfAbsent(key,
+                k -> new TokenBucket(attemptsPerEmail, emailRefillInterval, clock));
+        if (!emailBucket.tryAcquire()) {
+            // The password is not checked, so the attempt does not count against other emails
+            globalBucket.release();
+            throttledByEmail.increment();
+            return false;
+        }
+        allowed.increment();
+        return true;
+    }
+
+    /**
+     * Sweeps the email buckets with {@link #evictIdle()}, unless they were swept less than an email refill interval
+     * ago, so that a flood of new emails does not sweep them on every attempt.
+     */
+    private void evictIdleIfDue() {
+        long now = clock.millis();
+        long next = nextEvictionMillis.get();
+        if (now >= next && nextEvictionMillis.compareAndSet(next, now + emailRefillInterval.toMillis())) {
+            evictIdle();
+        }
+    }
+
+    /**
+     * Removes the buckets of emails that are full, which are the same as new buckets.
+     */
+    public void evictIdle() {
+        bucketsByEmail.values().removeIf(TokenBucket::isFull);
+    }
+
+    /**
+     * Fetches the number of emails with a bucket, including full buckets not yet evicted.
+     *
+     * @return the number of email buckets
+     */
+    public int size() {
+        return bucketsByEmail.size();
+    }
+
+    /**
+     * Fetches the number of login attempts allowed.
+     *
+     * @return the number of attempts allowed
+     */
+    public long getAllowedCount() {
+        return allowed.sum();
+    }
+
+    /**
+     * Fetches the number of login attempts refused because their email was tried too often.
+     *
+     * @return the number of attempts refused for their email
+     */
+    public long getThrottledByEmailCount() {
+        return throttledByEmail.sum();
+    }
+
+    /**
+     * Fetches the number of login attempts refused because too many emails were tried at once.
+     *
+     * @return the number of attempts refused for all emails
+     */
+    public long getThrottledGloballyCount() {
+        return throttledGlobally.sum();
+    }
+}
@@ -0,0 +1,142 @@
+package com.conference.backend.users;
+
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stores the logged-in sessions of many {@link User}s at once, so that several kiosks can share one set of
+ * managers.
+ *
+ * <p>
+ *     Each session is identified by a random token and maps to the id of its {@link User}. A session expires once
+ *     it has not been used for the idle timeout; resolving a session extends it. Expired sessions are evicted when
+ *     they are next resolved, and all of them whenever a session is created.
+ * </p>
+ */
+public class SessionRegistry {
+    /**
+     * The idle timeout of sessions if none is given
+     */
+    public static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(30);
+
+    private static final int TOKEN_BYTES = 32;
+
+    private final Map<String, Session> sessions;
+    private final Duration idleTimeout;
+    private final Clock clock;
+    private final SecureRandom random;
+
+    /**
+     * A logged-in {@link User} and when their session expires.
+     */
+    private static final class Session {
+        private final String userId;
+        private volatile long expiresAtMillis;
+
+        private Session(String userId, long expiresAtMillis) {
+            this.userId = userId;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+
+    /**
+     * Initializes this SessionRegistry with the {@link #DEFAULT_IDLE_TIMEOUT}.
+     */
+    public SessionRegistry() {
+        this(DEFAULT_IDLE_TIMEOUT, Clock.systemUTC());
+    }
+
+    /**
+     * Initializes this SessionRegistry.
+     *
+     * @param idleTimeout how long a session lasts without being used
+     * @param clock the clock expiry is measured with
+     */
+    public SessionRegistry(Duration idleTimeout, Clock clock) {
+        this.sessions = new ConcurrentHashMap<>();
+        this.idleTimeout = idleTimeout;
+        this.clock = clock;
+        this.random = new SecureRandom();
+    }
+
+    /**
+     * Starts a session for the {@link User} with this id.
+     *
+     * @param userId the id of the logged-in {@link User}
+     * @return the token identifying the new session
+     */
+    public String createSession(String userId) {
+        evictExpired();
+
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        sessions.put(token, new Session(userId, clock.millis() + idleTimeout.toMillis()));
+        return token;
+    }
+
+    /**
+     * Fetches the id of the {@link User} logged in to a session, extending the session.
+     *
+     * @param token the token of the session
+     * @return the id of the {@link User}, or {@code null} if the session does not exist or has expired
+     */
+    public String resolve(String token) {
+        if (token == null) {
+            return null;
+        }
+        Session session = sessions.get(token);
+        if (session == null) {
+            return null;
+        }
+
+        long now = clock.millis();
+        if (session.expiresAtMillis <= now) {
+            sessions.remove(token, session);
+            return null;
+        }
+        session.expiresAtMillis = now + idleTimeout.toMillis();
+        return session.userId;
+    }
+
+    /**
+     * Ends a session.
+     *
+     * @param token the token of the session
+     */
+    public void invalidate(String token) {
+        if (token != null) {
+            sessions.remove(token);
+        }
+    }
+
+    /**
+     * Ends every session of the {@link User} with this id, such as when the {@link User} is deleted.
+     *
+     * @param userId the id of the {@link User}
+     */
+    public void invalidateUser(String userId) {
+        sessions.values().removeIf(session -> session.userId.equals(userId));
+    }
+
+    /**
+     * Removes every session that has expired.
+     */
+    public void evictExpired() {
+        long now = clock.millis();
+        sessions.values().removeIf(session -> session.expiresAtMillis <= now);
+    }
+
+    /**
+     * Fetches the number of sessions stored, including expired sessions not yet evicted.
+     *
+     * @return the number of sessions
+     */
+    public int size() {
+        return sessions.size();
+    }
+}
@@ -4,18 +4,36 @@ import com.conference.backend.conference_and_rooms.entities.ConferenceEvent;
 import com.conference.backend.data.utils.base.AbstractEntity;
 import com.conference.backend.data.utils.Role;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
-import java.util.Objects;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
+import java.util.*;
 
 /**
  * {@link AbstractEntity} plus common user details representing a User.
  *
+ * <p>
+ *     The conference events and contacts are kept in insertion-ordered sets, but are serialized as the lists that
+ *     earlier versions stored, so files written by either version can be read by the other. The sets change only
+ *     while holding this user's monitor, and are handed out as read-only views; a caller iterating a view while
+ *     the user may change holds the same monitor.
+ * </p>
  */
 public class User extends AbstractEntity {
     private static final long serialVersionUID = 283746827364324L;
 
+    // The serialized form, which keeps the fields of earlier versions
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("email", String.class),
+            new ObjectStreamField("passwordHash", String.class),
+            new ObjectStreamField("firstName", String.class),
+            new ObjectStreamField("lastName", String.class),
+            new ObjectStreamField("conferenceEvents", List.class),
+            new ObjectStreamField("contactsList", List.class),
+            new ObjectStreamField("roles", List.class)
+    };
+
     private String email;
 
     private String passwordHash;
@@ -24,9 +42,9 @@ public class User extends AbstractEntity {
 
     private String lastName;
 
-    private List<String> conferenceEvents;
+    private Set<String> conferenceEvents;
 
-    private List<String> contactsList;
+    private Set<String> contactsList;
 
     // the roles of this User
     private List<Role> roles;
@@ -46,8 +64,8 @@ public class User extends AbstractEntity {
         this.passwordHash = passwordHash;
         this.firstName = firstName;
         this.lastName = lastName;
-        this.conferenceEvents = new ArrayList<>();
-        this.contactsList = new ArrayList<>();
+        this.conferenceEvents = new LinkedHashSet<>();
+        this.contactsList = new LinkedHashSet<>();
         this.roles = Arrays.asList(roles);
     }
 
@@ -61,8 +79,10 @@ public class User extends AbstractEntity {
         this(other.getEmail(), other.getPasswordHash(), other.getFirstName(),
                 other.getLastName());
         this.setId(other.getId());
-        this.conferenceEvents = other.getConferenceEvents();
-        this.contactsList = other.getContactsList();
+        synchronized (other) {
+            this.conferenceEvents = new LinkedHashSet<>(other.conferenceEvents);
+            this.contactsList = new LinkedHashSet<>(other.contactsList);
+        }
         this.roles = other.getRoles();
     }
 
@@ -71,8 +91,8 @@ public class User extends AbstractEntity {
      */
     public User() {
         // default constructor
-        this.conferenceEvents = new ArrayList<>();
-        this.contactsList = new ArrayList<>();
+        this.conferenceEvents = new LinkedHashSet<>();
+        this.contactsList = new LinkedHashSet<>();
         this.roles = new ArrayList<>();
     }
 
@@ -149,21 +169,52 @@ public class User extends AbstractEntity {
     }
 
     /**
-     * Get a list of all the {@link ConferenceEvent}s this {@link User} is attending
+     * Get all the {@link ConferenceEvent}s this {@link User} is attending, in the order they signed up. Iterate it
+     * holding this {@link User}'s monitor if the user may change meanwhile.
+     *
+     * @return a read-only view of the names of the {@link ConferenceEvent}s
+     */
+    public Set<String> getConferenceEvents() {
+        return Collections.unmodifiableSet(conferenceEvents);
+    }
+
+    /**
+     * Checks if this {@link User} is attending the {@link ConferenceEvent}, without copying their events.
+     *
+     * @param conferenceEventId the name of the {@link ConferenceEvent}
+     * @return {@code true} if the user is attending the event
+     */
+    public synchronized boolean isAttending(String conferenceEventId) {
+        return this.conferenceEvents.contains(conferenceEventId);
+    }
+
+    /**
+     * Gets the number of {@link ConferenceEvent}s this {@link User} is attending, without copying their events.
      *
-     * @return a list of {@link ConferenceEvent}s
+     * @return the number of events
      */
-    public ArrayList<String> getConferenceEvents() {
-        return new ArrayList<>(conferenceEvents);
+    public synchronized int getConferenceEventCount() {
+        return this.conferenceEvents.size();
     }
 
     /**
-     * Gets the Contacts list of this {@link User}
+     * Gets the Contacts list of this {@link User}, in the order they were added. Iterate it holding this
+     * {@link User}'s monitor if the user may change meanwhile.
      *
-     * @return the contacts list
+     * @return a read-only view of the contacts list
      */
-    public ArrayList<String> getContactsList() {
-        return new ArrayList<>(contactsList);
+    public Set<String> getContactsList() {
+        return Collections.unmodifiableSet(contactsList);
+    }
+
+    /**
+     * Checks if the {@link User} with the given id is one of this user's contacts, without copying the contacts.
+     *
+     * @param userId the id of the user
+     * @return {@code true} if the user is a contact
+     */
+    public synchronized boolean hasContact(String userId) {
+        return this.contactsList.contains(userId);
     }
 
     /**
@@ -172,13 +223,8 @@ public class User extends AbstractEntity {
      * @param conferenceEventId The conferenceEventId to add
      * @return {@code true} if {@code role} was added successfully
      */
-    public boolean addConferenceEventToConferenceEvents(String conferenceEventId) {
-        if (this.conferenceEvents.contains(conferenceEventId)) {
-            return false;
-        } else {
-            this.conferenceEvents.add(conferenceEventId);
-        }
-        return true;
+    public synchronized boolean addConferenceEventToConferenceEvents(String conferenceEventId) {
+        return this.conferenceEvents.add(conferenceEventId);
     }
 
     /**
@@ -187,13 +233,8 @@ public class User extends AbstractEntity {
      * @param userId the id of the user
      * @return {@code true} if {@code userId} was added successfully
      */
-    public boolean addContactToContacts(String userId) {
-        if (this.contactsList.contains(userId)) {
-            return false;
-        } else {
-            this.contactsList.add(userId);
-        }
-        return true;
+    public synchronized boolean addContactToContacts(String userId) {
+        return this.contactsList.add(userId);
     }
 
     /**
@@ -202,7 +243,7 @@ public class User extends AbstractEntity {
      * @param conferenceId the id of the {@link ConferenceEvent}
      * @return {@code true} if {@code userId} was removed successfully
      */
-    public boolean removeConferenceEventFromConferenceEvents(String conferenceId) {
+    public synchronized boolean removeConferenceEventFromConferenceEvents(String conferenceId) {
         return this.conferenceEvents.remove(conferenceId);
     }
 
@@ -212,12 +253,20 @@ public class User extends AbstractEntity {
      * @param userId the id of the {@code User}
      * @return {@code true} if {@code userId} was removed successfully
      */
-    public boolean removeContactFromContacts(String userId) {
+    public synchronized boolean removeContactFromContacts(String userId) {
         return this.contactsList.remove(userId);
     }
 
-    public void setContactsList(ArrayList<String> contactsList) {
-        this.contactsList = contactsList;
+    /**
+     * Replaces the contacts list of this {@link User}, dropping any duplicates
+     *
+     * @param contactsList the ids of the contacts
+     */
+    public synchronized void setContactsList(Collection<String> contactsList) {
+        // Changed in place, so that views already handed out see the new contacts
+        List<String> replacement = new ArrayList<>(contactsList);
+        this.contactsList.clear();
+        this.contactsList.addAll(replacement);
     }
 
     /**
@@ -228,6 +277,16 @@ public class User extends AbstractEntity {
         return new ArrayList<>(roles);
     }
 
+    /**
+     * Checks if this user has the given {@link Role} without copying the list of roles.
+     *
+     * @param role the {@link Role} to check for
+     * @return {@code true} if this user has {@code role}
+     */
+    public boolean hasRole(Role role) {
+        return this.roles.contains(role);
+    }
+
     /**
      * Adds a {@link Role} to this user.
      *
@@ -235,7 +294,7 @@ public class User extends AbstractEntity {
      * @return {@code true} if {@code role} was added successfully
      */
     public boolean addRole(Role role) {
-        if (this.getRoles().contains(role)) {
+        if (this.roles.contains(role)) {
             return false;
         }
         this.roles.add(role);
@@ -272,10 +331,8 @@ public class User extends AbstractEntity {
      * @return {@code true} if {@link User} has one of the roles passed.
      */
     public boolean hasAnyOneOfRoles(Role... roles) {
-        List<Role> currentUserRoles = this.getRoles();
-
         for (Role r : roles) {
-            if (currentUserRoles.contains(r)) {
+            if (this.roles.contains(r)) {
                 return true;
             }
         }
@@ -301,4 +358,46 @@ public class User extends AbstractEntity {
     public String toString() {
         return "User [" + "email=" + email + ", firstName=" + firstName + ", lastName=" + lastName + "]";
     }
+
+    /**
+     * Writes this {@link User} to a stream in the serialized form of earlier versions, with the conference events
+     * and contacts as lists
+     *
+     * @param out the stream to write this {@link User} to
+     * @throws IOException if the stream cannot be written
+     */
+    private synchronized void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("email", email);
+        fields.put("passwordHash", passwordHash);
+        fields.put("firstName", firstName);
+        fields.put("lastName", lastName);
+        fields.put("conferenceEvents", new ArrayList<>(conferenceEvents));
+        fields.put("contactsList", new ArrayList<>(contactsList));
+        fields.put("roles", roles);
+        out.writeFields();
+    }
+
+    /**
+     * Restores this {@link User} from a stream, copying the stored lists into sets
+     *
+     * @param in the stream to read this {@link User} from
+     * @throws IOException if the stream cannot be read
+     * @throws ClassNotFoundException if a serialized class cannot be found
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        email = (String) fields.get("email", null);
+        passwordHash = (String) fields.get("passwordHash", null);
+        firstName = (String) fields.get("firstName", null);
+        lastName = (String) fields.get("lastName", null);
+        conferenceEvents = toSet((List<String>) fields.get("conferenceEvents", null));
+        contactsList = toSet((List<String>) fields.get("contactsList", null));
+        roles = (List<Role>) fields.get("roles", null);
+    }
+
+    private static Set<String> toSet(List<String> values) {
+        return values == null ? new LinkedHashSet<>() : new LinkedHashSet<>(values);
+    }
 }
@@ -0,0 +1,88 @@
+package com.conference.backend.users;
+
+import com.conference.backend.data.utils.Role;
+
+import java.io.Serializable;
+
+/**
+ * One change to a {@link User}, as recorded to the journal in place of the whole user.
+ */
+final class UserChange implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private enum Kind {
+        ROLE_ADDED, PASSWORD_HASH_SET, EVENT_ADDED, EVENT_REMOVED
+    }
+
+    private final Kind kind;
+    private final Role role;
+    private final String value;
+
+    private UserChange(Kind kind, Role role, String value) {
+        this.kind = kind;
+        this.role = role;
+        this.value = value;
+    }
+
+    /**
+     * Constructs the change of a {@link Role} being added to the user.
+     *
+     * @param role the {@link Role} added
+     * @return the change
+     */
+    static UserChange roleAdded(Role role) {
+        return new UserChange(Kind.ROLE_ADDED, role, null);
+    }
+
+    /**
+     * Constructs the change of the user's password hash being replaced.
+     *
+     * @param passwordHash the new password hash
+     * @return the change
+     */
+    static UserChange passwordHashSet(String passwordHash) {
+        return new UserChange(Kind.PASSWORD_HASH_SET, null, passwordHash);
+    }
+
+    /**
+     * Constructs the change of a conference event being added to the user's events.
+     *
+     * @param eventName the name of the conference event
+     * @return the change
+     */
+    static UserChange eventAdded(String eventName) {
+        return new UserChange(Kind.EVENT_ADDED, null, eventName);
+    }
+
+    /**
+     * Constructs the change of a conference event being removed from the user's events.
+     *
+     * @param eventName the name of the conference event
+     * @return the change
+     */
+    static UserChange eventRemoved(String eventName) {
+        return new UserChange(Kind.EVENT_REMOVED, null, eventName);
+    }
+
+    /**
+     * Makes this change to a {@link User}.
+     *
+     * @param user the {@link User} to change
+     */
+    void applyTo(User user) {
+        switch (kind) {
+            case ROLE_ADDED:
+                user.addRole(role);
+                break;
+            case PASSWORD_HASH_SET:
+                user.setPasswordHash(value);
+                break;
+            case EVENT_ADDED:
+                user.addConferenceEventToConferenceEvents(value);
+                break;
+            case EVENT_REMOVED:
+                user.removeConferenceEventFromConferenceEvents(value);
+                break;
+        }
+    }
+}
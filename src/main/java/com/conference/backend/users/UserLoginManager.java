@@ -1,53 +1,201 @@
 package com.conference.backend.users;
 
 import com.conference.backend.data.utils.Role;
+import com.conference.backend.exception.LoginThrottledException;
 import com.conference.backend.exception.UserNotFoundException;
-import com.conference.backend.security.PBKDF2WithHmacSHA1Hasher;
+import com.conference.backend.security.Hasher;
+import com.conference.backend.security.HashingService;
+import com.conference.backend.security.PBKDF2Hasher;
 
 import java.security.NoSuchAlgorithmException;
 import java.security.spec.InvalidKeySpecException;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Stores {@link UserManager} to save/delete {@link User}s here
  *
  * <ul>
  * <li>Takes care of signup/deleting users
- * <li>Stores Logged-in user</li>
+ * <li>Stores the session of the logged-in user</li>
  * </ul>
+ *
+ * <p>
+ *     Each UserLoginManager is one client, such as a kiosk, with its own session in a {@link SessionRegistry}.
+ *     Clients sharing a registry and a {@link UserManager} can have different users logged in at the same time.
+ *     A session may expire while its {@link User} is part way through a menu action, so the {@link User} the action
+ *     began with stays current until the action ends. The session is still resolved on every use, so that it does
+ *     not go idle while the action goes on.
+ * </p>
+ *
+ * <p>
+ *     The {@code Async} methods hash passwords on a {@link HashingService}, so that a client can take other requests
+ *     while a login or sign-up is being hashed.
+ * </p>
+ *
+ * <p>
+ *     A password whose stored hash was made with weaker parameters than the {@link Hasher}'s is hashed again when its
+ *     {@link User} logs in successfully.
+ * </p>
+ *
+ * <p>
+ *     If given a {@link LoginRateLimiter}, every login attempt takes a token from it before the password is checked,
+ *     and is refused with a {@link LoginThrottledException} if there is none.
+ * </p>
  */
 public class UserLoginManager {
     private UserManager userRepository;
-    private User currentUser;
-    private PBKDF2WithHmacSHA1Hasher pbkdf2WithHmacSHA1Hasher;
+    private final SessionRegistry sessionRegistry;
+    private volatile String sessionToken;
+    private volatile String actionUserId;
+    private final Hasher hasher;
+    private final HashingService hashingService;
+    private final LoginRateLimiter loginRateLimiter;
 
     /**
-     * Initializes this UserLogin Manager.
+     * Initializes this UserLogin Manager with a {@link SessionRegistry} of its own.
      *
      * @param userRepository The {@code UserManager} that stores all the users.
      */
     public UserLoginManager(UserManager userRepository) {
+        this(userRepository, new SessionRegistry());
+    }
+
+    /**
+     * Initializes this UserLogin Manager as one client of a shared {@link SessionRegistry}.
+     *
+     * @param userRepository The {@code UserManager} that stores all the users.
+     * @param sessionRegistry The {@code SessionRegistry} shared by every client of userRepository.
+     */
+    public UserLoginManager(UserManager userRepository, SessionRegistry sessionRegistry) {
+        this(userRepository, sessionRegistry, HashingService.shared());
+    }
+
+    /**
+     * Initializes this UserLogin Manager as one client of a shared {@link SessionRegistry}, hashing passwords
+     * asynchronously on the given {@link HashingService}.
+     *
+     * @param userRepository The {@code UserManager} that stores all the users.
+     * @param sessionRegistry The {@code SessionRegistry} shared by every client of userRepository.
+     * @param hashingService The {@code HashingService} that hashes passwords for the {@code Async} methods.
+     */
+    public UserLoginManager(UserManager userRepository, SessionRegistry sessionRegistry,
+                            HashingService hashingService) {
+        this(userRepository, sessionRegistry, hashingService, new PBKDF2Hasher());
+    }
+
+    /**
+     * Initializes this UserLogin Manager as one client of a shared {@link SessionRegistry}, hashing passwords with
+     * the given {@link Hasher}, such as one from {@link PBKDF2Hasher#calibrate}.
+     *
+     * @param userRepository The {@code UserManager} that stores all the users.
+     * @param sessionRegistry The {@code SessionRegistry} shared by every client of userRepository.
+     * @param hashingService The {@code HashingService} that hashes passwords for the {@code Async} methods.
+     * @param hasher The {@code Hasher} that hashes new passwords and checks stored ones.
+     */
+    public UserLoginManager(UserManager userRepository, SessionRegistry sessionRegistry,
+                            HashingService hashingService, Hasher hasher) {
+        this(userRepository, sessionRegistry, hashingService, hasher, null);
+    }
+
+    /**
+     * Initializes this UserLogin Manager as one client of a shared {@link SessionRegistry}, limiting login attempts
+     * with a {@link LoginRateLimiter} that should be shared by every client too.
+     *
+     * @param userRepository The {@code UserManager} that stores all the users.
+     * @param sessionRegistry The {@code SessionRegistry} shared by every client of userRepository.
+     * @param hashingService The {@code HashingService} that hashes passwords for the {@code Async} methods.
+     * @param hasher The {@code Hasher} that hashes new passwords and checks stored ones.
+     * @param loginRateLimiter The {@code LoginRateLimiter} login attempts take tokens from, or {@code null} for no
+     *                         limit.
+     */
+    public UserLoginManager(UserManager userRepository, SessionRegistry sessionRegistry,
+                            HashingService hashingService, Hasher hasher, LoginRateLimiter loginRateLimiter) {
         this.userRepository = userRepository;
-        this.pbkdf2WithHmacSHA1Hasher = new PBKDF2WithHmacSHA1Hasher();
+        this.sessionRegistry = sessionRegistry;
+        this.hashingService = hashingService;
+        this.hasher = hasher;
+        this.loginRateLimiter = loginRateLimiter;
     }
 
     /**
-     * Sets the logged-in {@link User}.
+     * Sets the logged-in {@link User}, ending the previous session of this client and starting a new one.
      *
-     * @param user The current logged-in {@link User}.
+     * @param user The current logged-in {@link User}, or {@code null} to log out.
      */
     public void setUser(User user) {
-        this.currentUser = user;
+        actionUserId = null;
+        sessionRegistry.invalidate(sessionToken);
+        sessionToken = (user == null) ? null : sessionRegistry.createSession(user.getId());
     }
 
     /**
-     * Fetches the id of the current logged-in {@link User}.
+     * Fetches the token of the session of this client.
      *
-     * @return The id of the current logged-in {@link User}.
+     * @return The token of the session, or {@code null} if no {@link User} has logged in.
+     */
+    public String getSessionToken() {
+        return sessionToken;
+    }
+
+    /**
+     * Resumes an existing session on this client, such as one started on another kiosk.
+     *
+     * @param sessionToken The token of the session.
+     * @return {@code true} if the session exists and has not expired.
+     */
+    public boolean resumeSession(String sessionToken) {
+        if (sessionRegistry.resolve(sessionToken) == null) {
+            return false;
+        }
+        this.sessionToken = sessionToken;
+        return true;
+    }
+
+    /**
+     * Fetches the {@link SessionRegistry} the session of this client is stored in.
+     *
+     * @return The {@code SessionRegistry}.
+     */
+    public SessionRegistry getSessionRegistry() {
+        return sessionRegistry;
+    }
+
+    /**
+     * Fetches the id of the {@link User} logged in to the session of this client, which extends the session. During a
+     * menu action, this is the {@link User} the action began with, even if the session has since expired.
+     *
+     * @return The id of the current logged-in {@link User}, or {@code ""} if there is none or the session expired.
      */
     public String getCurrentUserId() {
-        return (currentUser == null) ? "" : currentUser.getId();
+        // Resolve even during an action, so that using a sub-menu keeps the session from going idle
+        String userId = sessionRegistry.resolve(sessionToken);
+        String pinned = actionUserId;
+        if (pinned != null) {
+            userId = pinned;
+        }
+        return (userId == null) ? "" : userId;
+    }
+
+    /**
+     * Begins a menu action, resolving the session of this client once. Until {@link #endAction()}, the
+     * {@link User} logged in now stays current even if the session expires.
+     *
+     * @return The id of the current logged-in {@link User}, or {@code ""} if there is none or the session expired.
+     */
+    public String beginAction() {
+        actionUserId = null;
+        String userId = this.getCurrentUserId();
+        actionUserId = userId.equals("") ? null : userId;
+        return userId;
+    }
+
+    /**
+     * Ends the menu action begun by {@link #beginAction()}, after which the session is resolved on every use again.
+     */
+    public void endAction() {
+        actionUserId = null;
     }
 
     /**
@@ -74,10 +222,10 @@ public class UserLoginManager {
      * <strong>Code from:</strong>
      * @see <a href="https://bit.ly/2VfAWIj">https://bit.ly/2VfAWIj</a>
      * @param plainText Plaintext password from account creation
-     * @return a {@code String} PBKDF2WithHmacSHA1 hashed password
+     * @return a {@code String} hashed password
      */
     public String hashPassword(String plainText) {
-        return pbkdf2WithHmacSHA1Hasher.generateStrongPasswordHash(plainText);
+        return hasher.generateStrongPasswordHash(plainText);
     }
 
     /**
@@ -88,10 +236,31 @@ public class UserLoginManager {
      * @see <a href="https://bit.ly/2VfAWIj">https://bit.ly/2VfAWIj</a>
      * @param plainText Plaintext password from login request
      * @param passwordHash The {@link User}'s stored {@code passwordHash}
-     * @return {@code true} if the password matches using PBKDF2WithHmacSHA1
+     * @return {@code true} if the password matches
      */
     public boolean checkPassword(String plainText, String passwordHash) {
-        return pbkdf2WithHmacSHA1Hasher.validatePassword(plainText, passwordHash);
+        return hasher.validatePassword(plainText, passwordHash);
+    }
+
+    /**
+     * Starts generating a string representing an account password to be stored, on the {@link HashingService}.
+     *
+     * @param plainText Plaintext password from account creation
+     * @return a future of the {@code String} hashed password
+     */
+    public CompletableFuture<String> hashPasswordAsync(String plainText) {
+        return hasher.generateStrongPasswordHashAsync(plainText, hashingService);
+    }
+
+    /**
+     * Starts verifying a plaintext password against {@code passwordHash}, on the {@link HashingService}.
+     *
+     * @param plainText Plaintext password from login request
+     * @param passwordHash The {@link User}'s stored {@code passwordHash}
+     * @return a future of {@code true} if the password matches
+     */
+    public CompletableFuture<Boolean> checkPasswordAsync(String plainText, String passwordHash) {
+        return hasher.validatePasswordAsync(plainText, passwordHash, hashingService);
     }
 
 
@@ -107,6 +276,7 @@ public class UserLoginManager {
             throw new UserNotFoundException("User@" + user.getId() + " was not found!");
         }
         userRepository.delete(user);
+        sessionRegistry.invalidateUser(user.getId());
     }
 
 
@@ -126,9 +296,27 @@ public class UserLoginManager {
             return false;
         }
 
-        userRepository.save(userRepository.createNew(email,
-                hashPassword(plainTextPassword), firstName, lastName, roles));
-        return true;
+        return saveHashedUser(email, hashPassword(plainTextPassword), firstName, lastName, roles);
+    }
+
+    /**
+     * A helper to persist a {@link User} whose password is already hashed into the repository.
+     *
+     * @param email The email of this {@code User}
+     * @param passwordHash The hashed password of this {@code User}
+     * @param firstName The first name of this {@code User}
+     * @param lastName The last name of this {@code User}
+     * @param roles The roles of this {@code User}
+     * @return {@code true} if {@code User} was saved successfully
+     */
+    private boolean saveHashedUser(String email, String passwordHash,
+                                   String firstName, String lastName, Role... roles) {
+        userRepository.save(userRepository.createNew(email, passwordHash, firstName, lastName, roles));
+        // Another client may have signed up with this email first; every hash has its own salt, so the saved
+        // user is this one iff it has this hash
+        return userRepository.getUserByEmail(email)
+                .map(user -> passwordHash.equals(user.getPasswordHash()))
+                .orElse(false);
     }
 
     /**
@@ -153,6 +341,28 @@ public class UserLoginManager {
         return saveUser(email, plainTextPassword, firstName, lastName, rolesOfUser);
     }
 
+    /**
+     * Starts persisting a {@link User} as {@link #signUp} does, hashing the password on the {@link HashingService}.
+     *
+     * @param email The email of this {@code User}
+     * @param plainTextPassword The password (as plaintext) of this {@code User}
+     * @param firstName The first name of this {@code User}
+     * @param lastName The last name of this {@code User}
+     * @param rolesOfUser The roles of this {@code User}
+     * @return a future of {@code true} if {@code User} was saved successfully
+     */
+    public CompletableFuture<Boolean> signUpAsync(String email, String plainTextPassword,
+                                                  String firstName, String lastName, Role... rolesOfUser) {
+        List<Role> roles = Arrays.asList(rolesOfUser);
+        if (roles.contains(Role.SPEAKER) || roles.contains(Role.ORGANIZER)
+                || userRepository.getUserByEmail(email).orElse(null) != null) {
+            return CompletableFuture.completedFuture(false);
+        }
+
+        return hashPasswordAsync(plainTextPassword).thenApply(passwordHash ->
+                saveHashedUser(email, passwordHash, firstName, lastName, rolesOfUser));
+    }
+
     /**
      * Persists the given {@link User} into repository only if the logged in user is an organizer.
      * This means they can save a {@link User} with any role in {@link Role}.
@@ -177,16 +387,67 @@ public class UserLoginManager {
      *
      * <p>
      *     Returns true if the {@link User} exists and they entered the correct password. If the {@link User} doesn't
-     *     exist, throw an exception.
+     *     exist, throw an exception. If the password is correct and its stored hash is outdated, it is hashed again.
      * </p>
      * @param email the email {@code User} logged in with
      * @param plainTextPassword the password {@code User} logged in with
      * @return {@code true} if the information {@code User} logged in with is correct, if {@code User} exists
      * @throws UserNotFoundException
      *              if no {@link User} in the repository has this id
+     * @throws LoginThrottledException
+     *              if too many login attempts were made recently for this email or for all emails
+     */
+    public boolean logInUser(String email, String plainTextPassword)
+            throws UserNotFoundException, LoginThrottledException {
+        acquireLoginAttempt(email);
+        User user = userRepository.getUserByEmailOrThrow(email);
+        String passwordHash = user.getPasswordHash();
+        if (!checkPassword(plainTextPassword, passwordHash)) {
+            return false;
+        }
+        if (hasher.needsRehash(passwordHash)) {
+            userRepository.updatePasswordHash(user.getId(), passwordHash, hashPassword(plainTextPassword));
+        }
+        return true;
+    }
+
+    /**
+     * Starts logging in a {@link User} as {@link #logInUser} does, checking the password on the
+     * {@link HashingService}.
+     *
+     * @param email the email {@code User} logged in with
+     * @param plainTextPassword the password {@code User} logged in with
+     * @return a future of {@code true} if the information {@code User} logged in with is correct
+     * @throws UserNotFoundException
+     *              if no {@link User} in the repository has this email
+     * @throws LoginThrottledException
+     *              if too many login attempts were made recently for this email or for all emails
      */
-    public boolean logInUser(String email, String plainTextPassword) throws UserNotFoundException {
+    public CompletableFuture<Boolean> logInUserAsync(String email, String plainTextPassword)
+            throws UserNotFoundException, LoginThrottledException {
+        acquireLoginAttempt(email);
         User user = userRepository.getUserByEmailOrThrow(email);
-        return checkPassword(plainTextPassword, user.getPasswordHash());
+        String passwordHash = user.getPasswordHash();
+        return checkPasswordAsync(plainTextPassword, passwordHash).thenCompose(matches -> {
+            if (!matches || !hasher.needsRehash(passwordHash)) {
+                return CompletableFuture.completedFuture(matches);
+            }
+            return hashPasswordAsync(plainTextPassword).thenApply(newHash -> {
+                userRepository.updatePasswordHash(user.getId(), passwordHash, newHash);
+                return true;
+            });
+        });
+    }
+
+    /**
+     * Takes a login attempt for email from the {@link LoginRateLimiter}, if any.
+     *
+     * @param email the email being logged in to
+     * @throws LoginThrottledException if no attempt is allowed
+     */
+    private void acquireLoginAttempt(String email) throws LoginThrottledException {
+        if (loginRateLimiter != null && !loginRateLimiter.tryAcquire(email)) {
+            throw new LoginThrottledException("Too many login attempts for " + email);
+        }
     }
 }
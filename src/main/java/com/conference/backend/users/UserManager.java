@@ -1,32 +1,90 @@
 package com.conference.backend.users;
 
 
+import com.conference.backend.conference_and_rooms.managers.ConferenceEventChange;
 import com.conference.backend.conference_and_rooms.managers.ConferenceEventManager;
 import com.conference.backend.conference_and_rooms.entities.ConferenceEvent;
 import com.conference.backend.conference_and_rooms.entities.DateInterval;
+import com.conference.backend.data.utils.IntervalTree;
 import com.conference.backend.data.utils.Role;
+import com.conference.backend.data.utils.StripedLock;
 import com.conference.backend.exception.UserNotFoundException;
 import com.conference.backend.data.utils.base.CrudManager;
+import com.conference.backend.data.utils.base.Journal;
+import com.conference.backend.data.utils.base.Journaled;
 
 import java.io.*;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
 
 /**
  * Backend service to store and retrieve {@link User} instances.
+ *
+ * <p>
+ *     Safe for use by many threads at once. Changes to a {@link User} hold that user's lock, and signing up for or
+ *     leaving a {@link ConferenceEvent} also holds the event's lock from {@link ConferenceEventManager#getEventLock},
+ *     always taken after the user's.
+ * </p>
  */
-public class UserManager extends Observable implements Serializable, CrudManager<User> {
+public class UserManager extends Observable implements Serializable, CrudManager<User>, Journaled {
 
     private static final long serialVersionUID = 3467528467235L;
 
+    /**
+     * The type of the {@link Journal} records of {@link User}s, keyed by user id
+     */
+    public static final String USER_RECORD = "user";
+
     // Maps from user ids to Users
     private Map<String, User> users;
 
+    // Maps from normalized emails to user ids; rebuilt from users on deserialization
+    private transient Map<String, String> emailToUserId;
+
+    // Maps from each role to the ids of the users with that role; rebuilt from users on deserialization
+    private transient Map<Role, Set<String>> userIdsByRole;
+
+    // The journal changes are recorded to, if any
+    private transient Journal journal;
+
+    // Guards changes to each User, by user id
+    private transient StripedLock userLocks;
+
+    // Maps user ids to the times of the events each user attends, built the first time the user signs up for an
+    // event and kept up to date by the sign-ups and cancellations that go through this manager; guarded by userLocks
+    private transient Map<String, IntervalTree<String>> schedulesByUserId;
+
     /**
      * Initializes this {@link UserManager}
      */
     public UserManager() {
-        users = new HashMap<>();
+        users = new ConcurrentHashMap<>();
+        emailToUserId = new ConcurrentHashMap<>();
+        userIdsByRole = createRoleIndex();
+        userLocks = new StripedLock();
+        schedulesByUserId = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Initializes this {@link UserManager} around users and its email and role indexes, as stored by a snapshot.
+     * The maps may decode their entries only when they are first accessed, so they are used through synchronized
+     * views, and are iterated only while holding the view's monitor.
+     *
+     * @param users a map from user ids to {@link User}s
+     * @param emailToUserId a map from normalized emails to user ids
+     * @param userIdsByRole a map from every {@link Role} to the ids of the users with that role
+     */
+    public UserManager(Map<String, User> users, Map<String, String> emailToUserId,
+                       Map<Role, Set<String>> userIdsByRole) {
+        this.users = Collections.synchronizedMap(users);
+        this.emailToUserId = Collections.synchronizedMap(emailToUserId);
+        this.userIdsByRole = new EnumMap<>(Role.class);
+        for (Map.Entry<Role, Set<String>> entry : userIdsByRole.entrySet()) {
+            this.userIdsByRole.put(entry.getKey(), Collections.synchronizedSet(entry.getValue()));
+        }
+        this.userLocks = new StripedLock();
+        this.schedulesByUserId = new ConcurrentHashMap<>();
     }
 
     /**
@@ -38,6 +96,26 @@ public class UserManager extends Observable implements Serializable, CrudManager
         return new ArrayList<User>(users.values());
     }
 
+    /**
+     * Fetches the ids of all users, without fetching the users themselves.
+     *
+     * @return the list of user ids
+     */
+    public List<String> getUserIds() {
+        return new ArrayList<>(users.keySet());
+    }
+
+    /**
+     * Fetches the index of user ids by normalized email (trimmed and lower case).
+     *
+     * @return an unmodifiable copy of the map from normalized emails to user ids
+     */
+    public Map<String, String> getEmailIndex() {
+        synchronized (emailToUserId) {
+            return Collections.unmodifiableMap(new HashMap<>(emailToUserId));
+        }
+    }
+
     /**
      * Fetches the names of all users.
      *
@@ -46,8 +124,11 @@ public class UserManager extends Observable implements Serializable, CrudManager
     @Override
     public List<String> getNames() {
         List<String> emails = new ArrayList<>();
-        for (User user : users.values()) {
-            emails.add(user.getEmail());
+        // A synchronized view of a snapshot's map must be iterated holding its monitor
+        synchronized (users) {
+            for (User user : users.values()) {
+                emails.add(user.getEmail());
+            }
         }
         return emails;
     }
@@ -60,7 +141,7 @@ public class UserManager extends Observable implements Serializable, CrudManager
      *          {@link Optional#empty()}
      */
     Optional<User> getUserById(String id) {
-        return Optional.ofNullable(users.get(id));
+        return id == null ? Optional.empty() : Optional.ofNullable(users.get(id));
     }
 
     /**
@@ -70,24 +151,40 @@ public class UserManager extends Observable implements Serializable, CrudManager
      * @return a list of {@link User}s with this role
      */
     public List<User> getUsersWithRole(Role role) {
-        return this.getUsers().stream()
-                .filter(currentUser -> currentUser.getRoles().contains(role))
-                .collect(Collectors.toList());
+        List<User> result = new ArrayList<>();
+        for (String id : getUserIdsWithRole(role)) {
+            User user = users.get(id);
+            // The user may have been deleted since the ids were copied
+            if (user != null) {
+                result.add(user);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Fetches the ids of the {@link User}s with this role.
+     *
+     * @param role the {@link Role} to fetch {@link User} ids by
+     * @return a list of ids of {@link User}s with this role
+     */
+    public List<String> getUserIdsWithRole(Role role) {
+        Set<String> ids = userIdsByRole.get(role);
+        synchronized (ids) {
+            return new ArrayList<>(ids);
+        }
     }
 
     /**
-     * Fetches the {@link User} with this email.
+     * Fetches the {@link User} with this email. Emails are compared ignoring case and surrounding whitespace.
      *
      * @param email the email to fetch {@link User} by
      * @return an {@link Optional} containing the user if found, or
      *          {@link Optional#empty()}
      */
     public Optional<User> getUserByEmail(String email) {
-        Optional<User> user = users.values().stream()
-                .filter(currentUser -> email.equals(currentUser.getEmail()))
-                .findFirst();
-
-        return user;
+        String id = emailToUserId.get(normalizeEmail(email));
+        return id == null ? Optional.empty() : getUserById(id);
     }
 
     /**
@@ -120,7 +217,41 @@ public class UserManager extends Observable implements Serializable, CrudManager
      * @param role The {@code Role} that should be added.
      */
     public void addRoleToUserById(String id, Role role) {
-        getUserByIdOrNull(id).addRole(role);
+        Lock lock = userLocks.get(id);
+        lock.lock();
+        try {
+            User user = getUserByIdOrNull(id);
+            if (user.addRole(role)) {
+                userIdsByRole.get(role).add(id);
+                journalUserChange(id, UserChange.roleAdded(role));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Replaces the password hash of a user, such as with a stronger hash of the same password, unless it has
+     * changed since it was read.
+     * @param id The ID of the user.
+     * @param expectedHash The password hash the new hash replaces.
+     * @param newHash The new password hash.
+     * @return {@code true} if the user exists and their password hash was expectedHash and is now newHash.
+     */
+    public boolean updatePasswordHash(String id, String expectedHash, String newHash) {
+        Lock lock = userLocks.get(id);
+        lock.lock();
+        try {
+            User user = getUserByIdOrNull(id);
+            if (user == null || !expectedHash.equals(user.getPasswordHash())) {
+                return false;
+            }
+            user.setPasswordHash(newHash);
+            journalUserChange(id, UserChange.passwordHashSet(newHash));
+            return true;
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -213,7 +344,11 @@ public class UserManager extends Observable implements Serializable, CrudManager
      * @return a list of strings of conference events
      */
     public List<String> getConferenceEventsById(String id) {
-        return new ArrayList<>(getUserByIdOrNull(id).getConferenceEvents());
+        // Copied holding the user's monitor, since the caller goes on using the list after it is released
+        User user = getUserByIdOrNull(id);
+        synchronized (user) {
+            return new ArrayList<>(user.getConferenceEvents());
+        }
     }
 
     /**
@@ -238,30 +373,61 @@ public class UserManager extends Observable implements Serializable, CrudManager
      */
     @Override
     public void delete(User user) {
-        users.remove(user.getId());
+        User removed = users.remove(user.getId());
+        if (removed != null) {
+            emailToUserId.remove(normalizeEmail(removed.getEmail()), removed.getId());
+            for (Set<String> ids : userIdsByRole.values()) {
+                ids.remove(user.getId());
+            }
+            schedulesByUserId.remove(removed.getId());
+            if (journal != null) {
+                journal.recordDelete(USER_RECORD, removed.getId());
+            }
+        }
     }
 
     /**
-     * Persists the given {@link User} into the users dictionary.
+     * Persists the given {@link User} into the users dictionary. The {@link User} is not saved if another
+     * {@link User} already has the same email, even one being saved at the same time.
      *
      * @param user
      *          the user to save
      */
     @Override
     public void save(User user) {
-        User entity = users.get(user.getId());
+        if (user.getId() != null && users.containsKey(user.getId())) {
+            return;
+        }
 
-        if (entity == null) {
-            entity = new User(user);
+        User entity = new User(user);
+        if (user.getId() == null) {
+            entity.setId(entity.hashCode() + "");
+        }
 
-            if (user.getId() == null) {
-                entity.setId(entity.hashCode() + "");
-            }
+        // Claim the email first, so that only one of two users signing up with it is saved
+        String email = normalizeEmail(user.getEmail());
+        if (email != null && emailToUserId.putIfAbsent(email, entity.getId()) != null) {
+            return;
+        }
 
-            users.put(entity.getId(), entity);
-            setChanged();
-            notifyObservers();
+        Lock lock = userLocks.get(entity.getId());
+        lock.lock();
+        try {
+            if (users.putIfAbsent(entity.getId(), entity) != null) {
+                if (email != null) {
+                    emailToUserId.remove(email, entity.getId());
+                }
+                return;
+            }
+            indexRoles(entity.getId(), entity);
+            if (journal != null) {
+                journal.recordSave(USER_RECORD, entity.getId(), entity);
+            }
+        } finally {
+            lock.unlock();
         }
+        setChanged();
+        notifyObservers();
     }
 
     /**
@@ -313,9 +479,17 @@ public class UserManager extends Observable implements Serializable, CrudManager
      */
     public List<User> getUsersWithRoleAndFilterRoles(Role roleRequired, Role... filteredRoles) {
         List<User> candidates = new ArrayList<>();
-        for (User user : getUsersWithRole(roleRequired)) {
+        for (String id : getUserIdsWithRole(roleRequired)) {
             // User should not have any of the filtered roles
-            if (!user.getRoles().stream().anyMatch(r -> Arrays.asList(filteredRoles).contains(r))) {
+            boolean filtered = false;
+            for (Role role : filteredRoles) {
+                if (userIdsByRole.get(role).contains(id)) {
+                    filtered = true;
+                    break;
+                }
+            }
+            User user = users.get(id);
+            if (!filtered && user != null) {
                 candidates.add(user);
             }
         }
@@ -326,6 +500,14 @@ public class UserManager extends Observable implements Serializable, CrudManager
      * Signs up a {@link User} for a conference event. Adds to the user's list of {@code conferenceEvents},
      * and adds to the {@code attendees} of {@link ConferenceEvent}.
      *
+     * <p>
+     *     The seat is taken with {@link ConferenceEvent#reserveSeat()}, which never takes more seats than the event
+     *     has, so sign-ups for a full event are turned away without waiting for any lock. The schedule check and
+     *     the sign-up hold the user's lock, and the event's lock is held only while the attendee is added. The
+     *     event is checked to still be in eventRepository under its lock, so a sign-up racing the event's removal
+     *     either lands before it, and is among the attendees the removal returns, or is undone.
+     * </p>
+     *
      * @param currentUserId The String id of the {@link User} to update
      * @param conferenceEvent The {@link ConferenceEvent} to update
      * @param eventRepository The {@link ConferenceEventManager} for operations required to signup
@@ -334,32 +516,75 @@ public class UserManager extends Observable implements Serializable, CrudManager
     public boolean signUpUserForConferenceEvent(String currentUserId,
                                                 ConferenceEventManager eventRepository,
                                                 ConferenceEvent conferenceEvent) {
-        User user = getUserByIdOrNull(currentUserId);
-
         if (!conferenceEvent.hasCapacityForAttendees()) {
             return false;
         }
 
-        DateInterval a = eventRepository.getDateByEventName(conferenceEvent.getEventName());
+        Lock userLock = userLocks.get(currentUserId);
+        userLock.lock();
+        try {
+            if (!signUpLocked(currentUserId, eventRepository, conferenceEvent)) {
+                return false;
+            }
+        } finally {
+            userLock.unlock();
+        }
+        setChanged();
+        notifyObservers(eventRepository);
+        return true;
+    }
 
-        List<String> usersConferenceEvents = user.getConferenceEvents();
+    /**
+     * Signs up a {@link User} for a conference event while holding the user's lock.
+     *
+     * @param currentUserId The String id of the {@link User} to update
+     * @param eventRepository The {@link ConferenceEventManager} for operations required to signup
+     * @param conferenceEvent The {@link ConferenceEvent} to update
+     * @return returns {@code true} if this operation was successful.
+     */
+    private boolean signUpLocked(String currentUserId,
+                                 ConferenceEventManager eventRepository,
+                                 ConferenceEvent conferenceEvent) {
+        User user = getUserByIdOrNull(currentUserId);
 
-        for (String ce : usersConferenceEvents) {
-            DateInterval b = eventRepository.getDateByEventName(ce);
+        // One probe of the user's schedule for an event at an overlapping time, including this event itself
+        DateInterval a = eventRepository.getDateByEventName(conferenceEvent.getEventName());
+        IntervalTree<String> schedule = getSchedule(user, eventRepository);
+        if (a.isDefined() && schedule.overlapsAny(a.getStartMillis(), a.getEndMillis())) {
+            return false;
+        }
 
-            if (a.getStart().before(b.getEnd()) && b.getStart().before(a.getEnd()))  {
-                return false;
-            }
+        if (!conferenceEvent.reserveSeat()) {
+            return false;
         }
 
         boolean eventAddedToUserEvents = user.addConferenceEventToConferenceEvents(conferenceEvent.getEventName());
-        if (eventAddedToUserEvents) {
-            conferenceEvent.addAttendee(user.getId());
-            setChanged();
-            notifyObservers(eventRepository);
-            return true;
+        if (!eventAddedToUserEvents) {
+            conferenceEvent.releaseSeat();
+            return false;
+        }
+
+        if (a.isDefined()) {
+            schedule.put(conferenceEvent.getEventName(), a.getStartMillis(), a.getEndMillis());
         }
-        return false;
+
+        Lock eventLock = eventRepository.getEventLock(conferenceEvent.getEventName());
+        eventLock.lock();
+        try {
+            if (eventRepository.getConferenceEvent(conferenceEvent.getEventName()) != conferenceEvent) {
+                // The event was removed since it was looked up; give back what was taken
+                conferenceEvent.releaseSeat();
+                user.removeConferenceEventFromConferenceEvents(conferenceEvent.getEventName());
+                unschedule(user.getId(), conferenceEvent.getEventName());
+                return false;
+            }
+            conferenceEvent.addAttendeeToReservedSeat(user.getId());
+            journalUserChange(user.getId(), UserChange.eventAdded(conferenceEvent.getEventName()));
+            journalConferenceEventChange(conferenceEvent, ConferenceEventChange.attendeeAdded(user.getId()));
+        } finally {
+            eventLock.unlock();
+        }
+        return true;
     }
 
     /**
@@ -367,16 +592,34 @@ public class UserManager extends Observable implements Serializable, CrudManager
      * and removes from the {@code attendees} of {@link ConferenceEvent}.
      *
      * @param id The id for the {@link User} to update
+     * @param eventRepository The {@link ConferenceEventManager} holding the {@link ConferenceEvent}
      * @param conferenceEvent The {@link ConferenceEvent} to update
      * @return returns {@code true} if this operation was successful.
      */
-    public boolean removeUserFromConferenceEvent(String id, ConferenceEvent conferenceEvent) {
-        boolean result = getUserByIdOrNull(id).removeConferenceEventFromConferenceEvents(conferenceEvent.getEventName());
-        if (result) {
-            conferenceEvent.removeAttendee(id);
-            return true;
+    public boolean removeUserFromConferenceEvent(String id, ConferenceEventManager eventRepository,
+                                                 ConferenceEvent conferenceEvent) {
+        Lock userLock = userLocks.get(id);
+        userLock.lock();
+        try {
+            Lock eventLock = eventRepository.getEventLock(conferenceEvent.getEventName());
+            eventLock.lock();
+            try {
+                User user = getUserByIdOrNull(id);
+                boolean result = user.removeConferenceEventFromConferenceEvents(conferenceEvent.getEventName());
+                if (result) {
+                    unschedule(id, conferenceEvent.getEventName());
+                    conferenceEvent.removeAttendee(id);
+                    journalUserChange(id, UserChange.eventRemoved(conferenceEvent.getEventName()));
+                    journalConferenceEventChange(conferenceEvent, ConferenceEventChange.attendeeRemoved(id));
+                    return true;
+                }
+                return false;
+            } finally {
+                eventLock.unlock();
+            }
+        } finally {
+            userLock.unlock();
         }
-        return false;
     }
 
     /**
@@ -387,7 +630,9 @@ public class UserManager extends Observable implements Serializable, CrudManager
     @Override
     public String toString() {
         StringBuilder result = new StringBuilder();
-        this.users.values().forEach(s -> result.append(s.toString() + "\n"));
+        synchronized (this.users) {
+            this.users.values().forEach(s -> result.append(s.toString() + "\n"));
+        }
         return result.toString();
     }
 
@@ -399,6 +644,240 @@ public class UserManager extends Observable implements Serializable, CrudManager
      * @return true if the {@code ConferenceEvent} was removed properly.
      */
     public boolean removeConferenceEventFromConferenceEvents(String id, String conferenceEventName) {
-        return getUserByIdOrNull(id).removeConferenceEventFromConferenceEvents(conferenceEventName);
+        Lock lock = userLocks.get(id);
+        lock.lock();
+        try {
+            User user = getUserByIdOrNull(id);
+            if (user.removeConferenceEventFromConferenceEvents(conferenceEventName)) {
+                unschedule(id, conferenceEventName);
+                journalUserChange(id, UserChange.eventRemoved(conferenceEventName));
+                return true;
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Sets the {@link Journal} this {@link UserManager} records changes to {@link User}s to.
+     *
+     * @param journal the {@link Journal} to record changes to, or {@code null} to stop recording
+     */
+    @Override
+    public void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Applies the latest recorded state of {@link User}s, updating the email and role indexes of each.
+     *
+     * @param type the type of record; only {@link #USER_RECORD} is applied
+     * @param entities a map from user ids to the latest state of each {@link User}, or {@code null} if the
+     *                 {@link User} was deleted
+     */
+    @Override
+    public void replay(String type, Map<String, Object> entities) {
+        if (!USER_RECORD.equals(type)) {
+            return;
+        }
+        for (Map.Entry<String, Object> entry : entities.entrySet()) {
+            User user = (User) entry.getValue();
+            User previous = user == null ? users.remove(entry.getKey()) : users.put(entry.getKey(), user);
+            reindex(entry.getKey(), previous, user);
+            // Rebuilt from the replayed events the next time the user signs up
+            schedulesByUserId.remove(entry.getKey());
+        }
+    }
+
+    /**
+     * Applies a recorded change to a {@link User}, updating its role index. Changes to users no longer stored are
+     * ignored.
+     *
+     * @param type the type of record; only {@link #USER_RECORD} is applied
+     * @param key the id of the {@link User}
+     * @param change the {@link UserChange} recorded
+     */
+    @Override
+    public void replayChange(String type, String key, Object change) {
+        if (!USER_RECORD.equals(type)) {
+            return;
+        }
+        User user = users.get(key);
+        if (user == null) {
+            return;
+        }
+        ((UserChange) change).applyTo(user);
+        indexRoles(key, user);
+        // Rebuilt from the replayed events the next time the user signs up
+        schedulesByUserId.remove(key);
+    }
+
+    /**
+     * Does nothing, since {@link #replay(String, Map)} and {@link #replayChange(String, String, Object)} update the
+     * indexes of each {@link User} as it is applied.
+     */
+    @Override
+    public void finishReplay() {
+    }
+
+    /**
+     * Updates the email and role indexes for a {@link User} whose stored state changed, leaving the entries that
+     * did not change in place.
+     *
+     * @param id the id the {@link User} is stored under
+     * @param previous the previous state of the {@link User}, or {@code null} if it was not stored
+     * @param user the new state of the {@link User}, or {@code null} if it was removed
+     */
+    private void reindex(String id, User previous, User user) {
+        String previousEmail = previous == null ? null : normalizeEmail(previous.getEmail());
+        String email = user == null ? null : normalizeEmail(user.getEmail());
+        if (previousEmail != null && !previousEmail.equals(email)) {
+            emailToUserId.remove(previousEmail, id);
+        }
+        if (email != null) {
+            emailToUserId.putIfAbsent(email, id);
+        }
+        for (Role role : Role.values()) {
+            boolean had = previous != null && previous.hasRole(role);
+            boolean has = user != null && user.hasRole(role);
+            if (had && !has) {
+                userIdsByRole.get(role).remove(id);
+            } else if (has && !had) {
+                userIdsByRole.get(role).add(id);
+            }
+        }
+    }
+
+    /**
+     * Fetches the schedule of the events the {@link User} attends, building it from the user's events the first
+     * time. The caller must hold the user's lock.
+     *
+     * @param user the {@link User}
+     * @param eventRepository the {@link ConferenceEventManager} holding the times of the events
+     * @return the user's event names indexed by the time of each event
+     */
+    private IntervalTree<String> getSchedule(User user, ConferenceEventManager eventRepository) {
+        IntervalTree<String> schedule = schedulesByUserId.get(user.getId());
+        if (schedule == null) {
+            schedule = new IntervalTree<>();
+            synchronized (user) {
+                for (String eventName : user.getConferenceEvents()) {
+                    DateInterval interval = eventRepository.getDateByEventName(eventName);
+                    if (interval.isDefined()) {
+                        schedule.put(eventName, interval.getStartMillis(), interval.getEndMillis());
+                    }
+                }
+            }
+            schedulesByUserId.put(user.getId(), schedule);
+        }
+        return schedule;
+    }
+
+    /**
+     * Removes an event from the schedule of the {@link User}, if it has been built. The caller must hold the
+     * user's lock.
+     *
+     * @param id the id of the {@link User}
+     * @param eventName the name of the event
+     */
+    private void unschedule(String id, String eventName) {
+        IntervalTree<String> schedule = schedulesByUserId.get(id);
+        if (schedule != null) {
+            schedule.remove(eventName);
+        }
+    }
+
+    /**
+     * Records a change to a {@link User} to the journal, if any.
+     *
+     * @param id the id of the {@link User} that changed
+     * @param change the change
+     */
+    private void journalUserChange(String id, UserChange change) {
+        if (journal != null) {
+            journal.recordChange(USER_RECORD, id, change);
+        }
+    }
+
+    /**
+     * Records a change to the attendees of a {@link ConferenceEvent} to the journal, if any.
+     *
+     * @param conferenceEvent the {@link ConferenceEvent} that changed
+     * @param change the change
+     */
+    private void journalConferenceEventChange(ConferenceEvent conferenceEvent, ConferenceEventChange change) {
+        if (journal != null) {
+            journal.recordChange(ConferenceEventManager.EVENT_RECORD, conferenceEvent.getEventName(), change);
+        }
+    }
+
+    /**
+     * Normalizes an email for lookups so that emails differing only in case or surrounding whitespace match.
+     *
+     * @param email the email to normalize
+     * @return the normalized email, or {@code null} if email is {@code null}
+     */
+    private static String normalizeEmail(String email) {
+        return email == null ? null : email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Creates an empty index from each {@link Role} to the ids of the users with that role.
+     *
+     * @return the empty role index
+     */
+    private static Map<Role, Set<String>> createRoleIndex() {
+        Map<Role, Set<String>> index = new EnumMap<>(Role.class);
+        for (Role role : Role.values()) {
+            index.put(role, Collections.synchronizedSet(new LinkedHashSet<>()));
+        }
+        return index;
+    }
+
+    /**
+     * Adds the id of the {@link User} to the role index under each of the user's roles.
+     *
+     * @param id the id the {@link User} is stored under
+     * @param user the {@link User} to index
+     */
+    private void indexRoles(String id, User user) {
+        for (Role role : Role.values()) {
+            if (user.hasRole(role)) {
+                userIdsByRole.get(role).add(id);
+            }
+        }
+    }
+
+    /**
+     * Restores this {@link UserManager} from a stream, rebuilding the email and role indexes and the locks that
+     * are not serialized.
+     *
+     * @param in the stream to read this {@link UserManager} from
+     * @throws IOException if the stream cannot be read
+     * @throws ClassNotFoundException if a serialized class cannot be found
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        // Files written before the users were stored in a concurrent map hold a HashMap
+        users = new ConcurrentHashMap<>(users);
+        userLocks = new StripedLock();
+        schedulesByUserId = new ConcurrentHashMap<>();
+        rebuildIndexes();
+    }
+
+    /**
+     * Rebuilds the email and role indexes from the users.
+     */
+    private void rebuildIndexes() {
+        emailToUserId = new ConcurrentHashMap<>();
+        userIdsByRole = createRoleIndex();
+        for (Map.Entry<String, User> entry : users.entrySet()) {
+            String email = normalizeEmail(entry.getValue().getEmail());
+            if (email != null) {
+                emailToUserId.putIfAbsent(email, entry.getKey());
+            }
+            indexRoles(entry.getKey(), entry.getValue());
+        }
     }
 }
@@ -94,7 +94,7 @@ public class UserConferenceCancelSystem implements Startable {
                     }
                 } else {
                     canCancel = userManager.removeUserFromConferenceEvent(userLoginManager.getCurrentUserId(),
-                            conferenceEventManager.getConferenceEvent(candidateEvent));
+                            conferenceEventManager, conferenceEventManager.getConferenceEvent(candidateEvent));
                     if (!canCancel) {
                         userView.displayCannotSignUpForEvent();
                     }
@@ -17,7 +17,6 @@ import com.conference.frontend.users.UserView;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.util.Date;
 import java.util.Observer;
 
 /**
@@ -99,16 +98,16 @@ public class UserConferenceSignUpSystem implements Startable {
                         && !userManager.hasAnyOneOfRolesById(userLoginManager.getCurrentUserId(), Role.VIP)
                         && !userManager.hasAnyOneOfRolesById(userLoginManager.getCurrentUserId(), Role.ORGANIZER)) {
                     userView.displayYouAreNotAVIP();
-                } else if (eventExists && conferenceEventManager.getDateByEventName(candidateEvent).getStart()
-                        .after(new Date(System.currentTimeMillis()))) {
+                } else if (eventExists && conferenceEventManager.getDateByEventName(candidateEvent).getStartMillis()
+                        > System.currentTimeMillis()) {
                     canSignUp = userManager
                             .signUpUserForConferenceEvent(userLoginManager.getCurrentUserId(),
                                     conferenceEventManager, conferenceEventManager.getConferenceEvent(candidateEvent));
                     if (!canSignUp) {
                         userView.displayCannotSignUp();
                     }
-                } else if (eventExists && !conferenceEventManager.getDateByEventName(candidateEvent).getStart()
-                        .after(new Date(System.currentTimeMillis()))) {
+                } else if (eventExists && conferenceEventManager.getDateByEventName(candidateEvent).getStartMillis()
+                        <= System.currentTimeMillis()) {
                     userView.displayEventPassed();
                 }
             } while (!eventExists && !canSignUp);
@@ -1,6 +1,7 @@
 package com.conference.backend.users.controllers.subcontrollers;
 
 import com.conference.backend.data.utils.base.Startable;
+import com.conference.backend.exception.LoginThrottledException;
 import com.conference.backend.exception.UserNotFoundException;
 import com.conference.backend.users.AppTrafficManager;
 import com.conference.backend.users.User;
@@ -59,15 +60,19 @@ public class UserLoginSystem implements Startable {
         String plainTextPassword;
         boolean loggedIn = false;
         do {
+            boolean throttled = false;
             userView.displayPromptUserForPassword();
             try {
                 plainTextPassword = br.readLine();
                 loggedIn = userLoginManager.logInUser(email, plainTextPassword);
+            } catch (LoginThrottledException e) {
+                throttled = true;
+                userView.displayTooManyLoginAttempts();
             } catch (UserNotFoundException | IOException e) {
                 userView.displaySomethingWentWrong();
             }
 
-            if (!loggedIn) {
+            if (!loggedIn && !throttled) {
                 userView.displayThisPasswordDoesNotExist();
             }
         } while (!loggedIn);
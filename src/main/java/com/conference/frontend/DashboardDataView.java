@@ -68,6 +68,18 @@ public class DashboardDataView extends EntityView {
         this.displayDashboardTitle("Number of Logins of All Time: " + appTrafficManager.getLoginsAllTime() + '\n');
     }
 
+    /**
+     * Displays the number of login attempts allowed and refused by the login rate limiter this session.
+     */
+    public void displayLoginAttemptsThisSession() {
+        this.displayDashboardTitle("Number of Login Attempts Allowed This Session: "
+                + appTrafficManager.getLoginAttemptsAllowed() + '\n');
+        this.displayDashboardTitle("Number of Login Attempts Throttled for Their Email This Session: "
+                + appTrafficManager.getLoginAttemptsThrottledByEmail() + '\n');
+        this.displayDashboardTitle("Number of Login Attempts Throttled for All Emails This Session: "
+                + appTrafficManager.getLoginAttemptsThrottledGlobally() + '\n');
+    }
+
     /**
      * Displays the number of conference events deleted of all time.
      */
@@ -163,8 +175,8 @@ public class DashboardDataView extends EntityView {
         List<ConferenceEvent> conferenceEvents = conferenceEventManager.getConferenceEventsList();
 
         Collections.sort(conferenceEvents, (c1, c2) -> {
-            Integer x1 = c1.getAttendeeList().size();
-            Integer x2 = c2.getAttendeeList().size();
+            Integer x1 = c1.getAttendeeCount();
+            Integer x2 = c2.getAttendeeCount();
 
             return x1.compareTo(x2);
         });
@@ -174,7 +186,7 @@ public class DashboardDataView extends EntityView {
         for (int i = 0; i < conferenceEvents.size(); i++) {
             ConferenceEvent ce = conferenceEvents.get(i);
             String ceStats = ce.getEventName() + " " + String.format("(%d/%d seats)",
-                    ce.getAttendeeList().size(), ce.getCapacity());
+                    ce.getAttendeeCount(), ce.getCapacity());
             displayTop5(ceStats, i);
         }
 
@@ -212,8 +224,8 @@ public class DashboardDataView extends EntityView {
         List<User> attendees = userManager.getUsersWithRole(Role.ATTENDEE);
 
         Collections.sort(attendees, (u1, u2) -> {
-            Integer x1 = u1.getConferenceEvents().size();
-            Integer x2 = u2.getConferenceEvents().size();
+            Integer x1 = u1.getConferenceEventCount();
+            Integer x2 = u2.getConferenceEventCount();
 
             return x1.compareTo(x2);
         });
@@ -224,7 +236,7 @@ public class DashboardDataView extends EntityView {
             User u = attendees.get(i);
             String userStats = u.getFirstName() + " " + u.getLastName() + " (" + u.getEmail() + ")";
             displayTop5(userStats, i);
-            System.out.println("Number of Events attended: " + u.getConferenceEvents().size() + '\n');
+            System.out.println("Number of Events attended: " + u.getConferenceEventCount() + '\n');
         }
     }
 
@@ -134,6 +134,13 @@ public class EntityView {
         this.displayError(">>> Password is incorrect.");
     }
 
+    /**
+     * Displays that too many login attempts were made recently
+     */
+    public void displayTooManyLoginAttempts() {
+        this.displayError(">>> Too many login attempts. Please wait a few seconds and try again.");
+    }
+
     /**
      * Displays that the event does not exist
      */
@@ -46,7 +46,7 @@ public class ConferenceView extends EntityView {
             }
 
             DateInterval temp = eventRepository.getDateByEventName(eventName);
-            String dateToShow = temp.getStart().after(new Date(System.currentTimeMillis())) ? temp.toString() :
+            String dateToShow = temp.getStartMillis() > System.currentTimeMillis() ? temp.toString() :
                     "(This event has passed)";
 
             System.out.println(eventName
@@ -8,9 +8,18 @@ import com.conference.backend.data.utils.base.Launcher;
 import com.conference.backend.data.utils.base.Startable;
 import com.conference.backend.messenger.controllers.launchers.MessengerLauncher;
 import com.conference.backend.security.CustomRequestCache;
+import com.conference.backend.security.BinaryDataGateway;
 import com.conference.backend.security.DataGateway;
+import com.conference.backend.security.EntityCodec;
+import com.conference.backend.security.HashingService;
+import com.conference.backend.security.MappedSnapshotGateway;
+import com.conference.backend.security.PBKDF2Hasher;
+import com.conference.backend.security.RepositoryLifecycle;
+import com.conference.backend.security.WriteAheadLog;
 import com.conference.backend.conference_and_rooms.controllers.ConferenceEventLauncher;
 import com.conference.backend.users.AppTrafficManager;
+import com.conference.backend.users.LoginRateLimiter;
+import com.conference.backend.users.SessionRegistry;
 import com.conference.backend.users.controllers.subcontrollers.UserLoginSystem;
 import com.conference.backend.users.controllers.subcontrollers.UserSignUpSystem;
 import com.conference.backend.users.controllers.event_signup_and_viewing.UserConferenceLauncher;
@@ -22,7 +31,10 @@ import com.conference.frontend.ConferenceUtils;
 import com.conference.frontend.DashboardDataView;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class ConferencePlanningSystem extends Launcher implements
         Startable, Exitable, Initializer, Observer {
@@ -80,6 +92,27 @@ public class ConferencePlanningSystem extends Launcher implements
 
     private final String DAO_FILE_PATH = "phase2/src/dao/";
 
+    // Store users, events and messages in the binary format (.bin, see SerToBinaryConverter) instead of .ser
+    private final boolean USE_BINARY_FORMAT = false;
+    private final String REPOSITORY_FILE_EXTENSION = USE_BINARY_FORMAT ? ".bin" : ".ser";
+
+    // Open users and messages from memory-mapped snapshots (.snap, see SerToBinaryConverter) that are decoded as
+    // they are used, so startup does not grow with the number of users and messages stored
+    private final boolean USE_MAPPED_SNAPSHOTS = false;
+    private final String SNAPSHOT_FILE_EXTENSION = USE_MAPPED_SNAPSHOTS ? ".snap" : REPOSITORY_FILE_EXTENSION;
+
+    // Record every change to a write-ahead log, and rewrite the .ser snapshots once this many changes are logged
+    private final boolean USE_WRITE_AHEAD_LOG = true;
+    private final int WRITE_AHEAD_LOG_COMPACTION_THRESHOLD = 500;
+
+    // The number of repository files read or written at the same time
+    private final int REPOSITORY_IO_THREADS = 4;
+
+    // Hash new passwords with this algorithm, with as many iterations as take about this long on this machine;
+    // older hashes are upgraded when their users log in
+    private final String PASSWORD_HASH_ALGORITHM = PBKDF2Hasher.DEFAULT_ALGORITHM;
+    private final Duration PASSWORD_HASH_TARGET_LATENCY = Duration.ofMillis(100);
+
     // Sessional stats
     private int numLogins;
     private int numSignups;
@@ -92,6 +125,8 @@ public class ConferencePlanningSystem extends Launcher implements
     private final DataGateway<ConferenceEventManager> dataEventGateway;
     private final DataGateway<MessengerManager> dataMessengerGateway;
     private final DataGateway<AppTrafficManager> dataAppTrafficGateway;
+    private final RepositoryLifecycle repositoryLifecycle;
+    private WriteAheadLog writeAheadLog;
 
     private AppTrafficManager appTrafficManager;
     private DashboardDataView dashboardDataView;
@@ -121,10 +156,23 @@ public class ConferencePlanningSystem extends Launcher implements
      * No-arg constructor to initialize the {@code BufferedReader} and {@link ConferenceUtils}
      */
     public ConferencePlanningSystem() {
-        dataUserGateway = new DataGateway<>();
-        dataEventGateway = new DataGateway<>();
-        dataMessengerGateway = new DataGateway<>();
+        if (USE_MAPPED_SNAPSHOTS) {
+            dataUserGateway = new MappedSnapshotGateway<>(EntityCodec.USER_MANAGER_SNAPSHOT);
+            dataMessengerGateway = new MappedSnapshotGateway<>(EntityCodec.MESSENGER_MANAGER_SNAPSHOT);
+        } else if (USE_BINARY_FORMAT) {
+            dataUserGateway = new BinaryDataGateway<>(EntityCodec.USER_MANAGER);
+            dataMessengerGateway = new BinaryDataGateway<>(EntityCodec.MESSENGER_MANAGER);
+        } else {
+            dataUserGateway = new DataGateway<>();
+            dataMessengerGateway = new DataGateway<>();
+        }
+        if (USE_BINARY_FORMAT) {
+            dataEventGateway = new BinaryDataGateway<>(EntityCodec.CONFERENCE_EVENT_MANAGER);
+        } else {
+            dataEventGateway = new DataGateway<>();
+        }
         dataAppTrafficGateway = new DataGateway<>();
+        repositoryLifecycle = new RepositoryLifecycle(REPOSITORY_IO_THREADS);
 
         conferenceUtils = new ConferenceUtils();
         mainView = new MainView();
@@ -134,14 +182,71 @@ public class ConferencePlanningSystem extends Launcher implements
         init();
     }
 
-    private void save(UserManager userRepository,
-                      ConferenceEventManager eventRepository, MessengerManager messengerRepository) {
+    /**
+     * Writes every repository to its file, all at the same time, and waits for them to be written.
+     */
+    private void save(UserManager userRepository, ConferenceEventManager eventRepository,
+                      MessengerManager messengerRepository, AppTrafficManager trafficRepository) {
+        // Broadcasts still being delivered would otherwise be missing from some inboxes in the snapshot
+        messengerRepository.awaitBroadcasts();
+        messengerRepository.compactDeletedMessages();
+        try {
+            RepositoryLifecycle.awaitAll(
+                    repositoryLifecycle.save(dataUserGateway, DAO_FILE_PATH + "user" + SNAPSHOT_FILE_EXTENSION,
+                            userRepository),
+                    repositoryLifecycle.save(dataEventGateway, DAO_FILE_PATH + "event"
+                            + REPOSITORY_FILE_EXTENSION, eventRepository),
+                    repositoryLifecycle.save(dataMessengerGateway, DAO_FILE_PATH + "messenger"
+                            + SNAPSHOT_FILE_EXTENSION, messengerRepository),
+                    repositoryLifecycle.save(dataAppTrafficGateway, DAO_FILE_PATH + "traffic.ser",
+                            trafficRepository));
+
+            // Every logged change is now in the snapshots
+            if (writeAheadLog != null) {
+                writeAheadLog.truncate();
+            }
+        } catch (CompletionException | IOException e) {
+            mainView.displaySomethingWentWrong();
+        }
+    }
+
+    /**
+     * Returns the repository a load completed with, or {@code null} if the load failed.
+     */
+    private static <T> T loadedOrNull(CompletableFuture<T> load) {
+        return load.isCompletedExceptionally() ? null : load.join();
+    }
+
+    /**
+     * Replays the changes logged since the last save on top of the loaded repositories, then records every
+     * further change to the write-ahead log. A log that cannot be replayed is moved aside, since the next save
+     * would otherwise truncate the changes it holds; if it cannot be moved either, changes are not logged.
+     */
+    private void openWriteAheadLog() {
+        writeAheadLog = new WriteAheadLog(DAO_FILE_PATH + "journal.wal", WRITE_AHEAD_LOG_COMPACTION_THRESHOLD);
         try {
-            dataUserGateway.saveToFile(DAO_FILE_PATH + "user.ser", userRepository);
-            dataEventGateway.saveToFile(DAO_FILE_PATH + "event.ser", eventRepository);
-            dataMessengerGateway.saveToFile(DAO_FILE_PATH + "messenger.ser", messengerRepository);
-        } catch (IOException e) {
+            writeAheadLog.replay(userManager, conferenceEventManager, messengerManager);
+        } catch (IOException | ClassNotFoundException e) {
             mainView.displaySomethingWentWrong();
+            try {
+                writeAheadLog.moveAside();
+            } catch (IOException moveException) {
+                writeAheadLog = null;
+                return;
+            }
+        }
+
+        userManager.setJournal(writeAheadLog);
+        conferenceEventManager.setJournal(writeAheadLog);
+        messengerManager.setJournal(writeAheadLog);
+    }
+
+    /**
+     * Rewrites the snapshots and truncates the write-ahead log once enough changes are logged.
+     */
+    private void compactIfNeeded() {
+        if (writeAheadLog != null && writeAheadLog.needsCompaction()) {
+            save(userManager, conferenceEventManager, messengerManager, appTrafficManager);
         }
     }
 
@@ -150,6 +255,7 @@ public class ConferencePlanningSystem extends Launcher implements
      */
     public void quit() {
         mainView.displayThankYou();
+        repositoryLifecycle.close();
         System.exit(0);
     }
 
@@ -168,18 +274,35 @@ public class ConferencePlanningSystem extends Launcher implements
      */
     @Override
     public void init() {
+        // Read every repository at the same time
+        CompletableFuture<AppTrafficManager> trafficLoad = repositoryLifecycle.load(dataAppTrafficGateway,
+                DAO_FILE_PATH + "traffic.ser");
+        CompletableFuture<UserManager> userLoad = repositoryLifecycle.load(dataUserGateway,
+                DAO_FILE_PATH + "user" + SNAPSHOT_FILE_EXTENSION);
+        CompletableFuture<MessengerManager> messengerLoad = repositoryLifecycle.load(dataMessengerGateway,
+                DAO_FILE_PATH + "messenger" + SNAPSHOT_FILE_EXTENSION);
+        CompletableFuture<ConferenceEventManager> eventLoad = repositoryLifecycle.load(dataEventGateway,
+                DAO_FILE_PATH + "event" + REPOSITORY_FILE_EXTENSION);
         try {
-            appTrafficManager = dataAppTrafficGateway.readFromFile(DAO_FILE_PATH + "traffic.ser");
-            userManager = dataUserGateway.readFromFile(DAO_FILE_PATH + "user.ser");
-            messengerManager = dataMessengerGateway.readFromFile(DAO_FILE_PATH + "messenger.ser");
-            conferenceEventManager = dataEventGateway.readFromFile(DAO_FILE_PATH + "event.ser");
-        } catch (ClassNotFoundException e) {
+            RepositoryLifecycle.awaitAll(trafficLoad, userLoad, messengerLoad, eventLoad);
+        } catch (CompletionException e) {
             mainView.displaySomethingWentWrong();
         }
-
-        userLoginManager = new UserLoginManager(userManager);
+        appTrafficManager = loadedOrNull(trafficLoad);
+        userManager = loadedOrNull(userLoad);
+        messengerManager = loadedOrNull(messengerLoad);
+        conferenceEventManager = loadedOrNull(eventLoad);
+
+        LoginRateLimiter loginRateLimiter = new LoginRateLimiter();
+        userLoginManager = new UserLoginManager(userManager, new SessionRegistry(), HashingService.shared(),
+                PBKDF2Hasher.calibrate(PASSWORD_HASH_ALGORITHM, PASSWORD_HASH_TARGET_LATENCY), loginRateLimiter);
+        appTrafficManager.setLoginRateLimiter(loginRateLimiter);
         messengerManager.setUserManager(userManager);
 
+        if (USE_WRITE_AHEAD_LOG) {
+            openWriteAheadLog();
+        }
+
         // Set up Gateway
         discordEventNotificationGateway = new DiscordEventNotificationGateway(DISCORD_BOT_TOKEN,
                 conferenceEventManager, userManager);
@@ -231,6 +354,7 @@ public class ConferencePlanningSystem extends Launcher implements
                 validOptions = new ArrayList<>(MENU_STARTUP_TO_NAME.keySet());
 
                 do {
+                    compactIfNeeded();
                     mainView.displayOptions(validOptions, MENU_STARTUP_TO_NAME);
 
                     try {
@@ -250,16 +374,24 @@ public class ConferencePlanningSystem extends Launcher implements
                             userLoginSystem.start();
                             break;
                         case QUIT:
-                            save(userManager, conferenceEventManager, messengerManager);
+                            save(userManager, conferenceEventManager, messengerManager, appTrafficManager);
                             quit();
                     }
                 } while (!userLoginManager.hasCurrentUser());
             }
 
             menu: while (true) {
+                userLoginManager.endAction();
+                compactIfNeeded();
+
+                // The session expires after being idle, which logs the user out
+                String userId = userLoginManager.getCurrentUserId();
+                if (userId.equals("")) {
+                    mainView.displayRedirecting();
+                    break;
+                }
                 validOptions = conferenceUtils
-                        .getValidOptionsForUser(userManager
-                                        .getRolesByUserId(userLoginManager.getCurrentUserId()),
+                        .getValidOptionsForUser(userManager.getRolesByUserId(userId),
                                 MENU_CHOICE_TO_NAME_AND_ROLES2);
 
                 validOptions.sort((o1, o2) -> {
@@ -278,6 +410,12 @@ public class ConferencePlanningSystem extends Launcher implements
                     mainView.displaySomethingWentWrong();
                 }
 
+                // The session may have expired while waiting for the choice; if not, it cannot expire part way
+                // through the action chosen
+                if (userLoginManager.beginAction().equals("")) {
+                    mainView.displayRedirecting();
+                    break;
+                }
                 switch (choice) {
                     case SIGNUP_AND_SEE_YOUR_CONFERENCE_EVENTS:
                         userConferenceLauncher.start();
@@ -317,6 +455,7 @@ public class ConferencePlanningSystem extends Launcher implements
                         dashboardDataView.displayNotificationSent();
 
                         dashboardDataView.displayLoginsThisSession(numLogins);
+                        dashboardDataView.displayLoginAttemptsThisSession();
                         dashboardDataView.displaySignupsThisSession(numSignups);
                         dashboardDataView.displayLogoutsThisSession(numLogouts);
 
@@ -331,6 +470,11 @@ public class ConferencePlanningSystem extends Launcher implements
                         dashboardDataView.displayTop5EventsWithHighestSeating();
                         dashboardDataView.displaySpeakersTalking();
                         dashboardDataView.displayTop5ActiveAttendees();
+
+                        mainView.displayRepositoryTimings("Time to load each file",
+                                repositoryLifecycle.getLoadTimings());
+                        mainView.displayRepositoryTimings("Time to save each file",
+                                repositoryLifecycle.getSaveTimings());
                         break;
                     case LOGOUT:
                         userLoginManager.setUser(null);
@@ -339,8 +483,9 @@ public class ConferencePlanningSystem extends Launcher implements
                         mainView.displayRedirecting();
                         break menu;
                     case QUIT:
-                        save(userManager, conferenceEventManager, messengerManager);
+                        // Count the logout before the traffic stats are saved
                         appTrafficManager.updateLogoutsAllTime();
+                        save(userManager, conferenceEventManager, messengerManager, appTrafficManager);
                         quit();
                 }
             }
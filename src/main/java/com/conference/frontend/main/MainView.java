@@ -2,6 +2,8 @@ package com.conference.frontend.main;
 
 import com.conference.frontend.EntityView;
 
+import java.util.Map;
+
 public class MainView extends EntityView {
     /**
      * Displays a pretty title
@@ -47,6 +49,16 @@ public class MainView extends EntityView {
         this.displayError(">>> " + filePath + " is missing!");
     }
 
+    /**
+     * Displays how long each repository file took to read or write.
+     * @param title what the timings are of
+     * @param timings a map from file names to milliseconds
+     */
+    public void displayRepositoryTimings(String title, Map<String, Long> timings) {
+        this.displayTitle(title + ":");
+        timings.forEach((file, millis) -> this.displayString(file + ": " + millis + " ms"));
+    }
+
     /**
      * The main menu.
      */
@@ -88,6 +88,16 @@ public class MessengerView extends EntityView {
         this.displaySuccess("Message Sent Successfully");
     }
 
+    /**
+     * Displays message telling the user their message is being delivered to the recipients in the background
+     * @param deliveredCount the number of recipients who have the message so far
+     * @param recipientCount the number of recipients of the message
+     */
+    public void displayDeliveryProgress(int deliveredCount, int recipientCount) {
+        this.displayString("Delivered to " + deliveredCount + " of " + recipientCount + " recipient(s); the rest will "
+                + "receive it shortly.");
+    }
+
     /**
      * Promts the user to type the text body of their message
      */
@@ -260,6 +270,16 @@ public class MessengerView extends EntityView {
         this.displayString(i + ". " + members + " (" + status + ")\n");
     }
 
+    /**
+     * Displays which of the user's conversations are shown, when there are more than fit on one page
+     * @param first the position of the first conversation shown, counting from 1 for the newest
+     * @param last the position of the last conversation shown
+     * @param total the number of conversations
+     */
+    public void displayInboxPage(int first, int last, int total) {
+        this.displayString("Showing conversations " + first + " to " + last + " of " + total + ", newest first.");
+    }
+
     /**
      * Displays an error when a user tries to send a message to themselves
      */
@@ -0,0 +1,67 @@
+package backend.benchmark;
+
+import com.conference.backend.conference_and_rooms.entities.ConferenceEvent;
+import com.conference.backend.conference_and_rooms.entities.DateInterval;
+import com.conference.backend.conference_and_rooms.entities.EventType;
+import com.conference.backend.conference_and_rooms.managers.ConferenceEventManager;
+import com.conference.backend.data.utils.Role;
+import com.conference.backend.users.User;
+import com.conference.backend.users.UserManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Times signing 50k users up for one {@link ConferenceEvent} and then cancelling every sign-up, against the same
+ * pattern of {@code contains}, {@code add} and {@code remove} on the {@link ArrayList}s the attendees and events were
+ * stored in before.
+ */
+public class AttendeeSetBenchmark {
+
+    private static final int ATTENDEES = 50_000;
+
+    public static void main(String[] args) {
+        List<Role> organizer = Collections.singletonList(Role.ORGANIZER);
+        UserManager userManager = new UserManager();
+        for (int i = 0; i < ATTENDEES; i++) {
+            User user = new User("user" + i + "@conference.com", "hash", "First" + i, "Last" + i, Role.ATTENDEE);
+            user.setId("u" + i);
+            userManager.save(user);
+        }
+        ConferenceEventManager eventManager = new ConferenceEventManager();
+        eventManager.getRoomRepository().addRoom(organizer,
+                eventManager.getRoomRepository().createRoom("Hall", ATTENDEES));
+        ConferenceEvent keynote = eventManager.createConferenceEvent("Keynote", ATTENDEES, EventType.PARTY);
+        eventManager.addEvent(organizer, new DateInterval(new Date(2020, 11, 3, 9, 0), new Date(2020, 11, 3, 10, 0)),
+                "Hall", keynote);
+
+        Benchmarks.time("hash sets sign up and cancel " + ATTENDEES, 1, 3, () -> {
+            for (int i = 0; i < ATTENDEES; i++) {
+                if (!userManager.signUpUserForConferenceEvent("u" + i, eventManager, keynote)) {
+                    throw new IllegalStateException("Sign-up was refused");
+                }
+            }
+            for (int i = 0; i < ATTENDEES; i++) {
+                userManager.removeUserFromConferenceEvent("u" + i, eventManager, keynote);
+            }
+            if (keynote.getAttendeeCount() != 0) {
+                throw new IllegalStateException("Attendees were left");
+            }
+        });
+
+        Benchmarks.time("array lists sign up and cancel " + ATTENDEES, 1, 3, () -> {
+            List<String> attendees = new ArrayList<>();
+            for (int i = 0; i < ATTENDEES; i++) {
+                String id = "u" + i;
+                if (!attendees.contains(id)) {
+                    attendees.add(id);
+                }
+            }
+            for (int i = 0; i < ATTENDEES; i++) {
+                attendees.remove("u" + i);
+            }
+        });
+    }
+}
@@ -0,0 +1,36 @@
+package backend.benchmark;
+
+/**
+ * Minimal timing harness shared by the benchmarks in this package.
+ *
+ * <p>
+ *     The project has no build system, so instead of pulling in JMH each benchmark is a plain {@code main} that
+ *     warms up the code path before timing it. Run with the same classpath as the tests.
+ * </p>
+ */
+public final class Benchmarks {
+
+    private Benchmarks() {}
+
+    /**
+     * Runs op {@code warmup} times, then times {@code iterations} further runs and prints the mean.
+     *
+     * @param name the label printed with the result
+     * @param warmup the number of untimed runs
+     * @param iterations the number of timed runs
+     * @param op the operation to time
+     * @return the mean time per run in nanoseconds
+     */
+    public static double time(String name, int warmup, int iterations, Runnable op) {
+        for (int i = 0; i < warmup; i++) {
+            op.run();
+        }
+        long begin = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            op.run();
+        }
+        double mean = (System.nanoTime() - begin) / (double) iterations;
+        System.out.printf("%-50s %15.1f us/op%n", name, mean / 1000);
+        return mean;
+    }
+}
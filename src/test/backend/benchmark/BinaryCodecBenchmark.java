@@ -0,0 +1,67 @@
+package backend.benchmark;
+
+import com.conference.backend.data.utils.Role;
+import com.conference.backend.security.BinaryDataGateway;
+import com.conference.backend.security.DataGateway;
+import com.conference.backend.security.EntityCodec;
+import com.conference.backend.users.User;
+import com.conference.backend.users.UserManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Compares Java serialization against the binary format of {@link BinaryDataGateway} for a {@link UserManager}
+ * holding 100k users: save time, load time and file size.
+ */
+public class BinaryCodecBenchmark {
+
+    private static final int USERS = 100_000;
+    private static final int EVENTS = 500;
+
+    public static void main(String[] args) throws IOException {
+        UserManager userManager = new UserManager();
+        for (int i = 0; i < USERS; i++) {
+            User user = new User("user" + i + "@conference.com", "1000:" + Integer.toHexString(i * 7919) + ":"
+                    + Long.toHexString(i * 104729L), "First" + i, "Last" + i, Role.ATTENDEE);
+            user.setId("u" + i);
+            userManager.save(user);
+            for (int e = 0; e < 3; e++) {
+                userManager.getUserByIdOrNull("u" + i)
+                        .addConferenceEventToConferenceEvents("event" + ((i + e * 131) % EVENTS));
+            }
+            if (i % 10 == 0) {
+                userManager.addRoleToUserById("u" + i, Role.SPEAKER);
+            }
+        }
+
+        File serFile = File.createTempFile("users", ".ser");
+        File binFile = File.createTempFile("users", ".bin");
+        serFile.deleteOnExit();
+        binFile.deleteOnExit();
+
+        run("java serialization", new DataGateway<>(), serFile, userManager);
+        run("binary codec", new BinaryDataGateway<>(EntityCodec.USER_MANAGER), binFile, userManager);
+    }
+
+    private static void run(String name, DataGateway<UserManager> gateway, File file, UserManager userManager) {
+        Benchmarks.time(name + " save, " + USERS + " users", 2, 5, () -> {
+            try {
+                gateway.saveToFile(file.getPath(), userManager);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        Benchmarks.time(name + " load, " + USERS + " users", 2, 5, () -> {
+            try {
+                if (gateway.readFromFile(file.getPath()).getUsers().size() != USERS) {
+                    throw new IllegalStateException("Users were lost");
+                }
+            } catch (ClassNotFoundException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        System.out.printf("%-50s %15d bytes%n", name + " file size", file.length());
+    }
+}
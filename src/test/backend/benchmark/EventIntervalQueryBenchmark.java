@@ -0,0 +1,72 @@
+package backend.benchmark;
+
+import com.conference.backend.conference_and_rooms.entities.DateInterval;
+import com.conference.backend.conference_and_rooms.entities.Room;
+import com.conference.backend.conference_and_rooms.entities.Talk;
+import com.conference.backend.conference_and_rooms.managers.ConferenceEventManager;
+import com.conference.backend.data.utils.Role;
+
+import java.util.*;
+
+/**
+ * Compares the room-by-room scan that {@link ConferenceEventManager#getEventsAtInterval} used to perform against
+ * the conference-wide interval index, at 10k and 100k scheduled events.
+ */
+public class EventIntervalQueryBenchmark {
+
+    private static final int ROOMS = 100;
+    private static final long HOUR = 60 * 60 * 1000;
+
+    public static void main(String[] args) {
+        for (int events : new int[]{10_000, 100_000}) {
+            run(events);
+        }
+    }
+
+    private static void run(int events) {
+        List<Role> organizer = Collections.singletonList(Role.ORGANIZER);
+        ConferenceEventManager manager = new ConferenceEventManager();
+        for (int r = 0; r < ROOMS; r++) {
+            manager.getRoomRepository().addRoom(organizer, manager.getRoomRepository().createRoom("r" + r, 10));
+        }
+        long base = new Date(120, Calendar.DECEMBER, 1).getTime();
+        for (int i = 0; i < events; i++) {
+            long start = base + (i / ROOMS) * HOUR;
+            manager.addEvent(organizer, new DateInterval(new Date(start), new Date(start + HOUR)), "r" + (i % ROOMS),
+                    new Talk("e" + i, 5));
+        }
+
+        Random random = new Random(42);
+        long span = (events / ROOMS) * HOUR;
+        DateInterval[] queries = new DateInterval[64];
+        for (int i = 0; i < queries.length; i++) {
+            long start = base + (long) (random.nextDouble() * span);
+            queries[i] = new DateInterval(new Date(start), new Date(start + 2 * HOUR));
+        }
+
+        int legacyIterations = Math.max(1, 100_000 / events);
+        Benchmarks.time("legacy scan, " + events + " events", 1, legacyIterations,
+                () -> legacyGetEventsAtInterval(manager, queries[random.nextInt(queries.length)]));
+        Benchmarks.time("interval index, " + events + " events", 10_000, 100_000,
+                () -> manager.getEventsAtInterval(queries[random.nextInt(queries.length)]));
+    }
+
+    // The implementation getEventsAtInterval had before the conference-wide index
+    private static List<String> legacyGetEventsAtInterval(ConferenceEventManager manager, DateInterval interval2) {
+        List<Room> allRooms = manager.getRoomRepository().getRoomsList();
+        List<String> results = new ArrayList<>();
+        for (Room room : allRooms) {
+            Set<String> allEventNames = room.getEventToDate().keySet();
+            for (String eventName : allEventNames) {
+                Date start1 = room.getEventToDate().get(eventName).getStart();
+                Date end1 = room.getEventToDate().get(eventName).getEnd();
+                Date start2 = interval2.getStart();
+                Date end2 = interval2.getEnd();
+                if (start1.before(end2) && start2.before(end1)) {
+                    results.add(eventName);
+                }
+            }
+        }
+        return results;
+    }
+}
@@ -0,0 +1,86 @@
+package backend.benchmark;
+
+import com.conference.backend.data.utils.Role;
+import com.conference.backend.exception.EmptyReceiversException;
+import com.conference.backend.exception.UserNotFoundException;
+import com.conference.backend.messenger.managers.MessengerManager;
+import com.conference.backend.security.BinaryDataGateway;
+import com.conference.backend.security.DataGateway;
+import com.conference.backend.security.EntityCodec;
+import com.conference.backend.security.MappedSnapshotGateway;
+import com.conference.backend.users.User;
+import com.conference.backend.users.UserManager;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Compares cold start from Java serialization, the binary format of {@link BinaryDataGateway} and the snapshots of
+ * {@link MappedSnapshotGateway}: the time to load users and messages, then log one user in and read one
+ * conversation. Run with increasing {@code USERS} to see which of them grow with the stored history.
+ */
+public class MappedSnapshotBenchmark {
+
+    private static final int USERS = 100_000;
+    private static final int CONVERSATIONS = 20_000;
+    private static final int REPLIES = 10;
+
+    public static void main(String[] args) throws IOException, EmptyReceiversException {
+        UserManager userManager = new UserManager();
+        for (int i = 0; i < USERS; i++) {
+            User user = new User("user" + i + "@conference.com", "1000:" + Integer.toHexString(i * 7919) + ":"
+                    + Long.toHexString(i * 104729L), "First" + i, "Last" + i, Role.ATTENDEE);
+            user.setId("u" + i);
+            userManager.save(user);
+        }
+        MessengerManager messengerManager = new MessengerManager(userManager);
+        messengerManager.update();
+        for (int i = 0; i < CONVERSATIONS; i++) {
+            messengerManager.organizerOrAttendeeSendToAttendeeOrSpeaker("u" + i, "u" + (i + 1), "Hello " + i);
+        }
+        for (String conversationId : messengerManager.getMessageManager("u1").getUnarchivedConversationsIds()) {
+            for (int r = 0; r < REPLIES; r++) {
+                messengerManager.replyToMessageInConversation("u1", conversationId, "Reply " + r);
+            }
+        }
+        String conversationId = messengerManager.getConversations().get(CONVERSATIONS / 2).getId();
+
+        run("java serialization", new DataGateway<>(), new DataGateway<>(), ".ser",
+                userManager, messengerManager, conversationId);
+        run("binary codec", new BinaryDataGateway<>(EntityCodec.USER_MANAGER),
+                new BinaryDataGateway<>(EntityCodec.MESSENGER_MANAGER), ".bin",
+                userManager, messengerManager, conversationId);
+        run("mapped snapshot", new MappedSnapshotGateway<>(EntityCodec.USER_MANAGER_SNAPSHOT),
+                new MappedSnapshotGateway<>(EntityCodec.MESSENGER_MANAGER_SNAPSHOT), ".snap",
+                userManager, messengerManager, conversationId);
+    }
+
+    private static void run(String name, DataGateway<UserManager> userGateway,
+                            DataGateway<MessengerManager> messengerGateway, String extension,
+                            UserManager userManager, MessengerManager messengerManager, String conversationId)
+            throws IOException {
+        File userFile = File.createTempFile("user", extension);
+        File messengerFile = File.createTempFile("messenger", extension);
+        userFile.deleteOnExit();
+        messengerFile.deleteOnExit();
+        userGateway.saveToFile(userFile.getPath(), userManager);
+        messengerGateway.saveToFile(messengerFile.getPath(), messengerManager);
+
+        Benchmarks.time(name + " start, login and read", 2, 5, () -> {
+            try {
+                UserManager users = userGateway.readFromFile(userFile.getPath());
+                MessengerManager messenger = messengerGateway.readFromFile(messengerFile.getPath());
+                messenger.setUserManager(users);
+                if (!users.getUserByEmailOrThrow("user" + (USERS / 2) + "@conference.com").getId()
+                        .equals("u" + (USERS / 2))
+                        || messenger.getConvoMessageIdsByConvoId(conversationId).isEmpty()) {
+                    throw new IllegalStateException("Data was lost");
+                }
+            } catch (ClassNotFoundException | UserNotFoundException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        System.out.printf("%-50s %15d bytes%n", name + " file size",
+                userFile.length() + messengerFile.length());
+    }
+}
@@ -0,0 +1,46 @@
+package backend.benchmark;
+
+import com.conference.backend.security.HashingService;
+import com.conference.backend.security.PBKDF2WithHmacSHA1Hasher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Times checking the passwords of a rush of logins one after another on the calling thread, against checking them on
+ * a {@link HashingService} with one thread per core.
+ */
+public class PasswordHashBenchmark {
+
+    private static final int LOGINS = 256;
+
+    public static void main(String[] args) {
+        PBKDF2WithHmacSHA1Hasher hasher = new PBKDF2WithHmacSHA1Hasher();
+        String hash = hasher.generateStrongPasswordHash("password");
+
+        Benchmarks.time("sequential validate x" + LOGINS, 1, 5, () -> {
+            for (int i = 0; i < LOGINS; i++) {
+                if (!hasher.validatePassword("password", hash)) {
+                    throw new IllegalStateException("Password was refused");
+                }
+            }
+        });
+
+        try (HashingService hashingService = new HashingService()) {
+            Benchmarks.time("hashing service validate x" + LOGINS, 1, 5, () -> {
+                List<CompletableFuture<Boolean>> logins = new ArrayList<>();
+                for (int i = 0; i < LOGINS; i++) {
+                    logins.add(hasher.validatePasswordAsync("password", hash, hashingService));
+                }
+                for (CompletableFuture<Boolean> login : logins) {
+                    if (!login.join()) {
+                        throw new IllegalStateException("Password was refused");
+                    }
+                }
+            });
+            System.out.printf("mean latency %.2f ms over %d hashes%n", hashingService.getAverageLatencyMillis(),
+                    hashingService.getCompletedCount());
+        }
+    }
+}
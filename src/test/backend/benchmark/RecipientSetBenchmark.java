@@ -0,0 +1,65 @@
+package backend.benchmark;
+
+import com.conference.backend.messenger.managers.RecipientSetBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Times collecting the recipients of a speaker's broadcast from four talks that share half their audience, with
+ * {@link RecipientSetBuilder} against the {@code contains} check on an {@link ArrayList} used before, for growing
+ * talk sizes. The builder's time grows in step with the total audience; the list's grows with its square.
+ */
+public class RecipientSetBenchmark {
+
+    private static final int TALKS = 4;
+    private static final int[] SEATS_PER_TALK = {500, 1_000, 2_000, 4_000};
+
+    public static void main(String[] args) {
+        for (int seats : SEATS_PER_TALK) {
+            List<List<String>> audiences = audiences(seats);
+
+            Benchmarks.time("hash set recipients " + TALKS + " x " + seats, 3, 10, () -> {
+                RecipientSetBuilder recipients = new RecipientSetBuilder().excluding("speaker");
+                for (List<String> audience : audiences) {
+                    recipients.addAll(audience);
+                }
+                check(recipients.build().size(), seats);
+            });
+
+            Benchmarks.time("array list recipients " + TALKS + " x " + seats, 1, 3, () -> {
+                List<String> recipients = new ArrayList<>();
+                for (List<String> audience : audiences) {
+                    for (String attendee : audience) {
+                        if (!recipients.contains(attendee)) {
+                            recipients.add(attendee);
+                        }
+                    }
+                }
+                check(recipients.size(), seats);
+            });
+        }
+    }
+
+    /**
+     * Returns the attendees of each talk: half are at every talk, and half at only that talk.
+     */
+    private static List<List<String>> audiences(int seats) {
+        List<List<String>> audiences = new ArrayList<>();
+        for (int t = 0; t < TALKS; t++) {
+            List<String> audience = new ArrayList<>();
+            for (int i = 0; i < seats / 2; i++) {
+                audience.add("shared" + i);
+                audience.add("talk" + t + "-" + i);
+            }
+            audiences.add(audience);
+        }
+        return audiences;
+    }
+
+    private static void check(int recipients, int seats) {
+        if (recipients != seats / 2 * (TALKS + 1)) {
+            throw new IllegalStateException("Wrong number of recipients: " + recipients);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package backend.data.entity;
+
+import com.conference.backend.exception.MessageNotFoundException;
+import com.conference.backend.messenger.entities.Conversation;
+import com.conference.backend.messenger.entities.Message;
+import org.junit.Test;
+
+import java.io.*;
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link Conversation}
+ *
+ */
+
+public class ConversationIT {
+
+    private List<Message> sendMessages(Conversation conversation, int count) {
+        List<Message> sent = new ArrayList<>();
+        LocalDateTime date = LocalDateTime.of(2020, 11, 3, 18, 0);
+        for (int i = 0; i < count; i++) {
+            Message message = new Message("Message " + i, date.plusMinutes(i), "u1");
+            conversation.sendMessage(message);
+            sent.add(message);
+        }
+        return sent;
+    }
+
+    @Test
+    public void deleteMessageKeepsOrderOfRemainingMessagesTest() throws MessageNotFoundException {
+        Conversation conversation = new Conversation(Arrays.asList("u1", "u2"));
+        List<Message> sent = sendMessages(conversation, 150);
+
+        conversation.deleteMessage(sent.get(0));
+        conversation.deleteMessage(sent.get(70));
+        conversation.deleteMessage(sent.get(149));
+
+        List<Message> expected = new ArrayList<>(sent);
+        expected.remove(149);
+        expected.remove(70);
+        expected.remove(0);
+        assertEquals(expected, conversation.getMessages());
+        assertEquals(sent.get(71), conversation.getMessageByID(sent.get(71).getId()));
+    }
+
+    @Test(expected = MessageNotFoundException.class)
+    public void getMessageByIDAfterDeleteTest() throws MessageNotFoundException {
+        Conversation conversation = new Conversation(Arrays.asList("u1", "u2"));
+        Message message = sendMessages(conversation, 1).get(0);
+        conversation.deleteMessage(message);
+        conversation.getMessageByID(message.getId());
+    }
+
+    @Test
+    public void serializationKeepsMessagesTest() throws Exception {
+        Conversation conversation = new Conversation(Arrays.asList("u1", "u2"));
+        List<Message> sent = sendMessages(conversation, 80);
+        conversation.deleteMessage(sent.get(10));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(conversation);
+        }
+        Conversation copy;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (Conversation) in.readObject();
+        }
+
+        assertEquals(conversation.getMembers(), copy.getMembers());
+        assertEquals(conversation.getMessages(), copy.getMessages());
+        assertEquals(sent.get(20), copy.getMessageByID(sent.get(20).getId()));
+    }
+}
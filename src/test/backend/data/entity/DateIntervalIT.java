@@ -3,6 +3,7 @@ package backend.data.entity;
 import com.conference.backend.conference_and_rooms.entities.DateInterval;
 import org.junit.Test;
 
+import java.io.*;
 import java.util.*;
 
 import static org.junit.Assert.assertFalse;
@@ -69,5 +70,51 @@ public class DateIntervalIT {
         assertEquals(i1.toString(), "3-Dec 6:00:00 PM to 3-Dec 7:00:00 PM");
     }
 
+    @Test
+    public void overlapsAndContainsTest() {
+        DateInterval i1 = new DateInterval(new Date(2020, 11, 3, 18, 0), new Date(2020, 11, 3, 19, 0));
+        DateInterval i2 = new DateInterval(new Date(2020, 11, 3, 18, 30), new Date(2020, 11, 3, 20, 0));
+        DateInterval i3 = new DateInterval(new Date(2020, 11, 3, 19, 0), new Date(2020, 11, 3, 20, 0));
+
+        assertTrue(i1.overlaps(i2));
+        assertTrue(i2.overlaps(i1));
+        // Touching at an endpoint is not an overlap
+        assertFalse(i1.overlaps(i3));
+        assertFalse(i1.overlaps(new DateInterval()));
+        assertFalse(new DateInterval().overlaps(i1));
+
+        assertTrue(i1.contains(i1.getStartMillis()));
+        assertFalse(i1.contains(i1.getEndMillis()));
+        assertFalse(new DateInterval().contains(i1.getStartMillis()));
+    }
+
+    @Test
+    public void compareToTest() {
+        DateInterval i1 = new DateInterval(new Date(2020, 11, 3, 18, 0), new Date(2020, 11, 3, 19, 0));
+        DateInterval i2 = new DateInterval(new Date(2020, 11, 3, 18, 0), new Date(2020, 11, 3, 20, 0));
+        DateInterval i3 = new DateInterval(new Date(2020, 11, 3, 19, 0), new Date(2020, 11, 3, 20, 0));
+
+        assertEquals(0, i1.compareTo(i2));
+        assertTrue(i1.compareTo(i3) < 0);
+        assertTrue(i3.compareTo(i1) > 0);
+    }
+
+    @Test
+    public void serializationTest() throws Exception {
+        DateInterval i1 = new DateInterval(new Date(2020, 11, 3, 18, 0), new Date(2020, 11, 3, 19, 0));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(i1);
+        out.writeObject(new DateInterval());
+        out.close();
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+
+        DateInterval copy = (DateInterval) in.readObject();
+        assertEquals(i1, copy);
+        assertEquals(i1.getStartMillis(), copy.getStartMillis());
+        assertEquals(i1.getEndMillis(), copy.getEndMillis());
+        assertFalse(((DateInterval) in.readObject()).isDefined());
+    }
 
 }
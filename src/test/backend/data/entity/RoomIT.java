@@ -8,6 +8,7 @@ import static org.junit.Assert.*;
 import com.conference.backend.conference_and_rooms.entities.Talk;
 import org.junit.Test;
 
+import java.io.*;
 import java.util.*;
 
 /**
@@ -259,4 +260,54 @@ public class RoomIT {
         assertEquals(r1.getCapacity(), 5);
     }
 
+    @Test
+    public void addEventAfterRemovalFreesTimeSlotTest() {
+        Room r1 = new Room("Room 1", 5);
+        Date start1 = new Date(2020, 11, 3, 18, 0);
+        Date end1 = new Date(2020, 11, 3, 19, 0);
+        assertTrue(r1.addEvent(new DateInterval(start1, end1), "E1"));
+        assertFalse(r1.addEvent(new DateInterval(start1, end1), "E2"));
+        assertTrue(r1.removeEvent("E1"));
+        assertTrue(r1.addEvent(new DateInterval(start1, end1), "E2"));
+        assertTrue(r1.getAllEventNames().equals(Collections.singletonList("E2")));
+    }
+
+    @Test
+    public void addEventManyBackToBackEventsTest() {
+        Room r1 = new Room("Room 1", 5);
+        long hour = 60 * 60 * 1000;
+        long base = new Date(2020, 11, 3, 0, 0).getTime();
+        // Insert out of order so the schedule index has to rebalance
+        for (int i = 0; i < 200; i++) {
+            int slot = (i * 7) % 200;
+            Date start = new Date(base + slot * hour);
+            Date end = new Date(base + (slot + 1) * hour);
+            assertTrue(r1.addEvent(new DateInterval(start, end), "E" + slot));
+        }
+        for (int slot = 0; slot < 200; slot++) {
+            Date start = new Date(base + slot * hour + hour / 2);
+            Date end = new Date(base + slot * hour + hour / 2 + 1);
+            assertFalse(r1.addEvent(new DateInterval(start, end), "X" + slot));
+        }
+        assertEquals(r1.getEventToDate().size(), 200);
+    }
+
+    @Test
+    public void addEventAfterSerializationTest() throws Exception {
+        Room r1 = new Room("Room 1", 5);
+        Date start1 = new Date(2020, 11, 3, 18, 0);
+        Date end1 = new Date(2020, 11, 3, 19, 0);
+        assertTrue(r1.addEvent(new DateInterval(start1, end1), "E1"));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(r1);
+        out.close();
+        Room copy = (Room) new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+
+        assertFalse(copy.addEvent(new DateInterval(start1, end1), "E2"));
+        assertTrue(copy.removeEvent("E1"));
+        assertTrue(copy.addEvent(new DateInterval(start1, end1), "E2"));
+    }
+
 }
@@ -60,6 +60,25 @@ public class TalkIT {
         assertFalse(e1.hasCapacityForAttendees());
     }
 
+    @Test
+    public void seatReservationTests() {
+        Talk e1 = new Talk("TedTalk", 2);
+        assertTrue(e1.reserveSeat());
+        e1.addAttendeeToReservedSeat("1");
+        assertTrue(e1.reserveSeat());
+        assertFalse(e1.reserveSeat());
+        assertEquals(2, e1.getSeatsTaken());
+        assertFalse(e1.trySetCapacity(1));
+        assertEquals(2, e1.getCapacity());
+
+        e1.releaseSeat();
+        assertTrue(e1.trySetCapacity(1));
+        assertFalse(e1.reserveSeat());
+        e1.removeAttendee("1");
+        assertEquals(0, e1.getSeatsTaken());
+        assertTrue(e1.reserveSeat());
+    }
+
     @Test
     public void speakerTests() {
         Talk e1 = new Talk("TedTalk", 2);
@@ -7,6 +7,8 @@ import com.conference.backend.users.User;
 import static org.junit.Assert.*;
 import org.junit.Test;
 
+import java.util.*;
+
 public class UserIT {
 
     @Test
@@ -166,4 +168,26 @@ public class UserIT {
         assertFalse(u1.addConferenceEventToConferenceEvents(c3.getId()));
         assertTrue(u1.getConferenceEvents().size() == 2);
     }
+
+    @Test
+    public void eventsAndContactsAreReadOnlyViewsTest() {
+        User u1 = new User();
+        Set<String> events = u1.getConferenceEvents();
+        Set<String> contacts = u1.getContactsList();
+
+        u1.addConferenceEventToConferenceEvents("E1");
+        u1.setContactsList(Arrays.asList("2", "3", "2"));
+        assertEquals(Collections.singleton("E1"), events);
+        assertTrue(u1.isAttending("E1"));
+        assertEquals(1, u1.getConferenceEventCount());
+        assertEquals(Arrays.asList("2", "3"), new ArrayList<>(contacts));
+        assertTrue(u1.hasContact("3"));
+
+        try {
+            events.add("E2");
+            fail("The events of a user are changed through the user");
+        } catch (UnsupportedOperationException e) {
+            assertFalse(u1.isAttending("E2"));
+        }
+    }
 }
@@ -0,0 +1,137 @@
+package backend.data.manager;
+
+import com.conference.backend.conference_and_rooms.entities.*;
+import com.conference.backend.conference_and_rooms.managers.ConferenceEventManager;
+import com.conference.backend.data.utils.Role;
+import com.conference.backend.messenger.managers.MessageManager;
+import com.conference.backend.messenger.managers.MessengerManager;
+import com.conference.backend.security.BinaryDataGateway;
+import com.conference.backend.security.EntityCodec;
+import com.conference.backend.users.User;
+import com.conference.backend.users.UserManager;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link BinaryDataGateway} and the codecs in {@link EntityCodec}
+ *
+ */
+public class BinaryDataGatewayIT {
+
+    private File file;
+    private List<Role> organizer;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("repository", ".bin");
+        file.deleteOnExit();
+        organizer = Collections.singletonList(Role.ORGANIZER);
+    }
+
+    @Test
+    public void userManagerRoundTripTest() throws Exception {
+        UserManager userManager = new UserManager();
+        User u1 = new User("a@gmail.com", "1000:salt:hash", "First", "Läst", Role.ATTENDEE);
+        User u2 = new User("b@gmail.com", "1000:salt:hash", "First", "Läst", Role.ATTENDEE, Role.SPEAKER);
+        u1.setId("1");
+        u2.setId("2");
+        userManager.save(u1);
+        userManager.save(u2);
+        userManager.getUserByIdOrNull("1").addConferenceEventToConferenceEvents("E1");
+        userManager.getUserByIdOrNull("1").addContactToContacts("2");
+
+        BinaryDataGateway<UserManager> gateway = new BinaryDataGateway<>(EntityCodec.USER_MANAGER);
+        gateway.saveToFile(file.getPath(), userManager);
+        UserManager restored = gateway.readFromFile(file.getPath());
+
+        assertEquals(userManager.toString(), restored.toString());
+        User user = restored.getUserByEmailOrThrow("A@gmail.com");
+        assertEquals("1000:salt:hash", user.getPasswordHash());
+        assertEquals("Läst", user.getLastName());
+        assertEquals(Collections.singletonList("E1"), new ArrayList<>(user.getConferenceEvents()));
+        assertEquals(Collections.singletonList("2"), new ArrayList<>(user.getContactsList()));
+        assertEquals(Collections.singletonList("2"), restored.getUserIdsWithRole(Role.SPEAKER));
+    }
+
+    @Test
+    public void conferenceEventManagerRoundTripTest() throws Exception {
+        ConferenceEventManager eventManager = new ConferenceEventManager();
+        eventManager.getRoomRepository().addRoom(organizer, eventManager.getRoomRepository().createRoom("R1", 10));
+        eventManager.getRoomRepository().addAmenityByRoomName("R1", Amenity.WIFI);
+        Date start = new Date(2020, 11, 3, 18, 0);
+        Date end = new Date(2020, 11, 3, 19, 0);
+        ConferenceEvent talk = eventManager.createConferenceEvent("Talk", 5, EventType.TALK);
+        eventManager.addEvent(organizer, new DateInterval(start, end), "R1", talk);
+        ConferenceEvent panel = eventManager.createConferenceEvent("Panel", 5, EventType.PANEL);
+        eventManager.addEvent(organizer, new DateInterval(end, new Date(2020, 11, 3, 20, 0)), "R1", panel);
+        panel.addSpeakerId("s1");
+        panel.addSpeakerId("s2");
+        panel.addAttendee("a1");
+
+        BinaryDataGateway<ConferenceEventManager> gateway =
+                new BinaryDataGateway<>(EntityCodec.CONFERENCE_EVENT_MANAGER);
+        gateway.saveToFile(file.getPath(), eventManager);
+        ConferenceEventManager restored = gateway.readFromFile(file.getPath());
+
+        assertEquals(EventType.TALK, restored.getEventTypeByEventName("Talk"));
+        assertEquals(Collections.singletonList(""), restored.getSpeakerIdsByEventName("Talk"));
+        assertEquals(Arrays.asList("s1", "s2"), restored.getSpeakerIdsByEventName("Panel"));
+        assertEquals(Collections.singletonList("a1"), restored.getAttendeeListByConferenceEventName("Panel"));
+        assertEquals(talk.getId(), restored.getConferenceEvent("Talk").getId());
+        assertEquals(new DateInterval(start, end), restored.getDateByEventName("Talk"));
+        assertEquals("R1", restored.getRoomRepository().getRoomNameByEventName("Panel"));
+        assertEquals(Collections.singletonList(Amenity.WIFI),
+                restored.getRoomRepository().getRoomsMap().get("R1").getAmenityList());
+        assertEquals(Arrays.asList("Talk", "Panel"), restored.getEventsAtInterval(
+                new DateInterval(start, new Date(2020, 11, 3, 20, 0))));
+    }
+
+    @Test
+    public void messengerManagerRoundTripTest() throws Exception {
+        UserManager userManager = new UserManager();
+        User u1 = new User("a@gmail.com", "hash", "First", "Last", Role.ATTENDEE);
+        User u2 = new User("b@gmail.com", "hash", "First", "Last", Role.SPEAKER);
+        u1.setId("1");
+        u2.setId("2");
+        userManager.save(u1);
+        userManager.save(u2);
+        MessengerManager messengerManager = new MessengerManager(userManager);
+        messengerManager.update();
+        messengerManager.organizerOrAttendeeSendToAttendeeOrSpeaker("1", "2", "Hello");
+        MessageManager inbox = messengerManager.getMessageManager("2");
+        String conversationId = inbox.getUnarchivedConversationsIds().get(0);
+        messengerManager.replyToMessageInConversation("2", conversationId, "Hi back");
+        inbox.archiveConversation(conversationId);
+        inbox.deleteMessageInConversation(conversationId,
+                messengerManager.getConvoMessageIdsByConvoId(conversationId).get(0));
+
+        BinaryDataGateway<MessengerManager> gateway = new BinaryDataGateway<>(EntityCodec.MESSENGER_MANAGER);
+        gateway.saveToFile(file.getPath(), messengerManager);
+        MessengerManager restored = gateway.readFromFile(file.getPath());
+        restored.setUserManager(userManager);
+
+        assertEquals(messengerManager.getConvoMessageIdsByConvoId(conversationId),
+                restored.getConvoMessageIdsByConvoId(conversationId));
+        String replyId = restored.getConvoMessageIdsByConvoId(conversationId).get(1);
+        assertEquals("Hi back", restored.getMessageTextByMessageIdAndConvoId(replyId, conversationId));
+        assertEquals("2", restored.getSenderIdByMessageIdAndConvoId(replyId, conversationId));
+        assertEquals(messengerManager.getConversations().get(0).getMessages(),
+                restored.getConversations().get(0).getMessages());
+        MessageManager restoredInbox = restored.getMessageManager("2");
+        assertEquals(inbox.getConversationsMap(), restoredInbox.getConversationsMap());
+        assertEquals(inbox.getArchivedConversationsIds(), restoredInbox.getArchivedConversationsIds());
+        assertEquals(inbox.getDeletedMessagesInConversations(), restoredInbox.getDeletedMessagesInConversations());
+    }
+
+    @Test
+    public void readFromFileRejectsAnotherKindOfRepositoryTest() throws Exception {
+        new BinaryDataGateway<>(EntityCodec.USER_MANAGER).saveToFile(file.getPath(), new UserManager());
+        assertNull(new BinaryDataGateway<>(EntityCodec.CONFERENCE_EVENT_MANAGER).readFromFile(file.getPath()));
+    }
+}
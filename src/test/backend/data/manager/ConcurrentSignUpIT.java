@@ -0,0 +1,350 @@
+package backend.data.manager;
+
+import com.conference.backend.conference_and_rooms.entities.ConferenceEvent;
+import com.conference.backend.conference_and_rooms.entities.DateInterval;
+import com.conference.backend.conference_and_rooms.entities.EventType;
+import com.conference.backend.conference_and_rooms.managers.ConferenceEventManager;
+import com.conference.backend.data.utils.Role;
+import com.conference.backend.exception.EmptyReceiversException;
+import com.conference.backend.messenger.managers.MessengerManager;
+import com.conference.backend.users.User;
+import com.conference.backend.users.UserManager;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Stress tests for {@link UserManager}, {@link ConferenceEventManager} and {@link MessengerManager} used by many
+ * threads at once
+ *
+ */
+public class ConcurrentSignUpIT {
+
+    private static final int THREADS = 16;
+    private static final int USERS = 400;
+    private static final int EVENTS = 8;
+    private static final int CAPACITY = 25;
+
+    private UserManager userManager;
+    private ConferenceEventManager eventManager;
+    private List<Role> organizer;
+
+    @Before
+    public void setUp() {
+        userManager = new UserManager();
+        eventManager = new ConferenceEventManager();
+        organizer = Collections.singletonList(Role.ORGANIZER);
+
+        for (int i = 0; i < USERS; i++) {
+            User user = new User("user" + i + "@gmail.com", "hash", "First", "Last", Role.ATTENDEE);
+            user.setId("u" + i);
+            userManager.save(user);
+        }
+        eventManager.getRoomRepository().addRoom(organizer, eventManager.getRoomRepository().createRoom("R1", 1000));
+        for (int i = 0; i < EVENTS; i++) {
+            ConferenceEvent event = eventManager.createConferenceEvent("E" + i, CAPACITY, EventType.PARTY);
+            // Events on different days, so that no sign-up fails because of an overlap
+            Date start = new Date(2020, 11, 1 + i, 18, 0);
+            Date end = new Date(2020, 11, 1 + i, 19, 0);
+            assertTrue(eventManager.addEvent(organizer, new DateInterval(start, end), "R1", event));
+        }
+    }
+
+    /**
+     * Runs task on every thread at once and waits for all of them.
+     */
+    private void runConcurrently(Callable<Void> task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Void>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return task.call();
+            }));
+        }
+        start.countDown();
+        for (Future<Void> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+    }
+
+    @Test
+    public void concurrentSignUpsNeverExceedCapacityTest() throws Exception {
+        AtomicInteger accepted = new AtomicInteger();
+        AtomicInteger nextUser = new AtomicInteger();
+
+        // Every user tries every event, so every event is oversubscribed many times over
+        runConcurrently(() -> {
+            for (int u = nextUser.getAndIncrement(); u < USERS; u = nextUser.getAndIncrement()) {
+                for (int e = 0; e < EVENTS; e++) {
+                    ConferenceEvent event = eventManager.getConferenceEvent("E" + ((u + e) % EVENTS));
+                    if (userManager.signUpUserForConferenceEvent("u" + u, eventManager, event)) {
+                        accepted.incrementAndGet();
+                    }
+                }
+            }
+            return null;
+        });
+
+        assertEquals(EVENTS * CAPACITY, accepted.get());
+        for (int e = 0; e < EVENTS; e++) {
+            List<String> attendees = eventManager.getAttendeeListByConferenceEventName("E" + e);
+            assertEquals(CAPACITY, attendees.size());
+            assertEquals(CAPACITY, new HashSet<>(attendees).size());
+            for (String attendee : attendees) {
+                assertTrue(userManager.getConferenceEventsById(attendee).contains("E" + e));
+            }
+        }
+    }
+
+    @Test
+    public void concurrentSignUpsAndCancellationsStayConsistentTest() throws Exception {
+        runConcurrently(() -> {
+            Random random = ThreadLocalRandom.current();
+            for (int i = 0; i < 5_000; i++) {
+                String userId = "u" + random.nextInt(USERS);
+                ConferenceEvent event = eventManager.getConferenceEvent("E" + random.nextInt(EVENTS));
+                if (random.nextInt(3) == 0) {
+                    userManager.removeUserFromConferenceEvent(userId, eventManager, event);
+                } else {
+                    userManager.signUpUserForConferenceEvent(userId, eventManager, event);
+                }
+                assertTrue(event.getAttendeeCount() <= CAPACITY);
+            }
+            return null;
+        });
+
+        int seats = 0;
+        for (int e = 0; e < EVENTS; e++) {
+            List<String> attendees = eventManager.getAttendeeListByConferenceEventName("E" + e);
+            assertTrue(attendees.size() <= CAPACITY);
+            assertEquals(attendees.size(), new HashSet<>(attendees).size());
+            seats += attendees.size();
+        }
+        int signUps = 0;
+        for (int u = 0; u < USERS; u++) {
+            for (String eventName : userManager.getConferenceEventsById("u" + u)) {
+                assertTrue(eventManager.getAttendeeListByConferenceEventName(eventName).contains("u" + u));
+                signUps++;
+            }
+        }
+        assertEquals(seats, signUps);
+    }
+
+    @Test
+    public void capacityLoweredDuringSignUpsIsNeverExceededTest() throws Exception {
+        ConferenceEvent event = eventManager.getConferenceEvent("E0");
+        AtomicInteger nextUser = new AtomicInteger();
+        AtomicInteger nextThread = new AtomicInteger();
+
+        // One thread keeps changing the capacity while the others sign everyone up
+        runConcurrently(() -> {
+            if (nextThread.getAndIncrement() == 0) {
+                Random random = ThreadLocalRandom.current();
+                while (nextUser.get() < USERS) {
+                    eventManager.updateConferenceEventCapacity(1 + random.nextInt(CAPACITY), organizer, "E0");
+                    assertTrue(event.getSeatsTaken() <= event.getCapacity());
+                }
+                return null;
+            }
+            for (int u = nextUser.getAndIncrement(); u < USERS; u = nextUser.getAndIncrement()) {
+                userManager.signUpUserForConferenceEvent("u" + u, eventManager, event);
+            }
+            return null;
+        });
+
+        assertTrue(event.getAttendeeList().size() <= event.getCapacity());
+        assertEquals(event.getAttendeeList().size(), event.getSeatsTaken());
+    }
+
+    @Test
+    public void attendeesCanBeReadDuringSignUpsTest() throws Exception {
+        ConferenceEvent event = eventManager.getConferenceEvent("E0");
+        eventManager.updateConferenceEventCapacity(USERS, organizer, "E0");
+        AtomicInteger nextUser = new AtomicInteger();
+        AtomicInteger nextThread = new AtomicInteger();
+
+        // One thread keeps copying the attendees, as broadcasts and the dashboard do, while the others sign up
+        runConcurrently(() -> {
+            if (nextThread.getAndIncrement() == 0) {
+                while (nextUser.get() < USERS) {
+                    List<String> attendees = event.getAttendeeList();
+                    assertEquals(attendees.size(), new HashSet<>(attendees).size());
+                    assertFalse(attendees.contains(null));
+                }
+                return null;
+            }
+            for (int u = nextUser.getAndIncrement(); u < USERS; u = nextUser.getAndIncrement()) {
+                userManager.signUpUserForConferenceEvent("u" + u, eventManager, event);
+            }
+            return null;
+        });
+
+        assertEquals(USERS, event.getAttendeeList().size());
+    }
+
+    @Test
+    public void snapshotUsersCanBeListedDuringSavesTest() throws Exception {
+        Map<Role, Set<String>> roles = new EnumMap<>(Role.class);
+        for (Role role : Role.values()) {
+            roles.put(role, new HashSet<>());
+        }
+        UserManager snapshotUsers = new UserManager(new HashMap<>(), new HashMap<>(), roles);
+        AtomicInteger nextUser = new AtomicInteger();
+        AtomicInteger nextThread = new AtomicInteger();
+        int users = 5_000;
+
+        // One thread keeps listing the users of a snapshot-backed manager while the others save new ones
+        runConcurrently(() -> {
+            if (nextThread.getAndIncrement() == 0) {
+                while (nextUser.get() < users) {
+                    assertFalse(snapshotUsers.getNames().contains(null));
+                    assertNotNull(snapshotUsers.toString());
+                    assertFalse(snapshotUsers.getEmailIndex().containsValue(null));
+                }
+                return null;
+            }
+            for (int u = nextUser.getAndIncrement(); u < users; u = nextUser.getAndIncrement()) {
+                User user = new User("user" + u + "@gmail.com", "hash", "First", "Last", Role.ATTENDEE);
+                user.setId("u" + u);
+                snapshotUsers.save(user);
+            }
+            return null;
+        });
+
+        assertEquals(users, snapshotUsers.getNames().size());
+    }
+
+    @Test
+    public void eventTimesCanBeReadWhileRoomIsScheduledTest() throws Exception {
+        AtomicInteger nextEvent = new AtomicInteger();
+        AtomicInteger nextThread = new AtomicInteger();
+        int events = 2_000;
+
+        // One thread keeps reading the room's schedule while the others schedule talks in it
+        runConcurrently(() -> {
+            if (nextThread.getAndIncrement() == 0) {
+                while (nextEvent.get() < events) {
+                    assertEquals("R1", eventManager.getRoomByEventName("E0").getRoomName());
+                    assertTrue(eventManager.getDateByEventName("E0").isDefined());
+                    assertFalse(eventManager.getRoomByEventName("E0").getAllEventNames().contains(null));
+                }
+                return null;
+            }
+            for (int e = nextEvent.getAndIncrement(); e < events; e = nextEvent.getAndIncrement()) {
+                Date start = new Date(2021, 0, 1, 0, 0);
+                start.setTime(start.getTime() + e * 3_600_000L);
+                Date end = new Date(start.getTime() + 1_800_000L);
+                assertTrue(eventManager.getRoomRepository().scheduleEvent("R1", new DateInterval(start, end),
+                        "T" + e));
+            }
+            return null;
+        });
+
+        assertEquals(EVENTS + events, eventManager.getRoomRepository().getConferenceEventsListByRoomName("R1").size());
+    }
+
+    @Test
+    public void signUpForRemovedEventIsUndoneTest() {
+        ConferenceEvent event = eventManager.getConferenceEvent("E0");
+        assertTrue(userManager.signUpUserForConferenceEvent("u0", eventManager, event));
+        assertEquals(Collections.singletonList("u0"), eventManager.removeEventAndGetAttendees(organizer, "E0"));
+        assertNull(eventManager.removeEventAndGetAttendees(organizer, "E0"));
+
+        // A sign-up through a reference looked up before the event was removed
+        assertFalse(userManager.signUpUserForConferenceEvent("u1", eventManager, event));
+        assertFalse(userManager.getConferenceEventsById("u1").contains("E0"));
+        assertEquals(1, event.getSeatsTaken());
+    }
+
+    @Test
+    public void signUpsRacingRemovalAreAllCleanedUpTest() throws Exception {
+        ConferenceEvent event = eventManager.getConferenceEvent("E0");
+        eventManager.updateConferenceEventCapacity(USERS, organizer, "E0");
+        AtomicInteger nextUser = new AtomicInteger();
+        AtomicInteger nextThread = new AtomicInteger();
+        List<String> removedAttendees = new CopyOnWriteArrayList<>();
+
+        // One thread removes the event, as the deletion system does, while the others sign everyone up
+        runConcurrently(() -> {
+            if (nextThread.getAndIncrement() == 0) {
+                while (nextUser.get() < USERS / 2) {
+                    Thread.yield();
+                }
+                removedAttendees.addAll(eventManager.removeEventAndGetAttendees(organizer, "E0"));
+                for (String attendee : removedAttendees) {
+                    userManager.removeConferenceEventFromConferenceEvents(attendee, "E0");
+                }
+                return null;
+            }
+            for (int u = nextUser.getAndIncrement(); u < USERS; u = nextUser.getAndIncrement()) {
+                userManager.signUpUserForConferenceEvent("u" + u, eventManager, event);
+            }
+            return null;
+        });
+
+        assertFalse(eventManager.hasEvent("E0"));
+        assertEquals(removedAttendees.size(), event.getSeatsTaken());
+        for (int u = 0; u < USERS; u++) {
+            assertFalse(userManager.getConferenceEventsById("u" + u).contains("E0"));
+        }
+    }
+
+    @Test
+    public void concurrentSaveWithSameEmailKeepsOneUserTest() throws Exception {
+        AtomicInteger nextId = new AtomicInteger();
+        runConcurrently(() -> {
+            int id = nextId.getAndIncrement();
+            User user = new User("shared@gmail.com", "hash", "First", "Last", Role.ATTENDEE);
+            user.setId("shared" + id);
+            userManager.save(user);
+            return null;
+        });
+
+        assertEquals(USERS + 1, userManager.getUsers().size());
+        assertTrue(userManager.getUserIdByEmail("shared@gmail.com").startsWith("shared"));
+        assertEquals(USERS + 1, userManager.getUserIdsWithRole(Role.ATTENDEE).size());
+    }
+
+    @Test
+    public void concurrentMessagesReachEveryInboxTest() throws Exception {
+        MessengerManager messengerManager = new MessengerManager(userManager);
+        messengerManager.update();
+        AtomicInteger nextSender = new AtomicInteger();
+
+        // Everyone messages u0, and u0 replies to every conversation as it goes
+        runConcurrently(() -> {
+            for (int u = nextSender.getAndIncrement(); u < USERS; u = nextSender.getAndIncrement()) {
+                if (u == 0) {
+                    continue;
+                }
+                try {
+                    messengerManager.organizerOrAttendeeSendToAttendeeOrSpeaker("u" + u, "u0", "Hello");
+                } catch (EmptyReceiversException e) {
+                    throw new IllegalStateException(e);
+                }
+                for (String conversationId : messengerManager.getMessageManager("u" + u)
+                        .getUnarchivedConversationsIds()) {
+                    messengerManager.replyToMessageInConversation("u0", conversationId, "Hi");
+                }
+            }
+            return null;
+        });
+
+        assertEquals(USERS - 1, messengerManager.getConversations().size());
+        assertEquals(USERS - 1, messengerManager.getMessageManager("u0").getConversationsMap().size());
+        for (int u = 1; u < USERS; u++) {
+            String conversationId = messengerManager.getMessageManager("u" + u).getUnarchivedConversationsIds().get(0);
+            assertEquals(2, messengerManager.getConvoMessageIdsByConvoId(conversationId).size());
+            assertEquals("Unread", messengerManager.getMessageManager("u" + u).getConversationsMap()
+                    .get(conversationId));
+        }
+    }
+}
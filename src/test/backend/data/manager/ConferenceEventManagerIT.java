@@ -7,6 +7,7 @@ import com.conference.backend.conference_and_rooms.entities.Talk;
 import com.conference.backend.data.utils.*;
 import com.conference.backend.conference_and_rooms.managers.ConferenceEventManager;
 
+import java.io.*;
 import java.util.*;
 
 import static org.junit.Assert.*;
@@ -453,7 +454,8 @@ public class ConferenceEventManagerIT {
         // speaking at multiple events at diff times
         assertFalse(conf1.addSpeakerToEvent(u1.getRoles(), u2.getRoles(), u2.getId(), e2.getEventName()));
         assertTrue(conf1.addSpeakerToEvent(u1.getRoles(), u2.getRoles(), u2.getId(), e1.getEventName()));
-        speakerEventList1.add(e1);
+        // ordered by start time
+        speakerEventList1.add(0, e1);
         assertEquals(conf1.getSpeakerEvents(u2.getId()), speakerEventList1);
 
         // removed an event, see if Speaker's event list updated
@@ -494,12 +496,84 @@ public class ConferenceEventManagerIT {
         DateTimeConferenceEventSorter dt = new DateTimeConferenceEventSorter();
         List<ConferenceEvent> ces = conf1.getConferenceEventsList();
 
-        assertEquals(Arrays.asList(e2.getEventName(), e3.getEventName(), e1.getEventName()), dt.sort(ces, conf1));
+        // Ted1 and Ted3 start at the same time, so they are ordered by name
+        assertEquals(Arrays.asList(e2.getEventName(), e1.getEventName(), e3.getEventName()), dt.sort(ces, conf1));
 
         Map<String, List<String>> map = dt.splitByDay(Arrays.asList(e3.getEventName(), e1.getEventName(), e2.getEventName()), conf1);
         System.out.println(map);
 //        System.out.println(new Date());
     }
 
+    @Test
+    public void getEventsAtIntervalAfterRemoveEventAndSerializationTest() throws Exception {
+        User u1 = new User("e1", "p1", "f1", "l1", Role.ORGANIZER);
+
+        ConferenceEventManager conf1 = new ConferenceEventManager();
+        conf1.getRoomRepository().addRoom(u1.getRoles(), conf1.getRoomRepository().createRoom("r1", 5));
+        conf1.getRoomRepository().addRoom(u1.getRoles(), conf1.getRoomRepository().createRoom("r2", 5));
+
+        Date start1 = new Date(2020, 11, 3, 17, 0);
+        Date end1 = new Date(2020, 11, 3, 19, 0);
+        Date start2 = new Date(2020, 11, 3, 18, 0);
+        Date end2 = new Date(2020, 11, 3, 20, 0);
+        assertTrue(conf1.addEvent(u1.getRoles(), new DateInterval(start1, end1), "r1", new Talk("e1", 2)));
+        assertTrue(conf1.addEvent(u1.getRoles(), new DateInterval(start2, end2), "r2", new Talk("e2", 2)));
+
+        DateInterval query = new DateInterval(new Date(2020, 11, 3, 18, 30), new Date(2020, 11, 3, 18, 45));
+        assertEquals(Arrays.asList("e1", "e2"), conf1.getEventsAtInterval(query));
+
+        assertTrue(conf1.removeEvent(u1.getRoles(), "e1"));
+        assertEquals(Collections.singletonList("e2"), conf1.getEventsAtInterval(query));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(conf1);
+        out.close();
+        ConferenceEventManager copy = (ConferenceEventManager) new ObjectInputStream(
+                new ByteArrayInputStream(bytes.toByteArray())).readObject();
+
+        assertEquals(Collections.singletonList("e2"), copy.getEventsAtInterval(query));
+        DateInterval after = new DateInterval(new Date(2020, 11, 3, 20, 0), new Date(2020, 11, 3, 21, 0));
+        assertTrue(copy.getEventsAtInterval(after).isEmpty());
+    }
+
+    @Test
+    public void speakerEventsAfterRemoveEventAndSerializationTest() throws Exception {
+        User u1 = new User("e1", "p1", "f1", "l1", Role.ORGANIZER);
+        User s1 = new User("e2", "p2", "f2", "l2", Role.SPEAKER);
+        s1.setId("s1");
+
+        ConferenceEventManager conf1 = new ConferenceEventManager();
+        conf1.getRoomRepository().addRoom(u1.getRoles(), conf1.getRoomRepository().createRoom("r1", 5));
+
+        Date start1 = new Date(2020, 11, 3, 17, 0);
+        Date end1 = new Date(2020, 11, 3, 18, 0);
+        Date start2 = new Date(2020, 11, 3, 15, 0);
+        Date end2 = new Date(2020, 11, 3, 16, 0);
+        assertTrue(conf1.addEvent(u1.getRoles(), new DateInterval(start1, end1), "r1", new Talk("e1", 2)));
+        assertTrue(conf1.addEvent(u1.getRoles(), new DateInterval(start2, end2), "r1", new Talk("e2", 2)));
+        assertTrue(conf1.addSpeakerToEvent(u1.getRoles(), s1.getRoles(), "s1", "e1"));
+        assertTrue(conf1.addSpeakerToEvent(u1.getRoles(), s1.getRoles(), "s1", "e2"));
+        assertEquals(Arrays.asList("e2", "e1"), conf1.getSpeakerEventNames("s1"));
+
+        // A removed event no longer conflicts with a new event at the same time
+        assertTrue(conf1.removeEvent(u1.getRoles(), "e1"));
+        assertEquals(Collections.singletonList("e2"), conf1.getSpeakerEventNames("s1"));
+        assertTrue(conf1.addEvent(u1.getRoles(), new DateInterval(start1, end1), "r1", new Talk("e3", 2)));
+        assertTrue(conf1.addSpeakerToEvent(u1.getRoles(), s1.getRoles(), "s1", "e3"));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(conf1);
+        out.close();
+        ConferenceEventManager copy = (ConferenceEventManager) new ObjectInputStream(
+                new ByteArrayInputStream(bytes.toByteArray())).readObject();
+
+        assertEquals(Arrays.asList("e2", "e3"), copy.getSpeakerEventNames("s1"));
+        assertTrue(copy.getSpeakerEventNames("s2").isEmpty());
+        copy.getRoomRepository().addRoom(u1.getRoles(), copy.getRoomRepository().createRoom("r2", 5));
+        assertTrue(copy.addEvent(u1.getRoles(), new DateInterval(start1, end1), "r2", new Talk("e4", 2)));
+        assertFalse(copy.addSpeakerToEvent(u1.getRoles(), s1.getRoles(), "s1", "e4"));
+    }
 
-}
\ No newline at end of file
+}
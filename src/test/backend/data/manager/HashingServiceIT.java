@@ -0,0 +1,93 @@
+package backend.data.manager;
+
+import com.conference.backend.data.utils.Role;
+import com.conference.backend.security.HashingService;
+import com.conference.backend.security.PBKDF2WithHmacSHA1Hasher;
+import com.conference.backend.users.SessionRegistry;
+import com.conference.backend.users.UserLoginManager;
+import com.conference.backend.users.UserManager;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link HashingService}, {@link PBKDF2WithHmacSHA1Hasher} and the asynchronous methods of
+ * {@link UserLoginManager}
+ *
+ */
+public class HashingServiceIT {
+
+    private PBKDF2WithHmacSHA1Hasher hasher;
+    private HashingService hashingService;
+    private UserManager userRepository;
+    private UserLoginManager userLoginManager;
+
+    @Before
+    public void setUp() {
+        hasher = new PBKDF2WithHmacSHA1Hasher();
+        // A queue of one, so that most hashes in these tests run on the threads asking for them
+        hashingService = new HashingService(2, 1);
+        userRepository = new UserManager();
+        userLoginManager = new UserLoginManager(userRepository, new SessionRegistry(), hashingService);
+    }
+
+    @Test
+    public void hexRoundTripTest() {
+        byte[] bytes = {0, 1, 15, 16, -1, -128, 127};
+        assertEquals("00010f10ff807f", hasher.toHex(bytes));
+        assertArrayEquals(bytes, hasher.fromHex("00010f10ff807f"));
+        assertArrayEquals(bytes, hasher.fromHex("00010F10FF807F"));
+    }
+
+    @Test
+    public void asyncHashValidatesTest() throws Exception {
+        String hash = hasher.generateStrongPasswordHashAsync("password", hashingService).get();
+
+        assertTrue(hash.startsWith("1000:"));
+        assertTrue(hasher.validatePassword("password", hash));
+        assertTrue(hasher.validatePasswordAsync("password", hash, hashingService).get());
+        assertFalse(hasher.validatePasswordAsync("wrong", hash, hashingService).get());
+        assertEquals(3, hashingService.getCompletedCount());
+        assertTrue(hashingService.getAverageLatencyMillis() > 0);
+    }
+
+    @Test
+    public void manyAsyncLoginsTest() throws Exception {
+        assertTrue(userLoginManager.signUp("a@gmail.com", "password", "First", "Last", Role.ATTENDEE));
+
+        List<CompletableFuture<Boolean>> logins = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            logins.add(userLoginManager.logInUserAsync("a@gmail.com", i % 2 == 0 ? "password" : "wrong"));
+        }
+        for (int i = 0; i < logins.size(); i++) {
+            assertEquals(i % 2 == 0, logins.get(i).get());
+        }
+        assertEquals(20, hashingService.getCompletedCount());
+        assertEquals(0, hashingService.getQueueDepth());
+    }
+
+    @Test
+    public void asyncSignUpsWithSameEmailSaveOneUserTest() throws Exception {
+        List<CompletableFuture<Boolean>> signUps = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            signUps.add(userLoginManager.signUpAsync("a@gmail.com", "password" + i, "First", "Last",
+                    Role.ATTENDEE));
+        }
+
+        int saved = 0;
+        for (CompletableFuture<Boolean> signUp : signUps) {
+            if (signUp.get()) {
+                saved++;
+            }
+        }
+        assertEquals(1, saved);
+        assertEquals(1, userRepository.getUsers().size());
+        assertFalse(userLoginManager.signUpAsync("a@gmail.com", "password", "First", "Last", Role.ATTENDEE).get());
+        assertFalse(userLoginManager.signUpAsync("b@gmail.com", "password", "First", "Last", Role.SPEAKER).get());
+    }
+}
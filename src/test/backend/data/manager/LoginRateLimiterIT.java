@@ -0,0 +1,250 @@
+package backend.data.manager;
+
+import com.conference.backend.data.utils.Role;
+import com.conference.backend.data.utils.TokenBucket;
+import com.conference.backend.exception.LoginThrottledException;
+import com.conference.backend.exception.UserNotFoundException;
+import com.conference.backend.security.HashingService;
+import com.conference.backend.security.PBKDF2Hasher;
+import com.conference.backend.users.AppTrafficManager;
+import com.conference.backend.users.LoginRateLimiter;
+import com.conference.backend.users.SessionRegistry;
+import com.conference.backend.users.UserLoginManager;
+import com.conference.backend.users.UserManager;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link TokenBucket}, {@link LoginRateLimiter} and {@link UserLoginManager}s limited by one
+ *
+ */
+public class LoginRateLimiterIT {
+
+    private MutableClock clock;
+    private LoginRateLimiter loginRateLimiter;
+    private UserLoginManager userLoginManager;
+
+    /**
+     * A clock that only moves when told to.
+     */
+    private static class MutableClock extends Clock {
+        private volatile long millis;
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+    }
+
+    @Before
+    public void setUp() {
+        clock = new MutableClock();
+        // 3 attempts per email, then one per second; 5 attempts in all, then one per 100 ms
+        loginRateLimiter = new LoginRateLimiter(3, Duration.ofSeconds(1), 5, Duration.ofMillis(100), clock);
+        UserManager userRepository = new UserManager();
+        userLoginManager = new UserLoginManager(userRepository, new SessionRegistry(), new HashingService(1, 1),
+                new PBKDF2Hasher("PBKDF2WithHmacSHA256", 1000), loginRateLimiter);
+        assertTrue(userLoginManager.signUp("a@gmail.com", "password", "First", "Last", Role.ATTENDEE));
+        assertTrue(userLoginManager.signUp("b@gmail.com", "password", "First", "Last", Role.ATTENDEE));
+    }
+
+    @Test
+    public void tokenBucketRefillsOverTimeTest() {
+        TokenBucket bucket = new TokenBucket(2, Duration.ofSeconds(1), clock);
+        assertTrue(bucket.isFull());
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+        assertEquals(0, bucket.getAvailableTokens());
+
+        clock.millis += 999;
+        assertFalse(bucket.tryAcquire());
+        clock.millis += 1;
+        assertEquals(1, bucket.getAvailableTokens());
+        assertTrue(bucket.tryAcquire());
+
+        // Refills never go above the capacity
+        clock.millis += 60_000;
+        assertTrue(bucket.isFull());
+        assertEquals(2, bucket.getAvailableTokens());
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+
+        // A token given back can be taken again, but never past the capacity
+        bucket.release();
+        assertTrue(bucket.tryAcquire());
+        clock.millis += 60_000;
+        bucket.release();
+        assertEquals(2, bucket.getAvailableTokens());
+    }
+
+    @Test
+    public void concurrentAcquiresNeverExceedCapacityTest() throws Exception {
+        TokenBucket bucket = new TokenBucket(100, Duration.ofSeconds(1), clock);
+        AtomicInteger acquired = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    if (bucket.tryAcquire()) {
+                        acquired.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(100, acquired.get());
+    }
+
+    @Test
+    public void repeatedAttemptsForOneEmailAreThrottledTest() throws Exception {
+        assertFalse(userLoginManager.logInUser("a@gmail.com", "wrong"));
+        assertFalse(userLoginManager.logInUser("A@gmail.com", "wrong"));
+        assertFalse(userLoginManager.logInUser("a@gmail.com", "wrong"));
+        try {
+            userLoginManager.logInUser("a@gmail.com", "password");
+            fail("The fourth attempt was not throttled");
+        } catch (LoginThrottledException e) {
+            assertEquals(1, loginRateLimiter.getThrottledByEmailCount());
+        }
+
+        // Other emails are not affected, and the email can be tried again once its bucket refills
+        assertTrue(userLoginManager.logInUser("b@gmail.com", "password"));
+        clock.millis += 1000;
+        assertTrue(userLoginManager.logInUser("a@gmail.com", "password"));
+        assertEquals(5, loginRateLimiter.getAllowedCount());
+    }
+
+    @Test
+    public void attemptsForManyEmailsAreThrottledGloballyTest() throws Exception {
+        // Unknown emails still take tokens, so they cannot be used to flood the limiter
+        for (int i = 0; i < 5; i++) {
+            try {
+                userLoginManager.logInUser("unknown" + i + "@gmail.com", "password");
+                fail("An unknown email was logged in to");
+            } catch (UserNotFoundException e) {
+                // expected
+            }
+        }
+        try {
+            userLoginManager.logInUserAsync("a@gmail.com", "password");
+            fail("The attempt was not throttled");
+        } catch (LoginThrottledException e) {
+            assertEquals(1, loginRateLimiter.getThrottledGloballyCount());
+        }
+
+        clock.millis += 100;
+        assertTrue(userLoginManager.logInUserAsync("a@gmail.com", "password").get());
+    }
+
+    @Test
+    public void attemptsRefusedGloballyDoNotGrowBucketsTest() {
+        for (int i = 0; i < 5; i++) {
+            assertTrue(loginRateLimiter.tryAcquire("flood" + i + "@gmail.com"));
+        }
+        for (int i = 5; i < 100; i++) {
+            assertFalse(loginRateLimiter.tryAcquire("flood" + i + "@gmail.com"));
+        }
+        assertEquals(5, loginRateLimiter.size());
+        assertEquals(95, loginRateLimiter.getThrottledGloballyCount());
+    }
+
+    @Test
+    public void attemptsRefusedForTheirEmailDoNotCountGloballyTest() {
+        for (int i = 0; i < 10; i++) {
+            loginRateLimiter.tryAcquire("a@gmail.com");
+        }
+        assertEquals(3, loginRateLimiter.getAllowedCount());
+        assertEquals(7, loginRateLimiter.getThrottledByEmailCount());
+
+        // Only a@gmail.com's three attempts took shared tokens
+        assertTrue(loginRateLimiter.tryAcquire("b@gmail.com"));
+        assertTrue(loginRateLimiter.tryAcquire("c@gmail.com"));
+        assertFalse(loginRateLimiter.tryAcquire("d@gmail.com"));
+    }
+
+    @Test
+    public void appTrafficManagerReportsTheLimiterCountsTest() {
+        AppTrafficManager appTrafficManager = new AppTrafficManager();
+        assertEquals(0, appTrafficManager.getLoginAttemptsAllowed());
+        appTrafficManager.setLoginRateLimiter(loginRateLimiter);
+
+        for (int i = 0; i < 4; i++) {
+            loginRateLimiter.tryAcquire("a@gmail.com");
+        }
+        for (int i = 0; i < 5; i++) {
+            loginRateLimiter.tryAcquire("b@gmail.com");
+        }
+        assertEquals(5, appTrafficManager.getLoginAttemptsAllowed());
+        assertEquals(1, appTrafficManager.getLoginAttemptsThrottledByEmail());
+        assertEquals(3, appTrafficManager.getLoginAttemptsThrottledGlobally());
+    }
+
+    @Test
+    public void manyBucketsAreSweptAtMostOncePerRefillIntervalTest() {
+        LoginRateLimiter limiter = new LoginRateLimiter(1, Duration.ofSeconds(1), 100_000, Duration.ofMillis(1),
+                clock);
+        for (int i = 0; i <= 10_000; i++) {
+            assertTrue(limiter.tryAcquire("user" + i + "@gmail.com"));
+        }
+
+        // The first attempt over the threshold sweeps, but no bucket is full yet
+        clock.millis += 500;
+        assertTrue(limiter.tryAcquire("first@gmail.com"));
+        assertEquals(10_002, limiter.size());
+
+        // Full buckets are kept until a refill interval after the last sweep
+        clock.millis += 500;
+        assertTrue(limiter.tryAcquire("second@gmail.com"));
+        assertEquals(10_003, limiter.size());
+        clock.millis += 500;
+        assertTrue(limiter.tryAcquire("third@gmail.com"));
+        assertEquals(2, limiter.size());
+    }
+
+    @Test
+    public void idleBucketsAreEvictedTest() {
+        assertTrue(loginRateLimiter.tryAcquire("a@gmail.com"));
+        assertTrue(loginRateLimiter.tryAcquire("b@gmail.com"));
+        assertTrue(loginRateLimiter.tryAcquire("b@gmail.com"));
+        assertEquals(2, loginRateLimiter.size());
+
+        // a@gmail.com's bucket is full again, b@gmail.com's is not
+        clock.millis += 1000;
+        loginRateLimiter.evictIdle();
+        assertEquals(1, loginRateLimiter.size());
+    }
+}
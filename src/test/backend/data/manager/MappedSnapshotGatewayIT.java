@@ -0,0 +1,211 @@
+package backend.data.manager;
+
+import com.conference.backend.data.utils.Role;
+import com.conference.backend.exception.EmptyReceiversException;
+import com.conference.backend.messenger.entities.Conversation;
+import com.conference.backend.messenger.managers.MessageManager;
+import com.conference.backend.messenger.managers.MessengerManager;
+import com.conference.backend.security.BinaryDataGateway;
+import com.conference.backend.security.DataGateway;
+import com.conference.backend.security.EntityCodec;
+import com.conference.backend.security.MappedSnapshotGateway;
+import com.conference.backend.security.WriteAheadLog;
+import com.conference.backend.users.User;
+import com.conference.backend.users.UserManager;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link MappedSnapshotGateway} and the snapshot codecs in {@link EntityCodec}
+ *
+ */
+public class MappedSnapshotGatewayIT {
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("repository", ".snap");
+        file.deleteOnExit();
+    }
+
+    private UserManager createUserManager() {
+        UserManager userManager = new UserManager();
+        User u1 = new User("a@gmail.com", "1000:salt:hash", "First", "Läst", Role.ATTENDEE);
+        User u2 = new User("b@gmail.com", "1000:salt:hash", "First", "Läst", Role.ATTENDEE, Role.SPEAKER);
+        User u3 = new User("c@gmail.com", "1000:salt:hash", "First", "Läst", Role.ORGANIZER);
+        u1.setId("1");
+        u2.setId("2");
+        u3.setId("3");
+        userManager.save(u1);
+        userManager.save(u2);
+        userManager.save(u3);
+        userManager.getUserByIdOrNull("1").addConferenceEventToConferenceEvents("E1");
+        return userManager;
+    }
+
+    private MessengerManager createMessengerManager(UserManager userManager) throws EmptyReceiversException {
+        MessengerManager messengerManager = new MessengerManager(userManager);
+        messengerManager.update();
+        messengerManager.organizerOrAttendeeSendToAttendeeOrSpeaker("1", "2", "Hello");
+        messengerManager.organizerOrAttendeeSendToAttendeeOrSpeaker("3", "2", "Welcome");
+        return messengerManager;
+    }
+
+    private List<String> sorted(Collection<String> values) {
+        List<String> result = new ArrayList<>(values);
+        Collections.sort(result);
+        return result;
+    }
+
+    @Test
+    public void userManagerOpensAndLooksUpUsersTest() throws Exception {
+        MappedSnapshotGateway<UserManager> gateway = new MappedSnapshotGateway<>(EntityCodec.USER_MANAGER_SNAPSHOT);
+        gateway.saveToFile(file.getPath(), createUserManager());
+        UserManager restored = gateway.readFromFile(file.getPath());
+
+        User user = restored.getUserByEmailOrThrow(" A@gmail.com");
+        assertEquals("1", user.getId());
+        assertEquals("Läst", user.getLastName());
+        assertEquals(Collections.singletonList("E1"), new ArrayList<>(user.getConferenceEvents()));
+        assertSame(user, restored.getUserByIdOrNull("1"));
+        assertEquals(Collections.singletonList("2"), restored.getUserIdsWithRole(Role.SPEAKER));
+        assertEquals(Arrays.asList("1", "2", "3"), sorted(restored.getUserIds()));
+        assertFalse(restored.hasUserById("4"));
+    }
+
+    @Test
+    public void userManagerChangesAfterOpeningAreKeptTest() throws Exception {
+        MappedSnapshotGateway<UserManager> gateway = new MappedSnapshotGateway<>(EntityCodec.USER_MANAGER_SNAPSHOT);
+        gateway.saveToFile(file.getPath(), createUserManager());
+        UserManager restored = gateway.readFromFile(file.getPath());
+
+        User u4 = new User("d@gmail.com", "hash", "First", "Last", Role.ATTENDEE);
+        User u5 = new User("a@gmail.com", "hash", "First", "Last", Role.ATTENDEE);
+        u4.setId("4");
+        u5.setId("5");
+        restored.save(u4);
+        restored.save(u5);
+        restored.delete(restored.getUserByIdOrNull("1"));
+        restored.addRoleToUserById("3", Role.SPEAKER);
+
+        assertEquals(Arrays.asList("2", "3", "4"), sorted(restored.getUserIds()));
+        assertEquals(3, restored.getUsers().size());
+        assertFalse(restored.getUserByEmail("a@gmail.com").isPresent());
+        assertEquals("4", restored.getUserIdByEmail("d@gmail.com"));
+        assertEquals(Arrays.asList("2", "3"), sorted(restored.getUserIdsWithRole(Role.SPEAKER)));
+        assertEquals(Arrays.asList("2", "4"), sorted(restored.getUserIdsWithRole(Role.ATTENDEE)));
+
+        // The changed repository can be saved again, in either format
+        File other = File.createTempFile("repository", ".snap");
+        other.deleteOnExit();
+        gateway.saveToFile(other.getPath(), restored);
+        UserManager reopened = gateway.readFromFile(other.getPath());
+        assertEquals(sorted(restored.getNames()), sorted(reopened.getNames()));
+        assertEquals(Arrays.asList("2", "3"), sorted(reopened.getUserIdsWithRole(Role.SPEAKER)));
+
+        DataGateway<UserManager> serGateway = new DataGateway<>();
+        serGateway.saveToFile(other.getPath(), restored);
+        UserManager deserialized = serGateway.readFromFile(other.getPath());
+        assertEquals(sorted(restored.getNames()), sorted(deserialized.getNames()));
+        assertEquals("4", deserialized.getUserIdByEmail("d@gmail.com"));
+    }
+
+    @Test
+    public void messengerManagerOpensAndSharesConversationsTest() throws Exception {
+        UserManager userManager = createUserManager();
+        MessengerManager messengerManager = createMessengerManager(userManager);
+        MessageManager inbox = messengerManager.getMessageManager("2");
+        String conversationId = inbox.getUnarchivedConversationsIds().get(0);
+        inbox.archiveConversation(conversationId);
+
+        MappedSnapshotGateway<MessengerManager> gateway =
+                new MappedSnapshotGateway<>(EntityCodec.MESSENGER_MANAGER_SNAPSHOT);
+        gateway.saveToFile(file.getPath(), messengerManager);
+        MessengerManager restored = gateway.readFromFile(file.getPath());
+        restored.setUserManager(userManager);
+
+        assertEquals(inbox.getConversationsMap(), restored.getMessageManager("2").getConversationsMap());
+        assertEquals(inbox.getArchivedConversationsIds(),
+                restored.getMessageManager("2").getArchivedConversationsIds());
+
+        // A reply made through the ID lookup is seen through the list of conversations
+        restored.replyToMessageInConversation("2", conversationId, "Hi back");
+        Conversation conversation = null;
+        for (Conversation candidate : restored.getConversations()) {
+            if (candidate.getId().equals(conversationId)) {
+                conversation = candidate;
+            }
+        }
+        assertNotNull(conversation);
+        assertEquals(2, conversation.getMessages().size());
+        assertEquals(restored.getConvoMessageIdsByConvoId(conversationId).get(1),
+                conversation.getMessages().get(1).getId());
+
+        restored.organizerOrAttendeeSendToAttendeeOrSpeaker("1", "3", "New");
+        assertEquals(3, restored.getConversations().size());
+
+        DataGateway<MessengerManager> serGateway = new DataGateway<>();
+        File other = File.createTempFile("messenger", ".ser");
+        other.deleteOnExit();
+        serGateway.saveToFile(other.getPath(), restored);
+        MessengerManager deserialized = serGateway.readFromFile(other.getPath());
+        assertEquals(3, deserialized.getConversations().size());
+        assertEquals(restored.getConvoMessageIdsByConvoId(conversationId),
+                deserialized.getConvoMessageIdsByConvoId(conversationId));
+    }
+
+    @Test
+    public void replayAppliesLoggedChangesToOpenedSnapshotTest() throws Exception {
+        UserManager userManager = createUserManager();
+        MessengerManager messengerManager = createMessengerManager(userManager);
+        String conversationId = messengerManager.getConversations().get(0).getId();
+
+        File userFile = File.createTempFile("user", ".snap");
+        userFile.deleteOnExit();
+        new MappedSnapshotGateway<>(EntityCodec.USER_MANAGER_SNAPSHOT).saveToFile(userFile.getPath(), userManager);
+        new MappedSnapshotGateway<>(EntityCodec.MESSENGER_MANAGER_SNAPSHOT).saveToFile(file.getPath(),
+                messengerManager);
+
+        File logFile = File.createTempFile("journal", ".wal");
+        logFile.deleteOnExit();
+        WriteAheadLog log = new WriteAheadLog(logFile.getPath(), 1000);
+        log.replay(userManager, messengerManager);
+        userManager.setJournal(log);
+        messengerManager.setJournal(log);
+        userManager.addRoleToUserById("1", Role.VIP);
+        messengerManager.replyToMessageInConversation("2", conversationId, "Hi back");
+        log.close();
+
+        UserManager restoredUsers = new MappedSnapshotGateway<>(EntityCodec.USER_MANAGER_SNAPSHOT)
+                .readFromFile(userFile.getPath());
+        MessengerManager restoredMessenger = new MappedSnapshotGateway<>(EntityCodec.MESSENGER_MANAGER_SNAPSHOT)
+                .readFromFile(file.getPath());
+        WriteAheadLog restoredLog = new WriteAheadLog(logFile.getPath(), 1000);
+        restoredLog.replay(restoredUsers, restoredMessenger);
+        restoredLog.close();
+        restoredMessenger.setUserManager(restoredUsers);
+
+        assertEquals(Collections.singletonList("1"), restoredUsers.getUserIdsWithRole(Role.VIP));
+        assertEquals(2, restoredMessenger.getConversations().size());
+        assertEquals(conversationId, restoredMessenger.getConversations().get(0).getId());
+        assertEquals(2, restoredMessenger.getConversations().get(0).getMessages().size());
+        assertEquals(messengerManager.getConvoMessageIdsByConvoId(conversationId),
+                restoredMessenger.getConvoMessageIdsByConvoId(conversationId));
+    }
+
+    @Test
+    public void readFromFileRejectsOtherFormatsAndKindsTest() throws Exception {
+        new MappedSnapshotGateway<>(EntityCodec.USER_MANAGER_SNAPSHOT).saveToFile(file.getPath(), new UserManager());
+        assertNull(new MappedSnapshotGateway<>(EntityCodec.MESSENGER_MANAGER_SNAPSHOT).readFromFile(file.getPath()));
+
+        new BinaryDataGateway<>(EntityCodec.USER_MANAGER).saveToFile(file.getPath(), new UserManager());
+        assertNull(new MappedSnapshotGateway<>(EntityCodec.USER_MANAGER_SNAPSHOT).readFromFile(file.getPath()));
+    }
+}
@@ -0,0 +1,235 @@
+package backend.data.manager;
+
+import com.conference.backend.data.utils.Role;
+import com.conference.backend.messenger.managers.MessageManager;
+import com.conference.backend.messenger.managers.MessengerManager;
+import com.conference.backend.security.BinaryDataGateway;
+import com.conference.backend.security.EntityCodec;
+import com.conference.backend.users.User;
+import com.conference.backend.users.UserManager;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the read cursors, unread counts, archive, deleted messages and inbox order of {@link MessageManager}
+ *
+ */
+public class MessageManagerIT {
+
+    private MessengerManager messengerManager;
+
+    @Before
+    public void setUp() {
+        UserManager userManager = new UserManager();
+        for (String id : Arrays.asList("a", "b", "c")) {
+            User user = new User(id + "@gmail.com", "hash", "First", "Last", Role.ATTENDEE);
+            user.setId(id);
+            userManager.save(user);
+        }
+        messengerManager = new MessengerManager(userManager);
+        messengerManager.update();
+    }
+
+    private String startConversation(String sender, String receiver) throws Exception {
+        messengerManager.organizerOrAttendeeSendToAttendeeOrSpeaker(sender, receiver, "Hello");
+        return messengerManager.getConversations().get(messengerManager.getConversations().size() - 1).getId();
+    }
+
+    @Test
+    public void repliesAreCountedUntilReadTest() throws Exception {
+        String conversation = startConversation("a", "b");
+        MessageManager a = messengerManager.getMessageManager("a");
+        MessageManager b = messengerManager.getMessageManager("b");
+        assertEquals(0, a.getUnreadMessageCount());
+        assertEquals(1, b.getUnreadMessageCount());
+
+        messengerManager.replyToMessageInConversation("a", conversation, "Are you there?");
+        messengerManager.replyToMessageInConversation("a", conversation, "Hello?");
+        assertEquals(3, b.getUnreadMessageCount(conversation));
+        assertEquals(3, b.getUnreadMessageCount());
+        assertEquals(1, b.getUnreadConversationCount());
+        assertEquals(MessageManager.UNREAD, b.getConversationsMap().get(conversation));
+        assertEquals(0, a.getUnreadMessageCount());
+        assertEquals(MessageManager.READ, a.getConversationsMap().get(conversation));
+
+        b.markConversationAsRead(conversation);
+        assertEquals(0, b.getUnreadMessageCount());
+        assertEquals(3, b.getReadCount(conversation));
+        assertTrue(b.getUnreadConversationsIds().isEmpty());
+
+        messengerManager.replyToMessageInConversation("b", conversation, "Yes");
+        assertEquals(4, a.getMessageCount(conversation));
+        assertEquals(1, a.getUnreadMessageCount());
+        assertEquals(0, b.getUnreadMessageCount());
+    }
+
+    @Test
+    public void unreadCountsSpanConversationsTest() throws Exception {
+        String fromA = startConversation("a", "c");
+        String fromB = startConversation("b", "c");
+        MessageManager c = messengerManager.getMessageManager("c");
+        messengerManager.replyToMessageInConversation("b", fromB, "Again");
+
+        assertEquals(3, c.getUnreadMessageCount());
+        assertEquals(Arrays.asList(fromA, fromB), c.getUnreadConversationsIds());
+
+        c.markConversationAsRead(fromA);
+        assertEquals(2, c.getUnreadMessageCount());
+        assertEquals(Collections.singletonList(fromB), c.getUnreadConversationsIds());
+
+        // Marking as unread leaves only the latest message unread
+        c.markConversationAsRead(fromB);
+        c.markConversationAsUnread(fromB);
+        assertEquals(1, c.getUnreadMessageCount());
+        assertEquals(MessageManager.UNREAD, c.getConversationsMap().get(fromB));
+
+        c.deleteConversation(fromB, messengerManager.getConvoMessageIdsByConvoId(fromB));
+        assertEquals(0, c.getUnreadMessageCount());
+        assertEquals(0, c.getUnreadConversationCount());
+        assertFalse(c.getConversationsMap().containsKey(fromB));
+        assertEquals(1, c.getConversationsMap().size());
+    }
+
+    @Test
+    public void archivedConversationsAreSkippedUntilUnarchivedTest() throws Exception {
+        String first = startConversation("a", "c");
+        String second = startConversation("b", "c");
+        MessageManager c = messengerManager.getMessageManager("c");
+
+        c.archiveConversation(first);
+        c.archiveConversation(first);
+        assertTrue(c.isArchived(first));
+        assertEquals(Collections.singletonList(first), c.getArchivedConversationsIds());
+        assertEquals(Collections.singletonList(second), c.getUnarchivedConversationsIds());
+
+        // A reply brings the conversation back
+        messengerManager.replyToMessageInConversation("a", first, "Again");
+        assertFalse(c.isArchived(first));
+        assertEquals(2, c.getUnarchivedConversationsIds().size());
+    }
+
+    @Test
+    public void deletedMessagesAreCompactedOnceGoneTest() throws Exception {
+        String conversation = startConversation("a", "b");
+        messengerManager.replyToMessageInConversation("a", conversation, "Second");
+        messengerManager.replyToMessageInConversation("a", conversation, "Third");
+        List<String> messageIds = messengerManager.getConvoMessageIdsByConvoId(conversation);
+        MessageManager a = messengerManager.getMessageManager("a");
+        MessageManager b = messengerManager.getMessageManager("b");
+
+        b.deleteMessageInConversation(conversation, messageIds.get(0));
+        b.deleteMessageInConversation(conversation, messageIds.get(1));
+        a.deleteMessageInConversation(conversation, messageIds.get(1));
+        assertTrue(b.isMessageDeleted(conversation, messageIds.get(0)));
+        assertFalse(b.isMessageDeleted(conversation, messageIds.get(2)));
+
+        // Deleting a message for everyone forgets every member's own deletion of it
+        messengerManager.deleteMessageInAllConvosByMsgIdAndConvoId(conversation, messageIds.get(1));
+        assertFalse(a.isMessageDeleted(conversation, messageIds.get(1)));
+        assertFalse(a.getDeletedMessagesInConversations().containsKey(conversation));
+        assertEquals(1, b.getDeletedMessagesInConversations().get(conversation).size());
+        assertEquals(0, messengerManager.compactDeletedMessages());
+
+        // Messages of conversations that no longer exist are forgotten by compaction
+        b.deleteMessageInConversation("gone", "m1");
+        b.deleteMessageInConversation("gone", "m2");
+        assertEquals(2, messengerManager.compactDeletedMessages());
+        assertFalse(b.getDeletedMessagesInConversations().containsKey("gone"));
+        assertTrue(b.isMessageDeleted(conversation, messageIds.get(0)));
+    }
+
+    @Test
+    public void inboxIsOrderedByLatestMessageAndPagedTest() {
+        MessageManager inbox = new MessageManager("a");
+        for (int i = 0; i < 5; i++) {
+            inbox.addConversation("c" + i);
+            inbox.recordActivity("c" + i, 1000 + i);
+        }
+        assertEquals(Arrays.asList("c4", "c3", "c2", "c1", "c0"), inbox.getUnarchivedConversationsIds());
+        assertEquals(Arrays.asList("c4", "c3"), inbox.getInboxPage(0, 2));
+        assertEquals(Arrays.asList("c2", "c1"), inbox.getInboxPage(2, 2));
+        assertEquals(Collections.singletonList("c0"), inbox.getInboxPage(4, 2));
+        assertTrue(inbox.getInboxPage(5, 2).isEmpty());
+
+        // A new message moves its conversation to the front; an older one does not move it back
+        inbox.recordActivity("c1", 2000);
+        inbox.recordActivity("c1", 1500);
+        assertEquals(2000, inbox.getLastActivity("c1"));
+        assertEquals(Arrays.asList("c1", "c4"), inbox.getInboxPage(0, 2));
+
+        inbox.archiveConversation("c4");
+        assertEquals(4, inbox.getInboxSize());
+        assertEquals(Arrays.asList("c1", "c3"), inbox.getInboxPage(0, 2));
+        inbox.recordActivity("c4", 3000);
+        assertEquals(4, inbox.getInboxSize());
+        inbox.removeConversationFromArchived("c4");
+        assertEquals(Arrays.asList("c4", "c1"), inbox.getInboxPage(0, 2));
+
+        inbox.deleteConversation("c4", Collections.emptyList());
+        assertEquals(4, inbox.getInboxSize());
+        assertEquals(Arrays.asList("c1", "c3", "c2", "c0"), inbox.getUnarchivedConversationsIds());
+
+        // Conversations never timed come last
+        inbox.addConversation("untimed");
+        assertEquals(Collections.singletonList("untimed"), inbox.getInboxPage(4, 2));
+    }
+
+    @Test
+    public void sendingAndReplyingTimeConversationsTest() throws Exception {
+        String conversation = startConversation("a", "b");
+        MessageManager a = messengerManager.getMessageManager("a");
+        MessageManager b = messengerManager.getMessageManager("b");
+        long started = b.getLastActivity(conversation);
+        assertNotEquals(MessageManager.UNKNOWN_ACTIVITY, started);
+        assertEquals(started, a.getLastActivity(conversation));
+
+        b.archiveConversation(conversation);
+        assertEquals(0, b.getInboxSize());
+        messengerManager.replyToMessageInConversation("a", conversation, "Again");
+        assertEquals(Collections.singletonList(conversation), b.getInboxPage(0, 10));
+        assertTrue(b.getLastActivity(conversation) >= started);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void statusesAreReadOnlyTest() throws Exception {
+        String conversation = startConversation("a", "b");
+        messengerManager.getMessageManager("b").getConversationsMap().put(conversation, MessageManager.READ);
+    }
+
+    @Test
+    public void readCursorsSurviveSerializationTest() throws Exception {
+        String conversation = startConversation("a", "b");
+        messengerManager.replyToMessageInConversation("a", conversation, "Again");
+        MessageManager b = messengerManager.getMessageManager("b");
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+            output.writeObject(b);
+        }
+        MessageManager copy;
+        try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (MessageManager) input.readObject();
+        }
+        assertEquals(2, copy.getUnreadMessageCount());
+        assertEquals(2, copy.getMessageCount(conversation));
+        assertEquals(MessageManager.UNREAD, copy.getConversationsMap().get(conversation));
+        assertEquals(b.getLastActivity(conversation), copy.getLastActivity(conversation));
+        assertEquals(Collections.singletonList(conversation), copy.getInboxPage(0, 10));
+
+        File file = File.createTempFile("messenger", ".bin");
+        file.deleteOnExit();
+        BinaryDataGateway<MessengerManager> gateway = new BinaryDataGateway<>(EntityCodec.MESSENGER_MANAGER);
+        gateway.saveToFile(file.getPath(), messengerManager);
+        MessageManager decoded = gateway.readFromFile(file.getPath()).getMessageManager("b");
+        assertEquals(2, decoded.getUnreadMessageCount(conversation));
+        assertEquals(0, decoded.getReadCount(conversation));
+        assertEquals(b.getLastActivity(conversation), decoded.getLastActivity(conversation));
+    }
+}
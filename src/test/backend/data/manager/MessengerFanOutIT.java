@@ -0,0 +1,170 @@
+package backend.data.manager;
+
+import com.conference.backend.conference_and_rooms.entities.ConferenceEvent;
+import com.conference.backend.conference_and_rooms.entities.DateInterval;
+import com.conference.backend.conference_and_rooms.entities.EventType;
+import com.conference.backend.conference_and_rooms.managers.ConferenceEventManager;
+import com.conference.backend.data.utils.Role;
+import com.conference.backend.exception.EmptyReceiversException;
+import com.conference.backend.messenger.managers.BroadcastProgress;
+import com.conference.backend.messenger.managers.MessageFanOutService;
+import com.conference.backend.messenger.managers.MessengerManager;
+import com.conference.backend.users.User;
+import com.conference.backend.users.UserManager;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for broadcasts sent by {@link MessengerManager} and delivered in batches in the background
+ *
+ */
+public class MessengerFanOutIT {
+
+    private static final int ATTENDEES = 10;
+
+    private UserManager userManager;
+    private MessengerManager messengerManager;
+
+    @Before
+    public void setUp() {
+        userManager = new UserManager();
+        User organizer = new User("organizer@gmail.com", "hash", "First", "Last", Role.ORGANIZER);
+        organizer.setId("o");
+        userManager.save(organizer);
+        for (int i = 0; i < ATTENDEES; i++) {
+            User user = new User("user" + i + "@gmail.com", "hash", "First", "Last", Role.ATTENDEE);
+            user.setId("u" + i);
+            userManager.save(user);
+        }
+        messengerManager = new MessengerManager(userManager);
+        messengerManager.update();
+    }
+
+    @Test
+    public void broadcastIsDeliveredInBatchesAfterSendingReturnsTest() throws Exception {
+        Queue<Runnable> batches = new ArrayDeque<>();
+        messengerManager.setFanOut(batches::add, 4);
+
+        BroadcastProgress progress = messengerManager.organizerSendToAllUserRole("o", "Hello", Role.ATTENDEE);
+        String conversationId = progress.getConversationId();
+
+        // The sender has the conversation straight away, and read
+        assertEquals("Read", messengerManager.getMessageManager("o").getConversationsMap().get(conversationId));
+        assertEquals(ATTENDEES, progress.getRecipientCount());
+        assertEquals(0, progress.getDeliveredCount());
+        assertFalse(messengerManager.getMessageManager("u0").getConversationsMap().containsKey(conversationId));
+
+        int[] expectedDelivered = {4, 8, 10};
+        for (int delivered : expectedDelivered) {
+            assertFalse(progress.isDone());
+            batches.remove().run();
+            assertEquals(delivered, progress.getDeliveredCount());
+        }
+        assertTrue(batches.isEmpty());
+        assertTrue(progress.isDone());
+        for (int i = 0; i < ATTENDEES; i++) {
+            assertEquals("Unread", messengerManager.getMessageManager("u" + i).getConversationsMap()
+                    .get(conversationId));
+        }
+        assertEquals(ATTENDEES + 1, messengerManager.getConversationMemberIdsByConvoId(conversationId).size());
+    }
+
+    @Test
+    public void replyBeforeDeliveryIsNotUndoneTest() throws Exception {
+        Queue<Runnable> batches = new ArrayDeque<>();
+        messengerManager.setFanOut(batches::add, ATTENDEES);
+
+        BroadcastProgress progress = messengerManager.organizerSendToAllUserRole("o", "Hello", Role.ATTENDEE);
+        String conversationId = progress.getConversationId();
+        messengerManager.replyToMessageInConversation("o", conversationId, "Again");
+        messengerManager.getMessageManager("u0").markConversationAsRead(conversationId);
+        batches.remove().run();
+
+        assertTrue(progress.isDone());
+        assertEquals("Read", messengerManager.getMessageManager("u0").getConversationsMap().get(conversationId));
+        assertEquals("Unread", messengerManager.getMessageManager("u1").getConversationsMap().get(conversationId));
+    }
+
+    @Test
+    public void awaitBroadcastsWaitsForBackgroundDeliveryTest() throws Exception {
+        MessageFanOutService fanOutService = new MessageFanOutService();
+        messengerManager.setFanOut(fanOutService, 3);
+
+        BroadcastProgress first = messengerManager.organizerSendToAllUserRole("o", "Hello", Role.ATTENDEE);
+        BroadcastProgress second = messengerManager.organizerSendToAllUserRole("o", "Bye", Role.ATTENDEE);
+        messengerManager.awaitBroadcasts();
+
+        assertTrue(first.isDone());
+        second.getCompletion().get(10, TimeUnit.SECONDS);
+        assertEquals(ATTENDEES, second.getDeliveredCount());
+        for (int i = 0; i < ATTENDEES; i++) {
+            assertEquals(2, messengerManager.getMessageManager("u" + i).getConversationsMap().size());
+        }
+        fanOutService.close();
+    }
+
+    @Test
+    public void directMessageIsDeliveredBeforeReturningTest() throws Exception {
+        messengerManager.setFanOut(command -> fail("Direct messages are not broadcasts"), 1);
+
+        messengerManager.organizerOrAttendeeSendToAttendeeOrSpeaker("u0", "u1", "Hi");
+
+        assertEquals(1, messengerManager.getMessageManager("u1").getConversationsMap().size());
+        assertTrue(messengerManager.getMessageManager("u0").getConversationsMap().containsValue("Read"));
+    }
+
+    @Test
+    public void speakerBroadcastReachesAttendeesOfOverlappingTalksOnceTest() throws Exception {
+        messengerManager.setFanOut(Runnable::run, 4);
+        ConferenceEventManager eventManager = new ConferenceEventManager();
+        List<Role> organizer = Collections.singletonList(Role.ORGANIZER);
+        eventManager.getRoomRepository().addRoom(organizer, eventManager.getRoomRepository().createRoom("R1", 100));
+        List<String> eventNames = new ArrayList<>();
+        for (int e = 0; e < 3; e++) {
+            ConferenceEvent event = eventManager.createConferenceEvent("E" + e, ATTENDEES, EventType.PARTY);
+            assertTrue(eventManager.addEvent(organizer, new DateInterval(new Date(2020, 11, 1 + e, 18, 0),
+                    new Date(2020, 11, 1 + e, 19, 0)), "R1", event));
+            eventNames.add("E" + e);
+            // Every talk has the first half of the attendees, and one of them also has the rest
+            int attendees = e == 2 ? ATTENDEES : ATTENDEES / 2;
+            for (int i = 0; i < attendees; i++) {
+                assertTrue(userManager.signUpUserForConferenceEvent("u" + i, eventManager, event));
+            }
+        }
+
+        BroadcastProgress progress = messengerManager.speakerSendToAllAttendeesOfTalks("o", eventNames, "Hello",
+                eventManager);
+
+        assertEquals(ATTENDEES, progress.getRecipientCount());
+        List<String> members = messengerManager.getConversationMemberIdsByConvoId(progress.getConversationId());
+        assertEquals(ATTENDEES + 1, new HashSet<>(members).size());
+        assertEquals(ATTENDEES + 1, members.size());
+    }
+
+    @Test
+    public void broadcastToOwnRoleLeavesSenderOutTest() throws Exception {
+        messengerManager.setFanOut(Runnable::run, 4);
+        User other = new User("other@gmail.com", "hash", "First", "Last", Role.ORGANIZER);
+        other.setId("o2");
+        userManager.save(other);
+        messengerManager.update();
+
+        BroadcastProgress progress = messengerManager.organizerSendToAllUserRole("o", "Hello", Role.ORGANIZER);
+
+        assertEquals(1, progress.getRecipientCount());
+        assertEquals(Arrays.asList("o2", "o"),
+                messengerManager.getConversationMemberIdsByConvoId(progress.getConversationId()));
+        assertEquals("Read", messengerManager.getMessageManager("o").getConversationsMap()
+                .get(progress.getConversationId()));
+    }
+
+    @Test(expected = EmptyReceiversException.class)
+    public void broadcastToNoOneThrowsTest() throws Exception {
+        messengerManager.organizerSendToAllUserRole("o", "Hello", Role.SPEAKER);
+    }
+}
@@ -0,0 +1,109 @@
+package backend.data.manager;
+
+import com.conference.backend.data.utils.Role;
+import com.conference.backend.security.HashingService;
+import com.conference.backend.security.PBKDF2Hasher;
+import com.conference.backend.security.PBKDF2WithHmacSHA1Hasher;
+import com.conference.backend.users.SessionRegistry;
+import com.conference.backend.users.UserLoginManager;
+import com.conference.backend.users.UserManager;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link PBKDF2Hasher} and upgrading password hashes when {@link UserLoginManager} logs users in
+ *
+ */
+public class PBKDF2HasherIT {
+
+    private PBKDF2Hasher hasher;
+    private String legacyHash;
+    private UserManager userRepository;
+    private UserLoginManager userLoginManager;
+
+    @Before
+    public void setUp() {
+        hasher = new PBKDF2Hasher("PBKDF2WithHmacSHA256", 2000);
+        legacyHash = new PBKDF2WithHmacSHA1Hasher().generateStrongPasswordHash("password");
+        userRepository = new UserManager();
+        userRepository.save(userRepository.createNew("a@gmail.com", legacyHash, "First", "Last", Role.ATTENDEE));
+        userLoginManager = new UserLoginManager(userRepository, new SessionRegistry(), new HashingService(1, 1),
+                hasher);
+    }
+
+    @Test
+    public void hashStoresParametersTest() {
+        String hash = hasher.generateStrongPasswordHash("password");
+
+        assertTrue(hash.startsWith("PBKDF2WithHmacSHA256:2000:"));
+        assertEquals(4, hash.split(":").length);
+        assertTrue(hasher.validatePassword("password", hash));
+        assertFalse(hasher.validatePassword("wrong", hash));
+        assertFalse(hasher.needsRehash(hash));
+        assertTrue(new PBKDF2Hasher("PBKDF2WithHmacSHA256", 3000).needsRehash(hash));
+        assertTrue(new PBKDF2Hasher("PBKDF2WithHmacSHA512", 2000).needsRehash(hash));
+    }
+
+    @Test
+    public void slightlyFewerIterationsDoNotNeedRehashTest() {
+        String hash = hasher.generateStrongPasswordHash("password");
+
+        // As after a calibration that measured the machine a little faster than last time
+        assertFalse(new PBKDF2Hasher("PBKDF2WithHmacSHA256", 2500).needsRehash(hash));
+        assertTrue(new PBKDF2Hasher("PBKDF2WithHmacSHA256", 2501).needsRehash(hash));
+    }
+
+    @Test
+    public void legacyHashValidatesAndNeedsRehashTest() {
+        assertTrue(legacyHash.startsWith("1000:"));
+        assertTrue(hasher.validatePassword("password", legacyHash));
+        assertFalse(hasher.validatePassword("wrong", legacyHash));
+        assertTrue(hasher.needsRehash(legacyHash));
+        assertFalse(new PBKDF2WithHmacSHA1Hasher().needsRehash(legacyHash));
+    }
+
+    @Test
+    public void calibrateTest() {
+        PBKDF2Hasher fast = PBKDF2Hasher.calibrate("PBKDF2WithHmacSHA256", Duration.ofNanos(1));
+        PBKDF2Hasher slow = PBKDF2Hasher.calibrate("PBKDF2WithHmacSHA256", Duration.ofMillis(50));
+
+        assertEquals(PBKDF2Hasher.MIN_ITERATIONS, fast.getIterations());
+        assertEquals(0, slow.getIterations() % 1000);
+        assertTrue(slow.getIterations() > fast.getIterations());
+        assertEquals("PBKDF2WithHmacSHA256", slow.getAlgorithm());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unsupportedAlgorithmTest() {
+        new PBKDF2Hasher("PBKDF2WithHmacMD0", 1000);
+    }
+
+    @Test
+    public void logInRehashesOutdatedHashTest() throws Exception {
+        assertFalse(userLoginManager.logInUser("a@gmail.com", "wrong"));
+        assertEquals(legacyHash, userRepository.getUserByEmailOrThrow("a@gmail.com").getPasswordHash());
+
+        assertTrue(userLoginManager.logInUser("a@gmail.com", "password"));
+        String upgraded = userRepository.getUserByEmailOrThrow("a@gmail.com").getPasswordHash();
+        assertTrue(upgraded.startsWith("PBKDF2WithHmacSHA256:2000:"));
+
+        // Logging in again keeps the upgraded hash
+        assertTrue(userLoginManager.logInUser("a@gmail.com", "password"));
+        assertEquals(upgraded, userRepository.getUserByEmailOrThrow("a@gmail.com").getPasswordHash());
+    }
+
+    @Test
+    public void asyncLogInRehashesOutdatedHashTest() throws Exception {
+        assertFalse(userLoginManager.logInUserAsync("a@gmail.com", "wrong").get());
+        assertEquals(legacyHash, userRepository.getUserByEmailOrThrow("a@gmail.com").getPasswordHash());
+
+        assertTrue(userLoginManager.logInUserAsync("a@gmail.com", "password").get());
+        assertTrue(userRepository.getUserByEmailOrThrow("a@gmail.com").getPasswordHash()
+                .startsWith("PBKDF2WithHmacSHA256:2000:"));
+        assertTrue(userLoginManager.logInUserAsync("a@gmail.com", "password").get());
+    }
+}
@@ -0,0 +1,85 @@
+package backend.data.manager;
+
+import com.conference.backend.data.utils.Role;
+import com.conference.backend.security.DataGateway;
+import com.conference.backend.security.RepositoryLifecycle;
+import com.conference.backend.users.AppTrafficManager;
+import com.conference.backend.users.User;
+import com.conference.backend.users.UserManager;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link RepositoryLifecycle}
+ *
+ */
+public class RepositoryLifecycleIT {
+
+    private RepositoryLifecycle lifecycle;
+    private File userFile;
+    private File trafficFile;
+
+    @Before
+    public void setUp() throws IOException {
+        lifecycle = new RepositoryLifecycle(2);
+        userFile = File.createTempFile("user", ".ser");
+        trafficFile = File.createTempFile("traffic", ".ser");
+        userFile.deleteOnExit();
+        trafficFile.deleteOnExit();
+    }
+
+    @Test
+    public void saveThenLoadEveryRepositoryTest() {
+        UserManager userManager = new UserManager();
+        User user = new User("a@gmail.com", "hash", "First", "Last", Role.ATTENDEE);
+        user.setId("1");
+        userManager.save(user);
+        AppTrafficManager trafficManager = new AppTrafficManager();
+        trafficManager.updateLogoutsAllTime();
+
+        RepositoryLifecycle.awaitAll(
+                lifecycle.save(new DataGateway<>(), userFile.getPath(), userManager),
+                lifecycle.save(new DataGateway<>(), trafficFile.getPath(), trafficManager));
+        assertTrue(lifecycle.getSaveTimings().containsKey(userFile.getName()));
+        assertTrue(lifecycle.getSaveTimings().containsKey(trafficFile.getName()));
+        assertFalse(new File(userFile.getPath() + ".tmp").exists());
+
+        CompletableFuture<UserManager> userLoad = lifecycle.load(new DataGateway<>(), userFile.getPath());
+        CompletableFuture<AppTrafficManager> trafficLoad = lifecycle.load(new DataGateway<>(),
+                trafficFile.getPath());
+        RepositoryLifecycle.awaitAll(userLoad, trafficLoad);
+
+        assertTrue(userLoad.join().hasUserById("1"));
+        assertEquals(trafficManager.getLogoutsAllTime(), trafficLoad.join().getLogoutsAllTime());
+        assertEquals(2, lifecycle.getLoadTimings().size());
+    }
+
+    @Test
+    public void loadOfMissingFileCompletesWithNullTest() {
+        CompletableFuture<UserManager> load = lifecycle.load(new DataGateway<>(),
+                new File(userFile.getParent(), "missing" + System.nanoTime() + ".ser").getPath());
+        assertNull(load.join());
+    }
+
+    @Test
+    public void failedSaveFailsAwaitAllTest() {
+        String unwritable = new File(userFile.getPath(), "user.ser").getPath();
+        try {
+            RepositoryLifecycle.awaitAll(
+                    lifecycle.save(new DataGateway<>(), unwritable, new UserManager()),
+                    lifecycle.save(new DataGateway<>(), trafficFile.getPath(), new AppTrafficManager()));
+            fail("Expected the save to fail");
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof UncheckedIOException);
+        }
+        assertTrue(lifecycle.getSaveTimings().containsKey(trafficFile.getName()));
+    }
+}
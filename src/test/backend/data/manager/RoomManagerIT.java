@@ -2,6 +2,7 @@ package backend.data.manager;
 
 import com.conference.backend.data.utils.*;
 import com.conference.backend.conference_and_rooms.managers.RoomManager;
+import com.conference.backend.conference_and_rooms.entities.DateInterval;
 import com.conference.backend.conference_and_rooms.entities.Room;
 
 import java.util.*;
@@ -120,4 +121,47 @@ public class RoomManagerIT {
         assertTrue(roomManager.addRoom(roles, roomManager.createRoom("ConferenceRoom", 5)));
         assertTrue(roomManager.hasRoom("ConferenceRoom"));
     }
+
+    @Test
+    public void getRoomNameByEventNameAfterScheduleAndUnscheduleTest() {
+        RoomManager roomManager = new RoomManager();
+        User organizer = new User();
+        organizer.addRole(Role.ORGANIZER);
+        List<Role> roles = organizer.getRoles();
+        assertTrue(roomManager.addRoom(roles, roomManager.createRoom("r1", 5)));
+        assertTrue(roomManager.addRoom(roles, roomManager.createRoom("r2", 5)));
+
+        DateInterval interval = new DateInterval(new Date(2020, 11, 3, 18, 0), new Date(2020, 11, 3, 19, 0));
+        assertTrue(roomManager.scheduleEvent("r2", interval, "E1"));
+        assertFalse(roomManager.scheduleEvent("r2", interval, "E2"));
+        assertEquals("r2", roomManager.getRoomNameByEventName("E1"));
+        assertEquals("", roomManager.getRoomNameByEventName("E2"));
+        assertTrue(roomManager.getRoomByEventName("E1").getDateInterval("E1").equals(interval));
+
+        assertTrue(roomManager.unscheduleEvent("E1"));
+        assertFalse(roomManager.unscheduleEvent("E1"));
+        assertEquals("", roomManager.getRoomNameByEventName("E1"));
+        assertNull(roomManager.getRoomByEventName("E1"));
+    }
+
+    @Test
+    public void deletedRoomNoLongerHoldsItsEventsTest() {
+        RoomManager roomManager = new RoomManager();
+        User organizer = new User();
+        organizer.addRole(Role.ORGANIZER);
+        List<Role> roles = organizer.getRoles();
+        assertTrue(roomManager.addRoom(roles, roomManager.createRoom("r1", 5)));
+        assertTrue(roomManager.addRoom(roles, roomManager.createRoom("r2", 5)));
+
+        DateInterval interval = new DateInterval(new Date(2020, 11, 3, 18, 0), new Date(2020, 11, 3, 19, 0));
+        assertTrue(roomManager.scheduleEvent("r1", interval, "E1"));
+        assertTrue(roomManager.scheduleEvent("r2", interval, "E2"));
+
+        roomManager.delete(roomManager.getRoomsMap().get("r1"));
+        assertFalse(roomManager.hasRoom("r1"));
+        assertEquals("", roomManager.getRoomNameByEventName("E1"));
+        assertNull(roomManager.getRoomByEventName("E1"));
+        assertFalse(roomManager.unscheduleEvent("E1"));
+        assertEquals("r2", roomManager.getRoomNameByEventName("E2"));
+    }
 }
@@ -0,0 +1,164 @@
+package backend.data.manager;
+
+import com.conference.backend.data.utils.Role;
+import com.conference.backend.users.SessionRegistry;
+import com.conference.backend.users.User;
+import com.conference.backend.users.UserLoginManager;
+import com.conference.backend.users.UserManager;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link SessionRegistry} and {@link UserLoginManager}s sharing one
+ *
+ */
+public class SessionRegistryIT {
+
+    private UserManager userRepository;
+    private MutableClock clock;
+    private SessionRegistry sessionRegistry;
+
+    /**
+     * A clock that only moves when told to.
+     */
+    private static class MutableClock extends Clock {
+        private long millis;
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+    }
+
+    @Before
+    public void setUp() {
+        userRepository = new UserManager();
+        User u1 = new User("a@gmail.com", "hash", "First", "Last", Role.ATTENDEE);
+        User u2 = new User("b@gmail.com", "hash", "First", "Last", Role.ATTENDEE);
+        u1.setId("1");
+        u2.setId("2");
+        userRepository.save(u1);
+        userRepository.save(u2);
+        clock = new MutableClock();
+        sessionRegistry = new SessionRegistry(Duration.ofMinutes(10), clock);
+    }
+
+    @Test
+    public void clientsSharingRegistryHaveTheirOwnUsersTest() {
+        UserLoginManager kiosk1 = new UserLoginManager(userRepository, sessionRegistry);
+        UserLoginManager kiosk2 = new UserLoginManager(userRepository, sessionRegistry);
+        assertFalse(kiosk1.hasCurrentUser());
+
+        kiosk1.setUser(userRepository.getUserByIdOrNull("1"));
+        kiosk2.setUser(userRepository.getUserByIdOrNull("2"));
+        assertEquals("1", kiosk1.getCurrentUserId());
+        assertEquals("2", kiosk2.getCurrentUserId());
+        assertEquals(2, sessionRegistry.size());
+
+        kiosk1.setUser(null);
+        assertFalse(kiosk1.hasCurrentUser());
+        assertEquals("2", kiosk2.getCurrentUserId());
+        assertEquals(1, sessionRegistry.size());
+    }
+
+    @Test
+    public void sessionExpiresWhenIdleTest() {
+        UserLoginManager kiosk = new UserLoginManager(userRepository, sessionRegistry);
+        kiosk.setUser(userRepository.getUserByIdOrNull("1"));
+
+        // Using the session extends it
+        clock.millis += Duration.ofMinutes(9).toMillis();
+        assertTrue(kiosk.hasCurrentUser());
+        clock.millis += Duration.ofMinutes(9).toMillis();
+        assertEquals("1", kiosk.getCurrentUserId());
+
+        clock.millis += Duration.ofMinutes(10).toMillis();
+        assertFalse(kiosk.hasCurrentUser());
+        assertEquals("", kiosk.getCurrentUserId());
+        assertEquals(0, sessionRegistry.size());
+    }
+
+    @Test
+    public void actionKeepsItsUserWhenSessionExpiresTest() {
+        UserLoginManager kiosk = new UserLoginManager(userRepository, sessionRegistry);
+        kiosk.setUser(userRepository.getUserByIdOrNull("1"));
+
+        assertEquals("1", kiosk.beginAction());
+        clock.millis += Duration.ofMinutes(11).toMillis();
+        assertEquals("1", kiosk.getCurrentUserId());
+        assertTrue(kiosk.hasCurrentUser());
+
+        // Once the action ends, the expired session logs the user out
+        kiosk.endAction();
+        assertFalse(kiosk.hasCurrentUser());
+        assertEquals("", kiosk.beginAction());
+        assertEquals("", kiosk.getCurrentUserId());
+    }
+
+    @Test
+    public void useDuringActionKeepsSessionAliveTest() {
+        UserLoginManager kiosk = new UserLoginManager(userRepository, sessionRegistry);
+        kiosk.setUser(userRepository.getUserByIdOrNull("1"));
+
+        // A long action whose steps each come within the idle timeout of the last
+        assertEquals("1", kiosk.beginAction());
+        for (int i = 0; i < 3; i++) {
+            clock.millis += Duration.ofMinutes(8).toMillis();
+            assertEquals("1", kiosk.getCurrentUserId());
+        }
+        kiosk.endAction();
+        assertTrue(kiosk.hasCurrentUser());
+        assertEquals("1", sessionRegistry.resolve(kiosk.getSessionToken()));
+    }
+
+    @Test
+    public void creatingSessionEvictsExpiredSessionsTest() {
+        String first = sessionRegistry.createSession("1");
+        clock.millis += Duration.ofMinutes(11).toMillis();
+        String second = sessionRegistry.createSession("2");
+
+        assertNotEquals(first, second);
+        assertEquals(1, sessionRegistry.size());
+        assertNull(sessionRegistry.resolve(first));
+        assertEquals("2", sessionRegistry.resolve(second));
+    }
+
+    @Test
+    public void sessionCanBeResumedOnAnotherClientTest() throws Exception {
+        UserLoginManager kiosk1 = new UserLoginManager(userRepository, sessionRegistry);
+        UserLoginManager kiosk2 = new UserLoginManager(userRepository, sessionRegistry);
+        kiosk1.setUser(userRepository.getUserByIdOrNull("1"));
+
+        assertFalse(kiosk2.resumeSession("not a token"));
+        assertTrue(kiosk2.resumeSession(kiosk1.getSessionToken()));
+        assertEquals("1", kiosk2.getCurrentUserId());
+
+        // Deleting the user ends their sessions everywhere
+        kiosk1.deleteUser(userRepository.getUserByIdOrNull("1"));
+        assertFalse(kiosk1.hasCurrentUser());
+        assertFalse(kiosk2.hasCurrentUser());
+    }
+}
@@ -1,5 +1,9 @@
 package backend.data.manager;
 
+import com.conference.backend.conference_and_rooms.entities.ConferenceEvent;
+import com.conference.backend.conference_and_rooms.entities.DateInterval;
+import com.conference.backend.conference_and_rooms.entities.EventType;
+import com.conference.backend.conference_and_rooms.managers.ConferenceEventManager;
 import com.conference.backend.users.UserLoginManager;
 import com.conference.backend.data.utils.Role;
 import com.conference.backend.users.User;
@@ -10,10 +14,12 @@ import org.junit.Test;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -139,4 +145,70 @@ public class UserManagerAndUserLoginManagerIT {
 
         assertEquals(result, usersWithOnlyOrganizerRole);
     }
+
+    @Test
+    public void getUserByEmailIgnoresCaseAndRejectsDuplicateEmails() throws UserNotFoundException {
+        assertTrue(userLoginManager.signUp("Abc@Gmail.com", "hashmonkey", "first", "last", Role.ATTENDEE));
+        String id = userRepository.getUserIdByEmail("abc@gmail.com");
+
+        assertTrue(userRepository.hasUserByEmail(" ABC@gmail.COM "));
+        assertFalse(userLoginManager.signUp("abc@GMAIL.com", "hashmonkey", "other", "last", Role.ATTENDEE));
+        assertEquals(1, userRepository.getUsers().size());
+
+        userRepository.delete(userRepository.getUserByIdOrThrow(id));
+        assertFalse(userRepository.hasUserByEmail("abc@gmail.com"));
+        assertTrue(userLoginManager.signUp("abc@gmail.com", "hashmonkey", "first", "last", Role.ATTENDEE));
+    }
+
+    @Test
+    public void getUsersWithRoleReflectsAddedRolesAndDeletedUsers() throws UserNotFoundException {
+        assertTrue(userLoginManager.signUp("abc@gmail.com", "hashmonkey", "first", "last", Role.ATTENDEE));
+        assertTrue(userLoginManager.signUp("abcd@gmail.com", "hashmonkey", "first", "last", Role.ATTENDEE));
+        String a = userRepository.getUserIdByEmail("abc@gmail.com");
+        String b = userRepository.getUserIdByEmail("abcd@gmail.com");
+
+        assertTrue(userRepository.getUsersWithRole(Role.VIP).isEmpty());
+        userRepository.addRoleToUserById(b, Role.VIP);
+        assertEquals(Collections.singletonList(b), userRepository.getUserIdsWithRole(Role.VIP));
+        assertEquals(Collections.singletonList(a), userRepository
+                .getUsersWithRoleAndFilterRoles(Role.ATTENDEE, Role.VIP).stream()
+                .map(User::getId)
+                .collect(Collectors.toList()));
+
+        userRepository.delete(userRepository.getUserByIdOrThrow(b));
+        assertTrue(userRepository.getUserIdsWithRole(Role.VIP).isEmpty());
+        assertEquals(Collections.singletonList(a), userRepository.getUserIdsWithRole(Role.ATTENDEE));
+    }
+
+    @Test
+    public void signUpRejectsEventsAtOverlappingTimesUntilCancelled() throws UserNotFoundException {
+        assertTrue(userLoginManager.signUp("abc@gmail.com", "hashmonkey", "first", "last", Role.ATTENDEE));
+        String id = userRepository.getUserIdByEmail("abc@gmail.com");
+        List<Role> organizer = Collections.singletonList(Role.ORGANIZER);
+        ConferenceEventManager eventRepository = new ConferenceEventManager();
+        eventRepository.getRoomRepository().addRoom(organizer, eventRepository.getRoomRepository().createRoom("R1", 10));
+        eventRepository.getRoomRepository().addRoom(organizer, eventRepository.getRoomRepository().createRoom("R2", 10));
+        ConferenceEvent morning = eventRepository.createConferenceEvent("Morning", 5, EventType.PARTY);
+        ConferenceEvent overlapping = eventRepository.createConferenceEvent("Overlapping", 5, EventType.PARTY);
+        ConferenceEvent after = eventRepository.createConferenceEvent("After", 5, EventType.PARTY);
+        eventRepository.addEvent(organizer, new DateInterval(new Date(2020, 11, 3, 9, 0),
+                new Date(2020, 11, 3, 11, 0)), "R1", morning);
+        eventRepository.addEvent(organizer, new DateInterval(new Date(2020, 11, 3, 10, 0),
+                new Date(2020, 11, 3, 12, 0)), "R2", overlapping);
+        eventRepository.addEvent(organizer, new DateInterval(new Date(2020, 11, 3, 11, 0),
+                new Date(2020, 11, 3, 12, 0)), "R1", after);
+
+        assertTrue(userRepository.signUpUserForConferenceEvent(id, eventRepository, morning));
+        assertFalse(userRepository.signUpUserForConferenceEvent(id, eventRepository, morning));
+        assertFalse(userRepository.signUpUserForConferenceEvent(id, eventRepository, overlapping));
+        // Events that only touch do not overlap
+        assertTrue(userRepository.signUpUserForConferenceEvent(id, eventRepository, after));
+
+        assertTrue(userRepository.removeUserFromConferenceEvent(id, eventRepository, morning));
+        assertFalse(userRepository.signUpUserForConferenceEvent(id, eventRepository, overlapping));
+        // Deleting an event removes it from the schedule of its attendees
+        assertTrue(userRepository.removeConferenceEventFromConferenceEvents(id, "After"));
+        assertTrue(userRepository.signUpUserForConferenceEvent(id, eventRepository, overlapping));
+        assertEquals(Collections.singletonList("Overlapping"), userRepository.getConferenceEventsById(id));
+    }
 }
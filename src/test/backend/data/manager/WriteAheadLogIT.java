@@ -0,0 +1,350 @@
+package backend.data.manager;
+
+import com.conference.backend.conference_and_rooms.entities.ConferenceEvent;
+import com.conference.backend.conference_and_rooms.entities.DateInterval;
+import com.conference.backend.conference_and_rooms.entities.EventType;
+import com.conference.backend.conference_and_rooms.managers.ConferenceEventManager;
+import com.conference.backend.conference_and_rooms.managers.RoomManager;
+import com.conference.backend.data.utils.Role;
+import com.conference.backend.data.utils.base.Journal;
+import com.conference.backend.data.utils.base.Journaled;
+import com.conference.backend.messenger.managers.MessageManager;
+import com.conference.backend.messenger.managers.MessengerManager;
+import com.conference.backend.security.WriteAheadLog;
+import com.conference.backend.users.User;
+import com.conference.backend.users.UserManager;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link WriteAheadLog} replaying changes recorded by the managers
+ *
+ */
+public class WriteAheadLogIT {
+
+    private File logFile;
+    private List<Role> organizer;
+    private User u1;
+    private User u2;
+    private User u3;
+
+    @Before
+    public void setUp() throws IOException {
+        logFile = File.createTempFile("journal", ".wal");
+        logFile.deleteOnExit();
+        organizer = Collections.singletonList(Role.ORGANIZER);
+
+        u1 = new User("a@gmail.com", "hash", "First", "Last", Role.ATTENDEE);
+        u2 = new User("b@gmail.com", "hash", "First", "Last", Role.ATTENDEE);
+        u3 = new User("c@gmail.com", "hash", "First", "Last", Role.ATTENDEE);
+        u1.setId("1");
+        u2.setId("2");
+        u3.setId("3");
+    }
+
+    private void populate(UserManager userManager, ConferenceEventManager eventManager) {
+        userManager.save(u1);
+        userManager.save(u2);
+        userManager.save(u3);
+        userManager.delete(userManager.getUserByIdOrNull("3"));
+        userManager.addRoleToUserById("2", Role.SPEAKER);
+
+        eventManager.getRoomRepository().addRoom(organizer, eventManager.getRoomRepository().createRoom("R1", 10));
+        ConferenceEvent event = eventManager.createConferenceEvent("E1", 5, EventType.PARTY);
+        Date start = new Date(2020, 11, 3, 18, 0);
+        Date end = new Date(2020, 11, 3, 19, 0);
+        eventManager.addEvent(organizer, new DateInterval(start, end), "R1", event);
+        userManager.signUpUserForConferenceEvent("1", eventManager, event);
+    }
+
+    @Test
+    public void replayRestoresChangesMadeAfterSnapshotTest() throws Exception {
+        UserManager userManager = new UserManager();
+        ConferenceEventManager eventManager = new ConferenceEventManager();
+        WriteAheadLog log = new WriteAheadLog(logFile.getPath(), 1000);
+        log.replay(userManager, eventManager);
+        userManager.setJournal(log);
+        eventManager.setJournal(log);
+        populate(userManager, eventManager);
+        log.close();
+
+        UserManager restoredUsers = new UserManager();
+        ConferenceEventManager restoredEvents = new ConferenceEventManager();
+        WriteAheadLog restoredLog = new WriteAheadLog(logFile.getPath(), 1000);
+        restoredLog.replay(restoredUsers, restoredEvents);
+        restoredLog.close();
+
+        assertEquals(2, restoredUsers.getUsers().size());
+        assertFalse(restoredUsers.hasUserById("3"));
+        assertEquals("2", restoredUsers.getUserIdByEmail("B@gmail.com"));
+        assertEquals(1, restoredUsers.getUserIdsWithRole(Role.SPEAKER).size());
+        assertEquals(Collections.singletonList("E1"), restoredUsers.getConferenceEventsById("1"));
+
+        assertTrue(restoredEvents.hasEvent("E1"));
+        assertEquals(Collections.singletonList("1"), restoredEvents.getAttendeeListByConferenceEventName("E1"));
+        assertEquals("R1", restoredEvents.getRoomRepository().getRoomNameByEventName("E1"));
+        assertEquals(Collections.singletonList("E1"),
+                restoredEvents.getEventsAtInterval(restoredEvents.getDateByEventName("E1")));
+    }
+
+    @Test
+    public void signUpRecordsOnlyTheChangeTest() throws Exception {
+        UserManager userManager = new UserManager();
+        ConferenceEventManager eventManager = new ConferenceEventManager();
+        WriteAheadLog log = new WriteAheadLog(logFile.getPath(), 1000);
+        log.replay(userManager, eventManager);
+        userManager.setJournal(log);
+        eventManager.setJournal(log);
+
+        eventManager.getRoomRepository().addRoom(organizer, eventManager.getRoomRepository().createRoom("R1", 50));
+        ConferenceEvent event = eventManager.createConferenceEvent("E1", 50, EventType.PARTY);
+        Date start = new Date(2020, 11, 3, 18, 0);
+        Date end = new Date(2020, 11, 3, 19, 0);
+        eventManager.addEvent(organizer, new DateInterval(start, end), "R1", event);
+        for (int i = 10; i < 50; i++) {
+            User user = new User("user" + i + "@gmail.com", "hash", "First", "Last", Role.ATTENDEE);
+            user.setId(Integer.toString(i));
+            userManager.save(user);
+        }
+
+        // The last sign-up writes no more than the first, however many attendees the event already has
+        List<Long> written = new ArrayList<>();
+        for (int i = 10; i < 50; i++) {
+            long before = logFile.length();
+            assertTrue(userManager.signUpUserForConferenceEvent(Integer.toString(i), eventManager, event));
+            written.add(logFile.length() - before);
+        }
+        log.close();
+        assertEquals(written.get(0), written.get(written.size() - 1));
+
+        UserManager restoredUsers = new UserManager();
+        ConferenceEventManager restoredEvents = new ConferenceEventManager();
+        WriteAheadLog restoredLog = new WriteAheadLog(logFile.getPath(), 1000);
+        restoredLog.replay(restoredUsers, restoredEvents);
+        restoredLog.close();
+
+        assertEquals(40, restoredEvents.getAttendeeListByConferenceEventName("E1").size());
+        assertEquals(Collections.singletonList("E1"), restoredUsers.getConferenceEventsById("49"));
+    }
+
+    @Test
+    public void interleavedEventAndRoomRecordsRebuildSchedulesOnceTest() throws Exception {
+        ConferenceEventManager eventManager = new ConferenceEventManager();
+        WriteAheadLog log = new WriteAheadLog(logFile.getPath(), 1000);
+        log.replay(eventManager);
+        eventManager.setJournal(log);
+
+        List<Role> speaker = Collections.singletonList(Role.SPEAKER);
+        DateInterval evening = new DateInterval(new Date(2020, 11, 3, 18, 0), new Date(2020, 11, 3, 19, 0));
+        DateInterval night = new DateInterval(new Date(2020, 11, 3, 20, 0), new Date(2020, 11, 3, 21, 0));
+        eventManager.getRoomRepository().addRoom(organizer, eventManager.getRoomRepository().createRoom("R1", 10));
+        eventManager.addEvent(organizer, evening, "R1", eventManager.createConferenceEvent("E1", 5, EventType.TALK));
+        eventManager.addSpeakerToEvent(organizer, speaker, "2", "E1");
+        eventManager.getRoomRepository().addRoom(organizer, eventManager.getRoomRepository().createRoom("R2", 10));
+        eventManager.addEvent(organizer, night, "R2", eventManager.createConferenceEvent("E2", 5, EventType.TALK));
+        eventManager.addSpeakerToEvent(organizer, speaker, "2", "E2");
+        eventManager.removeEvent(organizer, "E1");
+        eventManager.addEvent(organizer, evening, "R1", eventManager.createConferenceEvent("E3", 5, EventType.TALK));
+        eventManager.addSpeakerToEvent(organizer, speaker, "3", "E3");
+        log.close();
+
+        // Counts the runs and changes handed to the repositories and the rebuilds after them
+        List<String> calls = new ArrayList<>();
+        Journaled recorder = new Journaled() {
+            @Override
+            public void setJournal(Journal journal) {
+            }
+
+            @Override
+            public void replay(String type, Map<String, Object> entities) {
+                calls.add(type);
+            }
+
+            @Override
+            public void replayChange(String type, String key, Object change) {
+                calls.add("change:" + type);
+            }
+
+            @Override
+            public void finishReplay() {
+                calls.add("finish");
+            }
+        };
+        ConferenceEventManager restored = new ConferenceEventManager();
+        WriteAheadLog restoredLog = new WriteAheadLog(logFile.getPath(), 1000);
+        restoredLog.replay(restored, recorder);
+        restoredLog.close();
+
+        // Runs and changes are handed over in the order they were written, with one rebuild at the end
+        assertTrue(calls.contains("change:" + ConferenceEventManager.EVENT_RECORD));
+        assertTrue(calls.contains("change:" + RoomManager.ROOM_RECORD));
+        assertEquals("finish", calls.get(calls.size() - 1));
+        assertEquals(1, Collections.frequency(calls, "finish"));
+        for (int i = 1; i < calls.size() - 1; i++) {
+            if (!calls.get(i - 1).startsWith("change:") && !calls.get(i).startsWith("change:")) {
+                assertNotEquals(calls.get(i - 1), calls.get(i));
+            }
+        }
+
+        assertFalse(restored.hasEvent("E1"));
+        assertEquals(Collections.singletonList("E3"), restored.getEventsAtInterval(evening));
+        assertEquals(Collections.singletonList("E2"), restored.getEventsAtInterval(night));
+        assertEquals("R1", restored.getRoomRepository().getRoomNameByEventName("E3"));
+        assertNull(restored.getRoomRepository().getRoomByEventName("E1"));
+        assertEquals(Collections.singletonList("E2"), restored.getSpeakerEventNames("2"));
+        assertEquals(Collections.singletonList("E3"), restored.getSpeakerEventNames("3"));
+    }
+
+    @Test
+    public void replayDropsRecordCutShortByCrashTest() throws Exception {
+        UserManager userManager = new UserManager();
+        WriteAheadLog log = new WriteAheadLog(logFile.getPath(), 1000);
+        log.replay(userManager);
+        userManager.setJournal(log);
+        userManager.save(u1);
+        userManager.save(u2);
+        log.close();
+
+        // Cut the last record short, as a crash part way through an append would
+        try (RandomAccessFile raf = new RandomAccessFile(logFile, "rw")) {
+            raf.setLength(raf.length() - 10);
+        }
+
+        UserManager restored = new UserManager();
+        WriteAheadLog restoredLog = new WriteAheadLog(logFile.getPath(), 1000);
+        restoredLog.replay(restored);
+        assertEquals(1, restoredLog.getRecordCount());
+        assertTrue(restored.hasUserById("1"));
+        assertFalse(restored.hasUserById("2"));
+
+        // Appending after the damaged record was dropped keeps the log readable
+        restored.setJournal(restoredLog);
+        restored.save(u2);
+        restoredLog.close();
+
+        UserManager again = new UserManager();
+        WriteAheadLog againLog = new WriteAheadLog(logFile.getPath(), 1000);
+        againLog.replay(again);
+        againLog.close();
+        assertTrue(again.hasUserById("2"));
+    }
+
+    @Test
+    public void logThatCannotBeReplayedIsMovedAsideTest() throws Exception {
+        UserManager userManager = new UserManager();
+        WriteAheadLog log = new WriteAheadLog(logFile.getPath(), 1000);
+        log.replay(userManager);
+        userManager.setJournal(log);
+        userManager.save(u1);
+        log.close();
+
+        // Append a record whose checksum is right but whose entity cannot be deserialized
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream bodyOutput = new DataOutputStream(body);
+        bodyOutput.writeByte(1);
+        bodyOutput.writeUTF(UserManager.USER_RECORD);
+        bodyOutput.writeUTF("2");
+        bodyOutput.write(new byte[]{1, 2, 3, 4});
+        CRC32 crc = new CRC32();
+        crc.update(body.toByteArray());
+        try (DataOutputStream output = new DataOutputStream(new FileOutputStream(logFile, true))) {
+            output.writeInt(body.size());
+            output.writeInt((int) crc.getValue());
+            body.writeTo(output);
+        }
+        long length = logFile.length();
+
+        UserManager restored = new UserManager();
+        WriteAheadLog restoredLog = new WriteAheadLog(logFile.getPath(), 1000);
+        try {
+            restoredLog.replay(restored);
+            fail("The damaged entity should not be replayed");
+        } catch (IOException expected) {
+            // Nothing is applied
+        }
+        assertFalse(restored.hasUserById("1"));
+
+        File failed = restoredLog.moveAside();
+        failed.deleteOnExit();
+        assertEquals(logFile.getPath() + ".failed", failed.getPath());
+        assertEquals(length, failed.length());
+        assertEquals(0, logFile.length());
+
+        // The records moved aside survive the truncation done by the next save
+        restored.setJournal(restoredLog);
+        restored.save(u3);
+        restoredLog.truncate();
+        restoredLog.close();
+        assertEquals(length, failed.length());
+    }
+
+    private MessengerManager newMessengerManager(int attendees) {
+        UserManager userManager = new UserManager();
+        User sender = new User("organizer@gmail.com", "hash", "First", "Last", Role.ORGANIZER);
+        sender.setId("o");
+        userManager.save(sender);
+        for (int i = 0; i < attendees; i++) {
+            User user = new User("user" + i + "@gmail.com", "hash", "First", "Last", Role.ATTENDEE);
+            user.setId("u" + i);
+            userManager.save(user);
+        }
+        MessengerManager messengerManager = new MessengerManager(userManager);
+        messengerManager.update();
+        return messengerManager;
+    }
+
+    @Test
+    public void broadcastIsRecordedOncePerBatchTest() throws Exception {
+        MessengerManager messengerManager = newMessengerManager(10);
+        messengerManager.setFanOut(Runnable::run, 4);
+        WriteAheadLog log = new WriteAheadLog(logFile.getPath(), 1000);
+        log.replay(messengerManager);
+        messengerManager.setJournal(log);
+
+        String conversationId = messengerManager.organizerSendToAllUserRole("o", "Hello", Role.ATTENDEE)
+                .getConversationId();
+        // The conversation, the change to the sender's inbox, and one record for each of the three batches
+        assertEquals(5, log.getRecordCount());
+
+        // A recipient deleting the broadcast after it came is not undone by replaying the delivery
+        messengerManager.deleteConversationForUser("u0", conversationId);
+        log.close();
+
+        MessengerManager restored = newMessengerManager(10);
+        WriteAheadLog restoredLog = new WriteAheadLog(logFile.getPath(), 1000);
+        restoredLog.replay(restored);
+        restoredLog.close();
+
+        assertFalse(restored.getMessageManager("u0").getConversationsMap().containsKey(conversationId));
+        for (int i = 1; i < 10; i++) {
+            MessageManager inbox = restored.getMessageManager("u" + i);
+            assertEquals(MessageManager.UNREAD, inbox.getConversationsMap().get(conversationId));
+            assertEquals(messengerManager.getMessageManager("u" + i).getLastActivity(conversationId),
+                    inbox.getLastActivity(conversationId));
+        }
+        assertEquals(MessageManager.READ, restored.getMessageManager("o").getConversationsMap().get(conversationId));
+    }
+
+    @Test
+    public void truncateEmptiesLogAndResetsCompactionTest() throws Exception {
+        UserManager userManager = new UserManager();
+        WriteAheadLog log = new WriteAheadLog(logFile.getPath(), 2);
+        log.replay(userManager);
+        userManager.setJournal(log);
+        userManager.save(u1);
+        assertFalse(log.needsCompaction());
+        userManager.save(u2);
+        assertTrue(log.needsCompaction());
+
+        log.truncate();
+        assertFalse(log.needsCompaction());
+        log.close();
+        assertEquals(0, logFile.length());
+    }
+}